@@ -251,6 +251,7 @@ public interface Constants {
 	 */
 	public static final int MAX_NUMBER_OF_VALUES = 100;
 	public static final int DEFAULT_BLOCK_SIZE = 1000000;
+	public static final int DEFAULT_BLOCK_MEMORY_BUDGET = -1;
 
 	/*
 	 * StringTable settings
@@ -42,6 +42,12 @@ public class DecodingOptions {
 	/** SchemaId in EXI header is not used */
 	public static final String IGNORE_SCHEMA_ID = "IGNORE_SCHEMA_ID";
 
+	/**
+	 * Decode 1st level event codes via precomputed per-grammar decode tables
+	 * (code to event type, event and next grammar)
+	 */
+	public static final String TABLE_DRIVEN_DISPATCH = "TABLE_DRIVEN_DISPATCH";
+
 	/** Pushback size for multiple streams in one file */
 	public static final int PUSHBACK_BUFFER_SIZE = 512;
 
@@ -78,7 +84,7 @@ public class DecodingOptions {
 	 *             if option is not supported
 	 */
 	public void setOption(String key) throws UnsupportedOption {
-		if (key.equals(IGNORE_SCHEMA_ID)) {
+		if (key.equals(IGNORE_SCHEMA_ID) || key.equals(TABLE_DRIVEN_DISPATCH)) {
 			options.add(key);
 		} else {
 			throw new UnsupportedOption("DecodingOption '" + key
@@ -89,6 +89,32 @@ public interface EXIBodyDecoder {
 	 */
 	public void updateInputChannel(DecoderChannel channel) throws EXIException,
 			IOException;
+
+	/**
+	 * Session mode only: starts the next document from the initial state
+	 * (empty string tables, unlearned grammars) and drops a possible
+	 * checkpoint. Must be called between documents.
+	 * 
+	 * @see EXIFactory#setSessionMode(boolean)
+	 */
+	public void resetSession();
+
+	/**
+	 * Session mode only: remembers the string tables and learned grammars of
+	 * the documents processed so far. Must be called between documents.
+	 * 
+	 * @throws EXIException if session mode is not enabled
+	 */
+	public void checkpointSession() throws EXIException;
+
+	/**
+	 * Session mode only: reverts the string tables and learned grammars to
+	 * the last checkpoint, or to the initial state if there is no checkpoint.
+	 * Must be called between documents.
+	 * 
+	 * @throws EXIException if session mode is not enabled
+	 */
+	public void rollbackSession() throws EXIException;
 	
 
 	/**
@@ -29,6 +29,7 @@ import java.io.OutputStream;
 import javax.xml.namespace.QName;
 
 import com.siemens.ct.exi.attributes.AttributeList;
+import com.siemens.ct.exi.context.QNameContext;
 import com.siemens.ct.exi.exceptions.EXIException;
 import com.siemens.ct.exi.exceptions.ErrorHandler;
 import com.siemens.ct.exi.io.channel.EncoderChannel;
@@ -64,6 +65,32 @@ public interface EXIBodyEncoder {
 	 */
 	public void setErrorHandler(ErrorHandler errorHandler);
 
+	/**
+	 * Session mode only: starts the next document from the initial state
+	 * (empty string tables, unlearned grammars) and drops a possible
+	 * checkpoint. Must be called between documents.
+	 * 
+	 * @see EXIFactory#setSessionMode(boolean)
+	 */
+	public void resetSession();
+
+	/**
+	 * Session mode only: remembers the string tables and learned grammars of
+	 * the documents processed so far. Must be called between documents.
+	 * 
+	 * @throws EXIException if session mode is not enabled
+	 */
+	public void checkpointSession() throws EXIException;
+
+	/**
+	 * Session mode only: reverts the string tables and learned grammars to
+	 * the last checkpoint, or to the initial state if there is no checkpoint.
+	 * Must be called between documents.
+	 * 
+	 * @throws EXIException if session mode is not enabled
+	 */
+	public void rollbackSession() throws EXIException;
+
 	/**
 	 * Reports the beginning of a set of XML events
 	 * 
@@ -115,6 +142,43 @@ public interface EXIBodyEncoder {
 	 */
 	public void encodeStartElement(QName se) throws EXIException, IOException;
 
+	/**
+	 * Resolves a qualified name to a name handle for
+	 * {@link #encodeStartElement(QNameContext, String)} and
+	 * {@link #encodeAttribute(QNameContext, String, Value)}.
+	 * 
+	 * <p>
+	 * Names known by the grammars resolve to handles that stay valid for all
+	 * streams coded with the same grammars. Handles of names added at runtime
+	 * are only resolved as long as the string tables are not reset. Handles
+	 * that are not (or no longer) known to the encoder are still accepted
+	 * but coded via their namespace URI and local-name strings. A handle of
+	 * a name that has been unknown when it was requested is looked up once
+	 * the name is known and coded by ID from then on.
+	 * </p>
+	 * 
+	 * @param uri namespace URI
+	 * @param localName local-name
+	 * @return name handle
+	 */
+	public QNameContext getQNameContext(String uri, String localName);
+
+	/**
+	 * Supplies the start of an element by means of a resolved name handle.
+	 * Known handles skip all namespace URI and local-name lookups.
+	 * 
+	 * @param se
+	 *            start element's qname context
+	 * @param prefix element prefix
+	 *            (can be null according to fidelity options)
+	 * 
+	 * @throws EXIException EXI exception
+	 * @throws IOException IO exception
+	 * @see #getQNameContext(String, String)
+	 */
+	public void encodeStartElement(QNameContext se, String prefix)
+			throws EXIException, IOException;
+
 	/**
 	 * Supplies the end tag of an element.
 	 * 
@@ -171,6 +235,23 @@ public interface EXIBodyEncoder {
 	public void encodeAttribute(QName at, Value value) throws EXIException,
 			IOException;
 
+	/**
+	 * Supplies an attribute by means of a resolved name handle. Known handles
+	 * skip all namespace URI and local-name lookups.
+	 * 
+	 * @param at
+	 *            attribute's qname context
+	 * @param prefix attribute prefix
+	 *            (can be null according to fidelity options)
+	 * @param value attribute value
+	 * 
+	 * @throws EXIException EXI exception
+	 * @throws IOException IO exception
+	 * @see #getQNameContext(String, String)
+	 */
+	public void encodeAttribute(QNameContext at, String prefix, Value value)
+			throws EXIException, IOException;
+
 	/**
 	 * Namespaces are reported as a discrete Namespace event.
 	 * 
@@ -217,6 +298,19 @@ public interface EXIBodyEncoder {
 	 */
 	public void encodeCharacters(Value chars) throws EXIException, IOException;
 
+	/**
+	 * Supplies characters of an enumeration by means of the index of the
+	 * enumeration value. The current grammar needs to expect characters of
+	 * an enumeration datatype.
+	 * 
+	 * @param index enumeration index
+	 * 
+	 * @throws EXIException EXI exception
+	 * @throws IOException IO exception
+	 */
+	public void encodeEnumValueIndex(int index) throws EXIException,
+			IOException;
+
 	/**
 	 * Supplies content items to represent a DOCTYPE definition
 	 * 
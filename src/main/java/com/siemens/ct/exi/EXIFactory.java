@@ -32,6 +32,7 @@ import com.siemens.ct.exi.datatype.strings.StringDecoder;
 import com.siemens.ct.exi.datatype.strings.StringEncoder;
 import com.siemens.ct.exi.exceptions.EXIException;
 import com.siemens.ct.exi.grammars.Grammars;
+import com.siemens.ct.exi.io.compression.DeflateDictionaries;
 import com.siemens.ct.exi.types.TypeDecoder;
 import com.siemens.ct.exi.types.TypeEncoder;
 
@@ -133,6 +134,28 @@ public interface EXIFactory extends Cloneable {
 	 */
 	public boolean isFragment();
 
+	/**
+	 * Enables the (non-standard) session mode. Consecutive documents encoded
+	 * or decoded by the same EXI body coder continue with the string tables
+	 * and learned grammars of the previous documents instead of starting from
+	 * scratch. The session is not signaled in the EXI stream, encoder and
+	 * decoder have to opt in alike and need to process the same sequence of
+	 * documents. By default session mode is disabled.
+	 * 
+	 * @param sessionMode true to keep state between documents
+	 * @see EXIBodyEncoder#resetSession()
+	 * @see EXIBodyEncoder#checkpointSession()
+	 */
+	public void setSessionMode(boolean sessionMode);
+
+	/**
+	 * Returns whether string tables and learned grammars are kept between
+	 * documents.
+	 * 
+	 * @return session mode
+	 */
+	public boolean isSessionMode();
+
 	/**
 	 * Sets the EXI <code>Grammars</code> used for coding.
 	 * 
@@ -181,6 +204,39 @@ public interface EXIFactory extends Cloneable {
 	 */
 	public int getBlockSize();
 
+	/**
+	 * Limits the heap memory (in bytes) that is used for buffering the value
+	 * channels of a (pre-)compression block. Channel data exceeding the budget
+	 * is spilled to a temporary file. The default -1 means unbounded.
+	 * 
+	 * @param blockMemoryBudget budget in bytes or -1 for unbounded
+	 */
+	public void setBlockMemoryBudget(int blockMemoryBudget);
+
+	/**
+	 * Returns the heap memory budget (in bytes) for value channels of a
+	 * (pre-)compression block, -1 if unbounded.
+	 * 
+	 * @return blockMemoryBudget
+	 */
+	public int getBlockMemoryBudget();
+
+	/**
+	 * Sets preset dictionaries for the deflate streams in COMPRESSION mode.
+	 * The same dictionaries have to be used for encoding and decoding, they
+	 * are not signaled in the EXI stream. By default no dictionaries are used.
+	 * 
+	 * @param deflateDictionaries dictionaries or null
+	 */
+	public void setDeflateDictionaries(DeflateDictionaries deflateDictionaries);
+
+	/**
+	 * Returns the preset deflate dictionaries (if any).
+	 * 
+	 * @return deflateDictionaries or null
+	 */
+	public DeflateDictionaries getDeflateDictionaries();
+
 	/**
 	 * The valueMaxLength option specifies the maximum length of value content
 	 * items to be considered for addition to the string table. The default
@@ -29,9 +29,8 @@ import java.util.Set;
 import com.siemens.ct.exi.exceptions.UnsupportedOption;
 import com.siemens.ct.exi.grammars.event.EventType;
 import com.siemens.ct.exi.grammars.grammar.Grammar;
+import com.siemens.ct.exi.grammars.grammar.GrammarType;
 import com.siemens.ct.exi.grammars.grammar.SchemaInformedFirstStartTagGrammar;
-import com.siemens.ct.exi.grammars.grammar.SchemaInformedGrammar;
-import com.siemens.ct.exi.grammars.grammar.SchemaInformedStartTagGrammar;
 import com.siemens.ct.exi.util.MethodsBag;
 
 /**
@@ -80,7 +79,12 @@ public class FidelityOptions {
 	protected boolean isPrefix = false;
 	protected boolean isLexicalValue = false;
 	protected boolean isSC = false;
-	
+
+	/* upper bound (exclusive) of 2nd level event codes */
+	protected static final int MAX_2ND_LEVEL_EVENT_CODES = 16;
+
+	/* event-code tables by grammar layout, reset when fidelity changes */
+	protected volatile EventCodeTable[] eventCodeTables;
 
 	protected FidelityOptions() {
 		options = new HashSet<String>();
@@ -153,6 +157,7 @@ public class FidelityOptions {
 	 */
 	public void setFidelity(String key, boolean decision)
 			throws UnsupportedOption {
+		eventCodeTables = null;
 		if (key.equals(FEATURE_STRICT)) {
 			if (decision) {
 				// no other features allowed
@@ -283,52 +288,160 @@ public class FidelityOptions {
 		return options.toString();
 	}
 	
-	public int get1stLevelEventCodeLength(Grammar grammar){
-		int cl1;
-		
-		switch(grammar.getGrammarType()) {
+	/**
+	 * Returns the event-code table describing the 1st and 2nd level event
+	 * codes of the given grammar under these fidelity options.
+	 * 
+	 * <p>
+	 * Tables are computed once per grammar layout (grammar type and the
+	 * schema-informed EE, xsi:type and xsi:nil characteristics) and cached
+	 * until the fidelity options change. Productions learned by built-in
+	 * grammars only change the number of 1st level events which is read at
+	 * lookup time.
+	 * </p>
+	 * 
+	 * @param grammar
+	 *            current grammar
+	 * @return event-code table
+	 */
+	public EventCodeTable getEventCodeTable(Grammar grammar) {
+		EventCodeTable[] tables = eventCodeTables;
+		if (tables == null) {
+			tables = createEventCodeTables();
+			eventCodeTables = tables;
+		}
+		return tables[getLayoutKey(grammar)];
+	}
+
+	protected static int getLayoutKey(Grammar grammar) {
+		GrammarType grammarType = grammar.getGrammarType();
+		int key = grammarType.ordinal() << 3;
+		switch (grammarType) {
+		case SCHEMA_INFORMED_FIRST_START_TAG_CONTENT:
+			SchemaInformedFirstStartTagGrammar sifst = (SchemaInformedFirstStartTagGrammar) grammar;
+			if (sifst.isTypeCastable()) {
+				key |= 2;
+			}
+			if (sifst.isNillable()) {
+				key |= 1;
+			}
+			if (grammar.hasEndElement()) {
+				key |= 4;
+			}
+			break;
+		case SCHEMA_INFORMED_START_TAG_CONTENT:
+		case SCHEMA_INFORMED_ELEMENT_CONTENT:
+			if (grammar.hasEndElement()) {
+				key |= 4;
+			}
+			break;
+		default:
+			break;
+		}
+		return key;
+	}
+
+	private EventCodeTable[] createEventCodeTables() {
+		GrammarType[] grammarTypes = GrammarType.values();
+		EventCodeTable[] tables = new EventCodeTable[grammarTypes.length << 3];
+		for (GrammarType grammarType : grammarTypes) {
+			for (int i = 0; i < 8; i++) {
+				tables[(grammarType.ordinal() << 3) | i] = createEventCodeTable(
+						grammarType, (i & 4) != 0, (i & 2) != 0, (i & 1) != 0);
+			}
+		}
+		return tables;
+	}
+
+	private EventCodeTable createEventCodeTable(GrammarType grammarType,
+			boolean hasEndElement, boolean isTypeCastable, boolean isNillable) {
+		int ch2 = compute2ndLevelCharacteristics(grammarType, hasEndElement,
+				isTypeCastable, isNillable);
+
+		// 1st level code length
+		int codeLength1 = EventCodeTable.DYNAMIC;
+		int additional1 = 0;
+		switch (grammarType) {
 		/* Root grammars*/
 		case DOCUMENT:
 		case FRAGMENT:
-			cl1 = 0;
+			codeLength1 = 0;
 			break;
 		case DOC_END:
-			if(isComment || isPI) {
-				cl1 = 1;
-			} else {
-				cl1 = 0;
-			}
+			codeLength1 = (isComment || isPI) ? 1 : 0;
 			break;
 		case SCHEMA_INFORMED_DOC_CONTENT:
 		case BUILT_IN_DOC_CONTENT:
-			cl1 = MethodsBag.getCodingLength(grammar.getNumberOfEvents() + ((isDTD || isComment || isPI) ? 1 : 0));
+			additional1 = (isDTD || isComment || isPI) ? 1 : 0;
 			break;
 		case SCHEMA_INFORMED_FRAGMENT_CONTENT:
 		case BUILT_IN_FRAGMENT_CONTENT:
-			cl1 = MethodsBag.getCodingLength(grammar.getNumberOfEvents() + ((isComment || isPI) ? 1 : 0));
+			additional1 = (isComment || isPI) ? 1 : 0;
 			break;
 		/* Schema-informed Element and Type Grammars */
 		case SCHEMA_INFORMED_FIRST_START_TAG_CONTENT:
 		case SCHEMA_INFORMED_START_TAG_CONTENT:
 		case SCHEMA_INFORMED_ELEMENT_CONTENT:
-			cl1 = MethodsBag.getCodingLength(grammar.getNumberOfEvents() + (get2ndLevelCharacteristics(grammar) > 0 ? 1 : 0));
+			additional1 = ch2 > 0 ? 1 : 0;
 			break;
 		case BUILT_IN_START_TAG_CONTENT:
 		case BUILT_IN_ELEMENT_CONTENT:
-			cl1 = MethodsBag.getCodingLength(grammar.getNumberOfEvents() + 1); // always second level!
+			additional1 = 1; // always second level!
 			break;
-		default:
-			cl1 = -1;	
 		}
-		
-		return cl1;
+
+		// 2nd level event types by code
+		EventType[] eventTypes2 = new EventType[MAX_2ND_LEVEL_EVENT_CODES];
+		int length = 0;
+		for (int ec2 = 0; ec2 < eventTypes2.length; ec2++) {
+			eventTypes2[ec2] = compute2ndLevelEventType(ec2, grammarType,
+					hasEndElement, isTypeCastable, isNillable);
+			if (eventTypes2[ec2] != null) {
+				length = ec2 + 1;
+			}
+		}
+		EventType[] types = new EventType[length];
+		System.arraycopy(eventTypes2, 0, types, 0, length);
+
+		// 2nd level event codes by event type
+		EventType[] allEventTypes = EventType.values();
+		int[] eventCodes2 = new int[allEventTypes.length];
+		for (EventType eventType : allEventTypes) {
+			eventCodes2[eventType.ordinal()] = compute2ndLevelEventCode(
+					eventType, grammarType, hasEndElement, isTypeCastable,
+					isNillable);
+		}
+
+		return new EventCodeTable(codeLength1, additional1, types,
+				eventCodes2, ch2);
 	}
-	
-	
+
+	public int get1stLevelEventCodeLength(Grammar grammar) {
+		return getEventCodeTable(grammar).get1stLevelEventCodeLength(
+				grammar.getNumberOfEvents());
+	}
+
 	public EventType get2ndLevelEventType(final int ec2, Grammar grammar) {
+		return getEventCodeTable(grammar).get2ndLevelEventType(ec2);
+	}
+
+	public int get2ndLevelEventCode(final EventType eventType, Grammar grammar) {
+		return getEventCodeTable(grammar).get2ndLevelEventCode(eventType);
+	}
+
+	public int get2ndLevelCharacteristics(Grammar grammar) {
+		return getEventCodeTable(grammar).get2ndLevelCharacteristics();
+	}
+
+	public int get2ndLevelEventCodeLength(Grammar grammar) {
+		return getEventCodeTable(grammar).get2ndLevelEventCodeLength();
+	}
+
+	private EventType compute2ndLevelEventType(final int ec2,
+			GrammarType grammarType, boolean hasEndElement, boolean isTypeCastable, boolean isNillable) {
 		EventType eventType = null;
 		
-		switch(grammar.getGrammarType()) {
+		switch(grammarType) {
 		/* Root grammars*/
 		case DOCUMENT:
 		case FRAGMENT:
@@ -346,22 +459,21 @@ public class FidelityOptions {
 			break;
 		/* Schema-informed Element and Type Grammars */
 		case SCHEMA_INFORMED_FIRST_START_TAG_CONTENT:
-			SchemaInformedFirstStartTagGrammar sifst = (SchemaInformedFirstStartTagGrammar) grammar;
 			if(isStrict) {
 				// isTypeCastable, isNillable
-				if (sifst.isTypeCastable()) {
+				if (isTypeCastable) {
 					if(ec2 == 0) {
 						eventType = EventType.ATTRIBUTE_XSI_TYPE;
 					} else if (ec2 == 1) {
 						eventType = EventType.ATTRIBUTE_XSI_NIL;
 					}
-				} else if (sifst.isNillable() && ec2 == 0) {
+				} else if (isNillable && ec2 == 0) {
 					eventType = EventType.ATTRIBUTE_XSI_NIL;
 				}
 			} else {
 				// {0,EE?, 1,xsi:type, 2,xsi:nil, 3,AT*, 4,AT-untyped, 5,NS, 6,SC, 7,SE*, 8,CH, 9,ER, {CM, PI}}
 				int dec = 0;
-				if(sifst.hasEndElement()) {
+				if(hasEndElement) {
 					dec++;
 				} 
 				if(ec2 == 0 - dec) {
@@ -407,13 +519,12 @@ public class FidelityOptions {
 			}
 			break;
 		case SCHEMA_INFORMED_START_TAG_CONTENT:
-			SchemaInformedStartTagGrammar sist = (SchemaInformedStartTagGrammar) grammar;
 			if(isStrict) {
 				// no events
 			} else {
 				// {0,EE?, 1,AT*, 2,AT-untyped, 3,SE*, 4,CH, 5,ER, {CM, PI}}
 				int dec = 0;
-				if(sist.hasEndElement()) {
+				if(hasEndElement) {
 					dec++;
 				} 
 				if(ec2 == 0 - dec) {
@@ -441,13 +552,12 @@ public class FidelityOptions {
 			}
 			break;
 		case SCHEMA_INFORMED_ELEMENT_CONTENT:
-			SchemaInformedGrammar sig = (SchemaInformedGrammar) grammar;
 			if(isStrict) {
 				// no events
 			} else {
 				// {0,EE?, 1,SE*, 2,CH*, 3,ER?, {CM, PI}}
 				int dec = 0;
-				if(sig.hasEndElement()) {
+				if(hasEndElement) {
 					dec++;
 				} 
 				if(ec2 == 0 - dec) {
@@ -525,9 +635,10 @@ public class FidelityOptions {
 		return eventType;
 	}
 	
-	public int get2ndLevelEventCode(final EventType eventType, Grammar grammar) {
+	private int compute2ndLevelEventCode(final EventType eventType,
+			GrammarType grammarType, boolean hasEndElement, boolean isTypeCastable, boolean isNillable) {
 		int ec2 = Constants.NOT_FOUND;
-		switch(grammar.getGrammarType()) {
+		switch(grammarType) {
 		/* Root grammars*/
 		case DOCUMENT:
 		case FRAGMENT:
@@ -545,22 +656,21 @@ public class FidelityOptions {
 			break;
 		/* Schema-informed Element and Type Grammars */
 		case SCHEMA_INFORMED_FIRST_START_TAG_CONTENT:
-			SchemaInformedFirstStartTagGrammar sifst = (SchemaInformedFirstStartTagGrammar) grammar;
 			if(isStrict) {
 				// isTypeCastable, isNillable
-				if (sifst.isTypeCastable()) {
+				if (isTypeCastable) {
 					if(eventType == EventType.ATTRIBUTE_XSI_TYPE) {
 						ec2 = 0;
 					} else if (eventType == EventType.ATTRIBUTE_XSI_NIL) {
 						ec2 = 1;
 					}
-				} else if (sifst.isNillable() && eventType == EventType.ATTRIBUTE_XSI_NIL) {
+				} else if (isNillable && eventType == EventType.ATTRIBUTE_XSI_NIL) {
 					ec2 = 0;
 				}
 			} else {
 				// {0,EE?, 1,xsi:type, 2,xsi:nil, 3,AT*, 4,AT-untyped, 5,NS, 6,SC, 7,SE*, 8,CH, 9,ER, {CM, PI}}
 				int dec = 0;
-				if(sifst.hasEndElement()) {
+				if(hasEndElement) {
 					dec++;
 				} 
 				if(eventType == EventType.END_ELEMENT_UNDECLARED) {
@@ -606,13 +716,12 @@ public class FidelityOptions {
 			}
 			break;
 		case SCHEMA_INFORMED_START_TAG_CONTENT:
-			SchemaInformedStartTagGrammar sist = (SchemaInformedStartTagGrammar) grammar;
 			if(isStrict) {
 				// no events
 			} else {
 				// {0,EE?, 1,AT*, 2,AT-untyped, 3,SE*, 4,CH, 5,ER, {CM, PI}}
 				int dec = 0;
-				if(sist.hasEndElement()) {
+				if(hasEndElement) {
 					dec++;
 				} 
 				if(eventType == EventType.END_ELEMENT_UNDECLARED) {
@@ -640,13 +749,12 @@ public class FidelityOptions {
 			}
 			break;
 		case SCHEMA_INFORMED_ELEMENT_CONTENT:
-			SchemaInformedGrammar sig = (SchemaInformedGrammar) grammar;
 			if(isStrict) {
 				// no events
 			} else {
 				// {0,EE?, 1,SE*, 2,CH*, 3,ER?, {CM, PI}}
 				int dec = 0;
-				if(sig.hasEndElement()) {
+				if(hasEndElement) {
 					dec++;
 				} 
 				if(eventType == EventType.END_ELEMENT_UNDECLARED) {
@@ -724,9 +832,9 @@ public class FidelityOptions {
 	}
 
 	
-	public int get2ndLevelCharacteristics(Grammar grammar) {
+	private int compute2ndLevelCharacteristics(GrammarType grammarType, boolean hasEndElement, boolean isTypeCastable, boolean isNillable) {
 		int ch2 = 0;
-		switch(grammar.getGrammarType()) {
+		switch(grammarType) {
 		/* Root grammars*/
 		case DOCUMENT:
 		case FRAGMENT:
@@ -756,13 +864,12 @@ public class FidelityOptions {
 			break;
 		/* Schema-informed Element and Type Grammars */
 		case SCHEMA_INFORMED_FIRST_START_TAG_CONTENT:
-			SchemaInformedFirstStartTagGrammar sifst = (SchemaInformedFirstStartTagGrammar) grammar;
 			if(isStrict) {
 				// isTypeCastable, isNillable
-				ch2 = (sifst.isTypeCastable() ? 1 : 0) + (sifst.isNillable() ? 1 : 0);
+				ch2 = (isTypeCastable ? 1 : 0) + (isNillable ? 1 : 0);
 			} else {
 				// {EE?, xsi:type, xsi:nil, AT*, AT-untyped, NS, SC, SE*, CH, ER, {CM, PI}}
-				if(!sifst.hasEndElement()) { // EE
+				if(!hasEndElement) { // EE
 					ch2++;
 				}
 				ch2 += 4; // xsi:type, xsi:nil, AT*, AT-untyped,
@@ -782,12 +889,11 @@ public class FidelityOptions {
 			}
 			break;
 		case SCHEMA_INFORMED_START_TAG_CONTENT:
-			SchemaInformedStartTagGrammar sist = (SchemaInformedStartTagGrammar) grammar;
 			if(isStrict) {
 				// no events
 			} else {
 				// {EE?, AT*, AT-untyped, SE*, CH, ER, {CM, PI}}
-				if(!sist.hasEndElement()) { // EE
+				if(!hasEndElement) { // EE
 					ch2++;
 				}
 				ch2 += 4; // AT*, AT-untyped, SE*, CH
@@ -800,12 +906,11 @@ public class FidelityOptions {
 			}
 			break;
 		case SCHEMA_INFORMED_ELEMENT_CONTENT:
-			SchemaInformedGrammar sig = (SchemaInformedGrammar) grammar;
 			if(isStrict) {
 				// no events
 			} else {
 				// {EE?, SE*, CH*, ER?, {CM, PI}}
-				if(!sig.hasEndElement()) { // EE
+				if(!hasEndElement) { // EE
 					ch2++;
 				}
 				ch2 += 2; // SE*, CH
@@ -902,6 +1007,60 @@ public class FidelityOptions {
 		}
 		return ch;
 	}
-	
+
+	public int get3rdLevelEventCodeLength() {
+		return MethodsBag.getCodingLength(get3rdLevelCharacteristics());
+	}
+
+	/**
+	 * Precomputed 1st and 2nd level event codes of one grammar layout.
+	 */
+	public static final class EventCodeTable {
+
+		/* 1st level code length depends on the number of events */
+		static final int DYNAMIC = -1;
+
+		final int codeLength1;
+		final int additional1;
+		final EventType[] eventTypes2;
+		final int[] eventCodes2;
+		final int characteristics2;
+		final int codeLength2;
+
+		EventCodeTable(int codeLength1, int additional1,
+				EventType[] eventTypes2, int[] eventCodes2,
+				int characteristics2) {
+			this.codeLength1 = codeLength1;
+			this.additional1 = additional1;
+			this.eventTypes2 = eventTypes2;
+			this.eventCodes2 = eventCodes2;
+			this.characteristics2 = characteristics2;
+			this.codeLength2 = MethodsBag.getCodingLength(characteristics2);
+		}
+
+		public int get1stLevelEventCodeLength(int numberOfEvents) {
+			if (codeLength1 == DYNAMIC) {
+				return MethodsBag.getCodingLength(numberOfEvents + additional1);
+			}
+			return codeLength1;
+		}
+
+		public EventType get2ndLevelEventType(int ec2) {
+			return (ec2 >= 0 && ec2 < eventTypes2.length) ? eventTypes2[ec2]
+					: null;
+		}
+
+		public int get2ndLevelEventCode(EventType eventType) {
+			return eventCodes2[eventType.ordinal()];
+		}
+
+		public int get2ndLevelCharacteristics() {
+			return characteristics2;
+		}
+
+		public int get2ndLevelEventCodeLength() {
+			return codeLength2;
+		}
+	}
 
 }
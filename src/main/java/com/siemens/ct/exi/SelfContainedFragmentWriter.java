@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2007-2016 Siemens AG
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ */
+
+package com.siemens.ct.exi;
+
+import java.io.IOException;
+
+import com.siemens.ct.exi.exceptions.EXIException;
+
+/**
+ * Writes the content of a selfContained element that is encoded
+ * independently of the surrounding EXI stream (e.g., on a worker thread).
+ * 
+ * <p>
+ * The given encoder is positioned right after the start tag of the SC
+ * element. The writer reports namespace declarations, attributes and child
+ * content but NOT the closing end tag of the SC element itself.
+ * </p>
+ * 
+ * @author Daniel.Peintner.EXT@siemens.com
+ * @author Joerg.Heuer@siemens.com
+ * 
+ * @version 0.9.7-SNAPSHOT
+ */
+
+public interface SelfContainedFragmentWriter {
+
+	/**
+	 * Reports the content of the SC element to the fragment encoder.
+	 * 
+	 * @param encoder
+	 *            fragment encoder positioned after SE(qname)
+	 * 
+	 * @throws EXIException EXI exception
+	 * @throws IOException IO exception
+	 */
+	public void writeContent(EXIBodyEncoder encoder) throws EXIException,
+			IOException;
+
+}
@@ -23,6 +23,8 @@
 
 package com.siemens.ct.exi.context;
 
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * 
@@ -36,11 +38,19 @@ public class GrammarContext {
 	
 	protected final GrammarUriContext[] grammarUriContexts;
 	protected final int numberofQNamesContexts;
+	// namespace uri index
+	protected final Map<String, GrammarUriContext> grammarUriContextsIndex;
 
 	public GrammarContext(GrammarUriContext[] grammarUriContexts,
 			int numberofQNamesContexts) {
 		this.grammarUriContexts = grammarUriContexts;
 		this.numberofQNamesContexts = numberofQNamesContexts;
+		this.grammarUriContextsIndex = new HashMap<String, GrammarUriContext>();
+		for (int i = grammarUriContexts.length - 1; i >= 0; i--) {
+			// Note: first entry wins
+			GrammarUriContext uc = grammarUriContexts[i];
+			grammarUriContextsIndex.put(uc.namespaceUri, uc);
+		}
 	}
 
 	public int getNumberOfGrammarUriContexts() {
@@ -52,13 +62,7 @@ public class GrammarContext {
 	}
 
 	public GrammarUriContext getGrammarUriContext(String namespaceUri) {
-		for (int i = 0; i < grammarUriContexts.length; i++) {
-			GrammarUriContext uc = grammarUriContexts[i];
-			if (uc.namespaceUri.equals(namespaceUri)) {
-				return uc;
-			}
-		}
-		return null;
+		return grammarUriContextsIndex.get(namespaceUri);
 	}
 
 	public int getNumberOfGrammarQNameContexts() {
@@ -26,6 +26,7 @@ package com.siemens.ct.exi.core;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -38,6 +39,7 @@ import com.siemens.ct.exi.context.GrammarContext;
 import com.siemens.ct.exi.context.GrammarUriContext;
 import com.siemens.ct.exi.context.QNameContext;
 import com.siemens.ct.exi.core.container.NamespaceDeclaration;
+import com.siemens.ct.exi.core.container.NamespaceTable;
 import com.siemens.ct.exi.datatype.BooleanDatatype;
 import com.siemens.ct.exi.exceptions.EXIException;
 import com.siemens.ct.exi.exceptions.ErrorHandler;
@@ -47,6 +49,7 @@ import com.siemens.ct.exi.grammars.event.Attribute;
 import com.siemens.ct.exi.grammars.event.Event;
 import com.siemens.ct.exi.grammars.event.EventType;
 import com.siemens.ct.exi.grammars.event.StartElement;
+import com.siemens.ct.exi.grammars.grammar.BuiltInGrammar;
 import com.siemens.ct.exi.grammars.grammar.BuiltInStartTag;
 import com.siemens.ct.exi.grammars.grammar.Grammar;
 import com.siemens.ct.exi.grammars.production.Production;
@@ -85,12 +88,15 @@ public abstract class AbstractEXIBodyCoder {
 	protected ElementContext[] elementContextStack;
 	protected int elementContextStackIndex;
 	public static final int INITIAL_STACK_SIZE = 16;
+	// in-scope prefix declarations
+	protected final NamespaceTable namespaces;
 
 	// runtime global elements
 	protected Map<QNameContext, StartElement> runtimeGlobalElements;
 	
 	// runtime uris & names et cetera
 	List<RuntimeUriContext> runtimeUris;
+	Map<String, RuntimeUriContext> runtimeUrisIndex;
 	
 	// Xsi qname contexts
 	protected QNameContext xsiTypeContext;
@@ -105,6 +111,13 @@ public abstract class AbstractEXIBodyCoder {
 	protected final int maxBuiltInProductions;
 	protected int learnedProductions;
 
+	/** Session mode, runtime data is kept between documents */
+	protected final boolean sessionMode;
+	protected boolean sessionStarted;
+	protected SessionCheckpoint sessionCheckpoint;
+	// document or fragment grammar of the current session
+	protected Grammar startGrammar;
+
 	
 	public AbstractEXIBodyCoder(EXIFactory exiFactory) throws EXIException {
 		this.exiFactory = exiFactory;
@@ -127,10 +140,14 @@ public abstract class AbstractEXIBodyCoder {
 		// init once (runtime lists et cetera)
 		runtimeGlobalElements = new HashMap<QNameContext, StartElement>();
 		runtimeUris = new ArrayList<RuntimeUriContext>();
+		runtimeUrisIndex = new HashMap<String, RuntimeUriContext>();
 		for(int i=0; i< this.gUris; i++) {
-			this.runtimeUris.add(new RuntimeUriContext(this.grammarContext.getGrammarUriContext(i)));
+			RuntimeUriContext ruc = new RuntimeUriContext(this.grammarContext.getGrammarUriContext(i));
+			this.runtimeUris.add(ruc);
+			indexUri(ruc);
 		}
 		elementContextStack = new ElementContext[INITIAL_STACK_SIZE];
+		namespaces = new NamespaceTable();
 
 		// Boolean datatype
 		booleanDatatype = new BooleanDatatype(null);
@@ -145,6 +162,8 @@ public abstract class AbstractEXIBodyCoder {
 			maxBuiltInProductions = -1;
 			limitGrammarLearning = false;
 		}
+		
+		sessionMode = exiFactory.isSessionMode();
 	}
 
 	protected QNameContext getXsiTypeContext() {
@@ -227,23 +246,75 @@ public abstract class AbstractEXIBodyCoder {
 	// re-init (rule stack etc)
 	protected void initForEachRun() throws EXIException, IOException {
 
-		// clear runtime data
+		// session mode continues with runtime data of previous documents
+		if (!sessionStarted) {
+			clearRuntimeData();
+			sessionStarted = sessionMode;
+		}
+
+		// (core) context
+		elementContextStackIndex = 0;
+		elementContextStack[elementContextStackIndex] = elementContext = new ElementContext(
+				null, startGrammar);
+		namespaces.clear();
+	}
+
+	// clear runtime data (string tables, learned grammars etc)
+	protected void clearRuntimeData() throws EXIException, IOException {
 		this.runtimeGlobalElements.clear();
 		for(int i=0; i<nextUriID; i++) {
-			this.runtimeUris.get(i).clear();
+			RuntimeUriContext ruc = this.runtimeUris.get(i);
+			if (i >= this.gUris) {
+				unindexUri(ruc);
+			}
+			ruc.clear();
 		}
 		
 		// re-set schema-informed grammar IDs
 		nextUriID = this.gUris;
 
 		// possible document/fragment grammar
-		Grammar startRule = exiFactory.isFragment() ? grammar
+		startGrammar = exiFactory.isFragment() ? grammar
 				.getFragmentGrammar() : grammar.getDocumentGrammar();
+	}
 
-		// (core) context
-		elementContextStackIndex = 0;
-		elementContextStack[elementContextStackIndex] = elementContext = new ElementContext(
-				null, startRule);
+	public void resetSession() {
+		sessionStarted = false;
+		sessionCheckpoint = null;
+	}
+
+	public void checkpointSession() throws EXIException {
+		if (!sessionMode) {
+			throw new EXIException("Session mode is not enabled");
+		}
+		try {
+			if (!sessionStarted) {
+				clearRuntimeData();
+				sessionStarted = true;
+			}
+			setCheckpoint();
+		} catch (IOException e) {
+			throw new EXIException(e);
+		}
+	}
+
+	public void rollbackSession() throws EXIException {
+		if (!sessionMode) {
+			throw new EXIException("Session mode is not enabled");
+		}
+		if (sessionCheckpoint == null) {
+			resetSession();
+		} else if (sessionStarted) {
+			restoreCheckpoint();
+		}
+	}
+
+	protected void setCheckpoint() {
+		sessionCheckpoint = new SessionCheckpoint();
+	}
+
+	protected void restoreCheckpoint() {
+		sessionCheckpoint.restore();
 	}
 
 	protected final void declarePrefix(String pfx, String uri) {
@@ -256,38 +327,22 @@ public abstract class AbstractEXIBodyCoder {
 		}
 		assert (!elementContext.nsDeclarations.contains(nsDecl));
 		elementContext.nsDeclarations.add(nsDecl);
+		// Note: declarations of the first stack item are not looked up
+		if (elementContextStackIndex > 0) {
+			namespaces.declarePrefix(nsDecl.prefix, nsDecl.namespaceURI);
+		}
 	}
 
 	protected final String getURI(String prefix) {
-		// check all stack items except last one (in reverse order)
-		for (int i = elementContextStackIndex; i > 0; i--) {
-			ElementContext ec = elementContextStack[i];
-			if (ec.nsDeclarations != null) {
-				for (int k = 0; k < ec.nsDeclarations.size(); k++) {
-					NamespaceDeclaration ns = ec.nsDeclarations.get(k);
-					if (ns.prefix.equals(prefix)) {
-						return ns.namespaceURI;
-					}
-				}
-			}
+		String uri = namespaces.getURI(prefix);
+		if (uri == null && prefix.length() == 0) {
+			uri = Constants.XML_NULL_NS_URI;
 		}
-		return prefix.length() == 0 ? Constants.XML_NULL_NS_URI : null;
+		return uri;
 	}
 
 	protected final String getPrefix(String uri) {
-		// check all stack items except first one
-		for (int i = 1; i <= elementContextStackIndex; i++) {
-			ElementContext ec = elementContextStack[i];
-			if (ec.nsDeclarations != null) {
-				for (int k = 0; k < ec.nsDeclarations.size(); k++) {
-					NamespaceDeclaration ns = ec.nsDeclarations.get(k);
-					if (ns.namespaceURI.equals(uri)) {
-						return ns.prefix;
-					}
-				}
-			}
-		}
-		return null;
+		return namespaces.getPrefix(uri);
 	}
 
 	protected void pushElement(Grammar updContextGrammar, StartElement se) {
@@ -305,6 +360,7 @@ public abstract class AbstractEXIBodyCoder {
 		// create new stack item & push it
 		elementContextStack[elementContextStackIndex] = elementContext = new ElementContext(
 				se.getQNameContext(), se.getGrammar());
+		namespaces.pushContext();
 	}
 
 	protected final ElementContext popElement() {
@@ -313,6 +369,7 @@ public abstract class AbstractEXIBodyCoder {
 		ElementContext poppedEC = elementContextStack[elementContextStackIndex];
 		elementContextStack[elementContextStackIndex--] = null;
 		elementContext = elementContextStack[elementContextStackIndex];
+		namespaces.popContext();
 
 		return poppedEC;
 	}
@@ -331,23 +388,30 @@ public abstract class AbstractEXIBodyCoder {
 			ruc = new RuntimeUriContext(uriID, uri); 
 			this.runtimeUris.add(ruc);
 		}
+		indexUri(ruc);
 		
 		return ruc;
 	}
+
+	private void indexUri(RuntimeUriContext ruc) {
+		// Note: first URI entry wins (as for a sequential lookup)
+		if (!runtimeUrisIndex.containsKey(ruc.namespaceUri)) {
+			runtimeUrisIndex.put(ruc.namespaceUri, ruc);
+		}
+	}
+
+	private void unindexUri(RuntimeUriContext ruc) {
+		if (runtimeUrisIndex.get(ruc.namespaceUri) == ruc) {
+			runtimeUrisIndex.remove(ruc.namespaceUri);
+		}
+	}
 	
 	protected int getNumberOfUris() {
 		return nextUriID;
 	}
 	
 	protected RuntimeUriContext getUri(String namespaceUri) {
-		for(int i=0; i<nextUriID && i<runtimeUris.size(); i++) {
-			RuntimeUriContext ruc = runtimeUris.get(i);
-			if(ruc.namespaceUri.equals(namespaceUri)) {
-				return ruc;
-			}
-		}
-		
-		return null;
+		return runtimeUrisIndex.get(namespaceUri);
 	}
 	
 	protected RuntimeUriContext getUri(int namespaceUriID) {
@@ -357,6 +421,27 @@ public abstract class AbstractEXIBodyCoder {
 		
 	}
 
+	/**
+	 * Informs whether the given qname context is the one this coder currently
+	 * uses for its uri and local-name IDs, either stemming from the grammars
+	 * or from the runtime string tables. Such contexts can be coded by ID
+	 * without any string lookup.
+	 * 
+	 * @param qnc
+	 *            qname context
+	 * @return whether IDs of qname context are valid for this coder
+	 */
+	protected final boolean isRuntimeQNameContext(QNameContext qnc) {
+		int namespaceUriID = qnc.getNamespaceUriID();
+		if (namespaceUriID >= 0 && namespaceUriID < nextUriID) {
+			RuntimeUriContext ruc = runtimeUris.get(namespaceUriID);
+			int localNameID = qnc.getLocalNameID();
+			return localNameID >= 0 && localNameID < ruc.getNumberOfQNames()
+					&& ruc.getQNameContext(localNameID) == qnc;
+		}
+		return false;
+	}
+
 	/*
 	 * 
 	 */
@@ -408,6 +493,80 @@ public abstract class AbstractEXIBodyCoder {
 		}
 	}
 	
+	/*
+	 * Runtime data at the time of a session checkpoint. Uris, qnames,
+	 * prefixes and learned productions are only appended while coding and
+	 * therefore restored by truncating.
+	 */
+	final class SessionCheckpoint {
+		final int numberOfUris;
+		final int[] numberOfQNames;
+		final int[] numberOfPrefixes;
+		final Map<QNameContext, StartElement> globalElements;
+		final Map<BuiltInGrammar, int[]> learnedGrammars;
+
+		SessionCheckpoint() {
+			numberOfUris = nextUriID;
+			numberOfQNames = new int[numberOfUris];
+			numberOfPrefixes = new int[numberOfUris];
+			for (int i = 0; i < numberOfUris; i++) {
+				RuntimeUriContext ruc = runtimeUris.get(i);
+				numberOfQNames[i] = ruc.qnames == null ? 0 : ruc.qnames.size();
+				numberOfPrefixes[i] = ruc.prefixes == null ? 0 : ruc.prefixes
+						.size();
+			}
+			globalElements = new HashMap<QNameContext, StartElement>(
+					runtimeGlobalElements);
+
+			learnedGrammars = new IdentityHashMap<BuiltInGrammar, int[]>();
+			// document or fragment content
+			addGrammar(startGrammar.getProduction(0).getNextGrammar());
+			for (StartElement se : globalElements.values()) {
+				Grammar g = se.getGrammar();
+				addGrammar(g);
+				addGrammar(g.getElementContentGrammar());
+			}
+		}
+
+		private void addGrammar(Grammar g) {
+			if (g instanceof BuiltInGrammar
+					&& !((BuiltInGrammar) g).isLearningFrozen()) {
+				learnedGrammars.put((BuiltInGrammar) g, new int[] {
+						g.getNumberOfEvents(), g.learningStopped() });
+			}
+		}
+
+		void restore() {
+			// uris
+			for (int i = numberOfUris; i < nextUriID; i++) {
+				RuntimeUriContext ruc = runtimeUris.get(i);
+				unindexUri(ruc);
+				ruc.clear();
+			}
+			nextUriID = numberOfUris;
+			for (int i = 0; i < numberOfUris; i++) {
+				RuntimeUriContext ruc = runtimeUris.get(i);
+				if (ruc.qnames != null) {
+					ruc.qnames.subList(numberOfQNames[i], ruc.qnames.size())
+							.clear();
+				}
+				if (ruc.prefixes != null) {
+					ruc.prefixes.subList(numberOfPrefixes[i],
+							ruc.prefixes.size()).clear();
+				}
+			}
+
+			// grammars
+			runtimeGlobalElements.clear();
+			runtimeGlobalElements.putAll(globalElements);
+			for (Map.Entry<BuiltInGrammar, int[]> e : learnedGrammars
+					.entrySet()) {
+				int[] state = e.getValue();
+				e.getKey().restoreLearning(state[0], state[1]);
+			}
+		}
+	}
+
 	final class RuntimeUriContext
 //	implements UriContext
 	{
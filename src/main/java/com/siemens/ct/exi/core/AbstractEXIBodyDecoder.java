@@ -27,8 +27,10 @@ import java.io.IOException;
 import java.util.Iterator;
 
 import com.siemens.ct.exi.Constants;
+import com.siemens.ct.exi.DecodingOptions;
 import com.siemens.ct.exi.EXIBodyDecoder;
 import com.siemens.ct.exi.EXIFactory;
+import com.siemens.ct.exi.FidelityOptions.EventCodeTable;
 import com.siemens.ct.exi.context.GrammarContext;
 import com.siemens.ct.exi.context.GrammarUriContext;
 import com.siemens.ct.exi.context.QNameContext;
@@ -45,6 +47,7 @@ import com.siemens.ct.exi.grammars.event.Event;
 import com.siemens.ct.exi.grammars.event.EventType;
 import com.siemens.ct.exi.grammars.event.StartElement;
 import com.siemens.ct.exi.grammars.event.StartElementNS;
+import com.siemens.ct.exi.grammars.grammar.DecodeTable;
 import com.siemens.ct.exi.grammars.grammar.Grammar;
 import com.siemens.ct.exi.grammars.grammar.GrammarType;
 import com.siemens.ct.exi.grammars.grammar.SchemaInformedFirstStartTagGrammar;
@@ -81,6 +84,9 @@ public abstract class AbstractEXIBodyDecoder extends AbstractEXIBodyCoder
 	// namespaces/prefixes
 	protected final int numberOfUriContexts;
 
+	// decode 1st level event codes via grammar decode tables
+	protected final boolean tableDrivenDispatch;
+
 	// Type Decoder
 	protected final TypeDecoder typeDecoder;
 
@@ -101,6 +107,9 @@ public abstract class AbstractEXIBodyDecoder extends AbstractEXIBodyCoder
 
 		numberOfUriContexts = this.grammar.getGrammarContext()
 				.getNumberOfGrammarUriContexts();
+
+		tableDrivenDispatch = exiFactory.getDecodingOptions().isOptionEnabled(
+				DecodingOptions.TABLE_DRIVEN_DISPATCH);
 	}
 
 	@Override
@@ -119,14 +128,26 @@ public abstract class AbstractEXIBodyDecoder extends AbstractEXIBodyCoder
 	}
 
 	@Override
-	protected void initForEachRun() throws EXIException, IOException {
-		super.initForEachRun();
+	protected void clearRuntimeData() throws EXIException, IOException {
+		super.clearRuntimeData();
 
 		stringDecoder.clear();
 		if(this.exiFactory.getSharedStrings() != null) {
 			stringDecoder.setSharedStrings(this.exiFactory.getSharedStrings());
 		}
 	}
+
+	@Override
+	protected void setCheckpoint() {
+		super.setCheckpoint();
+		stringDecoder.setCheckpoint();
+	}
+
+	@Override
+	protected void restoreCheckpoint() {
+		super.restoreCheckpoint();
+		stringDecoder.restoreCheckpoint();
+	}
 	
 
 	protected QNameContext decodeQName(DecoderChannel channel) throws IOException {
@@ -246,41 +267,53 @@ public abstract class AbstractEXIBodyDecoder extends AbstractEXIBodyCoder
 			IOException {
 		// 1st level
 		final Grammar currentGrammar = getCurrentGrammar();
-		int codeLength = fidelityOptions
-				.get1stLevelEventCodeLength(currentGrammar);
-		int ec = channel.decodeNBitUnsignedInteger(codeLength);
+		final EventCodeTable ect;
+		int ec;
+		if (tableDrivenDispatch) {
+			final DecodeTable dt = currentGrammar
+					.getDecodeTable(fidelityOptions);
+			ec = channel.decodeNBitUnsignedInteger(dt.getCodeLength());
+			if (ec < dt.getNumberOfEvents()) {
+				nextEvent = dt.getEvent(ec);
+				nextGrammar = dt.getNextGrammar(ec);
+				return (nextEventType = dt.getEventType(ec));
+			}
+			ect = dt.getEventCodeTable();
+		} else {
+			ect = fidelityOptions.getEventCodeTable(currentGrammar);
+			final int numberOfEvents = currentGrammar.getNumberOfEvents();
+			ec = channel.decodeNBitUnsignedInteger(ect
+					.get1stLevelEventCodeLength(numberOfEvents));
+			if (ec < numberOfEvents) {
+				Production ei = currentGrammar.getProduction(ec);
+				nextEvent = ei.getEvent();
+				nextGrammar = ei.getNextGrammar();
+				return (nextEventType = nextEvent.getEventType());
+			}
+		}
 
 		assert (ec >= 0);
 
-		if (ec < currentGrammar.getNumberOfEvents()) {
-			// 1st level
-			Production ei = currentGrammar.getProduction(ec);
-			nextEvent = ei.getEvent();
-			nextGrammar = ei.getNextGrammar();
-			nextEventType = nextEvent.getEventType();
-		} else {
-			// 2nd level ?
-			int ec2 = decode2ndLevelEventCode();
+		// 2nd level ?
+		int ec2 = decode2ndLevelEventCode();
+
+		if (ec2 == Constants.NOT_FOUND) {
+			// 3rd level
+			int ec3 = decode3rdLevelEventCode();
+			nextEventType = fidelityOptions.get3rdLevelEventType(ec3);
 
-			if (ec2 == Constants.NOT_FOUND) {
-				// 3rd level
-				int ec3 = decode3rdLevelEventCode();
-				nextEventType = fidelityOptions.get3rdLevelEventType(ec3);
+			// un-set event
+			nextEvent = null;
+			nextGrammar = null;
+		} else {
+			nextEventType = ect.get2ndLevelEventType(ec2);
 
+			if (nextEventType == EventType.ATTRIBUTE_INVALID_VALUE) {
+				updateInvalidValueAttribute(ec);
+			} else {
 				// un-set event
 				nextEvent = null;
 				nextGrammar = null;
-			} else {
-				nextEventType = fidelityOptions.get2ndLevelEventType(ec2,
-						currentGrammar);
-
-				if (nextEventType == EventType.ATTRIBUTE_INVALID_VALUE) {
-					updateInvalidValueAttribute(ec);
-				} else {
-					// un-set event
-					nextEvent = null;
-					nextGrammar = null;
-				}
 			}
 		}
 
@@ -331,11 +364,11 @@ public abstract class AbstractEXIBodyDecoder extends AbstractEXIBodyCoder
 	}
 
 	protected int decode2ndLevelEventCode() throws EXIException, IOException {
-		final Grammar currentGrammar = getCurrentGrammar();
-		// int ch2 = currentGrammar.get2ndLevelCharacteristics(fidelityOptions);
-		int ch2 = fidelityOptions.get2ndLevelCharacteristics(currentGrammar);
-		int level2 = channel.decodeNBitUnsignedInteger(MethodsBag
-				.getCodingLength(ch2));
+		final EventCodeTable ect = fidelityOptions
+				.getEventCodeTable(getCurrentGrammar());
+		int ch2 = ect.get2ndLevelCharacteristics();
+		int level2 = channel.decodeNBitUnsignedInteger(ect
+				.get2ndLevelEventCodeLength());
 
 		int ch3= fidelityOptions.get3rdLevelCharacteristics();
 		
@@ -347,10 +380,8 @@ public abstract class AbstractEXIBodyDecoder extends AbstractEXIBodyCoder
 	}
 
 	protected int decode3rdLevelEventCode() throws EXIException, IOException {
-		int ch3 = fidelityOptions.get3rdLevelCharacteristics();
-
-		return channel.decodeNBitUnsignedInteger(MethodsBag
-				.getCodingLength(ch3));
+		return channel.decodeNBitUnsignedInteger(fidelityOptions
+				.get3rdLevelEventCodeLength());
 	}
 
 	protected final void decodeStartDocumentStructure() throws EXIException {
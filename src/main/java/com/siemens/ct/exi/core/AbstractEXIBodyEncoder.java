@@ -34,10 +34,12 @@ import com.siemens.ct.exi.EXIBodyEncoder;
 import com.siemens.ct.exi.EXIFactory;
 import com.siemens.ct.exi.EncodingOptions;
 import com.siemens.ct.exi.FidelityOptions;
+import com.siemens.ct.exi.FidelityOptions.EventCodeTable;
 import com.siemens.ct.exi.attributes.AttributeList;
 import com.siemens.ct.exi.context.QNameContext;
 import com.siemens.ct.exi.core.container.NamespaceDeclaration;
 import com.siemens.ct.exi.datatype.Datatype;
+import com.siemens.ct.exi.datatype.EnumerationDatatype;
 import com.siemens.ct.exi.datatype.WhiteSpace;
 import com.siemens.ct.exi.datatype.strings.StringCoder;
 import com.siemens.ct.exi.datatype.strings.StringEncoder;
@@ -103,6 +105,9 @@ public abstract class AbstractEXIBodyEncoder extends AbstractEXIBodyCoder
 
 	/** contains last event type */
 	protected EventType lastEvent;
+
+	/** EXI Profile: learned productions at the session checkpoint */
+	protected int checkpointLearnedProductions;
 	
 	private final String MISUSE_OF_PRESERVE_PREFIXES_ERROR = "A prefix with value null cannot be used in Preserve.Prefixes mode. Report prefix or set your XML reader to do so. e.g., SAX xmlReader.setFeature(\"http://xml.org/sax/features/namespaces\", true); and xmlReader.setFeature(\"http://xml.org/sax/features/namespace-prefixes\", false);";
 
@@ -121,14 +126,33 @@ public abstract class AbstractEXIBodyEncoder extends AbstractEXIBodyCoder
 	protected void initForEachRun() throws EXIException, IOException {
 		super.initForEachRun();
 
+		bChars.clear();
+		isXmlSpacePreserve = false;
+	}
+
+	@Override
+	protected void clearRuntimeData() throws EXIException, IOException {
+		super.clearRuntimeData();
+
 		learnedProductions = 0;
 		stringEncoder.clear();
 		if(this.exiFactory.getSharedStrings() != null) {
 			stringEncoder.setSharedStrings(this.exiFactory.getSharedStrings());
 		}
-		
-		bChars.clear();
-		isXmlSpacePreserve = false;
+	}
+
+	@Override
+	protected void setCheckpoint() {
+		super.setCheckpoint();
+		checkpointLearnedProductions = learnedProductions;
+		stringEncoder.setCheckpoint();
+	}
+
+	@Override
+	protected void restoreCheckpoint() {
+		super.restoreCheckpoint();
+		learnedProductions = checkpointLearnedProductions;
+		stringEncoder.restoreCheckpoint();
 	}
 
 	protected QNameContext encodeQName(String namespaceUri, String localName,
@@ -140,6 +164,17 @@ public abstract class AbstractEXIBodyEncoder extends AbstractEXIBodyCoder
 		return encodeLocalName(localName, ruc, channel);
 	}
 
+	protected QNameContext encodeQName(QNameContext qnc, EncoderChannel channel)
+			throws IOException {
+		assert (isRuntimeQNameContext(qnc));
+		// uri
+		channel.encodeNBitUnsignedInteger(qnc.getNamespaceUriID() + 1,
+				MethodsBag.getCodingLength(getNumberOfUris() + 1));
+
+		// local-name
+		return encodeLocalName(qnc, getUri(qnc.getNamespaceUriID()), channel);
+	}
+
 	protected RuntimeUriContext encodeUri(final String namespaceUri,
 			EncoderChannel channel) throws IOException {
 		int numberBitsUri = MethodsBag.getCodingLength(getNumberOfUris() + 1); // numberEntries+1
@@ -231,6 +266,17 @@ public abstract class AbstractEXIBodyEncoder extends AbstractEXIBodyCoder
 		return qnc;
 	}
 
+	protected QNameContext encodeLocalName(QNameContext qnc,
+			RuntimeUriContext ruc, EncoderChannel channel) throws IOException {
+		assert (ruc.getQNameContext(qnc.getLocalNameID()) == qnc);
+		// string value found in local partition
+		channel.encodeUnsignedInteger(0);
+		int n = MethodsBag.getCodingLength(ruc.getNumberOfQNames());
+		channel.encodeNBitUnsignedInteger(qnc.getLocalNameID(), n);
+
+		return qnc;
+	}
+
 	protected void encodeNamespacePrefix(RuntimeUriContext uriContext,
 			String prefix, EncoderChannel channel) throws IOException {
 
@@ -273,6 +319,10 @@ public abstract class AbstractEXIBodyEncoder extends AbstractEXIBodyCoder
 		return typeEncoder.isValid(datatype, value);
 	}
 
+	protected boolean isTypeValid(EnumerationDatatype datatype, int index) {
+		return typeEncoder.isValidEnumValueIndex(datatype, index);
+	}
+
 	protected abstract void writeValue(QNameContext valueContext)
 			throws IOException;
 
@@ -291,34 +341,35 @@ public abstract class AbstractEXIBodyEncoder extends AbstractEXIBodyCoder
 	protected void encode2ndLevelEventCode(int pos) throws IOException {
 		// 1st level
 		final Grammar currentGrammar = getCurrentGrammar();
-		channel.encodeNBitUnsignedInteger(currentGrammar.getNumberOfEvents(),
-				fidelityOptions.get1stLevelEventCodeLength(currentGrammar));
+		final EventCodeTable ect = fidelityOptions
+				.getEventCodeTable(currentGrammar);
+		final int numberOfEvents = currentGrammar.getNumberOfEvents();
+		channel.encodeNBitUnsignedInteger(numberOfEvents,
+				ect.get1stLevelEventCodeLength(numberOfEvents));
 
 		// 2nd level
-		// int ch2 = currentGrammar.get2ndLevelCharacteristics(fidelityOptions);
-		int ch2 = fidelityOptions.get2ndLevelCharacteristics(currentGrammar);
-		assert (pos < ch2);
-
-		channel.encodeNBitUnsignedInteger(pos, MethodsBag.getCodingLength(ch2));
+		assert (pos < ect.get2ndLevelCharacteristics());
+		channel.encodeNBitUnsignedInteger(pos, ect.get2ndLevelEventCodeLength());
 	}
 
 	protected void encode3rdLevelEventCode(int pos) throws IOException {
 		// 1st level
 		final Grammar currentGrammar = getCurrentGrammar();
-		channel.encodeNBitUnsignedInteger(currentGrammar.getNumberOfEvents(),
-				fidelityOptions.get1stLevelEventCodeLength(currentGrammar));
+		final EventCodeTable ect = fidelityOptions
+				.getEventCodeTable(currentGrammar);
+		final int numberOfEvents = currentGrammar.getNumberOfEvents();
+		channel.encodeNBitUnsignedInteger(numberOfEvents,
+				ect.get1stLevelEventCodeLength(numberOfEvents));
 
 		// 2nd level
-		// int ch2 = currentGrammar.get2ndLevelCharacteristics(fidelityOptions);
-		int ch2 = fidelityOptions.get2ndLevelCharacteristics(currentGrammar);
+		int ch2 = ect.get2ndLevelCharacteristics();
 		int ec2 = ch2 > 0 ? ch2 - 1 : 0; // any 2nd level events
-		channel.encodeNBitUnsignedInteger(ec2, MethodsBag.getCodingLength(ch2));
+		channel.encodeNBitUnsignedInteger(ec2, ect.get2ndLevelEventCodeLength());
 
 		// 3rd level
-		int ch3 = fidelityOptions.get3rdLevelCharacteristics();
-
-		assert (pos < ch3);
-		channel.encodeNBitUnsignedInteger(pos, MethodsBag.getCodingLength(ch3));
+		assert (pos < fidelityOptions.get3rdLevelCharacteristics());
+		channel.encodeNBitUnsignedInteger(pos,
+				fidelityOptions.get3rdLevelEventCodeLength());
 	}
 
 	public void encodeStartDocument() throws EXIException, IOException {
@@ -364,8 +415,75 @@ public abstract class AbstractEXIBodyEncoder extends AbstractEXIBodyCoder
 				se.getPrefix());
 	}
 
+	public QNameContext getQNameContext(String uri, String localName) {
+		RuntimeUriContext ruc = getUri(uri);
+		QNameContext qnc = ruc == null ? null : ruc.getQNameContext(localName);
+		if (qnc == null) {
+			// name not known (yet), IDs are resolved while encoding
+			qnc = new QNameHandle(uri, localName);
+		}
+		return qnc;
+	}
+
+	/*
+	 * Handle of a name that has not been known when it was requested. The
+	 * runtime qname context is looked up once the name is known and kept as
+	 * long as it stays valid, i.e., until the string tables are reset.
+	 */
+	static final class QNameHandle extends QNameContext {
+		QNameContext resolved;
+
+		QNameHandle(String uri, String localName) {
+			super(Constants.NOT_FOUND, Constants.NOT_FOUND, new QName(uri,
+					localName));
+		}
+	}
+
+	/**
+	 * Returns the qname context this encoder uses for the given handle, or
+	 * null if the name is not known (any longer) and needs to be coded via
+	 * its strings.
+	 * 
+	 * @param qnc
+	 *            name handle
+	 * @return runtime qname context or null
+	 */
+	protected QNameContext resolveQNameContext(QNameContext qnc) {
+		if (isRuntimeQNameContext(qnc)) {
+			return qnc;
+		} else if (qnc instanceof QNameHandle) {
+			QNameHandle handle = (QNameHandle) qnc;
+			QNameContext resolved = handle.resolved;
+			if (resolved == null || !isRuntimeQNameContext(resolved)) {
+				// not resolved yet or string tables have been reset
+				RuntimeUriContext ruc = getUri(qnc.getNamespaceUri());
+				resolved = ruc == null ? null : ruc.getQNameContext(qnc
+						.getLocalName());
+				handle.resolved = resolved;
+			}
+			return resolved;
+		} else {
+			return null;
+		}
+	}
+
+	public void encodeStartElement(QNameContext qnc, String prefix)
+			throws EXIException, IOException {
+		encodeStartElement(qnc.getNamespaceUri(), qnc.getLocalName(),
+				resolveQNameContext(qnc), prefix);
+	}
+
 	public void encodeStartElement(String uri, String localName, String prefix)
 			throws EXIException, IOException {
+		encodeStartElement(uri, localName, null, prefix);
+	}
+
+	/*
+	 * Note: qnc is either null or a qname context known by this encoder,
+	 * which allows to skip name lookups
+	 */
+	protected void encodeStartElement(String uri, String localName,
+			QNameContext qnc, String prefix) throws EXIException, IOException {
 		checkPendingCharacters(EventType.START_ELEMENT);
 
 		sePrefix = prefix;
@@ -377,7 +495,8 @@ public abstract class AbstractEXIBodyEncoder extends AbstractEXIBodyCoder
 		StartElement nextSE;
 
 		Grammar currentGrammar = getCurrentGrammar();
-		if ((ei = currentGrammar.getStartElementProduction(uri, localName)) != null) {
+		if ((ei = qnc == null ? currentGrammar.getStartElementProduction(uri,
+				localName) : currentGrammar.getStartElementProduction(qnc)) != null) {
 			assert (ei.getEvent().isEventType(EventType.START_ELEMENT));
 			// encode 1st level EventCode
 			encode1stLevelEventCode(ei.getEventCode());
@@ -390,7 +509,9 @@ public abstract class AbstractEXIBodyEncoder extends AbstractEXIBodyCoder
 			// next context rule
 			updContextRule = ei.getNextGrammar();
 
-		} else if ((ei = currentGrammar.getStartElementNSProduction(uri)) != null) {
+		} else if ((ei = qnc == null ? currentGrammar
+				.getStartElementNSProduction(uri) : currentGrammar
+				.getStartElementNSProduction(qnc.getNamespaceUriID())) != null) {
 			assert (ei.getEvent().isEventType(EventType.START_ELEMENT_NS));
 			// encode 1st level EventCode
 			encode1stLevelEventCode(ei.getEventCode());
@@ -399,7 +520,8 @@ public abstract class AbstractEXIBodyEncoder extends AbstractEXIBodyCoder
 			RuntimeUriContext uc = getUri(seNS.getNamespaceUriID());
 
 			// encode local-name (and prefix)
-			QNameContext qnc = encodeLocalName(localName, uc, channel);
+			qnc = qnc == null ? encodeLocalName(localName, uc, channel)
+					: encodeLocalName(qnc, uc, channel);
 			if (preservePrefix) {
 				encodeQNamePrefix(qnc, prefix, channel);
 			}
@@ -455,7 +577,8 @@ public abstract class AbstractEXIBodyEncoder extends AbstractEXIBodyCoder
 			}
 
 			// encode entire qualified name
-			QNameContext qnc = encodeQName(uri, localName, channel);
+			qnc = qnc == null ? encodeQName(uri, localName, channel)
+					: encodeQName(qnc, channel);
 			if (preservePrefix) {
 				encodeQNamePrefix(qnc, prefix, channel);
 			}
@@ -1000,14 +1123,30 @@ public abstract class AbstractEXIBodyEncoder extends AbstractEXIBodyCoder
 				at.getPrefix(), value);
 	}
 
+	public void encodeAttribute(QNameContext qnc, String prefix, Value value)
+			throws EXIException, IOException {
+		encodeAttribute(qnc.getNamespaceUri(), qnc.getLocalName(),
+				resolveQNameContext(qnc), prefix, value);
+	}
+
 	public void encodeAttribute(final String uri, final String localName,
 			String prefix, Value value) throws EXIException, IOException {
+		encodeAttribute(uri, localName, null, prefix, value);
+	}
+
+	/*
+	 * Note: qnc is either null or a qname context known by this encoder,
+	 * which allows to skip name lookups
+	 */
+	protected void encodeAttribute(final String uri, final String localName,
+			QNameContext qnc, String prefix, Value value) throws EXIException,
+			IOException {
 		Production ei;
-		QNameContext qnc;
 		Grammar next;
 
 		Grammar currentGrammar = getCurrentGrammar();
-		if ((ei = currentGrammar.getAttributeProduction(uri, localName)) != null) {
+		if ((ei = qnc == null ? currentGrammar.getAttributeProduction(uri,
+				localName) : currentGrammar.getAttributeProduction(qnc)) != null) {
 			// declared AT(uri:localName)
 			Attribute at = (Attribute) (ei.getEvent());
 			qnc = at.getQNameContext();
@@ -1036,7 +1175,9 @@ public abstract class AbstractEXIBodyEncoder extends AbstractEXIBodyCoder
 				break;
 			}
 
-			ei = currentGrammar.getAttributeNSProduction(uri);
+			ei = qnc == null ? currentGrammar.getAttributeNSProduction(uri)
+					: currentGrammar.getAttributeNSProduction(qnc
+							.getNamespaceUriID());
 			if (ei == null) {
 				ei = currentGrammar.getProduction(EventType.ATTRIBUTE_GENERIC);
 				if (ei == null) {
@@ -1047,7 +1188,8 @@ public abstract class AbstractEXIBodyEncoder extends AbstractEXIBodyCoder
 			Attribute globalAT;
 
 			if (currentGrammar.isSchemaInformed()
-					&& (globalAT = getGlobalAttribute(uri, localName)) != null) {
+					&& (globalAT = qnc == null ? getGlobalAttribute(uri,
+							localName) : qnc.getGlobalAttribute()) != null) {
 				/*
 				 * In a schema-informed grammar, all productions of the form
 				 * LeftHandSide : AT (*) are evaluated as follows:
@@ -1092,14 +1234,16 @@ public abstract class AbstractEXIBodyEncoder extends AbstractEXIBodyCoder
 						|| ei.getEvent().isEventType(
 								EventType.ATTRIBUTE_GENERIC)) {
 					// (un)declared AT(*)
-					qnc = this.encodeQName(uri, localName, channel);
+					qnc = qnc == null ? this.encodeQName(uri, localName,
+							channel) : this.encodeQName(qnc, channel);
 					next = ei == null ? currentGrammar : ei.getNextGrammar();
 				} else {
 					// declared AT(uri:*)
 					AttributeNS atNS = (AttributeNS) ei.getEvent();
 					// localname only
 					RuntimeUriContext uc = getUri(atNS.getNamespaceUriID());
-					qnc = encodeLocalName(localName, uc, channel);
+					qnc = qnc == null ? encodeLocalName(localName, uc, channel)
+							: encodeLocalName(qnc, uc, channel);
 					next = ei.getNextGrammar();
 				}
 
@@ -1111,12 +1255,12 @@ public abstract class AbstractEXIBodyEncoder extends AbstractEXIBodyCoder
 				if (ei == null) {
 					// Undeclared AT(*), 2nd level
 
-					qnc = encodeUndeclaredAT(currentGrammar, uri, localName); // ,
-																				// ghostProduction);
+					qnc = encodeUndeclaredAT(currentGrammar, uri, localName,
+							qnc);
 					next = currentGrammar;
 				} else {
 					// Declared AT(uri:*) or AT(*) on 1st level
-					qnc = encodeDeclaredAT(ei, uri, localName);
+					qnc = encodeDeclaredAT(ei, uri, localName, qnc);
 					next = ei.getNextGrammar();
 				}
 			}
@@ -1168,33 +1312,36 @@ public abstract class AbstractEXIBodyEncoder extends AbstractEXIBodyCoder
 	}
 
 	private QNameContext encodeDeclaredAT(Production ei, String uri,
-			String localName) throws IOException {
+			String localName, QNameContext qnc) throws IOException {
 		// eventCode
 		encode1stLevelEventCode(ei.getEventCode());
 
-		QNameContext qnc;
 		if (ei.getEvent().isEventType(EventType.ATTRIBUTE_NS)) {
 			// declared AT(uri:*)
 			AttributeNS atNS = (AttributeNS) ei.getEvent();
 			// localname only
 			RuntimeUriContext uc = getUri(atNS.getNamespaceUriID());
-			qnc = encodeLocalName(localName, uc, channel);
+			qnc = qnc == null ? encodeLocalName(localName, uc, channel)
+					: encodeLocalName(qnc, uc, channel);
 
 		} else {
 			// declared AT(*)
-			qnc = encodeQName(uri, localName, channel);
+			qnc = qnc == null ? encodeQName(uri, localName, channel)
+					: encodeQName(qnc, channel);
 		}
 		return qnc;
 	}
 
 	private QNameContext encodeUndeclaredAT(Grammar currentGrammar, String uri,
-			String localName) throws EXIException, IOException {
+			String localName, QNameContext qnc) throws EXIException,
+			IOException {
 
 		// event-code
 		encodeAttributeEventCodeUndeclared(currentGrammar, localName);
 
 		// qualified name
-		QNameContext qnc = this.encodeQName(uri, localName, channel);
+		qnc = qnc == null ? this.encodeQName(uri, localName, channel) : this
+				.encodeQName(qnc, channel);
 
 		// learn attribute event
 		currentGrammar.learnAttribute(new Attribute(qnc));
@@ -1354,128 +1501,96 @@ public abstract class AbstractEXIBodyEncoder extends AbstractEXIBodyCoder
 		return null;
 	}
 
-	static void replace(char[] chars, int len) {
-		// replace
-		// All occurrences of #x9 (tab), #xA (line feed) and #xD (carriage
-		// return) are replaced with #x20 (space)
-		for (int i = 0; i < len; i++) {
-			if (chars[i] == '\t' || chars[i] == '\n' || chars[i] == '\r') {
-				chars[i] = ' ';
-			}
-		}
-	}
-
-	static void shiftLeft(char[] chars, int pos, int len) {
-		System.arraycopy(chars, pos + 1, chars, pos, len - 1);
-	}
-
-	// returns new length
-	static int collapse(char[] chars, int len) {
-		// collapse
-		// After the processing implied by replace, contiguous sequences of
-		// #x20's are collapsed to a single #x20, and leading and trailing
-		// #x20's are removed.
-		replace(chars, len);
-
-		int newLen = len;
-
-		// contiguous sequences of #x20's are collapsed to a single #x20
-		if (newLen > 1) {
-			int i = 0;
-			while (i < (newLen - 1)) {
-				char thisChar = chars[i];
-				char nextChar = chars[i + 1];
-				if (thisChar == ' ' && nextChar == ' ') {
-					// eliminate one space
-					shiftLeft(chars, i, newLen - i);
-					newLen--;
-				} else {
-					i++;
-				}
-			}
-		}
-
-		// leading and trailing #x20's are removed
-		newLen = trimSpaces(chars, newLen);
-
-		return newLen;
-	}
-
-	// returns new length
-	static int trimSpaces(char[] chars, int len) {
-		// leading and trailing #x20's are removed
-		int newLen = len;
-
-		// leading
-		while (newLen > 0 && chars[0] == ' ') {
-			// eliminate one leading space
-			shiftLeft(chars, 0, newLen);
-			newLen--;
-		}
-		// trailing
-		int i = newLen - 1;
-		while (i >= 0 && chars[i] == ' ') {
-			// eliminate one trailing space
-			newLen--;
-			i--;
-		}
-
-		return newLen;
-	}
-
 	static boolean isWS(char c) {
-		return (c == ' ' || c == '\n' || c == '\r' || c == '\t');
-	}
-
-	static boolean isSolelyWS(char[] chars, int len) {
-		for (int i = 0; i < len; i++) {
-			if (!isWS(chars[i])) {
-				return false;
-			}
-		}
-		return true;
-	}
-
-	static int trimWS(char[] chars, int len) {
-		// leading and trailing whitespaces are removed
-		int newLen = len;
-
-		// leading
-		while (newLen > 0 && isWS(chars[0])) {
-			// eliminate one leading space
-			shiftLeft(chars, 0, newLen);
-			newLen--;
-		}
-		// trailing
-		int i = newLen - 1;
-		while (i >= 0 && isWS(chars[i])) {
-			// eliminate one trailing space
-			newLen--;
-			i--;
-		}
-
-		return newLen;
+		// most characters are rejected with one comparison
+		return c <= ' ' && (c == ' ' || c == '\n' || c == '\r' || c == '\t');
 	}
 
 	/** character buffer for CH trimming, replacing, collapsing */
 	private char[] cbuffer;
+	/** normalization changed the characters */
+	private boolean cbufferModified;
+	/** characters consist solely of whitespaces */
+	private boolean cbufferSolelyWS;
 
-	private int modeValuesToCBuffer() {
+	/*
+	 * Copies the buffered character values into cbuffer and applies the
+	 * whiteSpace facet (null for none) in one linear sweep. Returns the new
+	 * length.
+	 */
+	private int normalizeValuesToCBuffer(WhiteSpace ws) {
+		final int numberOfValues = bChars.size();
 		int len = 0;
-		for (int i = 0; i < bChars.size(); i++) {
+		for (int i = 0; i < numberOfValues; i++) {
 			len += bChars.get(i).getCharactersLength();
 		}
 		if (cbuffer == null || cbuffer.length < len) {
 			cbuffer = new char[len];
 		}
-		int pos = 0;
-		for (int i = 0; i < bChars.size(); i++) {
-			Value v = bChars.get(i);
-			v.getCharacters(cbuffer, pos);
-			pos += v.getCharactersLength();
+
+		final char[] chars = cbuffer;
+		int newLen = 0;
+		boolean pendingSpace = false;
+		boolean modified = false;
+		boolean solelyWS = true;
+
+		for (int k = 0; k < numberOfValues; k++) {
+			Value v = bChars.get(k);
+			// a pending space takes the next position
+			int start = pendingSpace ? newLen + 1 : newLen;
+			int end = start + v.getCharactersLength();
+			v.getCharacters(chars, start);
+
+			if (ws == WhiteSpace.collapse) {
+				// All occurrences of #x9, #xA and #xD are replaced with #x20,
+				// contiguous sequences of #x20's are collapsed to a single
+				// #x20, and leading and trailing #x20's are removed.
+				for (int i = start; i < end; i++) {
+					char c = chars[i];
+					if (isWS(c)) {
+						if (pendingSpace || newLen == 0 || c != ' ') {
+							modified = true;
+						}
+						pendingSpace = newLen > 0;
+					} else {
+						if (pendingSpace) {
+							chars[newLen++] = ' ';
+							pendingSpace = false;
+						}
+						chars[newLen++] = c;
+						solelyWS = false;
+					}
+				}
+			} else if (ws == WhiteSpace.replace) {
+				// All occurrences of #x9 (tab), #xA (line feed) and #xD
+				// (carriage return) are replaced with #x20 (space)
+				for (int i = start; i < end; i++) {
+					char c = chars[i];
+					if (isWS(c)) {
+						if (c != ' ') {
+							chars[i] = ' ';
+							modified = true;
+						}
+					} else {
+						solelyWS = false;
+					}
+				}
+				newLen = end;
+			} else {
+				for (int i = start; solelyWS && i < end; i++) {
+					solelyWS = isWS(chars[i]);
+				}
+				newLen = end;
+			}
+		}
+		if (pendingSpace) {
+			// trailing whitespace removed
+			modified = true;
 		}
-		assert (len == pos);
-		return len;
+
+		cbufferModified = modified;
+		cbufferSolelyWS = solelyWS;
+		return newLen;
 	}
 
 	protected void checkPendingCharacters(EventType nextEvent)
@@ -1491,20 +1606,8 @@ public abstract class AbstractEXIBodyEncoder extends AbstractEXIBodyCoder
 				WhiteSpace ws = getDatatypeWhiteSpace();
 				// Don't we want to prune insignificant whitespace characters
 				if (!(preserveLexicalValues || this.isXmlSpacePreserve || ws == WhiteSpace.preserve)) {
-					int len = modeValuesToCBuffer();
-					if (ws == WhiteSpace.replace) {
-						// replace
-						// All occurrences of #x9 (tab), #xA (line feed) and #xD
-						// (carriage return) are replaced with #x20 (space)
-						replace(cbuffer, len);
-					} else if (ws == WhiteSpace.collapse) {
-						// collapse
-						// After the processing implied by replace, contiguous
-						// sequences of #x20's are collapsed to a single #x20,
-						// and leading and trailing #x20's are removed.
-						replace(cbuffer, len);
-						len = collapse(cbuffer, len);
-					} else {
+					int len = normalizeValuesToCBuffer(ws);
+					if (ws == null) {
 						// schema-less, no datatype
 						// https://lists.w3.org/Archives/Public/public-exi/2015Oct/0008.html
 						// If it is schema-less:
@@ -1524,15 +1627,16 @@ public abstract class AbstractEXIBodyEncoder extends AbstractEXIBodyCoder
 							// whitespaces nodes (i.e.
 							// strings that consist solely of whitespaces) are
 							// removed
-							if (isSolelyWS(cbuffer, len)) {
+							if (cbufferSolelyWS) {
 								len = 0;
 							}
-							// trim?
-							// len = trimWS(cbuffer, len);
 						}
 					}
 					if (len == 0) {
 						// --> omit empty string
+					} else if (numberOfValues == 1 && !cbufferModified) {
+						// unchanged, no need for a new string
+						encodeCharactersForce(bChars.get(0));
 					} else {
 						StringValue sv = new StringValue(new String(cbuffer, 0,
 								len));
@@ -1545,7 +1649,7 @@ public abstract class AbstractEXIBodyEncoder extends AbstractEXIBodyCoder
 					} else {
 						// collapse all events to a single one (not very
 						// efficient in most of the cases)
-						int len = modeValuesToCBuffer();
+						int len = normalizeValuesToCBuffer(WhiteSpace.preserve);
 						StringValue sv = new StringValue(new String(cbuffer, 0,
 								len));
 						encodeCharactersForce(sv);
@@ -1560,6 +1664,27 @@ public abstract class AbstractEXIBodyEncoder extends AbstractEXIBodyCoder
 		bChars.add(chars);
 	}
 
+	public void encodeEnumValueIndex(int index) throws EXIException,
+			IOException {
+		checkPendingCharacters(EventType.CHARACTERS);
+
+		Production ei = getCurrentGrammar().getProduction(
+				EventType.CHARACTERS);
+		Datatype dt = ei == null ? null : ((DatatypeEvent) ei.getEvent())
+				.getDatatype();
+		if (!(dt instanceof EnumerationDatatype)) {
+			throw new EXIException("No enumeration characters event found for index "
+					+ index);
+		} else if (!isTypeValid((EnumerationDatatype) dt, index)) {
+			throw new EXIException("Enumeration index " + index
+					+ " cannot be encoded!");
+		}
+
+		encode1stLevelEventCode(ei.getEventCode());
+		writeValue(getElementContext().qnameContext);
+		updateCurrentRule(ei.getNextGrammar());
+	}
+
 	protected void encodeCharactersForce(Value chars) throws EXIException,
 			IOException {
 
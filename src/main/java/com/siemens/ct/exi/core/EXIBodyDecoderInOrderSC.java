@@ -130,6 +130,8 @@ public class EXIBodyDecoderInOrderSC extends EXIBodyDecoderInOrder {
 			EXIFactory scEXIFactory = exiFactory.clone();
 			// scEXIFactory.setEXIBodyOnly(true);
 			scEXIFactory.setFragment(true);
+			// SC fragments never continue a session
+			scEXIFactory.setSessionMode(false);
 			scDecoder = (EXIBodyDecoderInOrderSC) scEXIFactory
 					.createEXIBodyDecoder();
 			scDecoder.channel = this.channel;
@@ -23,11 +23,14 @@
 
 package com.siemens.ct.exi.core;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PushbackInputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -43,15 +46,34 @@ import com.siemens.ct.exi.core.container.DocType;
 import com.siemens.ct.exi.core.container.NamespaceDeclaration;
 import com.siemens.ct.exi.core.container.PreReadValue;
 import com.siemens.ct.exi.core.container.ProcessingInstruction;
+import com.siemens.ct.exi.core.container.ValueChannelBuffer;
 import com.siemens.ct.exi.datatype.Datatype;
+import com.siemens.ct.exi.datatype.ListDatatype;
 import com.siemens.ct.exi.datatype.strings.StringDecoder;
 import com.siemens.ct.exi.exceptions.EXIException;
 import com.siemens.ct.exi.grammars.event.EventType;
+import com.siemens.ct.exi.io.ByteBufferInputStream;
+import com.siemens.ct.exi.io.RecordingInputStream;
+import com.siemens.ct.exi.io.SpillFile;
 import com.siemens.ct.exi.io.channel.ByteDecoderChannel;
 import com.siemens.ct.exi.io.channel.DecoderChannel;
+import com.siemens.ct.exi.io.channel.EncoderChannel;
+import com.siemens.ct.exi.io.compression.DeflateDictionaries;
 import com.siemens.ct.exi.io.compression.EXIInflaterInputStream;
 import com.siemens.ct.exi.types.BuiltIn;
+import com.siemens.ct.exi.types.DateTimeType;
+import com.siemens.ct.exi.types.TypedTypeDecoder;
+import com.siemens.ct.exi.values.BinaryBase64Value;
+import com.siemens.ct.exi.values.BinaryHexValue;
+import com.siemens.ct.exi.values.BooleanValue;
+import com.siemens.ct.exi.values.DateTimeValue;
+import com.siemens.ct.exi.values.DecimalValue;
+import com.siemens.ct.exi.values.FloatValue;
+import com.siemens.ct.exi.values.IntegerValue;
+import com.siemens.ct.exi.values.ListValue;
+import com.siemens.ct.exi.values.StringValue;
 import com.siemens.ct.exi.values.Value;
+import com.siemens.ct.exi.values.ValueType;
 
 /**
  * EXI decoder for (pre-)compression streams.
@@ -63,15 +85,25 @@ import com.siemens.ct.exi.values.Value;
  */
 
 public class EXIBodyDecoderReordered extends AbstractEXIBodyDecoder {
-	// store appearing event-types in right order
-	protected List<EventType> eventTypes;
+	protected static final EventType[] EVENT_TYPES = EventType.values();
+	protected static final ValueType[] VALUE_TYPES = ValueType.values();
+	protected static final DateTimeType[] DATETIME_TYPES = DateTimeType
+			.values();
+	protected static final int INITIAL_ENTRIES = 64;
+
+	// store appearing event-types (ordinals) in right order
+	protected byte[] eventTypes;
+	protected int eventTypesSize;
 	protected int eventTypeIndex;
 
 	// elements and end elements
-	protected List<ElementContext> elementEntries;
+	protected ElementContext[] elementEntries;
+	protected int elementEntriesSize;
 	protected int elementEntryIndex;
-	// attributes and character value entries
-	protected List<QNameEntry> qnameEntries;
+	// attributes and character value entries (qname plus prefix)
+	protected QNameContext[] qnameEntries;
+	protected String[] qnameEntryPrefixes;
+	protected int qnameEntriesSize;
 	protected int qnameEntryIndex;
 	// docTypes
 	protected List<DocType> docTypeEntries;
@@ -98,6 +130,8 @@ public class EXIBodyDecoderReordered extends AbstractEXIBodyDecoder {
 
 	// Channel and Compression stuff
 	protected CodingMode codingMode;
+	// preset dictionaries (may be null)
+	protected final DeflateDictionaries deflateDictionaries;
 
 	// local element context (to avoid blockSize value problems)
 	ElementContext currElementEntry;
@@ -124,15 +158,33 @@ public class EXIBodyDecoderReordered extends AbstractEXIBodyDecoder {
 
 	protected InputStream is;
 
+	// heap budget for pre-read values, -1 == unbounded
+	protected final int blockMemoryBudget;
+	protected int heapBytes;
+	protected SpillFile spillFile;
+	// bounded mode: typed values that can be recorded in their encoded form
+	protected final boolean recordTypedValues;
+	protected RecordingInputStream recordingStream;
+	protected Map<QNameContext, BufferedValues> bufferedValues;
+	// bounded mode: datatypes referenced by id from the buffered records
+	protected List<Datatype> bufferedDatatypes;
+	protected Map<Datatype, Integer> bufferedDatatypeIds;
+	protected List<ValueChannelBuffer> unusedChannelBuffers;
+	// pre-compression over seekable input: channels are read on demand
+	protected ByteBufferInputStream seekableInput;
+
+	protected static final int REPLAY_BUFFER_SIZE = 512;
+
 	public EXIBodyDecoderReordered(EXIFactory exiFactory) throws EXIException {
 		super(exiFactory);
 
 		// events
-		eventTypes = new ArrayList<EventType>();
+		eventTypes = new byte[INITIAL_ENTRIES];
 		// element entries
-		elementEntries = new ArrayList<ElementContext>();
+		elementEntries = new ElementContext[INITIAL_ENTRIES];
 		// qname entries
-		qnameEntries = new ArrayList<QNameEntry>();
+		qnameEntries = new QNameContext[INITIAL_ENTRIES];
+		qnameEntryPrefixes = new String[INITIAL_ENTRIES];
 		// misc
 		docTypeEntries = new ArrayList<DocType>();
 		entityReferences = new ArrayList<char[]>();
@@ -152,6 +204,17 @@ public class EXIBodyDecoderReordered extends AbstractEXIBodyDecoder {
 		xsiPrefixes = new ArrayList<String>();
 
 		codingMode = exiFactory.getCodingMode();
+		deflateDictionaries = exiFactory.getDeflateDictionaries();
+
+		blockMemoryBudget = exiFactory.getBlockMemoryBudget();
+		recordTypedValues = (typeDecoder instanceof TypedTypeDecoder)
+				&& exiFactory.getDatatypeRepresentationMapTypes() == null;
+		if (blockMemoryBudget >= 0) {
+			bufferedValues = new HashMap<QNameContext, BufferedValues>();
+			unusedChannelBuffers = new ArrayList<ValueChannelBuffer>();
+			bufferedDatatypes = new ArrayList<Datatype>();
+			bufferedDatatypeIds = new IdentityHashMap<Datatype, Integer>();
+		}
 	}
 
 	@Override
@@ -163,25 +226,6 @@ public class EXIBodyDecoderReordered extends AbstractEXIBodyDecoder {
 		nextEvent = null;
 		nextEventType = EventType.START_DOCUMENT;
 
-		// element entries
-		elementEntries.clear();
-		elementEntryIndex = 0;
-		// qname entries
-		qnameEntries.clear();
-		qnameEntryIndex = 0;
-
-		// misc
-		docTypeEntries.clear();
-		docTypeEntryIndex = 0;
-		entityReferences.clear();
-		entityReferenceIndex = 0;
-		comments.clear();
-		commentIndex = 0;
-		nsEntries.clear();
-		nsEntryIndex = 0;
-		processingEntries.clear();
-		processingEntryIndex = 0;
-
 		stillNoEndOfDocument = true;
 		lastBlockElementContext = null;
 
@@ -196,14 +240,36 @@ public class EXIBodyDecoderReordered extends AbstractEXIBodyDecoder {
 		preReadBlockContent();
 	}
 
-	protected void initBlock() {
+	protected void initBlock() throws IOException {
 		// count value items
 		blockValues = 0;
 
 		// events
-		eventTypes.clear();
+		eventTypesSize = 0;
 		eventTypeIndex = 0;
 
+		// element entries
+		Arrays.fill(elementEntries, 0, elementEntriesSize, null);
+		elementEntriesSize = 0;
+		elementEntryIndex = 0;
+		// qname entries
+		Arrays.fill(qnameEntries, 0, qnameEntriesSize, null);
+		Arrays.fill(qnameEntryPrefixes, 0, qnameEntriesSize, null);
+		qnameEntriesSize = 0;
+		qnameEntryIndex = 0;
+
+		// misc
+		docTypeEntries.clear();
+		docTypeEntryIndex = 0;
+		entityReferences.clear();
+		entityReferenceIndex = 0;
+		comments.clear();
+		commentIndex = 0;
+		nsEntries.clear();
+		nsEntryIndex = 0;
+		processingEntries.clear();
+		processingEntryIndex = 0;
+
 		// contains value events (qnames) in right order
 		// plus necessary information to reconstruct value channels
 		initCompressionBlock();
@@ -216,11 +282,29 @@ public class EXIBodyDecoderReordered extends AbstractEXIBodyDecoder {
 		xsiPrefixIndex = 0;
 	}
 	
-	protected void initCompressionBlock() {
+	protected void initCompressionBlock() throws IOException {
 		// re-set all channels
 		this.channelDatatypes.clear();
 		
 		this.preReadValues.clear();
+
+		if (bufferedValues != null) {
+			for (BufferedValues bv : bufferedValues.values()) {
+				if (bv.buffer != null) {
+					bv.buffer.clear();
+					unusedChannelBuffers.add(bv.buffer);
+				}
+			}
+			bufferedValues.clear();
+		}
+		if (blockMemoryBudget >= 0) {
+			heapBytes = 0;
+			bufferedDatatypes.clear();
+			bufferedDatatypeIds.clear();
+			if (spillFile != null) {
+				spillFile.reset();
+			}
+		}
 	}
 	
 	protected void addDatatype(QNameContext qnc, Datatype d) {
@@ -245,6 +329,15 @@ public class EXIBodyDecoderReordered extends AbstractEXIBodyDecoder {
 	
 	public void updateInputStream(InputStream is) throws EXIException, IOException {
 		this.is = is;
+		if (codingMode == CodingMode.PRE_COMPRESSION
+				&& is instanceof ByteBufferInputStream) {
+			seekableInput = (ByteBufferInputStream) is;
+			if (bufferedValues == null) {
+				bufferedValues = new HashMap<QNameContext, BufferedValues>();
+			}
+		} else {
+			seekableInput = null;
+		}
 		if(!(this.is instanceof PushbackInputStream)) {
 			 this.is = new PushbackInputStream(is, DecodingOptions.PUSHBACK_BUFFER_SIZE);
 		}
@@ -278,12 +371,25 @@ public class EXIBodyDecoderReordered extends AbstractEXIBodyDecoder {
 	}
 
 	public DecoderChannel getNextChannel() throws IOException {
+		return getNextChannel(deflateDictionaries == null ? null
+				: deflateDictionaries.getStructureDictionary());
+	}
+
+	public DecoderChannel getNextChannel(byte[] dictionary) throws IOException {
 
 		if (codingMode == CodingMode.COMPRESSION) {
 			// readjust channel of previous inflate streams
 			readjustInputStream(is);
+			if (dictionary != null) {
+				// raw inflate streams take the dictionary upfront
+				inflater.setDictionary(dictionary);
+			}
 			
 			inflaterInputStream = new EXIInflaterInputStream((PushbackInputStream) is, inflater, DecodingOptions.PUSHBACK_BUFFER_SIZE);
+			if (blockMemoryBudget >= 0) {
+				recordingStream = new RecordingInputStream(inflaterInputStream);
+				return new ByteDecoderChannel(recordingStream);
+			}
 			return new ByteDecoderChannel(inflaterInputStream);
 			
 //			 return new ByteDecoderChannel(new InflaterInputStream(is, inflater, inputBufferSize));
@@ -291,7 +397,12 @@ public class EXIBodyDecoderReordered extends AbstractEXIBodyDecoder {
 			assert (codingMode == CodingMode.PRE_COMPRESSION);
 			if (firstChannel) {
 				// create once a decoder channel
-				channel = new ByteDecoderChannel(this.is);
+				if (blockMemoryBudget >= 0) {
+					recordingStream = new RecordingInputStream(this.is);
+					channel = new ByteDecoderChannel(recordingStream);
+				} else {
+					channel = new ByteDecoderChannel(this.is);
+				}
 				firstChannel = false;
 			}
 			// there is just one channel
@@ -300,7 +411,7 @@ public class EXIBodyDecoderReordered extends AbstractEXIBodyDecoder {
 	}
 
 	protected void updateAttributeToXsiType() throws EXIException, IOException {
-		eventTypes.set(eventTypes.size() - 1, EventType.ATTRIBUTE_XSI_TYPE);
+		eventTypes[eventTypesSize - 1] = (byte) EventType.ATTRIBUTE_XSI_TYPE.ordinal();
 		// value content
 		decodeAttributeXsiTypeStructure();
 		xsiValues.add(attributeValue);
@@ -317,7 +428,7 @@ public class EXIBodyDecoderReordered extends AbstractEXIBodyDecoder {
 				attributeQNameContext)
 				&& getCurrentGrammar().isSchemaInformed()) {
 			// xsi:nil
-			eventTypes.set(eventTypes.size() - 1, EventType.ATTRIBUTE_XSI_NIL);
+			eventTypes[eventTypesSize - 1] = (byte) EventType.ATTRIBUTE_XSI_NIL.ordinal();
 			// value content
 			decodeAttributeXsiNilStructure();
 			xsiValues.add(attributeValue);
@@ -332,7 +443,7 @@ public class EXIBodyDecoderReordered extends AbstractEXIBodyDecoder {
 				dt = attributeQNameContext.getGlobalAttribute().getDatatype();
 			}
 
-			addQNameEntry(new QNameEntry(attributeQNameContext, attributePrefix));
+			addQNameEntry(attributeQNameContext, attributePrefix);
 			incrementValues(attributeQNameContext, dt);
 		}
 	}
@@ -373,15 +484,15 @@ public class EXIBodyDecoderReordered extends AbstractEXIBodyDecoder {
 				case PROCESSING_INSTRUCTION:
 					// No Attribute or NS event --> start deferred element with
 					// prefix
-					elementEntries.add(getElementContext());
+					addElementEntry(getElementContext());
 					deferredStartElement = false;
 				default:
 					// no action
 				}
 			}
 
-			// add event to array list
-			eventTypes.add(nextEventType);
+			// add event to event log
+			addEventType(nextEventType);
 
 			switch (nextEventType) {
 			case START_DOCUMENT:
@@ -422,21 +533,18 @@ public class EXIBodyDecoderReordered extends AbstractEXIBodyDecoder {
 						this.attributeQNameContext)) {
 					updateAttributeToXsiType();
 				} else {
-					addQNameEntry(new QNameEntry(this.attributeQNameContext,
-							attributePrefix));
+					addQNameEntry(this.attributeQNameContext, attributePrefix);
 					incrementValues(this.attributeQNameContext, dtAT);
 				}
 				break;
 			case ATTRIBUTE_INVALID_VALUE:
 				decodeAttributeStructure();
-				addQNameEntry(new QNameEntry(attributeQNameContext,
-						attributePrefix));
+				addQNameEntry(attributeQNameContext, attributePrefix);
 				incrementValues(attributeQNameContext, BuiltIn.DEFAULT_DATATYPE);
 				break;
 			case ATTRIBUTE_ANY_INVALID_VALUE:
 				decodeAttributeAnyInvalidValueStructure();
-				addQNameEntry(new QNameEntry(attributeQNameContext,
-						attributePrefix));
+				addQNameEntry(attributeQNameContext, attributePrefix);
 				incrementValues(attributeQNameContext, BuiltIn.DEFAULT_DATATYPE);
 				break;
 			case ATTRIBUTE_NS:
@@ -457,27 +565,27 @@ public class EXIBodyDecoderReordered extends AbstractEXIBodyDecoder {
 			case CHARACTERS:
 				QNameContext qnc = getElementContext().qnameContext;
 				incrementValues(qnc, decodeCharactersStructure());
-				addQNameEntry(new QNameEntry(qnc, null));
+				addQNameEntry(qnc, null);
 				break;
 			case CHARACTERS_GENERIC:
 				decodeCharactersGenericStructure();
 				qnc = getElementContext().qnameContext;
 				incrementValues(qnc, BuiltIn.DEFAULT_DATATYPE);
-				addQNameEntry(new QNameEntry(qnc, null));
+				addQNameEntry(qnc, null);
 				break;
 			case CHARACTERS_GENERIC_UNDECLARED:
 				decodeCharactersGenericUndeclaredStructure();
 				qnc = getElementContext().qnameContext;
 				incrementValues(qnc, BuiltIn.DEFAULT_DATATYPE);
-				addQNameEntry(new QNameEntry(qnc, null));
+				addQNameEntry(qnc, null);
 				break;
 			case END_ELEMENT:
 				decodeEndElementStructure();
-				elementEntries.add(getElementContext());
+				addElementEntry(getElementContext());
 				break;
 			case END_ELEMENT_UNDECLARED:
 				decodeEndElementUndeclaredStructure();
-				elementEntries.add(getElementContext());
+				addElementEntry(getElementContext());
 				break;
 			case END_DOCUMENT:
 				decodeEndDocumentStructure();
@@ -531,9 +639,7 @@ public class EXIBodyDecoderReordered extends AbstractEXIBodyDecoder {
 				while(iterCh.hasNext()) {
 					QNameContext o = iterCh.next();
 					List<Datatype> lds = this.channelDatatypes.get(o);
-					Value[] contentValues = readValues(lds, o, channel, stringDecoder);
-					PreReadValue prv = new PreReadValue(contentValues);
-					this.preReadValues.put(o, prv);
+					preReadChannel(o, lds, channel);
 				}
 			} else {
 				// first stream structure (already read)
@@ -546,11 +652,10 @@ public class EXIBodyDecoderReordered extends AbstractEXIBodyDecoder {
 					List<Datatype> lds = this.channelDatatypes.get(o);
 					if (lds.size() <= Constants.MAX_NUMBER_OF_VALUES) {
 						if (bdcLessEqual100 == null) {
-							bdcLessEqual100 = getNextChannel();
+							bdcLessEqual100 = getNextChannel(deflateDictionaries == null ? null
+									: deflateDictionaries.getValuesDictionary());
 						}
-						Value[] contentValues = readValues(lds, o, bdcLessEqual100, stringDecoder);
-						PreReadValue prv = new PreReadValue(contentValues);
-						this.preReadValues.put(o, prv);
+						preReadChannel(o, lds, bdcLessEqual100);
 					}
 				}
 
@@ -560,20 +665,221 @@ public class EXIBodyDecoderReordered extends AbstractEXIBodyDecoder {
 					QNameContext o = iterCh.next();
 					List<Datatype> lds = this.channelDatatypes.get(o);
 					if (lds.size() > Constants.MAX_NUMBER_OF_VALUES) {
-						DecoderChannel bdcGreater100 = getNextChannel();
-						Value[] contentValues = readValues(lds, o, bdcGreater100, stringDecoder);
-						PreReadValue prv = new PreReadValue(contentValues);
-						this.preReadValues.put(o, prv);
+						DecoderChannel bdcGreater100 = getNextChannel(deflateDictionaries == null ? null
+								: deflateDictionaries.getValueChannelDictionary(o.getQName()));
+						preReadChannel(o, lds, bdcGreater100);
 					}
 				}
 
 			}
+			if (blockMemoryBudget >= 0) {
+				// buffered records carry their datatype
+				this.channelDatatypes.clear();
+			}
 		} catch (IOException e) {
 			throw new EXIException(e);
 		}
 	}
 	
 	
+	protected void preReadChannel(QNameContext o, List<Datatype> lds,
+			DecoderChannel valueChannel) throws IOException {
+		if (seekableInput != null && isRecordable(lds)) {
+			locateValues(lds, o, valueChannel);
+		} else if (blockMemoryBudget >= 0) {
+			bufferValues(lds, o, valueChannel);
+		} else {
+			Value[] contentValues = readValues(lds, o, valueChannel,
+					stringDecoder);
+			this.preReadValues.put(o, new PreReadValue(contentValues));
+		}
+	}
+
+	/**
+	 * Typed values that do not make use of the string table are recorded in
+	 * their encoded form and decoded again when requested.
+	 */
+	protected boolean isRecordable(Datatype datatype) {
+		if (recordTypedValues) {
+			switch (datatype.getBuiltInType()) {
+			case STRING:
+			case RCS_STRING:
+			case LIST:
+			case QNAME:
+				return false;
+			default:
+				return true;
+			}
+		}
+		return false;
+	}
+
+	protected boolean isRecordable(List<Datatype> lds) {
+		for (int i = 0; i < lds.size(); i++) {
+			if (!isRecordable(lds.get(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Seekable pre-compression input: a channel that does not make use of the
+	 * string table is only skipped, i.e., values are passed over without
+	 * creating them. Its values are decoded on demand from the channel start
+	 * position.
+	 */
+	protected void locateValues(List<Datatype> lds, QNameContext o,
+			DecoderChannel valueChannel) throws IOException {
+		// Note: no read-ahead in pre-compression mode
+		int start = seekableInput.getPosition();
+		for (int i = 0; i < lds.size(); i++) {
+			// Note: recordable values are typed and do not use a DTR map
+			lds.get(i).skipValue(o, valueChannel, stringDecoder);
+		}
+		BufferedValues bv = new BufferedValues(null, lds);
+		bv.replay = new ByteDecoderChannel(seekableInput.newInputStream(start));
+		this.bufferedValues.put(o, bv);
+	}
+
+	/**
+	 * Bounded mode: values are kept as records in a byte buffer (spilled to a
+	 * file once the budget is exceeded) instead of value objects. Each record
+	 * starts with <code>[datatype &lt;&lt; 1 | lexical]</code>. Recordable
+	 * values follow in their encoded form. Values making use of the string
+	 * table need to be decoded in channel order and follow in their lexical
+	 * form <code>[value type][string]</code>.
+	 */
+	protected void bufferValues(List<Datatype> lds, QNameContext o,
+			DecoderChannel valueChannel) throws IOException {
+		int size = unusedChannelBuffers.size();
+		ValueChannelBuffer vcb = size > 0 ? unusedChannelBuffers
+				.remove(size - 1) : new ValueChannelBuffer();
+		this.bufferedValues.put(o, new BufferedValues(vcb, null));
+		EncoderChannel records = vcb.getEncoderChannel();
+
+		for (int i = 0; i < lds.size(); i++) {
+			Datatype dt = lds.get(i);
+			int len = vcb.getLength();
+			int id = getBufferedDatatypeId(dt) << 1;
+			if (isRecordable(dt)) {
+				records.encodeUnsignedInteger(id);
+				recordingStream.setRecorder(vcb);
+				try {
+					typeDecoder.readValue(dt, o, valueChannel, stringDecoder);
+				} finally {
+					recordingStream.setRecorder(null);
+				}
+			} else {
+				records.encodeUnsignedInteger(id | 1);
+				writeLexicalRecord(typeDecoder.readValue(dt, o, valueChannel,
+						stringDecoder), records);
+			}
+			vcb.addEncodedValue();
+
+			heapBytes += vcb.getLength() - len;
+			if (heapBytes > blockMemoryBudget) {
+				if (spillFile == null) {
+					spillFile = new SpillFile();
+				}
+				for (BufferedValues bv : bufferedValues.values()) {
+					if (bv.buffer != null) {
+						bv.buffer.spill(spillFile);
+					}
+				}
+				heapBytes = 0;
+			}
+		}
+	}
+
+	protected int getBufferedDatatypeId(Datatype datatype) {
+		Integer id = bufferedDatatypeIds.get(datatype);
+		if (id == null) {
+			id = bufferedDatatypes.size();
+			bufferedDatatypes.add(datatype);
+			bufferedDatatypeIds.put(datatype, id);
+		}
+		return id;
+	}
+
+	protected void writeLexicalRecord(Value value, EncoderChannel records)
+			throws IOException {
+		records.encodeUnsignedInteger(value.getValueType().ordinal());
+		if (value.getValueType() == ValueType.DATETIME) {
+			records.encodeUnsignedInteger(((DateTimeValue) value).type
+					.ordinal());
+		}
+		records.encodeString(value.toString());
+	}
+
+	/**
+	 * Parses a lexical record again into a value of the type it has been
+	 * decoded with.
+	 */
+	protected Value readLexicalRecord(Datatype datatype, DecoderChannel records)
+			throws IOException {
+		ValueType valueType = VALUE_TYPES[records.decodeUnsignedInteger()];
+		DateTimeType dateTimeType = valueType == ValueType.DATETIME ? DATETIME_TYPES[records
+				.decodeUnsignedInteger()] : null;
+		String s = new String(records.decodeString());
+		Value value;
+		switch (valueType) {
+		case BINARY_BASE64:
+			value = BinaryBase64Value.parse(s);
+			break;
+		case BINARY_HEX:
+			value = BinaryHexValue.parse(s);
+			break;
+		case BOOLEAN:
+			value = BooleanValue.parse(s);
+			break;
+		case DECIMAL:
+			value = DecimalValue.parse(s);
+			break;
+		case FLOAT:
+			value = FloatValue.parse(s);
+			break;
+		case INTEGER:
+			value = IntegerValue.parse(s);
+			break;
+		case DATETIME:
+			value = DateTimeValue.parse(s, dateTimeType);
+			break;
+		case LIST:
+			value = datatype instanceof ListDatatype ? ListValue.parse(s,
+					((ListDatatype) datatype).getListDatatype()) : null;
+			break;
+		default:
+			// STRING, QNAME
+			return new StringValue(s);
+		}
+		if (value == null) {
+			throw new IOException("Buffered value '" + s
+					+ "' is no longer valid.");
+		}
+		return value;
+	}
+
+	protected Value readBufferedValue(QNameContext qnc, BufferedValues bv)
+			throws IOException {
+		if (bv.buffer == null) {
+			// located in seekable input
+			return typeDecoder.readValue(bv.datatypes.get(bv.index++), qnc,
+					bv.replay, stringDecoder);
+		}
+		if (bv.replay == null) {
+			bv.replay = new ByteDecoderChannel(new BufferedInputStream(
+					bv.buffer.getInputStream(spillFile), REPLAY_BUFFER_SIZE));
+		}
+		int id = bv.replay.decodeUnsignedInteger();
+		Datatype dt = bufferedDatatypes.get(id >>> 1);
+		if ((id & 1) == 0) {
+			return typeDecoder.readValue(dt, qnc, bv.replay, stringDecoder);
+		} else {
+			return readLexicalRecord(dt, bv.replay);
+		}
+	}
+
 	private Value[] readValues(List<Datatype> lds, QNameContext o, DecoderChannel valueChannel, StringDecoder stringDecoder) throws IOException {
 		Value[] contentValues = new Value[lds.size()];
 		for (int i = 0; i < lds.size(); i++) {
@@ -618,6 +924,13 @@ public class EXIBodyDecoderReordered extends AbstractEXIBodyDecoder {
 
 		blockValues--;
 		
+		if (bufferedValues != null) {
+			BufferedValues bv = bufferedValues.get(qname);
+			if (bv != null) {
+				return readBufferedValue(qname, bv);
+			}
+		}
+
 		Value v = this.preReadValues.get(qname).getNextContantValue();
 
 		return v;
@@ -629,8 +942,8 @@ public class EXIBodyDecoderReordered extends AbstractEXIBodyDecoder {
 			setupNewBlock();
 		}
 
-		if (stillNoEndOfDocument || eventTypes.size() > eventTypeIndex) {
-			return eventTypes.get(eventTypeIndex++);
+		if (stillNoEndOfDocument || eventTypesSize > eventTypeIndex) {
+			return EVENT_TYPES[eventTypes[eventTypeIndex++]];
 		} else {
 			return null;
 		}
@@ -647,7 +960,7 @@ public class EXIBodyDecoderReordered extends AbstractEXIBodyDecoder {
 	}
 
 	protected final ElementContext setNextElemementEntry() {
-		return (currElementEntry = elementEntries.get(elementEntryIndex++));
+		return (currElementEntry = elementEntries[elementEntryIndex++]);
 	}
 
 	public QNameContext decodeStartElement() throws IOException, EXIException {
@@ -697,27 +1010,42 @@ public class EXIBodyDecoderReordered extends AbstractEXIBodyDecoder {
 		return attributeQNameContext;
 	}
 
-	protected final void addQNameEntry(QNameEntry qne) {
-		qnameEntries.add(qne);
+	protected final void addEventType(EventType eventType) {
+		if (eventTypesSize == eventTypes.length) {
+			eventTypes = Arrays.copyOf(eventTypes, eventTypesSize << 1);
+		}
+		eventTypes[eventTypesSize++] = (byte) eventType.ordinal();
 	}
 
-	protected final QNameEntry getNextQNameEntry() {
-		return qnameEntries.get(qnameEntryIndex++);
+	protected final void addElementEntry(ElementContext ec) {
+		if (elementEntriesSize == elementEntries.length) {
+			elementEntries = Arrays.copyOf(elementEntries,
+					elementEntriesSize << 1);
+		}
+		elementEntries[elementEntriesSize++] = ec;
 	}
 
-	public QNameContext decodeAttribute() throws EXIException, IOException {
-		QNameEntry at = getNextQNameEntry();
+	protected final void addQNameEntry(QNameContext qnc, String prefix) {
+		if (qnameEntriesSize == qnameEntries.length) {
+			int newSize = qnameEntriesSize << 1;
+			qnameEntries = Arrays.copyOf(qnameEntries, newSize);
+			qnameEntryPrefixes = Arrays.copyOf(qnameEntryPrefixes, newSize);
+		}
+		qnameEntries[qnameEntriesSize] = qnc;
+		qnameEntryPrefixes[qnameEntriesSize] = prefix;
+		qnameEntriesSize++;
+	}
 
-		this.attributeQNameContext = at.qnContext;
-		attributePrefix = at.prefix;
+	public QNameContext decodeAttribute() throws EXIException, IOException {
+		this.attributeQNameContext = qnameEntries[qnameEntryIndex];
+		attributePrefix = qnameEntryPrefixes[qnameEntryIndex++];
 		attributeValue = getNextContentValue(attributeQNameContext);
 
 		return attributeQNameContext;
 	}
 
 	public Value decodeCharacters() throws EXIException, IOException {
-		QNameEntry ch = getNextQNameEntry();
-		Value chVal = getNextContentValue(ch.qnContext);
+		Value chVal = getNextContentValue(qnameEntries[qnameEntryIndex++]);
 		return chVal;
 	}
 
@@ -742,6 +1070,14 @@ public class EXIBodyDecoderReordered extends AbstractEXIBodyDecoder {
 				throw new EXIException(e);
 			}
 		}
+		if (spillFile != null) {
+			try {
+				spillFile.close();
+			} catch (IOException e) {
+				throw new EXIException(e);
+			}
+			spillFile = null;
+		}
 	}
 
 	public DocType decodeDocType() throws EXIException {
@@ -771,13 +1107,19 @@ public class EXIBodyDecoderReordered extends AbstractEXIBodyDecoder {
 		}
 	}
 
-	static class QNameEntry {
-		final QNameContext qnContext;
-		final String prefix;
-
-		public QNameEntry(QNameContext qnContext, String prefix) {
-			this.qnContext = qnContext;
-			this.prefix = prefix;
+	/*
+	 * values buffered as records or located in seekable input (buffer null,
+	 * datatypes given)
+	 */
+	static class BufferedValues {
+		final ValueChannelBuffer buffer;
+		final List<Datatype> datatypes;
+		int index;
+		DecoderChannel replay;
+
+		public BufferedValues(ValueChannelBuffer buffer, List<Datatype> datatypes) {
+			this.buffer = buffer;
+			this.datatypes = datatypes;
 		}
 	}
 
@@ -23,14 +23,30 @@
 
 package com.siemens.ct.exi.core;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import javax.xml.namespace.QName;
 
+import com.siemens.ct.exi.CodingMode;
 import com.siemens.ct.exi.EXIFactory;
+import com.siemens.ct.exi.SelfContainedFragmentWriter;
+import com.siemens.ct.exi.context.QNameContext;
 import com.siemens.ct.exi.exceptions.EXIException;
 import com.siemens.ct.exi.exceptions.ErrorHandler;
 import com.siemens.ct.exi.grammars.event.EventType;
+import com.siemens.ct.exi.io.channel.BitEncoderChannel;
+import com.siemens.ct.exi.io.channel.ByteEncoderChannel;
+import com.siemens.ct.exi.io.channel.EncoderChannel;
 import com.siemens.ct.exi.values.Value;
 
 /**
@@ -61,6 +77,16 @@ import com.siemens.ct.exi.values.Value;
  * learned while processing this EXI Body to that saved in step 1 above.</li>
  * </ol>
  * 
+ * <p>
+ * Besides the inline evaluation SC fragments can be submitted via
+ * {@link #submitSelfContained(String, String, String, SelfContainedFragmentWriter)}
+ * . Each submitted fragment is encoded into its own byte-aligned buffer
+ * (possibly concurrently by the configured executor) and spliced into the
+ * stream in submission order. Since fragments start and end on a byte
+ * boundary and do not depend on any state learned so far the resulting
+ * stream is identical to the one encoded inline.
+ * </p>
+ * 
  * @author Daniel.Peintner.EXT@siemens.com
  * @author Joerg.Heuer@siemens.com
  * 
@@ -71,8 +97,18 @@ public class EXIBodyEncoderInOrderSC extends EXIBodyEncoderInOrder {
 
 	protected EXIBodyEncoderInOrderSC scEncoder;
 
+	/** maximum number of submitted SC fragments waiting to be spliced */
+	public static final int MAX_PENDING_SC_FRAGMENTS = 256;
+
+	/** executor for submitted SC fragments (null == calling thread) */
+	protected Executor scExecutor;
+
+	/** submitted SC fragments (and bytes in between) in stream order */
+	protected final Deque<Future<byte[]>> scPending;
+
 	public EXIBodyEncoderInOrderSC(EXIFactory exiFactory) throws EXIException {
 		super(exiFactory);
+		scPending = new ArrayDeque<Future<byte[]>>();
 	}
 
 	@Override
@@ -81,6 +117,205 @@ public class EXIBodyEncoderInOrderSC extends EXIBodyEncoderInOrder {
 
 		// clear possibly remaining encoder
 		scEncoder = null;
+		// drop possibly remaining fragments
+		while (!scPending.isEmpty()) {
+			scPending.poll().cancel(true);
+		}
+	}
+
+	/**
+	 * Sets the executor that encodes submitted SC fragments. If no executor
+	 * is set fragments are encoded on the calling thread.
+	 * 
+	 * @param executor
+	 *            executor for SC fragments or null
+	 */
+	public void setSelfContainedExecutor(Executor executor) {
+		this.scExecutor = executor;
+	}
+
+	/**
+	 * Encodes the start tag of the selfContained element and submits its
+	 * content for being encoded as independent SC fragment. The fragment is
+	 * spliced into the stream before any subsequent event is encoded. A
+	 * {@link com.siemens.ct.exi.SelfContainedHandler} is informed once the
+	 * start tag is written to the stream, i.e., possibly only when pending
+	 * fragments are spliced.
+	 * 
+	 * @param uri
+	 *            namespace URI of SC element
+	 * @param localName
+	 *            local-name of SC element
+	 * @param prefix
+	 *            prefix of SC element (can be null according to fidelity
+	 *            options)
+	 * @param fragmentWriter
+	 *            writer reporting the content of the SC element
+	 * @throws EXIException
+	 *             EXI exception
+	 * @throws IOException
+	 *             IO exception
+	 */
+	public void submitSelfContained(final String uri, final String localName,
+			final String prefix,
+			final SelfContainedFragmentWriter fragmentWriter)
+			throws EXIException, IOException {
+		if (scEncoder != null) {
+			throw new EXIException("SC fragment {" + uri + "}" + localName
+					+ " cannot be submitted within an inline SC fragment");
+		}
+
+		// splice what is ready and bound the number of pending fragments
+		spliceSelfContained(false);
+
+		// Note: with pending fragments the channel is byte-aligned and the
+		// SE(qname) plus SC event-codes are buffered in between
+		final EncoderChannel outerChannel = this.channel;
+		ByteArrayOutputStream scHeader = null;
+		if (!scPending.isEmpty()) {
+			scHeader = new ByteArrayOutputStream();
+			this.channel = createFragmentChannel(scHeader);
+		}
+		try {
+			super.encodeStartElement(uri, localName, prefix);
+			QName qname = getElementContext().qnameContext.getQName();
+			if (!exiFactory.isSelfContainedElement(qname)) {
+				throw new EXIException("Element " + qname
+						+ " is not a selfContained element");
+			}
+			int ec2 = fidelityOptions.get2ndLevelEventCode(
+					EventType.SELF_CONTAINED, getCurrentGrammar());
+			encode2ndLevelEventCode(ec2);
+			this.channel.align();
+
+			// buffered headers inform the handler once spliced
+			if (scHeader == null
+					&& exiFactory.getSelfContainedHandler() != null) {
+				exiFactory.getSelfContainedHandler().scElement(uri, localName,
+						this.channel);
+			}
+		} finally {
+			this.channel = outerChannel;
+		}
+		if (scHeader != null) {
+			scPending.add(new SCHeader(uri, localName, scHeader.toByteArray()));
+		}
+
+		// fragment encoder is set up on the calling thread
+		final EXIBodyEncoderInOrderSC fragmentEncoder = createSCEncoder();
+		FutureTask<byte[]> fragment = new FutureTask<byte[]>(
+				new Callable<byte[]>() {
+					public byte[] call() throws Exception {
+						ByteArrayOutputStream baos = new ByteArrayOutputStream();
+						fragmentEncoder.channel = createFragmentChannel(baos);
+						fragmentEncoder.encodeStartDocument();
+						fragmentEncoder.encodeStartElementNoSC(uri, localName,
+								prefix);
+						if (preservePrefix) {
+							fragmentEncoder.encodeNamespaceDeclaration(uri,
+									prefix);
+						}
+						fragmentWriter.writeContent(fragmentEncoder);
+						fragmentEncoder.encodeEndElement();
+						fragmentEncoder.encodeEndDocument();
+						fragmentEncoder.flush();
+						return baos.toByteArray();
+					}
+				});
+		scPending.add(fragment);
+
+		// NOTE: NO outer EE (see encodeEndSC)
+		super.popElement();
+
+		if (scExecutor == null) {
+			fragment.run();
+		} else {
+			scExecutor.execute(fragment);
+		}
+	}
+
+	protected EncoderChannel createFragmentChannel(OutputStream os) {
+		if (exiFactory.getCodingMode() == CodingMode.BIT_PACKED) {
+			return new BitEncoderChannel(os);
+		} else {
+			assert (exiFactory.getCodingMode() == CodingMode.BYTE_PACKED);
+			return new ByteEncoderChannel(os);
+		}
+	}
+
+	/*
+	 * Buffered SE(qname) and SC event-codes of a submitted fragment
+	 */
+	static class SCHeader extends FutureTask<byte[]> {
+
+		final String uri;
+		final String localName;
+
+		SCHeader(String uri, String localName, final byte[] bytes) {
+			super(new Callable<byte[]>() {
+				public byte[] call() {
+					return bytes;
+				}
+			});
+			this.uri = uri;
+			this.localName = localName;
+			run();
+		}
+	}
+
+	/**
+	 * Writes pending SC fragments in order to the channel.
+	 * 
+	 * @param all
+	 *            waits for all fragments if true, otherwise only finished
+	 *            fragments are written (or the oldest ones if there are too
+	 *            many pending)
+	 */
+	protected void spliceSelfContained(boolean all) throws EXIException,
+			IOException {
+		Future<byte[]> next;
+		while ((next = scPending.peek()) != null) {
+			if (!all && !next.isDone()
+					&& scPending.size() < MAX_PENDING_SC_FRAGMENTS) {
+				break;
+			}
+			byte[] bytes;
+			try {
+				bytes = next.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException(
+						"Interrupted while waiting for SC fragment");
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof EXIException) {
+					throw (EXIException) cause;
+				} else if (cause instanceof IOException) {
+					throw (IOException) cause;
+				} else {
+					throw new EXIException(cause);
+				}
+			}
+			scPending.poll();
+			// Note: channel is byte-aligned
+			this.channel.encode(bytes, 0, bytes.length);
+			if (next instanceof SCHeader
+					&& exiFactory.getSelfContainedHandler() != null) {
+				SCHeader header = (SCHeader) next;
+				exiFactory.getSelfContainedHandler().scElement(header.uri,
+						header.localName, this.channel);
+			}
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		try {
+			spliceSelfContained(true);
+		} catch (EXIException e) {
+			throw new IOException(e);
+		}
+		super.flush();
 	}
 
 	@Override
@@ -95,6 +330,7 @@ public class EXIBodyEncoderInOrderSC extends EXIBodyEncoderInOrder {
 	@Override
 	public void encodeStartDocument() throws EXIException, IOException {
 		if (scEncoder == null) {
+			spliceSelfContained(true);
 			super.encodeStartDocument();
 		} else {
 			scEncoder.encodeStartDocument();
@@ -104,6 +340,7 @@ public class EXIBodyEncoderInOrderSC extends EXIBodyEncoderInOrder {
 	@Override
 	public void encodeEndDocument() throws EXIException, IOException {
 		if (scEncoder == null) {
+			spliceSelfContained(true);
 			super.encodeEndDocument();
 		} else {
 			scEncoder.encodeEndDocument();
@@ -136,6 +373,7 @@ public class EXIBodyEncoderInOrderSC extends EXIBodyEncoderInOrder {
 
 		// business as usual
 		if (scEncoder == null) {
+			spliceSelfContained(true);
 			super.encodeStartElement(uri, localName, prefix);
 			QName qname = getElementContext().qnameContext.getQName();
 
@@ -163,15 +401,29 @@ public class EXIBodyEncoderInOrderSC extends EXIBodyEncoderInOrder {
 		}
 	}
 
-	protected void encodeStartSC(String uri, String localName, String prefix)
+	@Override
+	public void encodeStartElement(QNameContext se, String prefix)
 			throws EXIException, IOException {
+		// SC fragments use their own string tables
+		encodeStartElement(se.getNamespaceUri(), se.getLocalName(), prefix);
+	}
+
+	protected EXIBodyEncoderInOrderSC createSCEncoder() throws EXIException {
 		// SC Factory & Encoder
 		EXIFactory scEXIFactory = exiFactory.clone();
 		scEXIFactory.setFragment(true);
-		scEncoder = (EXIBodyEncoderInOrderSC) scEXIFactory
+		// SC fragments never continue a session
+		scEXIFactory.setSessionMode(false);
+		EXIBodyEncoderInOrderSC encoder = (EXIBodyEncoderInOrderSC) scEXIFactory
 				.createEXIBodyEncoder();
+		encoder.setErrorHandler(this.errorHandler);
+		return encoder;
+	}
+
+	protected void encodeStartSC(String uri, String localName, String prefix)
+			throws EXIException, IOException {
+		scEncoder = createSCEncoder();
 		scEncoder.channel = this.channel;
-		scEncoder.setErrorHandler(this.errorHandler);
 
 		// Evaluate the sequence of events (SD, SE(qname), content, ED)
 		// according to the Fragment grammar
@@ -193,6 +445,7 @@ public class EXIBodyEncoderInOrderSC extends EXIBodyEncoderInOrder {
 	@Override
 	public void encodeEndElement() throws EXIException, IOException {
 		if (scEncoder == null) {
+			spliceSelfContained(true);
 			super.encodeEndElement();
 		} else {
 			// fetch qname before EE
@@ -212,16 +465,24 @@ public class EXIBodyEncoderInOrderSC extends EXIBodyEncoderInOrder {
 	public void encodeAttribute(String uri, String localName, String prefix,
 			Value value) throws EXIException, IOException {
 		if (scEncoder == null) {
+			spliceSelfContained(true);
 			super.encodeAttribute(uri, localName, prefix, value);
 		} else {
 			scEncoder.encodeAttribute(uri, localName, prefix, value);
 		}
 	}
 
+	@Override
+	public void encodeAttribute(QNameContext at, String prefix, Value value)
+			throws EXIException, IOException {
+		encodeAttribute(at.getNamespaceUri(), at.getLocalName(), prefix, value);
+	}
+
 	@Override
 	public void encodeAttribute(QName at, Value value) throws EXIException,
 			IOException {
 		if (scEncoder == null) {
+			spliceSelfContained(true);
 			super.encodeAttribute(at, value);
 		} else {
 			scEncoder.encodeAttribute(at, value);
@@ -232,6 +493,7 @@ public class EXIBodyEncoderInOrderSC extends EXIBodyEncoderInOrder {
 	public void encodeNamespaceDeclaration(String uri, String prefix)
 			throws EXIException, IOException {
 		if (scEncoder == null) {
+			spliceSelfContained(true);
 			super.encodeNamespaceDeclaration(uri, prefix);
 		} else {
 			scEncoder.encodeNamespaceDeclaration(uri, prefix);
@@ -242,6 +504,7 @@ public class EXIBodyEncoderInOrderSC extends EXIBodyEncoderInOrder {
 	public void encodeAttributeXsiNil(Value nil, String pfx)
 			throws EXIException, IOException {
 		if (scEncoder == null) {
+			spliceSelfContained(true);
 			super.encodeAttributeXsiNil(nil, pfx);
 		} else {
 			scEncoder.encodeAttributeXsiNil(nil, pfx);
@@ -252,6 +515,7 @@ public class EXIBodyEncoderInOrderSC extends EXIBodyEncoderInOrder {
 	public void encodeAttributeXsiType(Value type, String pfx)
 			throws EXIException, IOException {
 		if (scEncoder == null) {
+			spliceSelfContained(true);
 			super.encodeAttributeXsiType(type, pfx);
 		} else {
 			scEncoder.encodeAttributeXsiType(type, pfx);
@@ -261,6 +525,7 @@ public class EXIBodyEncoderInOrderSC extends EXIBodyEncoderInOrder {
 	@Override
 	public void encodeCharacters(Value chars) throws EXIException, IOException {
 		if (scEncoder == null) {
+			spliceSelfContained(true);
 			super.encodeCharacters(chars);
 		} else {
 			scEncoder.encodeCharacters(chars);
@@ -271,6 +536,7 @@ public class EXIBodyEncoderInOrderSC extends EXIBodyEncoderInOrder {
 	public void encodeDocType(String name, String publicID, String systemID,
 			String text) throws EXIException, IOException {
 		if (scEncoder == null) {
+			spliceSelfContained(true);
 			super.encodeDocType(name, publicID, systemID, text);
 		} else {
 			scEncoder.encodeDocType(name, publicID, systemID, text);
@@ -281,6 +547,7 @@ public class EXIBodyEncoderInOrderSC extends EXIBodyEncoderInOrder {
 	public void encodeEntityReference(String name) throws EXIException,
 			IOException {
 		if (scEncoder == null) {
+			spliceSelfContained(true);
 			super.encodeEntityReference(name);
 		} else {
 			scEncoder.encodeEntityReference(name);
@@ -291,6 +558,7 @@ public class EXIBodyEncoderInOrderSC extends EXIBodyEncoderInOrder {
 	public void encodeComment(char[] ch, int start, int length)
 			throws EXIException, IOException {
 		if (scEncoder == null) {
+			spliceSelfContained(true);
 			super.encodeComment(ch, start, length);
 		} else {
 			scEncoder.encodeComment(ch, start, length);
@@ -301,6 +569,7 @@ public class EXIBodyEncoderInOrderSC extends EXIBodyEncoderInOrder {
 	public void encodeProcessingInstruction(String target, String data)
 			throws EXIException, IOException {
 		if (scEncoder == null) {
+			spliceSelfContained(true);
 			super.encodeProcessingInstruction(target, data);
 		} else {
 			scEncoder.encodeProcessingInstruction(target, data);
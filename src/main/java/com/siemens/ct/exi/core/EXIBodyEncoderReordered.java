@@ -23,10 +23,13 @@
 
 package com.siemens.ct.exi.core;
 
+import java.io.BufferedInputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -38,11 +41,18 @@ import com.siemens.ct.exi.Constants;
 import com.siemens.ct.exi.EXIFactory;
 import com.siemens.ct.exi.EncodingOptions;
 import com.siemens.ct.exi.context.QNameContext;
-import com.siemens.ct.exi.core.container.ValueAndDatatype;
+import com.siemens.ct.exi.core.container.ValueChannelBuffer;
 import com.siemens.ct.exi.datatype.Datatype;
+import com.siemens.ct.exi.datatype.EnumerationDatatype;
 import com.siemens.ct.exi.exceptions.EXIException;
+import com.siemens.ct.exi.io.SpillFile;
+import com.siemens.ct.exi.io.channel.ByteDecoderChannel;
 import com.siemens.ct.exi.io.channel.ByteEncoderChannel;
+import com.siemens.ct.exi.io.channel.DecoderChannel;
 import com.siemens.ct.exi.io.channel.EncoderChannel;
+import com.siemens.ct.exi.io.compression.DeflateDictionaries;
+import com.siemens.ct.exi.types.TypedTypeEncoder;
+import com.siemens.ct.exi.values.StringValue;
 import com.siemens.ct.exi.values.Value;
 
 /**
@@ -60,49 +70,114 @@ public class EXIBodyEncoderReordered extends AbstractEXIBodyEncoder {
 	protected Deflater deflater;
 	protected DeflaterOutputStream deflaterOS;
 	protected CodingMode codingMode;
+	// preset dictionaries (may be null)
+	protected final DeflateDictionaries deflateDictionaries;
 
 	protected int blockValues;
 
 	protected Value lastValue;
 	protected Datatype lastDatatype;
-	
+
+	// typed values without string table can be encoded right away
+	protected final boolean eagerTypedValues;
+
 	// Note: Map needs to be sorted to retrieve correct channel order (e.g., LinkedHashMap)
-	protected Map<QNameContext, List<ValueAndDatatype>> channelValuesAndDatatypes;
+	protected Map<QNameContext, ValueChannelBuffer> channelBuffers;
+	// buffers of previous blocks (re-used)
+	protected List<ValueChannelBuffer> unusedChannelBuffers;
+
+	// heap budget for buffered values, -1 == unbounded
+	protected final int blockMemoryBudget;
+	protected int heapBytes;
+	protected SpillFile spillFile;
+	// bounded mode: datatypes of values that are encoded when the channel is
+	// written, referenced by id from the buffered records
+	protected List<Datatype> boundedDatatypes;
+	protected Map<Datatype, Integer> boundedDatatypeIds;
+	protected ValueChannelBuffer scratchBuffer;
+	protected byte[] recordBytes;
 
 	public EXIBodyEncoderReordered(EXIFactory exiFactory) throws EXIException {
 		super(exiFactory);
 
 		this.codingMode = exiFactory.getCodingMode();
-		
+		this.deflateDictionaries = exiFactory.getDeflateDictionaries();
+		this.eagerTypedValues = (typeEncoder instanceof TypedTypeEncoder)
+				&& exiFactory.getDatatypeRepresentationMapTypes() == null;
+
 		// Note: needs to be sorted map for channel order 
-		channelValuesAndDatatypes = new LinkedHashMap<QNameContext, List<ValueAndDatatype>>();
+		channelBuffers = new LinkedHashMap<QNameContext, ValueChannelBuffer>();
+		unusedChannelBuffers = new ArrayList<ValueChannelBuffer>();
+
+		this.blockMemoryBudget = exiFactory.getBlockMemoryBudget();
+		if (blockMemoryBudget >= 0) {
+			boundedDatatypes = new ArrayList<Datatype>();
+			boundedDatatypeIds = new IdentityHashMap<Datatype, Integer>();
+			scratchBuffer = new ValueChannelBuffer();
+			recordBytes = new byte[64];
+		}
 	}
 
 	@Override
 	protected void initForEachRun() throws EXIException, IOException {
 		super.initForEachRun();
 
-		blockValues = 0;
-		
-		channelValuesAndDatatypes.clear();
+		initBlock();
 	}
 
-	protected void initBlock() {
+	protected void initBlock() throws IOException {
 		blockValues = 0;
 		
 		// re-set all channels
-		this.channelValuesAndDatatypes.clear();
+		for (ValueChannelBuffer vcb : channelBuffers.values()) {
+			vcb.clear();
+			unusedChannelBuffers.add(vcb);
+		}
+		this.channelBuffers.clear();
+
+		if (blockMemoryBudget >= 0) {
+			heapBytes = 0;
+			boundedDatatypes.clear();
+			boundedDatatypeIds.clear();
+			if (spillFile != null) {
+				spillFile.reset();
+			}
+		}
 	}
-	
-	protected void addValueAndDatatype(QNameContext qnc, ValueAndDatatype vd) {
-		List<ValueAndDatatype> vds = this.channelValuesAndDatatypes.get(qnc);
-		if(vds == null) {
-			// create new list
-			vds = new ArrayList<ValueAndDatatype>();
+
+	protected ValueChannelBuffer getChannelBuffer(QNameContext qnc) {
+		ValueChannelBuffer vcb = this.channelBuffers.get(qnc);
+		if (vcb == null) {
+			int size = unusedChannelBuffers.size();
+			vcb = size > 0 ? unusedChannelBuffers.remove(size - 1)
+					: new ValueChannelBuffer();
 			// add to map (sorted due to linked hashmap)
-			channelValuesAndDatatypes.put(qnc, vds);
-		} 
-		vds.add(vd);
+			channelBuffers.put(qnc, vcb);
+		}
+		return vcb;
+	}
+
+	/**
+	 * Values that do not make use of the string table are not affected by
+	 * the channel order and can be encoded as soon as they appear.
+	 * 
+	 * @param datatype
+	 *            datatype the value has been validated against
+	 * @return whether value can be encoded eagerly
+	 */
+	protected boolean isEagerlyEncodable(Datatype datatype) {
+		if (eagerTypedValues) {
+			switch (datatype.getBuiltInType()) {
+			case STRING:
+			case RCS_STRING:
+			case LIST:
+			case QNAME:
+				return false;
+			default:
+				return true;
+			}
+		}
+		return false;
 	}
 
 	public void setOutputStream(OutputStream os) throws EXIException,
@@ -126,10 +201,27 @@ public class EXIBodyEncoderReordered extends AbstractEXIBodyEncoder {
 		return super.isTypeValid(datatype, value);
 	}
 
+	@Override
+	protected boolean isTypeValid(EnumerationDatatype datatype, int index) {
+		lastDatatype = datatype;
+		lastValue = index >= 0 && index < datatype.getEnumerationSize() ? datatype
+				.getEnumValue(index) : null;
+		return super.isTypeValid(datatype, index);
+	}
+
 	@Override
 	protected void writeValue(QNameContext valueContext) throws IOException {
-		addValueAndDatatype(valueContext, new ValueAndDatatype(
-				lastValue, lastDatatype));
+		ValueChannelBuffer vcb = getChannelBuffer(valueContext);
+		if (blockMemoryBudget >= 0) {
+			writeBoundedValue(valueContext, vcb);
+		} else if (isEagerlyEncodable(lastDatatype)) {
+			// typeEncoder holds the value validated last
+			typeEncoder.writeValue(valueContext, vcb.getEncoderChannel(),
+					stringEncoder);
+			vcb.addEncodedValue();
+		} else {
+			vcb.addDeferredValue(lastValue, lastDatatype);
+		}
 
 		// new block goes directly after value
 		if (++blockValues == exiFactory.getBlockSize()) {
@@ -145,7 +237,58 @@ public class EXIBodyEncoderReordered extends AbstractEXIBodyEncoder {
 
 	}
 
+	/**
+	 * Bounded mode: every value is stored as a self-delimiting record so that
+	 * the buffer can be spilled. Eagerly encodable values are stored as
+	 * <code>[0][binary]</code>. All others are stored in their lexical form
+	 * as <code>[datatype+1][string]</code> and are validated and encoded again
+	 * when the channel is written.
+	 */
+	protected void writeBoundedValue(QNameContext valueContext,
+			ValueChannelBuffer vcb) throws IOException {
+		int len = vcb.getLength();
+		EncoderChannel vc = vcb.getEncoderChannel();
+		if (isEagerlyEncodable(lastDatatype)) {
+			scratchBuffer.clear();
+			typeEncoder.writeValue(valueContext,
+					scratchBuffer.getEncoderChannel(), stringEncoder);
+			vc.encodeUnsignedInteger(0);
+			vc.encodeUnsignedInteger(scratchBuffer.getLength());
+			scratchBuffer.writeBytes(0, scratchBuffer.getLength(), vc);
+		} else {
+			vc.encodeUnsignedInteger(getBoundedDatatypeId(lastDatatype) + 1);
+			vc.encodeString(lastValue.toString());
+		}
+		vcb.addEncodedValue();
+
+		heapBytes += vcb.getLength() - len;
+		if (heapBytes > blockMemoryBudget) {
+			if (spillFile == null) {
+				spillFile = new SpillFile();
+			}
+			for (ValueChannelBuffer b : channelBuffers.values()) {
+				b.spill(spillFile);
+			}
+			heapBytes = 0;
+		}
+	}
+
+	protected int getBoundedDatatypeId(Datatype datatype) {
+		Integer id = boundedDatatypeIds.get(datatype);
+		if (id == null) {
+			id = boundedDatatypes.size();
+			boundedDatatypes.add(datatype);
+			boundedDatatypeIds.put(datatype, id);
+		}
+		return id;
+	}
+
 	protected OutputStream getStream() {
+		return getStream(deflateDictionaries == null ? null
+				: deflateDictionaries.getStructureDictionary());
+	}
+
+	protected OutputStream getStream(byte[] dictionary) {
 		if (codingMode == CodingMode.COMPRESSION) {
 			// reuse deflater
 			if (deflater == null) {
@@ -158,6 +301,9 @@ public class EXIBodyEncoderReordered extends AbstractEXIBodyEncoder {
 			} else {
 				deflater.reset();
 			}
+			if (dictionary != null) {
+				deflater.setDictionary(dictionary);
+			}
 			deflaterOS = new DeflaterOutputStream(os, deflater);
 			return deflaterOS;
 		} else {
@@ -187,16 +333,9 @@ public class EXIBodyEncoderReordered extends AbstractEXIBodyEncoder {
 		else if (blockValues <= Constants.MAX_NUMBER_OF_VALUES) {
 			// 1. structure stream already written
 			// 2. value channels in order
-			Iterator<QNameContext> iterCh = this.channelValuesAndDatatypes.keySet().iterator();
-			while(iterCh.hasNext()) {
-				QNameContext contextOrder = iterCh.next();
-				List<ValueAndDatatype> lvd = channelValuesAndDatatypes.get(contextOrder);
-				for (int i = 0; i < lvd.size(); i++) {
-					ValueAndDatatype vd = lvd.get(i);
-					typeEncoder.isValid(vd.datatype, vd.value);
-					typeEncoder.writeValue(contextOrder, channel,
-							stringEncoder);
-				}
+			for (Map.Entry<QNameContext, ValueChannelBuffer> e : channelBuffers
+					.entrySet()) {
+				writeChannelBuffer(e.getKey(), e.getValue(), channel);
 			}
 
 			finalizeStream();
@@ -221,20 +360,15 @@ public class EXIBodyEncoderReordered extends AbstractEXIBodyEncoder {
 
 			// all value channels that contain less (and equal) than 100 values
 			// (as a single stream )
-			EncoderChannel leq100 = new ByteEncoderChannel(getStream());
+			EncoderChannel leq100 = new ByteEncoderChannel(
+					getStream(deflateDictionaries == null ? null
+							: deflateDictionaries.getValuesDictionary()));
 			boolean wasThereLeq100 = false;
 
-			Iterator<QNameContext> iterCh = this.channelValuesAndDatatypes.keySet().iterator();
-			while(iterCh.hasNext()) {
-				QNameContext contextOrder = iterCh.next();
-				List<ValueAndDatatype> lvd = channelValuesAndDatatypes.get(contextOrder);
-				if (lvd.size() <= Constants.MAX_NUMBER_OF_VALUES) {
-					for (int i = 0; i < lvd.size(); i++) {
-						ValueAndDatatype vd = lvd.get(i);
-						typeEncoder.isValid(vd.datatype, vd.value);
-						typeEncoder.writeValue(contextOrder, leq100,
-								stringEncoder);
-					}
+			for (Map.Entry<QNameContext, ValueChannelBuffer> e : channelBuffers
+					.entrySet()) {
+				if (e.getValue().getNumberOfValues() <= Constants.MAX_NUMBER_OF_VALUES) {
+					writeChannelBuffer(e.getKey(), e.getValue(), leq100);
 					wasThereLeq100 = true;
 				}
 			}
@@ -244,19 +378,16 @@ public class EXIBodyEncoderReordered extends AbstractEXIBodyEncoder {
 			}
 
 			// all value channels having more than 100 values
-			iterCh = this.channelValuesAndDatatypes.keySet().iterator();
-			while(iterCh.hasNext()) {
-				QNameContext contextOrder = iterCh.next();
-				List<ValueAndDatatype> lvd = channelValuesAndDatatypes.get(contextOrder);
-				if (lvd.size() > Constants.MAX_NUMBER_OF_VALUES) {
+			for (Map.Entry<QNameContext, ValueChannelBuffer> e : channelBuffers
+					.entrySet()) {
+				if (e.getValue().getNumberOfValues() > Constants.MAX_NUMBER_OF_VALUES) {
 					// create stream
-					EncoderChannel gre100 = new ByteEncoderChannel(getStream());
-					for (int i = 0; i < lvd.size(); i++) {
-						ValueAndDatatype vd = lvd.get(i);
-						typeEncoder.isValid(vd.datatype, vd.value);
-						typeEncoder.writeValue(contextOrder, gre100,
-								stringEncoder);
-					}
+					EncoderChannel gre100 = new ByteEncoderChannel(
+							getStream(deflateDictionaries == null ? null
+									: deflateDictionaries
+											.getValueChannelDictionary(e
+													.getKey().getQName())));
+					writeChannelBuffer(e.getKey(), e.getValue(), gre100);
 					// finish stream
 					finalizeStream();
 
@@ -265,6 +396,61 @@ public class EXIBodyEncoderReordered extends AbstractEXIBodyEncoder {
 		}
 	}
 
+	protected void writeChannelBuffer(QNameContext qnc,
+			ValueChannelBuffer vcb, EncoderChannel valueChannel)
+			throws IOException {
+		if (blockMemoryBudget >= 0) {
+			writeBoundedChannelBuffer(qnc, vcb, valueChannel);
+			return;
+		}
+		int pos = 0;
+		for (int i = 0; i < vcb.getNumberOfDeferredValues(); i++) {
+			// pre-encoded values in front of deferred value
+			int dpos = vcb.getDeferredPosition(i);
+			vcb.writeBytes(pos, dpos, valueChannel);
+			pos = dpos;
+			// deferred value
+			typeEncoder.isValid(vcb.getDeferredDatatype(i),
+					vcb.getDeferredValue(i));
+			typeEncoder.writeValue(qnc, valueChannel, stringEncoder);
+		}
+		vcb.writeBytes(pos, vcb.getLength(), valueChannel);
+	}
+
+	protected void writeBoundedChannelBuffer(QNameContext qnc,
+			ValueChannelBuffer vcb, EncoderChannel valueChannel)
+			throws IOException {
+		InputStream in = new BufferedInputStream(vcb.getInputStream(spillFile));
+		DecoderChannel records = new ByteDecoderChannel(in);
+		for (int i = 0; i < vcb.getNumberOfValues(); i++) {
+			int id = records.decodeUnsignedInteger();
+			if (id == 0) {
+				// pre-encoded value
+				int len = records.decodeUnsignedInteger();
+				if (len > recordBytes.length) {
+					recordBytes = new byte[Math.max(len, recordBytes.length << 1)];
+				}
+				int off = 0;
+				while (off < len) {
+					int r = in.read(recordBytes, off, len - off);
+					if (r == -1) {
+						throw new EOFException(
+								"Premature EOS found while reading buffered value.");
+					}
+					off += r;
+				}
+				valueChannel.encode(recordBytes, 0, len);
+			} else {
+				StringValue value = new StringValue(records.decodeString());
+				if (!typeEncoder.isValid(boundedDatatypes.get(id - 1), value)) {
+					throw new IOException("Buffered value '" + value
+							+ "' is no longer valid.");
+				}
+				typeEncoder.writeValue(qnc, valueChannel, stringEncoder);
+			}
+		}
+	}
+
 	protected void finalizeStream() throws IOException {
 		if (codingMode == CodingMode.COMPRESSION) {
 			deflaterOS.finish();
@@ -279,6 +465,11 @@ public class EXIBodyEncoderReordered extends AbstractEXIBodyEncoder {
 
 		// finalize document
 		os.flush();
+
+		if (spillFile != null) {
+			spillFile.close();
+			spillFile = null;
+		}
 	}
 
 }
@@ -34,6 +34,7 @@ import com.siemens.ct.exi.EXIBodyDecoder;
 import com.siemens.ct.exi.EXIFactory;
 import com.siemens.ct.exi.EXIStreamDecoder;
 import com.siemens.ct.exi.exceptions.EXIException;
+import com.siemens.ct.exi.io.ByteBufferInputStream;
 import com.siemens.ct.exi.io.channel.BitDecoderChannel;
 
 /**
@@ -111,7 +112,8 @@ public class EXIStreamDecoderImpl implements EXIStreamDecoder {
 	private InputStream checkBufferedAndPushbackStream(InputStream is) {
 		if (is instanceof PushbackInputStream) {
 			// push back stream, don't do anything
-		} else if (!(is instanceof BufferedInputStream || is instanceof ByteArrayInputStream)) {
+		} else if (!(is instanceof BufferedInputStream
+				|| is instanceof ByteArrayInputStream || is instanceof ByteBufferInputStream)) {
 			// buffer stream if not already
 			// TODO is there a *nice* way to detect whether a stream is buffered
 			is = new BufferedInputStream(is);
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2007-2016 Siemens AG
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ */
+
+package com.siemens.ct.exi.core.container;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Scoped namespace table with constant-time prefix to URI and URI to prefix
+ * lookups.
+ * 
+ * <p>
+ * Each element opens a scope via <code>pushContext()</code>, prefix
+ * declarations are bound to the innermost scope and discarded again by
+ * <code>popContext()</code>. A prefix resolves to its innermost binding (the
+ * first one if a scope declares a prefix twice), a URI resolves to the
+ * prefix declared first among the bindings in scope.
+ * </p>
+ * 
+ * @author Daniel.Peintner.EXT@siemens.com
+ * @author Joerg.Heuer@siemens.com
+ * 
+ * @version 0.9.7-SNAPSHOT
+ */
+
+public class NamespaceTable {
+
+	static final class Binding {
+		final String prefix;
+		final String namespaceURI;
+		// binding of the same prefix in an outer scope
+		final Binding shadowed;
+		// binding is the visible one for its prefix (uri)
+		boolean prefixActive;
+		boolean uriActive;
+
+		Binding(String prefix, String namespaceURI, Binding shadowed) {
+			this.prefix = prefix;
+			this.namespaceURI = namespaceURI;
+			this.shadowed = shadowed;
+		}
+	}
+
+	protected final Map<String, Binding> prefixes;
+	protected final Map<String, Binding> uris;
+
+	// declarations in document order and start index of each scope
+	protected Binding[] bindings;
+	protected int numberOfBindings;
+	protected int[] contexts;
+	protected int depth;
+
+	public NamespaceTable() {
+		prefixes = new HashMap<String, Binding>();
+		uris = new HashMap<String, Binding>();
+		bindings = new Binding[16];
+		contexts = new int[16];
+	}
+
+	public void clear() {
+		prefixes.clear();
+		uris.clear();
+		for (int i = 0; i < numberOfBindings; i++) {
+			bindings[i] = null;
+		}
+		numberOfBindings = 0;
+		depth = 0;
+	}
+
+	public void pushContext() {
+		if (++depth == contexts.length) {
+			int[] contextsNew = new int[contexts.length << 1];
+			System.arraycopy(contexts, 0, contextsNew, 0, contexts.length);
+			contexts = contextsNew;
+		}
+		contexts[depth] = numberOfBindings;
+	}
+
+	public void popContext() {
+		assert (depth > 0);
+		int start = contexts[depth--];
+		// undo in reverse order
+		while (numberOfBindings > start) {
+			Binding b = bindings[--numberOfBindings];
+			bindings[numberOfBindings] = null;
+			if (b.prefixActive) {
+				if (b.shadowed == null) {
+					prefixes.remove(b.prefix);
+				} else {
+					prefixes.put(b.prefix, b.shadowed);
+				}
+			}
+			if (b.uriActive) {
+				uris.remove(b.namespaceURI);
+			}
+		}
+	}
+
+	public void declarePrefix(String prefix, String namespaceURI) {
+		Binding prev = prefixes.get(prefix);
+		Binding b;
+		if (prev != null && isInnermostContext(prev)) {
+			// prefix has been declared by this scope already
+			b = new Binding(prefix, namespaceURI, null);
+		} else {
+			b = new Binding(prefix, namespaceURI, prev);
+			b.prefixActive = true;
+			prefixes.put(prefix, b);
+		}
+		if (!uris.containsKey(namespaceURI)) {
+			b.uriActive = true;
+			uris.put(namespaceURI, b);
+		}
+
+		if (numberOfBindings == bindings.length) {
+			Binding[] bindingsNew = new Binding[bindings.length << 1];
+			System.arraycopy(bindings, 0, bindingsNew, 0, bindings.length);
+			bindings = bindingsNew;
+		}
+		bindings[numberOfBindings++] = b;
+	}
+
+	private boolean isInnermostContext(Binding b) {
+		for (int i = contexts[depth]; i < numberOfBindings; i++) {
+			if (bindings[i] == b) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the namespace URI bound to the prefix.
+	 * 
+	 * @param prefix
+	 *            prefix
+	 * @return namespace URI or null if prefix is not bound
+	 */
+	public String getURI(String prefix) {
+		Binding b = prefixes.get(prefix);
+		return b == null ? null : b.namespaceURI;
+	}
+
+	/**
+	 * Returns the prefix declared first for the namespace URI.
+	 * 
+	 * @param namespaceURI
+	 *            namespace URI
+	 * @return prefix or null if namespace URI is not bound
+	 */
+	public String getPrefix(String namespaceURI) {
+		Binding b = uris.get(namespaceURI);
+		return b == null ? null : b.prefix;
+	}
+
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2007-2016 Siemens AG
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ */
+
+package com.siemens.ct.exi.core.container;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.siemens.ct.exi.datatype.Datatype;
+import com.siemens.ct.exi.io.SpillFile;
+import com.siemens.ct.exi.io.channel.ByteEncoderChannel;
+import com.siemens.ct.exi.io.channel.EncoderChannel;
+import com.siemens.ct.exi.values.Value;
+
+/**
+ * Columnar buffer for the values of one value channel in (pre-)compression
+ * mode.
+ * 
+ * <p>
+ * Values that do not depend on the string table are encoded eagerly (byte
+ * aligned) into the buffer. Values that need the string table are deferred
+ * since the string table has to be updated in channel order. Deferred values
+ * remember their byte position so that the channel order is retained when the
+ * channel is written.
+ * </p>
+ * 
+ * <p>
+ * If a memory budget is set the buffered bytes can be moved to a
+ * {@link SpillFile}. Spilled extents are read back before the bytes that are
+ * still kept on the heap.
+ * </p>
+ * 
+ * @author Daniel.Peintner.EXT@siemens.com
+ * @author Joerg.Heuer@siemens.com
+ * 
+ * @version 0.9.7-SNAPSHOT
+ */
+
+public class ValueChannelBuffer extends OutputStream {
+
+	protected static final int INITIAL_BYTES = 64;
+	protected static final int INITIAL_DEFERRED = 8;
+
+	/* pre-encoded values */
+	protected byte[] bytes;
+	protected int length;
+
+	/* deferred values */
+	protected int[] deferredPositions;
+	protected Value[] deferredValues;
+	protected Datatype[] deferredDatatypes;
+	protected int numberOfDeferredValues;
+
+	/* number of all values */
+	protected int numberOfValues;
+
+	/* spilled extents */
+	protected long[] spillPositions;
+	protected int[] spillLengths;
+	protected int numberOfSpills;
+
+	protected final EncoderChannel channel;
+
+	public ValueChannelBuffer() {
+		bytes = new byte[INITIAL_BYTES];
+		channel = new ByteEncoderChannel(this);
+	}
+
+	/**
+	 * Returns the byte-aligned channel pre-encoded values are written to.
+	 * 
+	 * @return encoder channel
+	 */
+	public EncoderChannel getEncoderChannel() {
+		return channel;
+	}
+
+	/**
+	 * Reports that a value has been encoded into the buffer channel.
+	 */
+	public void addEncodedValue() {
+		numberOfValues++;
+	}
+
+	/**
+	 * Adds a value that is encoded when the channel is written.
+	 * 
+	 * @param value value
+	 * @param datatype datatype
+	 */
+	public void addDeferredValue(Value value, Datatype datatype) {
+		if (deferredValues == null) {
+			deferredPositions = new int[INITIAL_DEFERRED];
+			deferredValues = new Value[INITIAL_DEFERRED];
+			deferredDatatypes = new Datatype[INITIAL_DEFERRED];
+		} else if (numberOfDeferredValues == deferredValues.length) {
+			int newSize = numberOfDeferredValues << 1;
+			int[] dp = new int[newSize];
+			System.arraycopy(deferredPositions, 0, dp, 0,
+					numberOfDeferredValues);
+			deferredPositions = dp;
+			Value[] dv = new Value[newSize];
+			System.arraycopy(deferredValues, 0, dv, 0, numberOfDeferredValues);
+			deferredValues = dv;
+			Datatype[] dd = new Datatype[newSize];
+			System.arraycopy(deferredDatatypes, 0, dd, 0,
+					numberOfDeferredValues);
+			deferredDatatypes = dd;
+		}
+		deferredPositions[numberOfDeferredValues] = length;
+		deferredValues[numberOfDeferredValues] = value;
+		deferredDatatypes[numberOfDeferredValues] = datatype;
+		numberOfDeferredValues++;
+		numberOfValues++;
+	}
+
+	public int getNumberOfValues() {
+		return numberOfValues;
+	}
+
+	public int getNumberOfDeferredValues() {
+		return numberOfDeferredValues;
+	}
+
+	public int getDeferredPosition(int index) {
+		return deferredPositions[index];
+	}
+
+	public Value getDeferredValue(int index) {
+		return deferredValues[index];
+	}
+
+	public Datatype getDeferredDatatype(int index) {
+		return deferredDatatypes[index];
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * Writes pre-encoded bytes [from, to) to the given channel.
+	 * 
+	 * @param from start position (inclusive)
+	 * @param to end position (exclusive)
+	 * @param out target channel
+	 * @throws IOException IO exception
+	 */
+	public void writeBytes(int from, int to, EncoderChannel out)
+			throws IOException {
+		if (to > from) {
+			out.encode(bytes, from, to - from);
+		}
+	}
+
+	/**
+	 * Moves all pre-encoded bytes to the given spill file. Only possible if
+	 * there are no deferred values.
+	 * 
+	 * @param spillFile spill file
+	 * @throws IOException IO exception
+	 */
+	public void spill(SpillFile spillFile) throws IOException {
+		assert (numberOfDeferredValues == 0);
+		if (length > 0) {
+			if (spillPositions == null) {
+				spillPositions = new long[INITIAL_DEFERRED];
+				spillLengths = new int[INITIAL_DEFERRED];
+			} else if (numberOfSpills == spillPositions.length) {
+				int newSize = numberOfSpills << 1;
+				long[] sp = new long[newSize];
+				System.arraycopy(spillPositions, 0, sp, 0, numberOfSpills);
+				spillPositions = sp;
+				int[] sl = new int[newSize];
+				System.arraycopy(spillLengths, 0, sl, 0, numberOfSpills);
+				spillLengths = sl;
+			}
+			spillPositions[numberOfSpills] = spillFile.append(bytes, 0, length);
+			spillLengths[numberOfSpills] = length;
+			numberOfSpills++;
+			length = 0;
+		}
+	}
+
+	/**
+	 * Returns a stream over all bytes, the spilled extents first followed by
+	 * the bytes on the heap.
+	 * 
+	 * @param spillFile spill file extents have been written to (may be null if
+	 *            nothing has been spilled)
+	 * @return input stream
+	 */
+	public InputStream getInputStream(final SpillFile spillFile) {
+		return new InputStream() {
+			int extent = 0;
+			int extentOffset = 0;
+			int heapPosition = 0;
+
+			@Override
+			public int read() throws IOException {
+				if (extent < numberOfSpills) {
+					byte[] b = new byte[1];
+					return read(b, 0, 1) < 0 ? -1 : (b[0] & 0xFF);
+				} else if (heapPosition < length) {
+					return bytes[heapPosition++] & 0xFF;
+				} else {
+					return -1;
+				}
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				if (len == 0) {
+					return 0;
+				}
+				while (extent < numberOfSpills) {
+					int remaining = spillLengths[extent] - extentOffset;
+					if (remaining > 0) {
+						int n = Math.min(remaining, len);
+						spillFile.read(spillPositions[extent] + extentOffset,
+								b, off, n);
+						extentOffset += n;
+						return n;
+					}
+					extent++;
+					extentOffset = 0;
+				}
+				if (heapPosition < length) {
+					int n = Math.min(length - heapPosition, len);
+					System.arraycopy(bytes, heapPosition, b, off, n);
+					heapPosition += n;
+					return n;
+				}
+				return -1;
+			}
+		};
+	}
+
+	/**
+	 * Resets the buffer for re-use (keeps allocated memory).
+	 */
+	public void clear() {
+		length = 0;
+		numberOfValues = 0;
+		numberOfSpills = 0;
+		for (int i = 0; i < numberOfDeferredValues; i++) {
+			deferredValues[i] = null;
+			deferredDatatypes[i] = null;
+		}
+		numberOfDeferredValues = 0;
+	}
+
+	protected void ensureCapacity(int minCapacity) {
+		if (minCapacity > bytes.length) {
+			int newCapacity = Math.max(bytes.length << 1, minCapacity);
+			byte[] newBytes = new byte[newCapacity];
+			System.arraycopy(bytes, 0, newBytes, 0, length);
+			bytes = newBytes;
+		}
+	}
+
+	@Override
+	public void write(int b) {
+		ensureCapacity(length + 1);
+		bytes[length++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		ensureCapacity(length + len);
+		System.arraycopy(b, off, bytes, length, len);
+		length += len;
+	}
+}
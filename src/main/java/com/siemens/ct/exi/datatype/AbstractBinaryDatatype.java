@@ -26,7 +26,9 @@ package com.siemens.ct.exi.datatype;
 import java.io.IOException;
 
 import com.siemens.ct.exi.context.QNameContext;
+import com.siemens.ct.exi.datatype.strings.StringDecoder;
 import com.siemens.ct.exi.datatype.strings.StringEncoder;
+import com.siemens.ct.exi.io.channel.DecoderChannel;
 import com.siemens.ct.exi.io.channel.EncoderChannel;
 import com.siemens.ct.exi.types.BuiltInType;
 import com.siemens.ct.exi.values.AbstractBinaryValue;
@@ -64,4 +66,11 @@ public abstract class AbstractBinaryDatatype extends AbstractDatatype {
 			StringEncoder stringEncoder) throws IOException {
 		valueChannel.encodeBinary(bytes);
 	}
+
+	@Override
+	public void skipValue(QNameContext qnContext, DecoderChannel valueChannel,
+			StringDecoder stringDecoder) throws IOException {
+		// length-prefixed sequence of octets
+		valueChannel.skip(valueChannel.decodeUnsignedInteger());
+	}
 }
\ No newline at end of file
@@ -23,7 +23,11 @@
 
 package com.siemens.ct.exi.datatype;
 
+import java.io.IOException;
+
 import com.siemens.ct.exi.context.QNameContext;
+import com.siemens.ct.exi.datatype.strings.StringDecoder;
+import com.siemens.ct.exi.io.channel.DecoderChannel;
 import com.siemens.ct.exi.types.BuiltInType;
 
 /**
@@ -114,4 +118,13 @@ public abstract class AbstractDatatype implements Datatype {
 	public void normalize() {
 		// in general no value normalization needed
 	}
+
+	/**
+	 * Skips a value by reading it. Datatypes whose representation can be
+	 * passed over without creating a value override this method.
+	 */
+	public void skipValue(QNameContext qnContext, DecoderChannel valueChannel,
+			StringDecoder stringDecoder) throws IOException {
+		readValue(qnContext, valueChannel, stringDecoder);
+	}
 }
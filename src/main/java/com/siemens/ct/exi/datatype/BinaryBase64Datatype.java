@@ -51,11 +51,11 @@ public class BinaryBase64Datatype extends AbstractBinaryDatatype {
 	}
 
 	protected boolean isValidString(String value) {
-		BinaryBase64Value bv = BinaryBase64Value.parse(value);
+		byte[] bv = BinaryBase64Value.decode(value);
 		if (bv == null) {
 			return false;
 		} else {
-			bytes = bv.toBytes();
+			bytes = bv;
 			return true;
 		}
 	}
@@ -51,12 +51,20 @@ public class BinaryHexDatatype extends AbstractBinaryDatatype {
 	}
 
 	protected boolean isValidString(String value) {
-		value = value.trim();
-		BinaryHexValue bv = BinaryHexValue.parse(value);
+		// trim without copying
+		int start = 0;
+		int end = value.length();
+		while (start < end && value.charAt(start) <= ' ') {
+			start++;
+		}
+		while (end > start && value.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		byte[] bv = BinaryHexValue.decode(value, start, end);
 		if (bv == null) {
 			return false;
 		} else {
-			bytes = bv.toBytes();
+			bytes = bv;
 			return true;
 		}
 	}
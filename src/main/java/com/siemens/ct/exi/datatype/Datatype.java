@@ -79,5 +79,9 @@ public interface Datatype {
 	 */
 	public Value readValue(QNameContext qnContext, DecoderChannel valueChannel,
 			StringDecoder stringDecoder) throws IOException;
+
+	// passes over a value without creating it (e.g., to locate channels)
+	public void skipValue(QNameContext qnContext, DecoderChannel valueChannel,
+			StringDecoder stringDecoder) throws IOException;
 	
 }
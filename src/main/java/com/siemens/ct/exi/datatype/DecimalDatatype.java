@@ -85,4 +85,13 @@ public class DecimalDatatype extends AbstractDatatype {
 			StringDecoder stringDecoder) throws IOException {
 		return valueChannel.decodeDecimalValue();
 	}
+
+	@Override
+	public void skipValue(QNameContext qnContext, DecoderChannel valueChannel,
+			StringDecoder stringDecoder) throws IOException {
+		// sign, integral and reverse fractional part
+		valueChannel.decodeBoolean();
+		valueChannel.skipUnsignedInteger();
+		valueChannel.skipUnsignedInteger();
+	}
 }
\ No newline at end of file
@@ -24,6 +24,8 @@
 package com.siemens.ct.exi.datatype;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 import com.siemens.ct.exi.context.QNameContext;
 import com.siemens.ct.exi.datatype.strings.StringDecoder;
@@ -32,6 +34,7 @@ import com.siemens.ct.exi.io.channel.DecoderChannel;
 import com.siemens.ct.exi.io.channel.EncoderChannel;
 import com.siemens.ct.exi.types.BuiltInType;
 import com.siemens.ct.exi.util.MethodsBag;
+import com.siemens.ct.exi.values.StringValue;
 import com.siemens.ct.exi.values.Value;
 
 /**
@@ -50,6 +53,11 @@ public class EnumerationDatatype extends AbstractDatatype implements EnumDatatyp
 	protected Value[] enumValues;
 	protected int lastValidIndex;
 
+	// lexical value to index
+	protected Map<String, Integer> enumValuesIndex;
+	// all values are plain strings, a lexical miss is final
+	protected boolean lexicalOnly;
+
 	public EnumerationDatatype(Value[] enumValues, Datatype dtEnumValues,
 			QNameContext schemaType) {
 		super(BuiltInType.ENUMERATION, schemaType);
@@ -58,6 +66,19 @@ public class EnumerationDatatype extends AbstractDatatype implements EnumDatatyp
 			this.dtEnumValues = dtEnumValues;
 			this.enumValues = enumValues;
 			this.codingLength = MethodsBag.getCodingLength(enumValues.length);
+			this.enumValuesIndex = new HashMap<String, Integer>(
+					enumValues.length * 4 / 3 + 1);
+			this.lexicalOnly = true;
+			for (int i = 0; i < enumValues.length; i++) {
+				String key = enumValues[i].toString();
+				if (!enumValuesIndex.containsKey(key)) {
+					// first occurrence wins (as with the linear search)
+					enumValuesIndex.put(key, i);
+				}
+				if (!(enumValues[i] instanceof StringValue)) {
+					lexicalOnly = false;
+				}
+			}
 		} else {
 			throw new RuntimeException("Enumeration type values can't be of type Enumeration or QName");
 		}
@@ -80,13 +101,50 @@ public class EnumerationDatatype extends AbstractDatatype implements EnumDatatyp
 	}
 
 	public boolean isValid(Value value) {
-		int index = 0;
-		while (index < enumValues.length) {
-			if (enumValues[index].equals(value)) {
-				lastValidIndex = index;
-				return true;
+		int index = getEnumValueIndex(value);
+		if (index >= 0) {
+			lastValidIndex = index;
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns the index of the given value in the enumeration. Values in the
+	 * lexical form of an enumeration member are found via hash lookup, other
+	 * lexical forms of typed values (e.g. "+1" for "1") by comparing values.
+	 * 
+	 * @param value value
+	 * @return enumeration index or -1 if not part of the enumeration
+	 */
+	public int getEnumValueIndex(Value value) {
+		Integer index = enumValuesIndex.get(value.toString());
+		if (index != null && enumValues[index].equals(value)) {
+			return index;
+		}
+		if (!lexicalOnly) {
+			for (int i = 0; i < enumValues.length; i++) {
+				if (enumValues[i].equals(value)) {
+					return i;
+				}
 			}
-			index++;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Checks an enumeration index the caller already knows. No value lookup
+	 * is needed and a subsequent writeValue encodes the given index.
+	 * 
+	 * @param index enumeration index
+	 * @return whether index is part of the enumeration
+	 */
+	public boolean isValidIndex(int index) {
+		if (index >= 0 && index < enumValues.length) {
+			lastValidIndex = index;
+			return true;
 		}
 
 		return false;
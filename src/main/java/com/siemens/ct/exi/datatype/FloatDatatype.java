@@ -77,4 +77,14 @@ public class FloatDatatype extends AbstractDatatype {
 			StringDecoder stringDecoder) throws IOException {
 		return valueChannel.decodeFloatValue();
 	}
+
+	@Override
+	public void skipValue(QNameContext qnContext, DecoderChannel valueChannel,
+			StringDecoder stringDecoder) throws IOException {
+		// mantissa and exponent integers
+		valueChannel.decodeBoolean();
+		valueChannel.skipUnsignedInteger();
+		valueChannel.decodeBoolean();
+		valueChannel.skipUnsignedInteger();
+	}
 }
\ No newline at end of file
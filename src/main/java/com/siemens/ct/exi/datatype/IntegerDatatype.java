@@ -77,4 +77,12 @@ public class IntegerDatatype extends AbstractDatatype {
 			StringDecoder stringDecoder) throws IOException {
 		return valueChannel.decodeIntegerValue();
 	}
+
+	@Override
+	public void skipValue(QNameContext qnContext, DecoderChannel valueChannel,
+			StringDecoder stringDecoder) throws IOException {
+		// sign and magnitude
+		valueChannel.decodeBoolean();
+		valueChannel.skipUnsignedInteger();
+	}
 }
\ No newline at end of file
@@ -25,12 +25,16 @@ package com.siemens.ct.exi.datatype;
 
 import java.io.IOException;
 
+import com.siemens.ct.exi.Constants;
 import com.siemens.ct.exi.context.QNameContext;
 import com.siemens.ct.exi.datatype.strings.StringDecoder;
 import com.siemens.ct.exi.datatype.strings.StringEncoder;
 import com.siemens.ct.exi.io.channel.DecoderChannel;
 import com.siemens.ct.exi.io.channel.EncoderChannel;
 import com.siemens.ct.exi.types.BuiltInType;
+import com.siemens.ct.exi.values.FloatValue;
+import com.siemens.ct.exi.values.IntegerValue;
+import com.siemens.ct.exi.values.IntegerValueType;
 import com.siemens.ct.exi.values.ListValue;
 import com.siemens.ct.exi.values.Value;
 
@@ -74,7 +78,11 @@ public class ListDatatype extends AbstractDatatype {
 	public boolean isValid(Value value) {
 		if (value instanceof ListValue) {
 			ListValue lv = (ListValue) value;
-			if (this.listDatatype.getBuiltInType() == lv.getListDatatype()
+			if (lv.toDoubles() != null || lv.toLongs() != null) {
+				// primitive items
+				this.listValues = isValidPrimitive(lv) ? lv : null;
+				return listValues != null;
+			} else if (this.listDatatype.getBuiltInType() == lv.getListDatatype()
 					.getBuiltInType()) {
 				this.listValues = lv;
 				return true;
@@ -87,9 +95,45 @@ public class ListDatatype extends AbstractDatatype {
 		}
 	}
 	
+	protected boolean isValidPrimitive(ListValue lv) {
+		BuiltInType itemType = listDatatype.getBuiltInType();
+		if (lv.toDoubles() != null) {
+			return itemType == BuiltInType.FLOAT;
+		}
+		long[] longs = lv.toLongs();
+		switch (itemType) {
+		case INTEGER:
+			return true;
+		case UNSIGNED_INTEGER:
+			for (int i = 0; i < longs.length; i++) {
+				if (longs[i] < 0) {
+					return false;
+				}
+			}
+			return true;
+		case NBIT_UNSIGNED_INTEGER:
+			NBitUnsignedIntegerDatatype nbit = (NBitUnsignedIntegerDatatype) listDatatype;
+			if (nbit.getLowerBound().getIntegerValueType() == IntegerValueType.BIG
+					|| nbit.getUpperBound().getIntegerValueType() == IntegerValueType.BIG) {
+				return false;
+			}
+			long lowerBound = nbit.getLowerBound().longValue();
+			long upperBound = nbit.getUpperBound().longValue();
+			for (int i = 0; i < longs.length; i++) {
+				if (longs[i] < lowerBound || longs[i] > upperBound) {
+					return false;
+				}
+			}
+			return true;
+		default:
+			return false;
+		}
+	}
+
 	@Override
 	public void normalize() {
-		if(listValues != null) {
+		// primitive items are canonical already
+		if(listValues != null && listValues.toDoubles() == null && listValues.toLongs() == null) {
 			Datatype dt = listValues.getListDatatype();
 			for(Value v : listValues.toValues()) {
 				dt.isValid(v);
@@ -102,6 +146,24 @@ public class ListDatatype extends AbstractDatatype {
 			StringEncoder stringEncoder) throws IOException {
 
 		// length prefixed sequence of values
+		if (listValues.toDoubles() != null) {
+			double[] doubles = listValues.toDoubles();
+			valueChannel.encodeUnsignedInteger(doubles.length);
+			long[] decimal = new long[2];
+			for (int i = 0; i < doubles.length; i++) {
+				// mantissa and exponent
+				FloatValue.toDecimal(doubles[i], decimal, 0);
+				valueChannel.encodeLong(decimal[0]);
+				valueChannel.encodeLong(decimal[1]);
+			}
+			return;
+		} else if (listValues.toLongs() != null) {
+			long[] longs = listValues.toLongs();
+			valueChannel.encodeUnsignedInteger(longs.length);
+			writeLongs(longs, valueChannel);
+			return;
+		}
+
 		Value[] values = listValues.toValues();
 		valueChannel.encodeUnsignedInteger(values.length);
 
@@ -116,10 +178,62 @@ public class ListDatatype extends AbstractDatatype {
 		}
 	}
 
+	protected void writeLongs(long[] longs, EncoderChannel valueChannel)
+			throws IOException {
+		switch (listDatatype.getBuiltInType()) {
+		case INTEGER:
+			for (int i = 0; i < longs.length; i++) {
+				valueChannel.encodeLong(longs[i]);
+			}
+			break;
+		case UNSIGNED_INTEGER:
+			for (int i = 0; i < longs.length; i++) {
+				valueChannel.encodeUnsignedLong(longs[i]);
+			}
+			break;
+		case NBIT_UNSIGNED_INTEGER:
+			NBitUnsignedIntegerDatatype nbit = (NBitUnsignedIntegerDatatype) listDatatype;
+			long lowerBound = nbit.getLowerBound().longValue();
+			int n = nbit.getNumberOfBits();
+			for (int i = 0; i < longs.length; i++) {
+				valueChannel.encodeNBitUnsignedInteger(
+						(int) (longs[i] - lowerBound), n);
+			}
+			break;
+		default:
+			throw new IOException("Unexpected list item type "
+					+ listDatatype.getBuiltInType());
+		}
+	}
+
 	public Value readValue(QNameContext qnContext, DecoderChannel valueChannel,
 			StringDecoder stringDecoder) throws IOException {
 
 		int len = valueChannel.decodeUnsignedInteger();
+
+		switch (listDatatype.getBuiltInType()) {
+		case FLOAT:
+			return readDoubles(len, qnContext, valueChannel, stringDecoder);
+		case INTEGER:
+		case UNSIGNED_INTEGER:
+			return readLongs(len, qnContext, valueChannel, stringDecoder);
+		case NBIT_UNSIGNED_INTEGER:
+			IntegerValue lowerBound = ((NBitUnsignedIntegerDatatype) listDatatype)
+					.getLowerBound();
+			if (lowerBound.getIntegerValueType() != IntegerValueType.BIG) {
+				long lb = lowerBound.longValue();
+				int n = ((NBitUnsignedIntegerDatatype) listDatatype)
+						.getNumberOfBits();
+				long[] longs = new long[len];
+				for (int i = 0; i < len; i++) {
+					longs[i] = lb + valueChannel.decodeNBitUnsignedInteger(n);
+				}
+				return new ListValue(longs, listDatatype);
+			}
+			break;
+		default:
+			break;
+		}
 		
 		Value[]  values = new Value[len];
 		for (int i = 0; i < len; i++) {
@@ -131,6 +245,95 @@ public class ListDatatype extends AbstractDatatype {
 		return retVal;
 	}
 	
+	private Value readDoubles(int len, QNameContext qnContext,
+			DecoderChannel valueChannel, StringDecoder stringDecoder)
+			throws IOException {
+		double[] doubles = new double[len];
+		// decoded mantissa and exponent plus scratch for the comparison
+		long[] decimal = new long[4];
+		for (int i = 0; i < len; i++) {
+			// mantissa and exponent, EXI restricts both to 64 bits
+			IntegerValue iv = valueChannel.decodeIntegerValue(decimal, 0);
+			if (iv != null) {
+				decimal[0] = iv.longValue();
+			}
+			iv = valueChannel.decodeIntegerValue(decimal, 1);
+			if (iv != null) {
+				decimal[1] = iv.longValue();
+			}
+			double d = FloatValue.toDouble(decimal[0], decimal[1]);
+			if (!isDoubleDecimal(d, decimal)) {
+				// not exact as double (e.g., too many digits or out of
+				// range), continue with values
+				Value[] values = new Value[len];
+				for (int k = 0; k < i; k++) {
+					FloatValue.toDecimal(doubles[k], decimal, 2);
+					values[k] = new FloatValue(decimal[2], decimal[3]);
+				}
+				values[i] = new FloatValue(decimal[0], decimal[1]);
+				for (int k = i + 1; k < len; k++) {
+					values[k] = listDatatype.readValue(qnContext,
+							valueChannel, stringDecoder);
+				}
+				return new ListValue(values, listDatatype);
+			}
+			doubles[i] = d;
+		}
+		return new ListValue(doubles, listDatatype);
+	}
+
+	/*
+	 * Checks whether the float in decimal[0..1] is represented by d without
+	 * loss. The decoded mantissa and exponent are compared in their canonical
+	 * form (see FloatValue), e.g., 150E-2 and 15E-1 both yield 1.5 and are
+	 * reported as 15E-1 like it is the case for item-wise decoding.
+	 */
+	private static boolean isDoubleDecimal(double d, long[] decimal) {
+		long m = decimal[0];
+		long e = decimal[1];
+		if (e == Constants.FLOAT_SPECIAL_VALUES) {
+			if (m != Constants.FLOAT_MANTISSA_INFINITY
+					&& m != Constants.FLOAT_MANTISSA_MINUS_INFINITY) {
+				m = Constants.FLOAT_MANTISSA_NOT_A_NUMBER;
+			}
+		} else if (m == 0) {
+			e = 0;
+		} else {
+			while (m % 10 == 0) {
+				m /= 10;
+				e++;
+			}
+		}
+		FloatValue.toDecimal(d, decimal, 2);
+		return m == decimal[2] && e == decimal[3];
+	}
+
+	private Value readLongs(int len, QNameContext qnContext,
+			DecoderChannel valueChannel, StringDecoder stringDecoder)
+			throws IOException {
+		boolean unsigned = listDatatype.getBuiltInType() == BuiltInType.UNSIGNED_INTEGER;
+		long[] longs = new long[len];
+		for (int i = 0; i < len; i++) {
+			IntegerValue iv = unsigned ? valueChannel
+					.decodeUnsignedIntegerValue(longs, i) : valueChannel
+					.decodeIntegerValue(longs, i);
+			if (iv != null) {
+				// does not fit into long, continue with values
+				Value[] values = new Value[len];
+				for (int k = 0; k < i; k++) {
+					values[k] = IntegerValue.valueOf(longs[k]);
+				}
+				values[i] = iv;
+				for (int k = i + 1; k < len; k++) {
+					values[k] = listDatatype.readValue(qnContext,
+							valueChannel, stringDecoder);
+				}
+				return new ListValue(values, listDatatype);
+			}
+		}
+		return new ListValue(longs, listDatatype);
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if(super.equals(o) && o instanceof ListDatatype ) {
@@ -119,6 +119,12 @@ public class NBitUnsignedIntegerDatatype extends AbstractDatatype {
 				.decodeNBitUnsignedIntegerValue(numberOfBits4Range);
 		return iv.add(lowerBound);
 	}
+
+	@Override
+	public void skipValue(QNameContext qnContext, DecoderChannel valueChannel,
+			StringDecoder stringDecoder) throws IOException {
+		valueChannel.decodeNBitUnsignedInteger(numberOfBits4Range);
+	}
 	
 	@Override
 	public boolean equals(Object o) {
@@ -47,9 +47,15 @@ import com.siemens.ct.exi.values.Value;
 
 public class RestrictedCharacterSetDatatype extends AbstractDatatype {
 
+	protected static final int INITIAL_BUFFER_SIZE = 32;
+
 	protected String lastValidValue;
 	protected RestrictedCharacterSet rcs;
 
+	// reusable encoding buffers
+	protected char[] charBuffer;
+	protected int[] codeBuffer;
+
 	public RestrictedCharacterSetDatatype(RestrictedCharacterSet rcs,
 			QNameContext schemaType) {
 		// default whiteSpace facet for string is preserve
@@ -80,45 +86,96 @@ public class RestrictedCharacterSetDatatype extends AbstractDatatype {
 	
 	public void writeValue(QNameContext qnContext, EncoderChannel valueChannel,
 			StringEncoder stringEncoder) throws IOException {
-		if (stringEncoder.isStringHit(lastValidValue)) {
-			stringEncoder.writeValue(qnContext, valueChannel, lastValidValue);
-		} else {
-			// NO local or global value hit
-			// string-table miss ==> restricted character
-			// string literal is encoded as a String with the length
-			// incremented by two.
+		if (!stringEncoder.writeValueHit(qnContext, valueChannel, lastValidValue)) {
 			final int L = lastValidValue.length();
+			char[] chars = getCharBuffer(L);
+			lastValidValue.getChars(0, L, chars, 0);
+			writeValueMiss(qnContext, valueChannel, stringEncoder,
+					lastValidValue, chars, L);
+		}
+	}
 
-			valueChannel.encodeUnsignedInteger(L + 2);
+	/**
+	 * Encodes the value in one pass without the isValid/writeValue round
+	 * trip. The characters are copied into a reusable buffer, the string
+	 * table is consulted once and restricted character set codes are written
+	 * as runs.
+	 * 
+	 * @param qnContext qualified name context
+	 * @param valueChannel channel
+	 * @param stringEncoder string encoder
+	 * @param value value
+	 * @throws IOException IO exception
+	 */
+	public void writeValue(QNameContext qnContext, EncoderChannel valueChannel,
+			StringEncoder stringEncoder, Value value) throws IOException {
+		final int L = value.getCharactersLength();
+		char[] chars = getCharBuffer(L);
+		value.getCharacters(chars, 0);
+		// string values hold their String already
+		String s = value instanceof StringValue ? value.toString()
+				: new String(chars, 0, L);
+
+		if (!stringEncoder.writeValueHit(qnContext, valueChannel, s)) {
+			writeValueMiss(qnContext, valueChannel, stringEncoder, s, chars, L);
+		}
+	}
 
-			/*
-			 * If length L is greater than zero the string S is added
-			 */
-			if (L > 0) {
-				// number of bits
-				int numberOfBits = rcs.getCodingLength();
+	protected void writeValueMiss(QNameContext qnContext,
+			EncoderChannel valueChannel, StringEncoder stringEncoder, String s,
+			char[] chars, final int L) throws IOException {
+		// NO local or global value hit
+		// string-table miss ==> restricted character
+		// string literal is encoded as a String with the length
+		// incremented by two.
+		valueChannel.encodeUnsignedInteger(L + 2);
+
+		/*
+		 * If length L is greater than zero the string S is added
+		 */
+		if (L > 0) {
+			// number of bits
+			final int numberOfBits = rcs.getCodingLength();
+			int[] codes = getCodeBuffer(L);
+			int run = 0;
+
+			for (int i = 0; i < L; i++) {
+				int codePoint = Character.codePointAt(chars, i, L);
+				int code = rcs.getCode(codePoint);
+				if (code == Constants.NOT_FOUND) {
+					// flush codes so far and indicate deviation
+					valueChannel.encodeNBitUnsignedIntegers(codes, 0, run,
+							numberOfBits);
+					run = 0;
+					valueChannel.encodeNBitUnsignedInteger(rcs.size(),
+							numberOfBits);
+					valueChannel.encodeUnsignedInteger(codePoint);
+				} else {
+					codes[run++] = code;
+				}
+			}
+			valueChannel.encodeNBitUnsignedIntegers(codes, 0, run,
+					numberOfBits);
 
-				for (int i = 0; i < L; i++) {
-					int codePoint = lastValidValue.codePointAt(i);
-					int code = rcs.getCode(codePoint);
-					if (code == Constants.NOT_FOUND) {
-						// indicate deviation
-						valueChannel.encodeNBitUnsignedInteger(rcs.size(),
-								numberOfBits);
+			// After encoding the string value, it is added to both the
+			// associated "local" value string table partition and the
+			// global value string table partition.
+			stringEncoder.addValue(qnContext, s);
+		}
+	}
 
-						valueChannel.encodeUnsignedInteger(codePoint);
-					} else {
-						valueChannel.encodeNBitUnsignedInteger(code,
-								numberOfBits);
-					}
-				}
+	protected char[] getCharBuffer(int length) {
+		if (charBuffer == null || charBuffer.length < length) {
+			charBuffer = new char[Math.max(length, INITIAL_BUFFER_SIZE)];
+		}
+		return charBuffer;
+	}
 
-				// After encoding the string value, it is added to both the
-				// associated "local" value string table partition and the
-				// global value string table partition.
-				stringEncoder.addValue(qnContext, lastValidValue);
-			}
+	protected int[] getCodeBuffer(int length) {
+		if (codeBuffer == null || codeBuffer.length < length) {
+			codeBuffer = new int[Math.max(length, INITIAL_BUFFER_SIZE)];
 		}
+		return codeBuffer;
 	}
 
 	public Value readValue(QNameContext qnContext, DecoderChannel valueChannel,
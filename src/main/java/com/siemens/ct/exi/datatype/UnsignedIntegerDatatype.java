@@ -81,4 +81,10 @@ public class UnsignedIntegerDatatype extends AbstractDatatype {
 			StringDecoder stringDecoder) throws IOException {
 		return valueChannel.decodeUnsignedIntegerValue();
 	}
+
+	@Override
+	public void skipValue(QNameContext qnContext, DecoderChannel valueChannel,
+			StringDecoder stringDecoder) throws IOException {
+		valueChannel.skipUnsignedInteger();
+	}
 }
\ No newline at end of file
@@ -23,10 +23,7 @@
 
 package com.siemens.ct.exi.datatype.charset;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
 
 import com.siemens.ct.exi.Constants;
 import com.siemens.ct.exi.util.MethodsBag;
@@ -46,8 +43,18 @@ public abstract class AbstractRestrictedCharacterSet implements
 	// #xD, CR (carriage-return)
 	// #x20, SP (space)
 
-	protected Map<Integer, Integer> codeSet; // codePoint --> internal code
-	protected List<Integer> codePointList; // internal code --> codePoint
+	// internal code --> codePoint (UCS order), capacity may exceed size
+	protected int[] codePoints;
+
+	/*
+	 * codePoint --> internal code + 1 (0 for not found) for code-points in
+	 * [lookupOffset, lookupOffset + lookup.length), built on first use
+	 */
+	protected volatile char[] lookup;
+	protected int lookupOffset;
+
+	/* maximum span of code-points covered by the lookup table */
+	protected static final int MAX_LOOKUP_SPAN = 0x1000;
 
 	protected int size;
 	protected int codingLength;
@@ -60,19 +67,53 @@ public abstract class AbstractRestrictedCharacterSet implements
 	 * point of the character represented as an Unsigned Integer.
 	 */
 
+	protected static final int INITIAL_CAPACITY = 16;
+
 	protected AbstractRestrictedCharacterSet() {
-		codeSet = new HashMap<Integer, Integer>();
-		codePointList = new ArrayList<Integer>();
+		codePoints = new int[INITIAL_CAPACITY];
 	}
 
 	public int getCodePoint(int code) {
-		return codePointList.get(code);
+		if (code < 0 || code >= size) {
+			throw new IndexOutOfBoundsException("Code: " + code + ", Size: "
+					+ size);
+		}
+		return codePoints[code];
 	}
 
 	public int getCode(int codePoint) {
-		Integer code = codeSet.get(codePoint);
+		char[] lt = lookup;
+		if (lt == null) {
+			lt = createLookup();
+		}
+		int i = codePoint - lookupOffset;
+		if (i >= 0 && i < lt.length) {
+			// dense lookup table (BMP)
+			return lt[i] - 1;
+		} else if (lt.length == 0 && size > 0) {
+			// sparse or supplementary set
+			int code = Arrays.binarySearch(codePoints, 0, size, codePoint);
+			return code < 0 ? Constants.NOT_FOUND : code;
+		}
+		return Constants.NOT_FOUND;
+	}
 
-		return (code == null ? Constants.NOT_FOUND : code);
+	private char[] createLookup() {
+		char[] lt;
+		if (size > 0
+				&& codePoints[size - 1] <= Character.MAX_VALUE
+				&& (codePoints[size - 1] - codePoints[0]) < MAX_LOOKUP_SPAN) {
+			lookupOffset = codePoints[0];
+			lt = new char[codePoints[size - 1] - lookupOffset + 1];
+			for (int code = 0; code < size; code++) {
+				lt[codePoints[code] - lookupOffset] = (char) (code + 1);
+			}
+		} else {
+			lookupOffset = 0;
+			lt = new char[0];
+		}
+		lookup = lt;
+		return lt;
 	}
 
 	public int size() {
@@ -83,13 +124,27 @@ public abstract class AbstractRestrictedCharacterSet implements
 		return codingLength;
 	}
 
+	/**
+	 * Adds the next code-point of the set.
+	 * 
+	 * @param codePoint
+	 *            code-point, greater than all code-points added before
+	 * @throws IllegalArgumentException
+	 *             if code-points are not added in ascending UCS order
+	 */
 	protected void addValue(int codePoint) {
-		codeSet.put(codePoint, codeSet.size());
-		codePointList.add(codePoint);
+		if (size > 0 && codePoints[size - 1] >= codePoint) {
+			throw new IllegalArgumentException("Code-point " + codePoint
+					+ " not in ascending UCS order after "
+					+ codePoints[size - 1]);
+		}
+		if (size == codePoints.length) {
+			codePoints = Arrays.copyOf(codePoints, size << 1);
+		}
+		codePoints[size++] = codePoint;
+		lookup = null;
 
-		// adjust size / codingLength
-		assert (codeSet.size() == codePointList.size());
-		size = codeSet.size();
+		// adjust codingLength
 		codingLength = MethodsBag.getCodingLength(size + 1);
 	}
 
@@ -112,12 +167,16 @@ public abstract class AbstractRestrictedCharacterSet implements
 	
 	@Override
 	public int hashCode() {
-		return codeSet.hashCode();
+		int hash = 1;
+		for (int code = 0; code < size; code++) {
+			hash = 31 * hash + codePoints[code];
+		}
+		return hash;
 	}
 	
 	@Override
 	public String toString() {
-		return codePointList.toString();
+		return Arrays.toString(Arrays.copyOf(codePoints, size));
 	}
 
 }
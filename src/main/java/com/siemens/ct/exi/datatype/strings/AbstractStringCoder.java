@@ -46,6 +46,9 @@ public abstract class AbstractStringCoder implements StringCoder {
 	
 	// strings (local)
 	protected Map<QNameContext, List<StringValue>> localValues;
+
+	// checkpoint (copy of local strings)
+	protected Map<QNameContext, List<StringValue>> checkpointLocalValues;
 	
 	public AbstractStringCoder(boolean localValuePartitions, int initialQNameLists) {
 		this.localValuePartitions = localValuePartitions;
@@ -81,6 +84,27 @@ public abstract class AbstractStringCoder implements StringCoder {
 				lvs.clear();
 			}
 		}
+		checkpointLocalValues = null;
+	}
+
+	public void setCheckpoint() {
+		checkpointLocalValues = copyLocalValues(localValues);
+	}
+
+	public void restoreCheckpoint() {
+		assert (checkpointLocalValues != null);
+		// keep the checkpoint copy for subsequent restores
+		localValues = copyLocalValues(checkpointLocalValues);
+	}
+
+	private static Map<QNameContext, List<StringValue>> copyLocalValues(
+			Map<QNameContext, List<StringValue>> lvs) {
+		Map<QNameContext, List<StringValue>> copy = new HashMap<QNameContext, List<StringValue>>(
+				lvs.size());
+		for (Map.Entry<QNameContext, List<StringValue>> e : lvs.entrySet()) {
+			copy.put(e.getKey(), new ArrayList<StringValue>(e.getValue()));
+		}
+		return copy;
 	}
 
 }
@@ -49,6 +49,10 @@ public class BoundedStringDecoderImpl extends StringDecoderImpl {
 	/* localID mapping, globalID index --> localID & values (in given context) */
 	protected LocalIDMap[] localIdMapping;
 
+	/* checkpoint */
+	protected int checkpointGlobalID;
+	protected LocalIDMap[] checkpointLocalIdMapping;
+
 	static class LocalIDMap {
 		final int localID;
 		final QNameContext context;
@@ -136,4 +140,23 @@ public class BoundedStringDecoderImpl extends StringDecoderImpl {
 		globalID = -1;
 	}
 
+	@Override
+	public void setCheckpoint() {
+		super.setCheckpoint();
+		checkpointGlobalID = globalID;
+		if (localIdMapping != null) {
+			checkpointLocalIdMapping = localIdMapping.clone();
+		}
+	}
+
+	@Override
+	public void restoreCheckpoint() {
+		super.restoreCheckpoint();
+		globalID = checkpointGlobalID;
+		if (localIdMapping != null) {
+			System.arraycopy(checkpointLocalIdMapping, 0, localIdMapping, 0,
+					localIdMapping.length);
+		}
+	}
+
 }
@@ -50,6 +50,10 @@ public class BoundedStringEncoderImpl extends StringEncoderImpl {
 	/* globalID mapping: index -> string value */
 	protected ValueContainer[] globalIdMapping;
 
+	/* checkpoint */
+	protected int checkpointGlobalID;
+	protected ValueContainer[] checkpointGlobalIdMapping;
+
 	public BoundedStringEncoderImpl(boolean localValuePartitions, int valueMaxLength,
 			int valuePartitionCapacity) {
 		super(localValuePartitions);
@@ -137,4 +141,23 @@ public class BoundedStringEncoderImpl extends StringEncoderImpl {
 		globalID = -1;
 	}
 
+	@Override
+	public void setCheckpoint() {
+		super.setCheckpoint();
+		checkpointGlobalID = globalID;
+		if (globalIdMapping != null) {
+			checkpointGlobalIdMapping = globalIdMapping.clone();
+		}
+	}
+
+	@Override
+	public void restoreCheckpoint() {
+		super.restoreCheckpoint();
+		globalID = checkpointGlobalID;
+		if (globalIdMapping != null) {
+			System.arraycopy(checkpointGlobalIdMapping, 0, globalIdMapping, 0,
+					globalIdMapping.length);
+		}
+	}
+
 }
@@ -145,6 +145,14 @@ public class ExtendedStringDecoderImpl implements StringDecoder {
 		stringDecoder.setSharedStrings(sharedStrings);
 	}
 
+	public void setCheckpoint() {
+		stringDecoder.setCheckpoint();
+	}
+
+	public void restoreCheckpoint() {
+		stringDecoder.restoreCheckpoint();
+	}
+
 	public int getNumberOfStringValues(QNameContext qnc) {
 		return stringDecoder.getNumberOfStringValues(qnc);
 	}
@@ -28,9 +28,7 @@ import java.util.List;
 
 import com.siemens.ct.exi.context.QNameContext;
 import com.siemens.ct.exi.datatype.EnumDatatype;
-import com.siemens.ct.exi.datatype.strings.StringEncoderImpl.ValueContainer;
 import com.siemens.ct.exi.io.channel.EncoderChannel;
-import com.siemens.ct.exi.util.MethodsBag;
 import com.siemens.ct.exi.values.StringValue;
 
 /**
@@ -59,32 +57,7 @@ public class ExtendedStringEncoderImpl implements StringEncoder {
 	public void writeValue(QNameContext context,
 			EncoderChannel valueChannel, String value) throws IOException {
 
-		ValueContainer vc = stringEncoder.stringValues.get(value);
-
-		if (vc != null) {
-			// hit
-			if (stringEncoder.localValuePartitions && context.equals(vc.context)) {
-				/*
-				 * local value hit ==> is represented as zero (0) encoded as an
-				 * Unsigned Integer followed by the compact identifier of the
-				 * string value in the "local" value partition
-				 */
-				valueChannel.encodeUnsignedInteger(0);
-				int numberBitsLocal = MethodsBag.getCodingLength(getNumberOfStringValues(context));
-				valueChannel.encodeNBitUnsignedInteger(vc.localValueID, numberBitsLocal);
-			} else {
-				/*
-				 * global value hit ==> value is represented as one (1) encoded
-				 * as an Unsigned Integer followed by the compact identifier of
-				 * the String value in the global value partition.
-				 */
-				valueChannel.encodeUnsignedInteger(1);
-				// global value size
-				
-				int numberBitsGlobal = MethodsBag.getCodingLength(stringEncoder.stringValues.size());
-				valueChannel.encodeNBitUnsignedInteger(vc.globalValueID, numberBitsGlobal);
-			}
-		} else {
+		if (!stringEncoder.writeValueHit(context, valueChannel, value)) {
 			/*
 			 * miss [not found in local nor in global value partition] ==>
 			 * string literal is encoded as a String with the length incremented
@@ -120,6 +93,11 @@ public class ExtendedStringEncoderImpl implements StringEncoder {
 	public boolean isStringHit(String value) throws IOException {
 		return this.stringEncoder.isStringHit(value);
 	}
+
+	public boolean writeValueHit(QNameContext context,
+			EncoderChannel valueChannel, String value) throws IOException {
+		return this.stringEncoder.writeValueHit(context, valueChannel, value);
+	}
 	
 
 	public void addValue(QNameContext qnc, String value) {
@@ -135,6 +113,14 @@ public class ExtendedStringEncoderImpl implements StringEncoder {
 		this.stringEncoder.setSharedStrings(sharedStrings);
 	}
 
+	public void setCheckpoint() {
+		this.stringEncoder.setCheckpoint();
+	}
+
+	public void restoreCheckpoint() {
+		this.stringEncoder.restoreCheckpoint();
+	}
+
 	@Override
 	public int getNumberOfStringValues(QNameContext qnc) {
 		return this.stringEncoder.getNumberOfStringValues(qnc);
@@ -49,4 +49,16 @@ public interface StringCoder {
 	public void clear();
 	
 	public void setSharedStrings(List<String> sharedStrings);
+
+	/**
+	 * Remembers the current content of the string table so that it can be
+	 * restored later on (e.g., in session mode). A subsequent
+	 * <code>clear()</code> discards the checkpoint.
+	 */
+	public void setCheckpoint();
+
+	/**
+	 * Restores the string table content of the last checkpoint.
+	 */
+	public void restoreCheckpoint();
 }
@@ -45,6 +45,9 @@ public class StringDecoderImpl  extends AbstractStringCoder implements StringDec
 	// global values (all)
 	protected List<StringValue> globalValues;
 
+	// checkpoint (copy of global values)
+	protected List<StringValue> checkpointGlobalValues;
+
 	public StringDecoderImpl(boolean localValuePartitions) {
 		this(localValuePartitions, DEFAULT_INITIAL_QNAME_LISTS);
 	}
@@ -134,6 +137,20 @@ public class StringDecoderImpl  extends AbstractStringCoder implements StringDec
 	public void clear() {
 		super.clear();
 		globalValues.clear();
+		checkpointGlobalValues = null;
+	}
+
+	@Override
+	public void setCheckpoint() {
+		super.setCheckpoint();
+		checkpointGlobalValues = new ArrayList<StringValue>(globalValues);
+	}
+
+	@Override
+	public void restoreCheckpoint() {
+		super.restoreCheckpoint();
+		globalValues.clear();
+		globalValues.addAll(checkpointGlobalValues);
 	}
 	
 	public void setSharedStrings(List<String> sharedStrings) {
@@ -44,4 +44,17 @@ public interface StringEncoder extends StringCoder {
 			throws IOException;
 
 	public boolean isStringHit(String value) throws IOException;
+
+	/**
+	 * Encodes the local or global value hit for the given value with a single
+	 * string table lookup. Nothing is written on a miss.
+	 * 
+	 * @param qnContext qualified name context
+	 * @param valueChannel channel
+	 * @param value string value
+	 * @return true if a value hit has been encoded, false otherwise
+	 * @throws IOException IO exception
+	 */
+	public boolean writeValueHit(QNameContext qnContext, EncoderChannel valueChannel, String value)
+			throws IOException;
 }
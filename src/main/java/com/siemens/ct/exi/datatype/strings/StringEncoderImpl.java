@@ -45,6 +45,9 @@ public class StringEncoderImpl extends AbstractStringCoder implements StringEnco
 	
 	// strings (all)
 	protected Map<String, ValueContainer> stringValues;
+
+	// checkpoint (copy of all strings)
+	protected Map<String, ValueContainer> checkpointStringValues;
 	
 	public StringEncoderImpl(boolean localValuePartitions) {
 		this(localValuePartitions, DEFAULT_INITIAL_QNAME_LISTS);
@@ -58,32 +61,7 @@ public class StringEncoderImpl extends AbstractStringCoder implements StringEnco
 	public void writeValue(QNameContext context,
 			EncoderChannel valueChannel, String value) throws IOException {
 
-		ValueContainer vc = stringValues.get(value);
-
-		if (vc != null) {
-			// hit
-			if (localValuePartitions && context.equals(vc.context)) {
-				/*
-				 * local value hit ==> is represented as zero (0) encoded as an
-				 * Unsigned Integer followed by the compact identifier of the
-				 * string value in the "local" value partition
-				 */
-				valueChannel.encodeUnsignedInteger(0);
-				int numberBitsLocal = MethodsBag.getCodingLength(getNumberOfStringValues(context));
-				valueChannel.encodeNBitUnsignedInteger(vc.localValueID, numberBitsLocal);
-			} else {
-				/*
-				 * global value hit ==> value is represented as one (1) encoded
-				 * as an Unsigned Integer followed by the compact identifier of
-				 * the String value in the global value partition.
-				 */
-				valueChannel.encodeUnsignedInteger(1);
-				// global value size
-				
-				int numberBitsGlobal = MethodsBag.getCodingLength(stringValues.size());
-				valueChannel.encodeNBitUnsignedInteger(vc.globalValueID, numberBitsGlobal);
-			}
-		} else {
+		if (!writeValueHit(context, valueChannel, value)) {
 			/*
 			 * miss [not found in local nor in global value partition] ==>
 			 * string literal is encoded as a String with the length incremented
@@ -105,6 +83,40 @@ public class StringEncoderImpl extends AbstractStringCoder implements StringEnco
 
 	}
 
+	public boolean writeValueHit(QNameContext context,
+			EncoderChannel valueChannel, String value) throws IOException {
+		ValueContainer vc = stringValues.get(value);
+
+		if (vc == null) {
+			return false;
+		}
+
+		// hit
+		if (localValuePartitions && context.equals(vc.context)) {
+			/*
+			 * local value hit ==> is represented as zero (0) encoded as an
+			 * Unsigned Integer followed by the compact identifier of the
+			 * string value in the "local" value partition
+			 */
+			valueChannel.encodeUnsignedInteger(0);
+			int numberBitsLocal = MethodsBag.getCodingLength(getNumberOfStringValues(context));
+			valueChannel.encodeNBitUnsignedInteger(vc.localValueID, numberBitsLocal);
+		} else {
+			/*
+			 * global value hit ==> value is represented as one (1) encoded
+			 * as an Unsigned Integer followed by the compact identifier of
+			 * the String value in the global value partition.
+			 */
+			valueChannel.encodeUnsignedInteger(1);
+			// global value size
+			
+			int numberBitsGlobal = MethodsBag.getCodingLength(stringValues.size());
+			valueChannel.encodeNBitUnsignedInteger(vc.globalValueID, numberBitsGlobal);
+		}
+
+		return true;
+	}
+
 	// Restricted char set
 	public boolean isStringHit(String value) throws IOException {
 		return (stringValues.get(value) != null);
@@ -128,6 +140,21 @@ public class StringEncoderImpl extends AbstractStringCoder implements StringEnco
 	public void clear() {
 		super.clear();
 		stringValues.clear();
+		checkpointStringValues = null;
+	}
+
+	@Override
+	public void setCheckpoint() {
+		super.setCheckpoint();
+		checkpointStringValues = new HashMap<String, ValueContainer>(
+				stringValues);
+	}
+
+	@Override
+	public void restoreCheckpoint() {
+		super.restoreCheckpoint();
+		stringValues.clear();
+		stringValues.putAll(checkpointStringValues);
 	}
 	
 	public void setSharedStrings(List<String> sharedStrings) {
@@ -0,0 +1,378 @@
+/*
+ * Copyright (c) 2007-2016 Siemens AG
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ */
+
+package com.siemens.ct.exi.grammars;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.siemens.ct.exi.Constants;
+import com.siemens.ct.exi.context.GrammarContext;
+import com.siemens.ct.exi.context.GrammarUriContext;
+import com.siemens.ct.exi.context.QNameContext;
+import com.siemens.ct.exi.datatype.Datatype;
+import com.siemens.ct.exi.grammars.event.Attribute;
+import com.siemens.ct.exi.grammars.event.AttributeNS;
+import com.siemens.ct.exi.grammars.event.Characters;
+import com.siemens.ct.exi.grammars.event.Event;
+import com.siemens.ct.exi.grammars.event.EventType;
+import com.siemens.ct.exi.grammars.event.StartElement;
+import com.siemens.ct.exi.grammars.event.StartElementNS;
+import com.siemens.ct.exi.grammars.grammar.Grammar;
+import com.siemens.ct.exi.grammars.grammar.GrammarType;
+import com.siemens.ct.exi.grammars.grammar.SchemaInformedFirstStartTagGrammar;
+import com.siemens.ct.exi.grammars.production.Production;
+
+/**
+ * Compiled (flat) representation of schema-informed grammars.
+ * 
+ * <p>
+ * Grammars are numbered and all productions are stored in parallel arrays
+ * (struct-of-arrays): the productions of a grammar occupy a contiguous range,
+ * ordered by event code. Each production consists of the event type, the
+ * qname ID (SE, AT) or namespace URI ID (SE(uri:*), AT(uri:*)), a value (the
+ * element grammar ID for SE, the datatype ID for AT and CH) and the next
+ * grammar ID. Qualified names are identified by a global qname ID (see
+ * {@link #getQNameID(QNameContext)}).
+ * </p>
+ * 
+ * <p>
+ * The compiled grammars do not reference grammar or event objects and are
+ * traversed by a {@link GrammarCursor}.
+ * </p>
+ * 
+ * @author Daniel.Peintner.EXT@siemens.com
+ * @author Joerg.Heuer@siemens.com
+ * 
+ * @version 0.9.7-SNAPSHOT
+ */
+
+public class CompiledGrammars {
+
+	/** terminal grammar ID (end rule) or no grammar */
+	public static final int NONE = Constants.NOT_FOUND;
+
+	/* grammar flags */
+	protected static final byte TYPE_CASTABLE = 1;
+	protected static final byte NILLABLE = 2;
+
+	protected static final EventType[] EVENT_TYPES = EventType.values();
+	protected static final GrammarType[] GRAMMAR_TYPES = GrammarType.values();
+
+	protected final GrammarContext grammarContext;
+
+	/* qnames */
+	protected final int[] uriOffsets;
+	protected final QNameContext[] qnames;
+	protected final int[] globalElementGrammars;
+	protected final int[] globalAttributeDatatypes;
+	protected final int[] typeGrammars;
+
+	/* datatypes */
+	protected final Datatype[] datatypes;
+
+	/* grammars */
+	protected final int documentGrammar;
+	protected final int fragmentGrammar;
+	protected final byte[] grammarTypes;
+	protected final byte[] grammarFlags;
+	protected final int[] elementContentGrammars;
+	protected final int[] productionOffsets;
+
+	/* productions */
+	protected final byte[] eventTypes;
+	protected final int[] eventQNames;
+	protected final int[] eventValues;
+	protected final int[] nextGrammars;
+
+	protected CompiledGrammars(SchemaInformedGrammars grammars) {
+		this.grammarContext = grammars.getGrammarContext();
+
+		// qnames
+		uriOffsets = new int[grammarContext.getNumberOfGrammarUriContexts() + 1];
+		for (int i = 0; i < grammarContext.getNumberOfGrammarUriContexts(); i++) {
+			uriOffsets[i + 1] = uriOffsets[i]
+					+ grammarContext.getGrammarUriContext(i)
+							.getNumberOfQNames();
+		}
+		qnames = new QNameContext[uriOffsets[uriOffsets.length - 1]];
+		for (int i = 0; i < grammarContext.getNumberOfGrammarUriContexts(); i++) {
+			GrammarUriContext guc = grammarContext.getGrammarUriContext(i);
+			for (int k = 0; k < guc.getNumberOfQNames(); k++) {
+				qnames[uriOffsets[i] + k] = guc.getQNameContext(k);
+			}
+		}
+
+		Compiler c = new Compiler();
+		globalElementGrammars = new int[qnames.length];
+		globalAttributeDatatypes = new int[qnames.length];
+		typeGrammars = new int[qnames.length];
+		for (int i = 0; i < qnames.length; i++) {
+			StartElement se = qnames[i].getGlobalStartElement();
+			globalElementGrammars[i] = se == null ? NONE : c.getGrammarID(se
+					.getGrammar());
+			Attribute at = qnames[i].getGlobalAttribute();
+			globalAttributeDatatypes[i] = at == null ? NONE : c
+					.getDatatypeID(at.getDatatype());
+			typeGrammars[i] = c.getGrammarID(qnames[i].getTypeGrammar());
+		}
+		documentGrammar = c.getGrammarID(grammars.getDocumentGrammar());
+		fragmentGrammar = c.getGrammarID(grammars.getFragmentGrammar());
+
+		// grammars (the list grows while productions are compiled)
+		List<Integer> offsets = new ArrayList<Integer>();
+		List<Integer> elementContents = new ArrayList<Integer>();
+		for (int i = 0; i < c.grammars.size(); i++) {
+			Grammar g = c.grammars.get(i);
+			offsets.add(c.numberOfProductions);
+			elementContents.add(isStartTag(g) ? c.getGrammarID(g
+					.getElementContentGrammar()) : NONE);
+			c.compileProductions(g);
+		}
+		offsets.add(c.numberOfProductions);
+
+		int numberOfGrammars = c.grammars.size();
+		grammarTypes = new byte[numberOfGrammars];
+		grammarFlags = new byte[numberOfGrammars];
+		elementContentGrammars = new int[numberOfGrammars];
+		productionOffsets = new int[numberOfGrammars + 1];
+		for (int i = 0; i < numberOfGrammars; i++) {
+			Grammar g = c.grammars.get(i);
+			grammarTypes[i] = (byte) g.getGrammarType().ordinal();
+			if (g.getGrammarType() == GrammarType.SCHEMA_INFORMED_FIRST_START_TAG_CONTENT) {
+				SchemaInformedFirstStartTagGrammar fst = (SchemaInformedFirstStartTagGrammar) g;
+				grammarFlags[i] = (byte) ((fst.isTypeCastable() ? TYPE_CASTABLE
+						: 0) | (fst.isNillable() ? NILLABLE : 0));
+			}
+			elementContentGrammars[i] = elementContents.get(i);
+			productionOffsets[i] = offsets.get(i);
+		}
+		productionOffsets[numberOfGrammars] = offsets.get(numberOfGrammars);
+
+		eventTypes = new byte[c.numberOfProductions];
+		System.arraycopy(c.eventTypes, 0, eventTypes, 0, eventTypes.length);
+		eventQNames = trim(c.eventQNames, c.numberOfProductions);
+		eventValues = trim(c.eventValues, c.numberOfProductions);
+		nextGrammars = trim(c.nextGrammars, c.numberOfProductions);
+		datatypes = c.datatypes.toArray(new Datatype[c.datatypes.size()]);
+	}
+
+	/**
+	 * Compiles schema-informed grammars into the flat representation.
+	 * 
+	 * @param grammars
+	 *            schema-informed grammars
+	 * @return compiled grammars
+	 */
+	public static CompiledGrammars compile(SchemaInformedGrammars grammars) {
+		return new CompiledGrammars(grammars);
+	}
+
+	private static boolean isStartTag(Grammar g) {
+		return g.getGrammarType() == GrammarType.SCHEMA_INFORMED_FIRST_START_TAG_CONTENT
+				|| g.getGrammarType() == GrammarType.SCHEMA_INFORMED_START_TAG_CONTENT;
+	}
+
+	private static int[] trim(int[] a, int length) {
+		int[] t = new int[length];
+		System.arraycopy(a, 0, t, 0, length);
+		return t;
+	}
+
+	public GrammarContext getGrammarContext() {
+		return grammarContext;
+	}
+
+	public int getNumberOfGrammars() {
+		return grammarTypes.length;
+	}
+
+	public int getNumberOfProductions() {
+		return eventTypes.length;
+	}
+
+	public int getDocumentGrammar() {
+		return documentGrammar;
+	}
+
+	public int getFragmentGrammar() {
+		return fragmentGrammar;
+	}
+
+	/**
+	 * Returns the global qname ID, i.e., the qnames of all namespace URIs
+	 * numbered consecutively.
+	 * 
+	 * @param qnc
+	 *            qname context of the grammar context
+	 * @return global qname ID
+	 */
+	public int getQNameID(QNameContext qnc) {
+		return uriOffsets[qnc.getNamespaceUriID()] + qnc.getLocalNameID();
+	}
+
+	public QNameContext getQNameContext(int qnameID) {
+		return qnames[qnameID];
+	}
+
+	public int getGlobalElementGrammar(int qnameID) {
+		return globalElementGrammars[qnameID];
+	}
+
+	public Datatype getGlobalAttributeDatatype(int qnameID) {
+		int dt = globalAttributeDatatypes[qnameID];
+		return dt == NONE ? null : datatypes[dt];
+	}
+
+	public int getTypeGrammar(int qnameID) {
+		return typeGrammars[qnameID];
+	}
+
+	public Datatype getDatatype(int datatypeID) {
+		return datatypes[datatypeID];
+	}
+
+	public GrammarType getGrammarType(int grammarID) {
+		return GRAMMAR_TYPES[grammarTypes[grammarID]];
+	}
+
+	public boolean isTypeCastable(int grammarID) {
+		return (grammarFlags[grammarID] & TYPE_CASTABLE) != 0;
+	}
+
+	public boolean isNillable(int grammarID) {
+		return (grammarFlags[grammarID] & NILLABLE) != 0;
+	}
+
+	public int getElementContentGrammar(int grammarID) {
+		return elementContentGrammars[grammarID];
+	}
+
+	public int getNumberOfEvents(int grammarID) {
+		return productionOffsets[grammarID + 1] - productionOffsets[grammarID];
+	}
+
+	/*
+	 * Collects grammars and datatypes and compiles productions
+	 */
+	class Compiler {
+
+		final Map<Grammar, Integer> grammarIDs = new IdentityHashMap<Grammar, Integer>();
+		final List<Grammar> grammars = new ArrayList<Grammar>();
+		final Map<Datatype, Integer> datatypeIDs = new IdentityHashMap<Datatype, Integer>();
+		final List<Datatype> datatypes = new ArrayList<Datatype>();
+
+		int numberOfProductions;
+		byte[] eventTypes = new byte[64];
+		int[] eventQNames = new int[64];
+		int[] eventValues = new int[64];
+		int[] nextGrammars = new int[64];
+
+		void compileProductions(Grammar g) {
+			for (int i = 0; i < g.getNumberOfEvents(); i++) {
+				Production prod = g.getProduction(i);
+				Event ev = prod.getEvent();
+				int qname = NONE;
+				int value = NONE;
+				switch (ev.getEventType()) {
+				case START_ELEMENT:
+					StartElement se = (StartElement) ev;
+					qname = getQNameID(se.getQNameContext());
+					value = getGrammarID(se.getGrammar());
+					break;
+				case START_ELEMENT_NS:
+					qname = ((StartElementNS) ev).getNamespaceUriID();
+					break;
+				case ATTRIBUTE:
+					qname = getQNameID(((Attribute) ev).getQNameContext());
+					value = getDatatypeID(((Attribute) ev).getDatatype());
+					break;
+				case ATTRIBUTE_NS:
+					qname = ((AttributeNS) ev).getNamespaceUriID();
+					break;
+				case CHARACTERS:
+					value = getDatatypeID(((Characters) ev).getDatatype());
+					break;
+				default:
+					break;
+				}
+				Grammar next = prod.getNextGrammar();
+				add(ev.getEventType(), qname, value,
+						next.getNumberOfEvents() == 0 ? NONE
+								: getGrammarID(next));
+			}
+		}
+
+		void add(EventType eventType, int qname, int value, int nextGrammar) {
+			if (numberOfProductions == eventTypes.length) {
+				int length = 2 * numberOfProductions;
+				byte[] et = new byte[length];
+				System.arraycopy(eventTypes, 0, et, 0, numberOfProductions);
+				eventTypes = et;
+				eventQNames = grow(eventQNames, length);
+				eventValues = grow(eventValues, length);
+				nextGrammars = grow(nextGrammars, length);
+			}
+			eventTypes[numberOfProductions] = (byte) eventType.ordinal();
+			eventQNames[numberOfProductions] = qname;
+			eventValues[numberOfProductions] = value;
+			nextGrammars[numberOfProductions] = nextGrammar;
+			numberOfProductions++;
+		}
+
+		int[] grow(int[] a, int length) {
+			int[] g = new int[length];
+			System.arraycopy(a, 0, g, 0, numberOfProductions);
+			return g;
+		}
+
+		int getGrammarID(Grammar g) {
+			if (g == null) {
+				return NONE;
+			}
+			Integer id = grammarIDs.get(g);
+			if (id == null) {
+				id = grammars.size();
+				grammarIDs.put(g, id);
+				grammars.add(g);
+			}
+			return id;
+		}
+
+		int getDatatypeID(Datatype dt) {
+			if (dt == null) {
+				return NONE;
+			}
+			Integer id = datatypeIDs.get(dt);
+			if (id == null) {
+				id = datatypes.size();
+				datatypeIDs.put(dt, id);
+				datatypes.add(dt);
+			}
+			return id;
+		}
+	}
+
+}
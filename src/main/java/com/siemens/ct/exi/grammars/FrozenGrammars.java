@@ -0,0 +1,545 @@
+/*
+ * Copyright (c) 2007-2016 Siemens AG
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ */
+
+package com.siemens.ct.exi.grammars;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.xml.namespace.QName;
+
+import com.siemens.ct.exi.Constants;
+import com.siemens.ct.exi.context.GrammarContext;
+import com.siemens.ct.exi.context.GrammarUriContext;
+import com.siemens.ct.exi.context.QNameContext;
+import com.siemens.ct.exi.exceptions.UnsupportedOption;
+import com.siemens.ct.exi.grammars.event.Attribute;
+import com.siemens.ct.exi.grammars.event.EndDocument;
+import com.siemens.ct.exi.grammars.event.Event;
+import com.siemens.ct.exi.grammars.event.StartDocument;
+import com.siemens.ct.exi.grammars.event.StartElement;
+import com.siemens.ct.exi.grammars.grammar.BuiltInDocContent;
+import com.siemens.ct.exi.grammars.grammar.BuiltInFragmentContent;
+import com.siemens.ct.exi.grammars.grammar.BuiltInGrammar;
+import com.siemens.ct.exi.grammars.grammar.BuiltInStartTag;
+import com.siemens.ct.exi.grammars.grammar.DocEnd;
+import com.siemens.ct.exi.grammars.grammar.Document;
+import com.siemens.ct.exi.grammars.grammar.Fragment;
+import com.siemens.ct.exi.grammars.grammar.Grammar;
+import com.siemens.ct.exi.grammars.grammar.GrammarType;
+
+/**
+ * Schema-less grammars with a frozen snapshot of learned built-in element
+ * grammars (e.g., learned while encoding a training corpus).
+ * 
+ * <p>
+ * The learned qualified names are part of the grammar context, known elements
+ * start with their learned productions and learning is disabled for them. The
+ * grammars are immutable and can be shared between encoders and decoders.
+ * Unknown elements use (evolving) built-in grammars as usual. This is not
+ * signaled in the EXI stream, both sides have to use the same grammars.
+ * </p>
+ * 
+ * <p>
+ * Note: learned names in the XML and XML Schema instance namespace are not
+ * taken over, their compact identifiers are fixed.
+ * </p>
+ * 
+ * @author Daniel.Peintner.EXT@siemens.com
+ * @author Joerg.Heuer@siemens.com
+ * 
+ * @version 0.9.7-SNAPSHOT
+ */
+
+public class FrozenGrammars extends AbstractGrammars {
+
+	protected static final int MAGIC = 0x45584647; // EXFG
+
+	/* productions that are learned */
+	protected static final byte START_ELEMENT = 0;
+	protected static final byte ATTRIBUTE = 1;
+	protected static final byte CHARACTERS = 2;
+	protected static final byte END_ELEMENT = 3;
+
+	/* frozen fragment content, null if none was learned */
+	protected final BuiltInGrammar fragmentContent;
+
+	protected FrozenGrammars(GrammarContext grammarContext,
+			BuiltInGrammar fragmentContent) {
+		super(false, grammarContext);
+		this.fragmentContent = fragmentContent;
+
+		// DocEnd rule
+		DocEnd builtInDocEndGrammar = new DocEnd("DocEnd");
+		builtInDocEndGrammar.addTerminalProduction(new EndDocument());
+		// DocContent rule
+		Grammar builtInDocContentGrammar = new BuiltInDocContent(
+				builtInDocEndGrammar, "DocContent");
+		// Document rule
+		documentGrammar = new Document("Document");
+		documentGrammar.addProduction(new StartDocument(),
+				builtInDocContentGrammar);
+	}
+
+	public final boolean isBuiltInXMLSchemaTypesOnly() {
+		return false;
+	}
+
+	public final String getSchemaId() {
+		return null;
+	}
+
+	public void setSchemaId(String schemaId) throws UnsupportedOption {
+		if (schemaId != null) {
+			throw new UnsupportedOption(
+					"Frozen schema-less grammars do have schemaId == null associated with it.");
+		}
+	}
+
+	/*
+	 * Note: create new instance if fragment content is not frozen since it
+	 * may have been changed over time
+	 */
+	public Grammar getFragmentGrammar() {
+		Grammar content = fragmentContent == null ? new BuiltInFragmentContent()
+				: fragmentContent;
+		Fragment fragment = new Fragment("Fragment");
+		fragment.addProduction(new StartDocument(), content);
+		return fragment;
+	}
+
+	/**
+	 * Freezes learned built-in grammars.
+	 * 
+	 * @param elements
+	 *            learned global elements (with built-in grammars)
+	 * @param fragmentContent
+	 *            learned fragment content grammar, or document content or
+	 *            null if not in fragment mode
+	 * @return frozen grammars
+	 */
+	public static FrozenGrammars freeze(Collection<StartElement> elements,
+			Grammar fragmentContent) {
+		// collect names
+		Map<String, SortedSet<String>> names = new TreeMap<String, SortedSet<String>>();
+		for (StartElement se : elements) {
+			collectName(names, se.getQNameContext());
+			collectNames(names, se.getGrammar());
+			collectNames(names, se.getGrammar().getElementContentGrammar());
+		}
+		collectNames(names, fragmentContent);
+
+		GrammarContext gc = createGrammarContext(names);
+
+		// create elements first, productions refer to them
+		List<StartElement> frozenElements = new ArrayList<StartElement>();
+		for (StartElement se : elements) {
+			QNameContext qnc = getQNameContext(gc, se.getQNameContext());
+			if (qnc != null) {
+				frozenElements.add(createStartElement(qnc));
+			} else {
+				// not representable
+				frozenElements.add(null);
+			}
+		}
+
+		int i = 0;
+		for (StartElement se : elements) {
+			StartElement fse = frozenElements.get(i++);
+			if (fse != null) {
+				Grammar g = se.getGrammar();
+				Grammar fg = fse.getGrammar();
+				copyProductions(gc, g, fg);
+				copyProductions(gc, g.getElementContentGrammar(),
+						fg.getElementContentGrammar());
+				freeze(fg);
+			}
+		}
+
+		BuiltInGrammar frozenFragmentContent = null;
+		if (fragmentContent != null
+				&& fragmentContent.getGrammarType() == GrammarType.BUILT_IN_FRAGMENT_CONTENT) {
+			frozenFragmentContent = new BuiltInFragmentContent();
+			copyProductions(gc, fragmentContent, frozenFragmentContent);
+			frozenFragmentContent.freezeLearning();
+		}
+
+		return new FrozenGrammars(gc, frozenFragmentContent);
+	}
+
+	private static void collectName(Map<String, SortedSet<String>> names,
+			QNameContext qnc) {
+		if (qnc.getNamespaceUriID() == 1 || qnc.getNamespaceUriID() == 2) {
+			// fixed identifiers
+			return;
+		}
+		SortedSet<String> localNames = names.get(qnc.getNamespaceUri());
+		if (localNames == null) {
+			localNames = new TreeSet<String>();
+			names.put(qnc.getNamespaceUri(), localNames);
+		}
+		localNames.add(qnc.getLocalName());
+	}
+
+	private static void collectNames(Map<String, SortedSet<String>> names,
+			Grammar g) {
+		if (g == null) {
+			return;
+		}
+		for (int ec = 0; ec < g.getNumberOfEvents(); ec++) {
+			Event ev = g.getProduction(ec).getEvent();
+			if (ev instanceof StartElement) {
+				collectName(names, ((StartElement) ev).getQNameContext());
+			} else if (ev instanceof Attribute) {
+				collectName(names, ((Attribute) ev).getQNameContext());
+			}
+		}
+	}
+
+	private static GrammarContext createGrammarContext(
+			Map<String, SortedSet<String>> names) {
+		List<String> uris = new ArrayList<String>();
+		uris.add(Constants.XML_NULL_NS_URI);
+		uris.add(Constants.XML_NS_URI);
+		uris.add(Constants.XML_SCHEMA_INSTANCE_NS_URI);
+		for (String uri : names.keySet()) {
+			if (!uris.contains(uri)) {
+				uris.add(uri);
+			}
+		}
+
+		String[][] localNames = new String[uris.size()][];
+		String[][] prefixes = new String[uris.size()][];
+		for (int i = 0; i < uris.size(); i++) {
+			SortedSet<String> lns = names.get(uris.get(i));
+			switch (i) {
+			case 0:
+				prefixes[i] = Constants.PREFIXES_EMPTY;
+				break;
+			case 1:
+				prefixes[i] = Constants.PREFIXES_XML;
+				lns = null;
+				localNames[i] = Constants.LOCAL_NAMES_XML;
+				break;
+			case 2:
+				prefixes[i] = Constants.PREFIXES_XSI;
+				lns = null;
+				localNames[i] = Constants.LOCAL_NAMES_XSI;
+				break;
+			default:
+				prefixes[i] = GrammarUriContext.EMPTY_PREFIXES;
+			}
+			if (localNames[i] == null) {
+				localNames[i] = lns == null ? Constants.LOCAL_NAMES_EMPTY
+						: lns.toArray(new String[lns.size()]);
+			}
+		}
+
+		return createGrammarContext(uris.toArray(new String[uris.size()]),
+				localNames, prefixes);
+	}
+
+	private static GrammarContext createGrammarContext(String[] uris,
+			String[][] localNames, String[][] prefixes) {
+		GrammarUriContext[] gucs = new GrammarUriContext[uris.length];
+		int qNameID = 0;
+		for (int i = 0; i < uris.length; i++) {
+			QNameContext[] qncs = new QNameContext[localNames[i].length];
+			for (int k = 0; k < qncs.length; k++) {
+				qncs[k] = new QNameContext(i, k, new QName(uris[i],
+						localNames[i][k]));
+				qNameID++;
+			}
+			gucs[i] = new GrammarUriContext(i, uris[i], qncs, prefixes[i]);
+		}
+		return new GrammarContext(gucs, qNameID);
+	}
+
+	private static QNameContext getQNameContext(GrammarContext gc,
+			QNameContext qnc) {
+		if (qnc.getNamespaceUriID() == 1 || qnc.getNamespaceUriID() == 2) {
+			// fixed identifiers, built-in names only
+			return qnc.getLocalNameID() < gc.getGrammarUriContext(
+					qnc.getNamespaceUriID()).getNumberOfQNames() ? gc
+					.getGrammarUriContext(qnc.getNamespaceUriID())
+					.getQNameContext(qnc.getLocalNameID()) : null;
+		}
+		GrammarUriContext guc = gc.getGrammarUriContext(qnc.getNamespaceUri());
+		return guc == null ? null : guc.getQNameContext(qnc.getLocalName());
+	}
+
+	private static StartElement createStartElement(QNameContext qnc) {
+		StartElement se = new StartElement(qnc);
+		se.setGrammar(new BuiltInStartTag());
+		qnc.setGlobalStartElement(se);
+		return se;
+	}
+
+	private static void copyProductions(GrammarContext gc, Grammar from,
+			Grammar to) {
+		// learning order
+		for (int ec = from.getNumberOfEvents() - 1; ec >= 0; ec--) {
+			Event ev = from.getProduction(ec).getEvent();
+			switch (ev.getEventType()) {
+			case START_ELEMENT:
+				QNameContext qncSE = getQNameContext(gc,
+						((StartElement) ev).getQNameContext());
+				if (qncSE != null) {
+					learn(to, START_ELEMENT, qncSE);
+				}
+				break;
+			case ATTRIBUTE:
+				QNameContext qncAT = getQNameContext(gc,
+						((Attribute) ev).getQNameContext());
+				if (qncAT != null) {
+					learn(to, ATTRIBUTE, qncAT);
+				}
+				break;
+			case CHARACTERS:
+				learn(to, CHARACTERS, null);
+				break;
+			case END_ELEMENT:
+				learn(to, END_ELEMENT, null);
+				break;
+			default:
+				// initial productions
+				break;
+			}
+		}
+	}
+
+	private static void learn(Grammar g, byte production, QNameContext qnc) {
+		switch (production) {
+		case START_ELEMENT:
+			g.learnStartElement(qnc.getGlobalStartElement());
+			break;
+		case ATTRIBUTE:
+			g.learnAttribute(new Attribute(qnc));
+			break;
+		case CHARACTERS:
+			g.learnCharacters();
+			break;
+		case END_ELEMENT:
+			g.learnEndElement();
+			break;
+		}
+	}
+
+	private static void freeze(Grammar startTag) {
+		((BuiltInGrammar) startTag).freezeLearning();
+		((BuiltInGrammar) startTag.getElementContentGrammar()).freezeLearning();
+	}
+
+	/**
+	 * Writes the grammars in a compact binary form.
+	 * 
+	 * @param os output stream
+	 * @throws IOException IO exception
+	 */
+	public void writeTo(OutputStream os) throws IOException {
+		DataOutputStream dos = new DataOutputStream(os);
+		dos.writeInt(MAGIC);
+
+		GrammarContext gc = getGrammarContext();
+		List<StartElement> elements = new ArrayList<StartElement>();
+		dos.writeInt(gc.getNumberOfGrammarUriContexts());
+		for (int i = 0; i < gc.getNumberOfGrammarUriContexts(); i++) {
+			GrammarUriContext guc = gc.getGrammarUriContext(i);
+			dos.writeUTF(guc.getNamespaceUri());
+			dos.writeInt(guc.getNumberOfPrefixes());
+			for (int k = 0; k < guc.getNumberOfPrefixes(); k++) {
+				dos.writeUTF(guc.getPrefix(k));
+			}
+			dos.writeInt(guc.getNumberOfQNames());
+			for (int k = 0; k < guc.getNumberOfQNames(); k++) {
+				QNameContext qnc = guc.getQNameContext(k);
+				dos.writeUTF(qnc.getLocalName());
+				if (qnc.getGlobalStartElement() != null) {
+					elements.add(qnc.getGlobalStartElement());
+				}
+			}
+		}
+
+		dos.writeInt(elements.size());
+		for (StartElement se : elements) {
+			writeQName(dos, se.getQNameContext());
+		}
+		for (StartElement se : elements) {
+			writeProductions(dos, se.getGrammar());
+			writeProductions(dos, se.getGrammar().getElementContentGrammar());
+		}
+		dos.writeBoolean(fragmentContent != null);
+		if (fragmentContent != null) {
+			writeProductions(dos, fragmentContent);
+		}
+		dos.flush();
+	}
+
+	private static void writeQName(DataOutputStream dos, QNameContext qnc)
+			throws IOException {
+		dos.writeInt(qnc.getNamespaceUriID());
+		dos.writeInt(qnc.getLocalNameID());
+	}
+
+	private static void writeProductions(DataOutputStream dos, Grammar g)
+			throws IOException {
+		List<Event> events = new ArrayList<Event>();
+		// learning order
+		for (int ec = g.getNumberOfEvents() - 1; ec >= 0; ec--) {
+			Event ev = g.getProduction(ec).getEvent();
+			switch (ev.getEventType()) {
+			case START_ELEMENT:
+			case ATTRIBUTE:
+			case CHARACTERS:
+			case END_ELEMENT:
+				events.add(ev);
+				break;
+			default:
+				// initial productions
+				break;
+			}
+		}
+		dos.writeInt(events.size());
+		for (Event ev : events) {
+			switch (ev.getEventType()) {
+			case START_ELEMENT:
+				dos.writeByte(START_ELEMENT);
+				writeQName(dos, ((StartElement) ev).getQNameContext());
+				break;
+			case ATTRIBUTE:
+				dos.writeByte(ATTRIBUTE);
+				writeQName(dos, ((Attribute) ev).getQNameContext());
+				break;
+			case CHARACTERS:
+				dos.writeByte(CHARACTERS);
+				break;
+			default:
+				dos.writeByte(END_ELEMENT);
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Reads grammars that have been written by
+	 * {@link #writeTo(OutputStream)}.
+	 * 
+	 * @param is input stream
+	 * @return frozen grammars
+	 * @throws IOException IO exception
+	 */
+	public static FrozenGrammars readFrom(InputStream is) throws IOException {
+		DataInputStream dis = new DataInputStream(is);
+		if (dis.readInt() != MAGIC) {
+			throw new IOException("No EXI frozen grammars");
+		}
+
+		int numberOfUris = dis.readInt();
+		String[] uris = new String[numberOfUris];
+		String[][] localNames = new String[numberOfUris][];
+		String[][] prefixes = new String[numberOfUris][];
+		for (int i = 0; i < numberOfUris; i++) {
+			uris[i] = dis.readUTF();
+			prefixes[i] = new String[dis.readInt()];
+			for (int k = 0; k < prefixes[i].length; k++) {
+				prefixes[i][k] = dis.readUTF();
+			}
+			localNames[i] = new String[dis.readInt()];
+			for (int k = 0; k < localNames[i].length; k++) {
+				localNames[i][k] = dis.readUTF();
+			}
+		}
+		GrammarContext gc = createGrammarContext(uris, localNames, prefixes);
+
+		StartElement[] elements = new StartElement[dis.readInt()];
+		for (int i = 0; i < elements.length; i++) {
+			elements[i] = createStartElement(readQName(dis, gc));
+		}
+		for (int i = 0; i < elements.length; i++) {
+			Grammar g = elements[i].getGrammar();
+			readProductions(dis, gc, g);
+			readProductions(dis, gc, g.getElementContentGrammar());
+			freeze(g);
+		}
+		BuiltInGrammar fragmentContent = null;
+		if (dis.readBoolean()) {
+			fragmentContent = new BuiltInFragmentContent();
+			readProductions(dis, gc, fragmentContent);
+			fragmentContent.freezeLearning();
+		}
+
+		return new FrozenGrammars(gc, fragmentContent);
+	}
+
+	private static QNameContext readQName(DataInputStream dis,
+			GrammarContext gc) throws IOException {
+		int uriID = dis.readInt();
+		int localNameID = dis.readInt();
+		if (uriID < 0 || uriID >= gc.getNumberOfGrammarUriContexts()) {
+			throw new IOException("Invalid uri ID " + uriID);
+		}
+		QNameContext qnc = gc.getGrammarUriContext(uriID).getQNameContext(
+				localNameID);
+		if (qnc == null) {
+			throw new IOException("Invalid local-name ID " + localNameID);
+		}
+		return qnc;
+	}
+
+	private static void readProductions(DataInputStream dis,
+			GrammarContext gc, Grammar g) throws IOException {
+		int n = dis.readInt();
+		for (int i = 0; i < n; i++) {
+			byte production = dis.readByte();
+			switch (production) {
+			case START_ELEMENT:
+				QNameContext qnc = readQName(dis, gc);
+				if (qnc.getGlobalStartElement() == null) {
+					throw new IOException("Unknown element " + qnc);
+				}
+				learn(g, production, qnc);
+				break;
+			case ATTRIBUTE:
+				learn(g, production, readQName(dis, gc));
+				break;
+			case CHARACTERS:
+			case END_ELEMENT:
+				learn(g, production, null);
+				break;
+			default:
+				throw new IOException("Invalid production " + production);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2007-2016 Siemens AG
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ */
+
+package com.siemens.ct.exi.grammars;
+
+import com.siemens.ct.exi.Constants;
+import com.siemens.ct.exi.context.QNameContext;
+import com.siemens.ct.exi.datatype.Datatype;
+import com.siemens.ct.exi.grammars.event.EventType;
+import com.siemens.ct.exi.grammars.grammar.GrammarType;
+
+/**
+ * Index-based cursor over {@link CompiledGrammars}.
+ * 
+ * <p>
+ * The cursor state is the current grammar ID plus a stack of grammar IDs
+ * that continue after the open elements. Event codes are indices relative
+ * to the current grammar.
+ * </p>
+ * 
+ * @author Daniel.Peintner.EXT@siemens.com
+ * @author Joerg.Heuer@siemens.com
+ * 
+ * @version 0.9.7-SNAPSHOT
+ */
+
+public class GrammarCursor {
+
+	protected final CompiledGrammars grammars;
+
+	protected int grammar;
+	protected int offset;
+
+	/* grammars after end element */
+	protected int[] elementStack;
+	protected int depth;
+
+	public GrammarCursor(CompiledGrammars grammars) {
+		this.grammars = grammars;
+		this.elementStack = new int[16];
+		reset();
+	}
+
+	/**
+	 * Moves to the document grammar and clears the element stack.
+	 */
+	public void reset() {
+		depth = 0;
+		moveToGrammar(grammars.getDocumentGrammar());
+	}
+
+	public void moveToGrammar(int grammarID) {
+		this.grammar = grammarID;
+		this.offset = grammarID == CompiledGrammars.NONE ? 0
+				: grammars.productionOffsets[grammarID];
+	}
+
+	public int getGrammar() {
+		return grammar;
+	}
+
+	public GrammarType getGrammarType() {
+		return grammars.getGrammarType(grammar);
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public int getNumberOfEvents() {
+		return grammar == CompiledGrammars.NONE ? 0 : grammars
+				.getNumberOfEvents(grammar);
+	}
+
+	public EventType getEventType(int eventCode) {
+		return CompiledGrammars.EVENT_TYPES[grammars.eventTypes[offset
+				+ eventCode]];
+	}
+
+	/**
+	 * Returns the qname of SE and AT productions, null otherwise.
+	 * 
+	 * @param eventCode
+	 *            event code
+	 * @return qname context or null
+	 */
+	public QNameContext getQNameContext(int eventCode) {
+		switch (getEventType(eventCode)) {
+		case START_ELEMENT:
+		case ATTRIBUTE:
+			return grammars.getQNameContext(grammars.eventQNames[offset
+					+ eventCode]);
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the datatype of AT and CH productions, null otherwise.
+	 * 
+	 * @param eventCode
+	 *            event code
+	 * @return datatype or null
+	 */
+	public Datatype getDatatype(int eventCode) {
+		switch (getEventType(eventCode)) {
+		case ATTRIBUTE:
+		case CHARACTERS:
+			return grammars.getDatatype(grammars.eventValues[offset
+					+ eventCode]);
+		default:
+			return null;
+		}
+	}
+
+	public int getNextGrammar(int eventCode) {
+		return grammars.nextGrammars[offset + eventCode];
+	}
+
+	/**
+	 * Returns the event code of the first production with the given event
+	 * type.
+	 * 
+	 * @param eventType
+	 *            event type
+	 * @return event code or Constants.NOT_FOUND
+	 */
+	public int getEventCode(EventType eventType) {
+		int n = getNumberOfEvents();
+		byte et = (byte) eventType.ordinal();
+		for (int i = 0; i < n; i++) {
+			if (grammars.eventTypes[offset + i] == et) {
+				return i;
+			}
+		}
+		return Constants.NOT_FOUND;
+	}
+
+	/**
+	 * Returns the event code of SE or AT with the given qname ID, or of
+	 * SE(uri:*) or AT(uri:*) with the given namespace URI ID.
+	 * 
+	 * @param eventType
+	 *            event type
+	 * @param id
+	 *            qname ID or namespace URI ID
+	 * @return event code or Constants.NOT_FOUND
+	 */
+	public int getEventCode(EventType eventType, int id) {
+		int n = getNumberOfEvents();
+		byte et = (byte) eventType.ordinal();
+		for (int i = 0; i < n; i++) {
+			if (grammars.eventTypes[offset + i] == et
+					&& grammars.eventQNames[offset + i] == id) {
+				return i;
+			}
+		}
+		return Constants.NOT_FOUND;
+	}
+
+	/**
+	 * Follows the production. A declared SE pushes the next grammar and moves
+	 * to the element grammar, EE moves back to the grammar after the element.
+	 * 
+	 * @param eventCode
+	 *            event code
+	 */
+	public void advance(int eventCode) {
+		int p = offset + eventCode;
+		switch (CompiledGrammars.EVENT_TYPES[grammars.eventTypes[p]]) {
+		case START_ELEMENT:
+			startElement(eventCode, grammars.eventValues[p]);
+			break;
+		case END_ELEMENT:
+			endElement();
+			break;
+		default:
+			moveToGrammar(grammars.nextGrammars[p]);
+			break;
+		}
+	}
+
+	/**
+	 * Follows a SE production with the given element grammar (e.g., the
+	 * global element grammar for SE(*)).
+	 * 
+	 * @param eventCode
+	 *            event code
+	 * @param elementGrammar
+	 *            element grammar ID
+	 */
+	public void startElement(int eventCode, int elementGrammar) {
+		if (depth == elementStack.length) {
+			int[] stack = new int[2 * depth];
+			System.arraycopy(elementStack, 0, stack, 0, depth);
+			elementStack = stack;
+		}
+		elementStack[depth++] = grammars.nextGrammars[offset + eventCode];
+		moveToGrammar(elementGrammar);
+	}
+
+	public void endElement() {
+		moveToGrammar(depth == 0 ? CompiledGrammars.NONE
+				: elementStack[--depth]);
+	}
+
+}
@@ -0,0 +1,1161 @@
+/*
+ * Copyright (c) 2007-2016 Siemens AG
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ */
+
+package com.siemens.ct.exi.grammars;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+
+import com.siemens.ct.exi.context.GrammarContext;
+import com.siemens.ct.exi.context.GrammarUriContext;
+import com.siemens.ct.exi.context.QNameContext;
+import com.siemens.ct.exi.datatype.AbstractDatatype;
+import com.siemens.ct.exi.datatype.BinaryBase64Datatype;
+import com.siemens.ct.exi.datatype.BinaryHexDatatype;
+import com.siemens.ct.exi.datatype.BooleanDatatype;
+import com.siemens.ct.exi.datatype.BooleanFacetDatatype;
+import com.siemens.ct.exi.datatype.Datatype;
+import com.siemens.ct.exi.datatype.DatetimeDatatype;
+import com.siemens.ct.exi.datatype.DecimalDatatype;
+import com.siemens.ct.exi.datatype.EnumDatatype;
+import com.siemens.ct.exi.datatype.EnumerationDatatype;
+import com.siemens.ct.exi.datatype.ExtendedStringDatatype;
+import com.siemens.ct.exi.datatype.FloatDatatype;
+import com.siemens.ct.exi.datatype.IntegerDatatype;
+import com.siemens.ct.exi.datatype.ListDatatype;
+import com.siemens.ct.exi.datatype.NBitUnsignedIntegerDatatype;
+import com.siemens.ct.exi.datatype.RestrictedCharacterSetDatatype;
+import com.siemens.ct.exi.datatype.StringDatatype;
+import com.siemens.ct.exi.datatype.UnsignedIntegerDatatype;
+import com.siemens.ct.exi.datatype.WhiteSpace;
+import com.siemens.ct.exi.datatype.charset.CodePointCharacterSet;
+import com.siemens.ct.exi.datatype.charset.RestrictedCharacterSet;
+import com.siemens.ct.exi.exceptions.UnsupportedOption;
+import com.siemens.ct.exi.grammars.event.Attribute;
+import com.siemens.ct.exi.grammars.event.AttributeGeneric;
+import com.siemens.ct.exi.grammars.event.AttributeNS;
+import com.siemens.ct.exi.grammars.event.Characters;
+import com.siemens.ct.exi.grammars.event.CharactersGeneric;
+import com.siemens.ct.exi.grammars.event.EndDocument;
+import com.siemens.ct.exi.grammars.event.EndElement;
+import com.siemens.ct.exi.grammars.event.Event;
+import com.siemens.ct.exi.grammars.event.StartDocument;
+import com.siemens.ct.exi.grammars.event.StartElement;
+import com.siemens.ct.exi.grammars.event.StartElementGeneric;
+import com.siemens.ct.exi.grammars.event.StartElementNS;
+import com.siemens.ct.exi.grammars.grammar.DocEnd;
+import com.siemens.ct.exi.grammars.grammar.Document;
+import com.siemens.ct.exi.grammars.grammar.Fragment;
+import com.siemens.ct.exi.grammars.grammar.Grammar;
+import com.siemens.ct.exi.grammars.grammar.SchemaInformedDocContent;
+import com.siemens.ct.exi.grammars.grammar.SchemaInformedElement;
+import com.siemens.ct.exi.grammars.grammar.SchemaInformedFirstStartTag;
+import com.siemens.ct.exi.grammars.grammar.SchemaInformedFirstStartTagGrammar;
+import com.siemens.ct.exi.grammars.grammar.SchemaInformedFragmentContent;
+import com.siemens.ct.exi.grammars.grammar.SchemaInformedGrammar;
+import com.siemens.ct.exi.grammars.grammar.SchemaInformedStartTag;
+import com.siemens.ct.exi.grammars.grammar.SchemaInformedStartTagGrammar;
+import com.siemens.ct.exi.grammars.production.Production;
+import com.siemens.ct.exi.types.DateTimeType;
+import com.siemens.ct.exi.values.BinaryBase64Value;
+import com.siemens.ct.exi.values.BinaryHexValue;
+import com.siemens.ct.exi.values.BooleanValue;
+import com.siemens.ct.exi.values.DateTimeValue;
+import com.siemens.ct.exi.values.DecimalValue;
+import com.siemens.ct.exi.values.FloatValue;
+import com.siemens.ct.exi.values.IntegerValue;
+import com.siemens.ct.exi.values.ListValue;
+import com.siemens.ct.exi.values.StringValue;
+import com.siemens.ct.exi.values.Value;
+import com.siemens.ct.exi.values.ValueType;
+
+/**
+ * Compact binary snapshot of schema-informed grammars.
+ * 
+ * <p>
+ * Building schema-informed grammars for large schemas is costly and happens
+ * at every start. A snapshot written once by
+ * {@link #write(SchemaInformedGrammars, OutputStream)} can be loaded from a
+ * memory-mapped file instead. Only the grammar context (namespace URIs,
+ * prefixes and one qualified name context per local name) is created
+ * eagerly. Global elements and attributes, grammars, datatypes and the
+ * remaining strings are read from the (shared, read-only) buffer the first
+ * time they are needed, i.e., the grammars of an element are materialized
+ * when its start element or type grammar is first used.
+ * </p>
+ * 
+ * <p>
+ * Layout (big-endian ints): header, string table, element table, datatype
+ * table, grammar table and the namespace URIs of the grammar context. Tables
+ * start with an offset index so that records are accessed directly.
+ * </p>
+ * 
+ * @author Daniel.Peintner.EXT@siemens.com
+ * @author Joerg.Heuer@siemens.com
+ * 
+ * @version 0.9.7-SNAPSHOT
+ */
+
+public class GrammarsSnapshot {
+
+	protected static final int MAGIC = 0x45584753; // EXGS
+	protected static final int VERSION = 1;
+
+	protected static final int NONE = -1;
+
+	/* header flags */
+	protected static final int BUILT_IN_XML_SCHEMA_TYPES_ONLY = 1;
+
+	/* grammars */
+	protected static final int DOCUMENT = 0;
+	protected static final int FRAGMENT = 1;
+	protected static final int DOC_END = 2;
+	protected static final int DOC_CONTENT = 3;
+	protected static final int FRAGMENT_CONTENT = 4;
+	protected static final int FIRST_START_TAG = 5;
+	protected static final int START_TAG = 6;
+	protected static final int ELEMENT = 7;
+
+	/* grammar flags */
+	protected static final int TYPE_CASTABLE = 1;
+	protected static final int NILLABLE = 2;
+
+	/* production events */
+	protected static final int START_DOCUMENT = 0;
+	protected static final int END_DOCUMENT = 1;
+	protected static final int START_ELEMENT = 2;
+	protected static final int START_ELEMENT_NS = 3;
+	protected static final int START_ELEMENT_GENERIC = 4;
+	protected static final int END_ELEMENT = 5;
+	protected static final int ATTRIBUTE = 6;
+	protected static final int ATTRIBUTE_NS = 7;
+	protected static final int ATTRIBUTE_GENERIC = 8;
+	protected static final int CHARACTERS = 9;
+	protected static final int CHARACTERS_GENERIC = 10;
+
+	/* datatypes */
+	protected static final int BINARY_BASE64 = 0;
+	protected static final int BINARY_HEX = 1;
+	protected static final int BOOLEAN = 2;
+	protected static final int BOOLEAN_FACET = 3;
+	protected static final int DECIMAL = 4;
+	protected static final int FLOAT = 5;
+	protected static final int NBIT_UNSIGNED_INTEGER = 6;
+	protected static final int UNSIGNED_INTEGER = 7;
+	protected static final int INTEGER = 8;
+	protected static final int DATETIME = 9;
+	protected static final int STRING = 10;
+	protected static final int EXTENDED_STRING = 11;
+	protected static final int RCS_STRING = 12;
+	protected static final int ENUMERATION = 13;
+	protected static final int LIST = 14;
+
+	/* record sizes (in ints) */
+	protected static final int ELEMENT_SIZE = 3;
+	protected static final int GRAMMAR_HEADER_SIZE = 5;
+	protected static final int PRODUCTION_SIZE = 5;
+	protected static final int QNAME_SIZE = 4;
+
+	protected final ByteBuffer buffer;
+
+	/* string table */
+	protected final int stringIndex;
+	protected final int stringData;
+	protected final String[] strings;
+
+	/* element table */
+	protected final int elementData;
+	protected final SnapshotStartElement[] elements;
+
+	/* datatype table */
+	protected final int datatypeIndex;
+	protected final int datatypeData;
+	protected final Datatype[] datatypes;
+
+	/* grammar table */
+	protected final int grammarIndex;
+	protected final int grammarData;
+	protected final Grammar[] grammars;
+
+	protected GrammarContext grammarContext;
+
+	protected GrammarsSnapshot(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			throw new IOException("No EXI grammars snapshot");
+		}
+		int pos = 28;
+		// strings
+		strings = new String[buffer.getInt(pos)];
+		stringIndex = pos + 4;
+		stringData = stringIndex + 4 * (strings.length + 1);
+		pos = stringData + 2 * buffer.getInt(stringIndex + 4 * strings.length);
+		// elements
+		elements = new SnapshotStartElement[buffer.getInt(pos)];
+		elementData = pos + 4;
+		pos = elementData + 4 * ELEMENT_SIZE * elements.length;
+		// datatypes
+		datatypes = new Datatype[buffer.getInt(pos)];
+		datatypeIndex = pos + 4;
+		datatypeData = datatypeIndex + 4 * (datatypes.length + 1);
+		pos = datatypeData + buffer.getInt(datatypeIndex + 4 * datatypes.length);
+		// grammars
+		grammars = new Grammar[buffer.getInt(pos)];
+		grammarIndex = pos + 4;
+		grammarData = grammarIndex + 4 * (grammars.length + 1);
+		pos = grammarData + buffer.getInt(grammarIndex + 4 * grammars.length);
+		// grammar context
+		readGrammarContext(pos);
+	}
+
+	/**
+	 * Loads a grammars snapshot from a memory-mapped file. The file must not
+	 * be modified while the grammars are in use.
+	 * 
+	 * @param file
+	 *            snapshot written by
+	 *            {@link #write(SchemaInformedGrammars, OutputStream)}
+	 * @return schema-informed grammars
+	 * @throws IOException
+	 *             IO exception or no valid snapshot
+	 */
+	public static SchemaInformedGrammars load(File file) throws IOException {
+		FileInputStream fis = new FileInputStream(file);
+		try {
+			FileChannel fc = fis.getChannel();
+			// the mapping stays valid after the channel has been closed
+			return load(fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size()));
+		} finally {
+			fis.close();
+		}
+	}
+
+	/**
+	 * Loads a grammars snapshot. The buffer content is shared and must not be
+	 * modified while the grammars are in use.
+	 * 
+	 * @param buffer
+	 *            snapshot written by
+	 *            {@link #write(SchemaInformedGrammars, OutputStream)}
+	 * @return schema-informed grammars
+	 * @throws IOException
+	 *             no valid snapshot
+	 */
+	public static SchemaInformedGrammars load(ByteBuffer buffer)
+			throws IOException {
+		GrammarsSnapshot snapshot = new GrammarsSnapshot(buffer.duplicate());
+		return snapshot.getGrammars();
+	}
+
+	protected SchemaInformedGrammars getGrammars() throws IOException {
+		Grammar fragment = getGrammar(buffer.getInt(20));
+		Grammar elementFragment = getGrammar(buffer.getInt(24));
+		SchemaInformedGrammars g = new SchemaInformedGrammars(grammarContext,
+				(Document) getGrammar(buffer.getInt(16)),
+				fragment == null ? new Fragment() : (Fragment) fragment,
+				(SchemaInformedGrammar) elementFragment);
+
+		int schemaId = buffer.getInt(12);
+		try {
+			if ((buffer.getInt(8) & BUILT_IN_XML_SCHEMA_TYPES_ONLY) != 0) {
+				g.setBuiltInXMLSchemaTypesOnly(true);
+			} else if (schemaId != NONE) {
+				g.setSchemaId(getString(schemaId));
+			}
+		} catch (UnsupportedOption e) {
+			throw new IOException(e.getMessage());
+		}
+
+		return g;
+	}
+
+	protected void readGrammarContext(int pos) {
+		GrammarUriContext[] gucs = new GrammarUriContext[buffer.getInt(pos)];
+		int numberOfQNames = 0;
+		pos += 4;
+		for (int i = 0; i < gucs.length; i++) {
+			String uri = getString(buffer.getInt(pos));
+			String[] prefixes = new String[buffer.getInt(pos + 4)];
+			pos += 8;
+			for (int k = 0; k < prefixes.length; k++) {
+				prefixes[k] = getString(buffer.getInt(pos));
+				pos += 4;
+			}
+			QNameContext[] qncs = new QNameContext[buffer.getInt(pos)];
+			pos += 4;
+			for (int k = 0; k < qncs.length; k++) {
+				// global element, attribute and type grammar are resolved
+				// on first use
+				qncs[k] = new SnapshotQNameContext(this, i, k, new QName(uri,
+						getString(buffer.getInt(pos))), pos);
+				pos += 4 * QNAME_SIZE;
+			}
+			numberOfQNames += qncs.length;
+			gucs[i] = new GrammarUriContext(i, uri, qncs, prefixes);
+		}
+		grammarContext = new GrammarContext(gucs, numberOfQNames);
+	}
+
+	protected synchronized String getString(int id) {
+		if (id == NONE) {
+			return null;
+		}
+		String s = strings[id];
+		if (s == null) {
+			int start = buffer.getInt(stringIndex + 4 * id);
+			int end = buffer.getInt(stringIndex + 4 * (id + 1));
+			char[] ca = new char[end - start];
+			for (int i = 0; i < ca.length; i++) {
+				ca[i] = buffer.getChar(stringData + 2 * (start + i));
+			}
+			s = strings[id] = new String(ca);
+		}
+		return s;
+	}
+
+	protected QNameContext getQNameContext(int uriID, int localNameID) {
+		return grammarContext.getGrammarUriContext(uriID).getQNameContext(
+				localNameID);
+	}
+
+	protected synchronized StartElement getElement(int id) {
+		SnapshotStartElement se = elements[id];
+		if (se == null) {
+			int pos = elementData + 4 * ELEMENT_SIZE * id;
+			se = elements[id] = new SnapshotStartElement(this,
+					getQNameContext(buffer.getInt(pos), buffer.getInt(pos + 4)),
+					buffer.getInt(pos + 8));
+		}
+		return se;
+	}
+
+	protected synchronized Datatype getDatatype(int id) {
+		if (id == NONE) {
+			return null;
+		}
+		Datatype dt = datatypes[id];
+		if (dt == null) {
+			dt = datatypes[id] = readDatatype(datatypeData
+					+ buffer.getInt(datatypeIndex + 4 * id));
+		}
+		return dt;
+	}
+
+	protected Datatype readDatatype(int pos) {
+		int kind = buffer.getInt(pos);
+		QNameContext schemaType = readSchemaType(pos + 4);
+		Datatype base = getDatatype(buffer.getInt(pos + 20));
+		Datatype grammarEnumeration = getDatatype(buffer.getInt(pos + 24));
+		WhiteSpace whiteSpace = WhiteSpace.values()[buffer.getInt(pos + 28)];
+		pos += 32;
+
+		AbstractDatatype dt;
+		switch (kind) {
+		case BINARY_BASE64:
+			dt = new BinaryBase64Datatype(schemaType);
+			break;
+		case BINARY_HEX:
+			dt = new BinaryHexDatatype(schemaType);
+			break;
+		case BOOLEAN:
+			dt = new BooleanDatatype(schemaType);
+			break;
+		case BOOLEAN_FACET:
+			dt = new BooleanFacetDatatype(schemaType);
+			break;
+		case DECIMAL:
+			dt = new DecimalDatatype(schemaType);
+			break;
+		case FLOAT:
+			dt = new FloatDatatype(schemaType);
+			break;
+		case NBIT_UNSIGNED_INTEGER:
+			dt = new NBitUnsignedIntegerDatatype(
+					IntegerValue.parse(getString(buffer.getInt(pos))),
+					IntegerValue.parse(getString(buffer.getInt(pos + 4))),
+					schemaType);
+			break;
+		case UNSIGNED_INTEGER:
+			dt = new UnsignedIntegerDatatype(schemaType);
+			break;
+		case INTEGER:
+			dt = new IntegerDatatype(schemaType);
+			break;
+		case DATETIME:
+			dt = new DatetimeDatatype(
+					DateTimeType.values()[buffer.getInt(pos)], schemaType);
+			break;
+		case STRING:
+			if (buffer.getInt(pos) != 0) {
+				dt = new StringDatatype(schemaType, true);
+			} else {
+				dt = new StringDatatype(schemaType, whiteSpace);
+			}
+			break;
+		case EXTENDED_STRING:
+			dt = new ExtendedStringDatatype(schemaType, whiteSpace);
+			break;
+		case RCS_STRING:
+			Set<Integer> codePoints = new HashSet<Integer>();
+			int size = buffer.getInt(pos);
+			for (int i = 1; i <= size; i++) {
+				codePoints.add(buffer.getInt(pos + 4 * i));
+			}
+			dt = new RestrictedCharacterSetDatatype(new CodePointCharacterSet(
+					codePoints), schemaType, whiteSpace);
+			break;
+		case ENUMERATION:
+			Datatype dtEnumValues = getDatatype(buffer.getInt(pos));
+			Value[] enumValues = new Value[buffer.getInt(pos + 4)];
+			pos += 8;
+			for (int i = 0; i < enumValues.length; i++) {
+				enumValues[i] = parseValue(
+						ValueType.values()[buffer.getInt(pos)],
+						getString(buffer.getInt(pos + 4)), dtEnumValues);
+				pos += 8;
+			}
+			dt = new EnumerationDatatype(enumValues, dtEnumValues, schemaType);
+			break;
+		case LIST:
+			dt = new ListDatatype(getDatatype(buffer.getInt(pos)), schemaType);
+			break;
+		default:
+			throw new RuntimeException("Unexpected datatype " + kind
+					+ " in grammars snapshot");
+		}
+
+		dt.setBaseDatatype(base);
+		dt.setGrammarEnumeration((EnumDatatype) grammarEnumeration);
+		return dt;
+	}
+
+	protected QNameContext readSchemaType(int pos) {
+		int uriID = buffer.getInt(pos);
+		if (uriID == NONE) {
+			return null;
+		}
+		int localNameID = buffer.getInt(pos + 4);
+		String uri = getString(buffer.getInt(pos + 8));
+		String localName = getString(buffer.getInt(pos + 12));
+		if (uriID < grammarContext.getNumberOfGrammarUriContexts()) {
+			GrammarUriContext guc = grammarContext.getGrammarUriContext(uriID);
+			if (localNameID < guc.getNumberOfQNames()
+					&& uri.equals(guc.getNamespaceUri())) {
+				QNameContext qnc = guc.getQNameContext(localNameID);
+				if (localName.equals(qnc.getLocalName())) {
+					return qnc;
+				}
+			}
+		}
+		// type name not part of the grammar context
+		return new QNameContext(uriID, localNameID, new QName(uri, localName));
+	}
+
+	protected static Value parseValue(ValueType valueType, String value,
+			Datatype datatype) {
+		switch (valueType) {
+		case BINARY_BASE64:
+			return BinaryBase64Value.parse(value);
+		case BINARY_HEX:
+			return BinaryHexValue.parse(value);
+		case BOOLEAN:
+			return BooleanValue.parse(value);
+		case DECIMAL:
+			return DecimalValue.parse(value);
+		case FLOAT:
+			return FloatValue.parse(value);
+		case INTEGER:
+			return IntegerValue.parse(value);
+		case DATETIME:
+			return DateTimeValue.parse(value,
+					((DatetimeDatatype) datatype).getDatetimeType());
+		case LIST:
+			return ListValue.parse(value,
+					((ListDatatype) datatype).getListDatatype());
+		default:
+			return new StringValue(value);
+		}
+	}
+
+	/*
+	 * Materializes the grammar and all grammars reachable from it by
+	 * productions or element content (not via start elements).
+	 */
+	protected synchronized Grammar getGrammar(int id) {
+		if (id == NONE) {
+			return null;
+		}
+		Grammar g = grammars[id];
+		if (g == null) {
+			List<Integer> pending = new ArrayList<Integer>();
+			g = getGrammar(id, pending);
+			while (!pending.isEmpty()) {
+				readProductions(pending.remove(pending.size() - 1), pending);
+			}
+		}
+		return g;
+	}
+
+	private SchemaInformedGrammar getGrammar(int id, List<Integer> pending) {
+		SchemaInformedGrammar g = (SchemaInformedGrammar) grammars[id];
+		if (g == null) {
+			int pos = grammarData + buffer.getInt(grammarIndex + 4 * id);
+			int flags = buffer.getInt(pos + 4);
+			switch (buffer.getInt(pos)) {
+			case DOCUMENT:
+				g = new Document();
+				break;
+			case FRAGMENT:
+				g = new Fragment();
+				break;
+			case DOC_END:
+				g = new DocEnd();
+				break;
+			case DOC_CONTENT:
+				g = new SchemaInformedDocContent();
+				break;
+			case FRAGMENT_CONTENT:
+				g = new SchemaInformedFragmentContent();
+				break;
+			case FIRST_START_TAG:
+				SchemaInformedFirstStartTag fst = new SchemaInformedFirstStartTag();
+				fst.setTypeCastable((flags & TYPE_CASTABLE) != 0);
+				fst.setNillable((flags & NILLABLE) != 0);
+				g = fst;
+				break;
+			case START_TAG:
+				g = new SchemaInformedStartTag();
+				break;
+			case ELEMENT:
+				g = new SchemaInformedElement();
+				break;
+			default:
+				throw new RuntimeException("Unexpected grammar "
+						+ buffer.getInt(pos) + " in grammars snapshot");
+			}
+			String label = getString(buffer.getInt(pos + 8));
+			if (label != null) {
+				g.setLabel(label);
+			}
+			grammars[id] = g;
+			pending.add(id);
+		}
+		return g;
+	}
+
+	private void readProductions(int id, List<Integer> pending) {
+		SchemaInformedGrammar g = (SchemaInformedGrammar) grammars[id];
+		int pos = grammarData + buffer.getInt(grammarIndex + 4 * id);
+		int elementContent = buffer.getInt(pos + 12);
+		if (elementContent != NONE) {
+			((SchemaInformedStartTagGrammar) g)
+					.setElementContentGrammar(getGrammar(elementContent,
+							pending));
+		}
+		int numberOfProductions = buffer.getInt(pos + 16);
+		pos += 4 * GRAMMAR_HEADER_SIZE;
+		for (int i = 0; i < numberOfProductions; i++) {
+			Event event = readEvent(pos);
+			int next = buffer.getInt(pos + 16);
+			if (next == NONE) {
+				g.addTerminalProduction(event);
+			} else {
+				g.addProduction(event, getGrammar(next, pending));
+			}
+			pos += 4 * PRODUCTION_SIZE;
+		}
+	}
+
+	protected Event readEvent(int pos) {
+		int a = buffer.getInt(pos + 4);
+		switch (buffer.getInt(pos)) {
+		case START_DOCUMENT:
+			return new StartDocument();
+		case END_DOCUMENT:
+			return new EndDocument();
+		case START_ELEMENT:
+			return getElement(a);
+		case START_ELEMENT_NS:
+			return new StartElementNS(a, getString(buffer.getInt(pos + 8)));
+		case START_ELEMENT_GENERIC:
+			return new StartElementGeneric();
+		case END_ELEMENT:
+			return new EndElement();
+		case ATTRIBUTE:
+			return new Attribute(getQNameContext(a, buffer.getInt(pos + 8)),
+					getDatatype(buffer.getInt(pos + 12)));
+		case ATTRIBUTE_NS:
+			return new AttributeNS(a, getString(buffer.getInt(pos + 8)));
+		case ATTRIBUTE_GENERIC:
+			return new AttributeGeneric();
+		case CHARACTERS:
+			return new Characters(getDatatype(a));
+		case CHARACTERS_GENERIC:
+			return new CharactersGeneric();
+		default:
+			throw new RuntimeException("Unexpected event "
+					+ buffer.getInt(pos) + " in grammars snapshot");
+		}
+	}
+
+	/**
+	 * Writes a compact binary snapshot of schema-informed grammars.
+	 * 
+	 * @param grammars
+	 *            schema-informed grammars
+	 * @param os
+	 *            output stream
+	 * @throws IOException
+	 *             IO exception or grammars that cannot be represented
+	 */
+	public static void write(SchemaInformedGrammars grammars, OutputStream os)
+			throws IOException {
+		new SnapshotWriter(grammars).write(os);
+	}
+
+	/*
+	 * Start element whose grammar is materialized on first use
+	 */
+	static class SnapshotStartElement extends StartElement {
+
+		final GrammarsSnapshot snapshot;
+		final int grammarID;
+		volatile boolean resolved;
+
+		SnapshotStartElement(GrammarsSnapshot snapshot, QNameContext qnc,
+				int grammarID) {
+			super(qnc);
+			this.snapshot = snapshot;
+			this.grammarID = grammarID;
+		}
+
+		@Override
+		public void setGrammar(Grammar grammar) {
+			super.setGrammar(grammar);
+			resolved = true;
+		}
+
+		@Override
+		public Grammar getGrammar() {
+			if (!resolved) {
+				setGrammar(snapshot.getGrammar(grammarID));
+			}
+			return super.getGrammar();
+		}
+	}
+
+	/*
+	 * Qualified name whose global element, global attribute and type grammar
+	 * are materialized on first use
+	 */
+	static class SnapshotQNameContext extends QNameContext {
+
+		final GrammarsSnapshot snapshot;
+		// position of the qualified name record
+		final int pos;
+		volatile boolean globalElementResolved;
+		volatile boolean globalAttributeResolved;
+		volatile boolean resolved;
+
+		SnapshotQNameContext(GrammarsSnapshot snapshot, int namespaceUriID,
+				int localNameID, QName qName, int pos) {
+			super(namespaceUriID, localNameID, qName);
+			this.snapshot = snapshot;
+			this.pos = pos;
+		}
+
+		@Override
+		public void setGlobalStartElement(StartElement grammarGlobalElement) {
+			super.setGlobalStartElement(grammarGlobalElement);
+			globalElementResolved = true;
+		}
+
+		@Override
+		public StartElement getGlobalStartElement() {
+			if (!globalElementResolved) {
+				int element = snapshot.buffer.getInt(pos + 4);
+				setGlobalStartElement(element == NONE ? null : snapshot
+						.getElement(element));
+			}
+			return super.getGlobalStartElement();
+		}
+
+		@Override
+		public void setGlobalAttribute(Attribute grammarGlobalAttribute) {
+			super.setGlobalAttribute(grammarGlobalAttribute);
+			globalAttributeResolved = true;
+		}
+
+		@Override
+		public Attribute getGlobalAttribute() {
+			if (!globalAttributeResolved) {
+				// one attribute instance for concurrent coders
+				synchronized (snapshot) {
+					if (!globalAttributeResolved) {
+						int attribute = snapshot.buffer.getInt(pos + 8);
+						setGlobalAttribute(attribute == NONE ? null
+								: new Attribute(this, snapshot
+										.getDatatype(attribute)));
+					}
+				}
+			}
+			return super.getGlobalAttribute();
+		}
+
+		@Override
+		public void setTypeGrammar(SchemaInformedFirstStartTagGrammar typeGrammar) {
+			super.setTypeGrammar(typeGrammar);
+			resolved = true;
+		}
+
+		@Override
+		public SchemaInformedFirstStartTagGrammar getTypeGrammar() {
+			if (!resolved) {
+				setTypeGrammar((SchemaInformedFirstStartTagGrammar) snapshot
+						.getGrammar(snapshot.buffer.getInt(pos + 12)));
+			}
+			return super.getTypeGrammar();
+		}
+	}
+
+	/*
+	 * Assigns table indices while traversing the grammars and writes the
+	 * records in index order
+	 */
+	static class SnapshotWriter {
+
+		final SchemaInformedGrammars grammars;
+		final GrammarContext grammarContext;
+
+		final Map<String, Integer> stringIDs = new HashMap<String, Integer>();
+		final List<String> strings = new ArrayList<String>();
+		final Map<StartElement, Integer> elementIDs = new IdentityHashMap<StartElement, Integer>();
+		final List<StartElement> elements = new ArrayList<StartElement>();
+		final Map<Datatype, Integer> datatypeIDs = new IdentityHashMap<Datatype, Integer>();
+		final List<Datatype> datatypes = new ArrayList<Datatype>();
+		final Map<Grammar, Integer> grammarIDs = new IdentityHashMap<Grammar, Integer>();
+		final List<Grammar> grammarList = new ArrayList<Grammar>();
+
+		SnapshotWriter(SchemaInformedGrammars grammars) {
+			this.grammars = grammars;
+			this.grammarContext = grammars.getGrammarContext();
+		}
+
+		void write(OutputStream os) throws IOException {
+			int document = getGrammarID(grammars.getDocumentGrammar());
+			int fragment = getGrammarID(grammars.getFragmentGrammar());
+			int elementFragment = getGrammarID(grammars
+					.getSchemaInformedElementFragmentGrammar());
+			int schemaId = getStringID(grammars.getSchemaId());
+
+			ByteArrayOutputStream uris = new ByteArrayOutputStream();
+			writeGrammarContext(new DataOutputStream(uris));
+
+			// records (may add further elements, datatypes and grammars)
+			ByteArrayOutputStream elementData = new ByteArrayOutputStream();
+			ByteArrayOutputStream datatypeData = new ByteArrayOutputStream();
+			ByteArrayOutputStream grammarData = new ByteArrayOutputStream();
+			List<Integer> datatypeIndex = new ArrayList<Integer>();
+			List<Integer> grammarIndex = new ArrayList<Integer>();
+			DataOutputStream dosElements = new DataOutputStream(elementData);
+			DataOutputStream dosDatatypes = new DataOutputStream(datatypeData);
+			DataOutputStream dosGrammars = new DataOutputStream(grammarData);
+			int e = 0, d = 0, g = 0;
+			while (e < elements.size() || d < datatypes.size()
+					|| g < grammarList.size()) {
+				for (; g < grammarList.size(); g++) {
+					grammarIndex.add(dosGrammars.size());
+					writeGrammar(dosGrammars, grammarList.get(g));
+				}
+				for (; e < elements.size(); e++) {
+					writeElement(dosElements, elements.get(e));
+				}
+				for (; d < datatypes.size(); d++) {
+					datatypeIndex.add(dosDatatypes.size());
+					writeDatatype(dosDatatypes, datatypes.get(d));
+				}
+			}
+			datatypeIndex.add(dosDatatypes.size());
+			grammarIndex.add(dosGrammars.size());
+
+			DataOutputStream dos = new DataOutputStream(os);
+			// header
+			dos.writeInt(MAGIC);
+			dos.writeInt(VERSION);
+			dos.writeInt(grammars.isBuiltInXMLSchemaTypesOnly() ? BUILT_IN_XML_SCHEMA_TYPES_ONLY
+					: 0);
+			dos.writeInt(schemaId);
+			dos.writeInt(document);
+			dos.writeInt(fragment);
+			dos.writeInt(elementFragment);
+			// strings
+			dos.writeInt(strings.size());
+			int offset = 0;
+			for (String s : strings) {
+				dos.writeInt(offset);
+				offset += s.length();
+			}
+			dos.writeInt(offset);
+			for (String s : strings) {
+				dos.writeChars(s);
+			}
+			// elements
+			dos.writeInt(elements.size());
+			elementData.writeTo(dos);
+			// datatypes
+			dos.writeInt(datatypes.size());
+			for (Integer i : datatypeIndex) {
+				dos.writeInt(i);
+			}
+			datatypeData.writeTo(dos);
+			// grammars
+			dos.writeInt(grammarList.size());
+			for (Integer i : grammarIndex) {
+				dos.writeInt(i);
+			}
+			grammarData.writeTo(dos);
+			// grammar context
+			uris.writeTo(dos);
+			dos.flush();
+		}
+
+		void writeGrammarContext(DataOutputStream dos) throws IOException {
+			dos.writeInt(grammarContext.getNumberOfGrammarUriContexts());
+			for (int i = 0; i < grammarContext.getNumberOfGrammarUriContexts(); i++) {
+				GrammarUriContext guc = grammarContext.getGrammarUriContext(i);
+				dos.writeInt(getStringID(guc.getNamespaceUri()));
+				dos.writeInt(guc.getNumberOfPrefixes());
+				for (int k = 0; k < guc.getNumberOfPrefixes(); k++) {
+					dos.writeInt(getStringID(guc.getPrefix(k)));
+				}
+				dos.writeInt(guc.getNumberOfQNames());
+				for (int k = 0; k < guc.getNumberOfQNames(); k++) {
+					QNameContext qnc = guc.getQNameContext(k);
+					dos.writeInt(getStringID(qnc.getLocalName()));
+					StartElement se = qnc.getGlobalStartElement();
+					dos.writeInt(se == null ? NONE : getElementID(se));
+					Attribute at = qnc.getGlobalAttribute();
+					if (at != null && at.getDatatype() == null) {
+						throw new IOException("Global attribute " + qnc
+								+ " without datatype");
+					}
+					dos.writeInt(at == null ? NONE : getDatatypeID(at
+							.getDatatype()));
+					dos.writeInt(getGrammarID(qnc.getTypeGrammar()));
+				}
+			}
+		}
+
+		void writeElement(DataOutputStream dos, StartElement se)
+				throws IOException {
+			QNameContext qnc = checkQNameContext(se.getQNameContext());
+			dos.writeInt(qnc.getNamespaceUriID());
+			dos.writeInt(qnc.getLocalNameID());
+			dos.writeInt(getGrammarID(se.getGrammar()));
+		}
+
+		QNameContext checkQNameContext(QNameContext qnc) throws IOException {
+			if (qnc.getNamespaceUriID() < grammarContext
+					.getNumberOfGrammarUriContexts()) {
+				GrammarUriContext guc = grammarContext
+						.getGrammarUriContext(qnc.getNamespaceUriID());
+				if (qnc.getLocalNameID() < guc.getNumberOfQNames()
+						&& guc.getQNameContext(qnc.getLocalNameID()) == qnc) {
+					return qnc;
+				}
+			}
+			throw new IOException("Qualified name " + qnc
+					+ " is not part of the grammar context");
+		}
+
+		void writeGrammar(DataOutputStream dos, Grammar g) throws IOException {
+			int flags = 0;
+			Grammar elementContent = null;
+			switch (g.getGrammarType()) {
+			case DOCUMENT:
+				dos.writeInt(DOCUMENT);
+				break;
+			case FRAGMENT:
+				dos.writeInt(FRAGMENT);
+				break;
+			case DOC_END:
+				dos.writeInt(DOC_END);
+				break;
+			case SCHEMA_INFORMED_DOC_CONTENT:
+				dos.writeInt(DOC_CONTENT);
+				break;
+			case SCHEMA_INFORMED_FRAGMENT_CONTENT:
+				dos.writeInt(FRAGMENT_CONTENT);
+				break;
+			case SCHEMA_INFORMED_FIRST_START_TAG_CONTENT:
+				dos.writeInt(FIRST_START_TAG);
+				SchemaInformedFirstStartTagGrammar fst = (SchemaInformedFirstStartTagGrammar) g;
+				flags = (fst.isTypeCastable() ? TYPE_CASTABLE : 0)
+						| (fst.isNillable() ? NILLABLE : 0);
+				elementContent = g.getElementContentGrammar();
+				break;
+			case SCHEMA_INFORMED_START_TAG_CONTENT:
+				dos.writeInt(START_TAG);
+				elementContent = g.getElementContentGrammar();
+				break;
+			case SCHEMA_INFORMED_ELEMENT_CONTENT:
+				dos.writeInt(ELEMENT);
+				break;
+			default:
+				throw new IOException("Grammar " + g.getGrammarType()
+						+ " not supported by grammar snapshots");
+			}
+			dos.writeInt(flags);
+			dos.writeInt(getStringID(((SchemaInformedGrammar) g).getLabel()));
+			dos.writeInt(elementContent == null ? NONE
+					: getGrammarID(elementContent));
+			dos.writeInt(g.getNumberOfEvents());
+
+			for (int i = 0; i < g.getNumberOfEvents(); i++) {
+				Production prod = g.getProduction(i);
+				Event ev = prod.getEvent();
+				int a = NONE, b = NONE, c = NONE;
+				switch (ev.getEventType()) {
+				case START_DOCUMENT:
+					dos.writeInt(START_DOCUMENT);
+					break;
+				case END_DOCUMENT:
+					dos.writeInt(END_DOCUMENT);
+					break;
+				case START_ELEMENT:
+					dos.writeInt(START_ELEMENT);
+					a = getElementID((StartElement) ev);
+					break;
+				case START_ELEMENT_NS:
+					dos.writeInt(START_ELEMENT_NS);
+					a = ((StartElementNS) ev).getNamespaceUriID();
+					b = getStringID(((StartElementNS) ev).getNamespaceURI());
+					break;
+				case START_ELEMENT_GENERIC:
+					dos.writeInt(START_ELEMENT_GENERIC);
+					break;
+				case END_ELEMENT:
+					dos.writeInt(END_ELEMENT);
+					break;
+				case ATTRIBUTE:
+					dos.writeInt(ATTRIBUTE);
+					Attribute at = (Attribute) ev;
+					QNameContext qnc = checkQNameContext(at.getQNameContext());
+					a = qnc.getNamespaceUriID();
+					b = qnc.getLocalNameID();
+					c = getDatatypeID(at.getDatatype());
+					break;
+				case ATTRIBUTE_NS:
+					dos.writeInt(ATTRIBUTE_NS);
+					a = ((AttributeNS) ev).getNamespaceUriID();
+					b = getStringID(((AttributeNS) ev).getNamespaceURI());
+					break;
+				case ATTRIBUTE_GENERIC:
+					dos.writeInt(ATTRIBUTE_GENERIC);
+					break;
+				case CHARACTERS:
+					dos.writeInt(CHARACTERS);
+					a = getDatatypeID(((Characters) ev).getDatatype());
+					break;
+				case CHARACTERS_GENERIC:
+					dos.writeInt(CHARACTERS_GENERIC);
+					break;
+				default:
+					throw new IOException("Event " + ev.getEventType()
+							+ " not supported by grammar snapshots");
+				}
+				dos.writeInt(a);
+				dos.writeInt(b);
+				dos.writeInt(c);
+				Grammar next = prod.getNextGrammar();
+				// end rule
+				dos.writeInt(next.getNumberOfEvents() == 0 ? NONE
+						: getGrammarID(next));
+			}
+		}
+
+		void writeDatatype(DataOutputStream dos, Datatype dt)
+				throws IOException {
+			int kind;
+			if (dt instanceof BinaryBase64Datatype) {
+				kind = BINARY_BASE64;
+			} else if (dt instanceof BinaryHexDatatype) {
+				kind = BINARY_HEX;
+			} else if (dt instanceof BooleanDatatype) {
+				kind = BOOLEAN;
+			} else if (dt instanceof BooleanFacetDatatype) {
+				kind = BOOLEAN_FACET;
+			} else if (dt instanceof DecimalDatatype) {
+				kind = DECIMAL;
+			} else if (dt instanceof FloatDatatype) {
+				kind = FLOAT;
+			} else if (dt instanceof NBitUnsignedIntegerDatatype) {
+				kind = NBIT_UNSIGNED_INTEGER;
+			} else if (dt instanceof UnsignedIntegerDatatype) {
+				kind = UNSIGNED_INTEGER;
+			} else if (dt instanceof IntegerDatatype) {
+				kind = INTEGER;
+			} else if (dt instanceof DatetimeDatatype) {
+				kind = DATETIME;
+			} else if (dt instanceof StringDatatype) {
+				kind = STRING;
+			} else if (dt instanceof ExtendedStringDatatype) {
+				kind = EXTENDED_STRING;
+			} else if (dt instanceof RestrictedCharacterSetDatatype) {
+				kind = RCS_STRING;
+			} else if (dt instanceof EnumerationDatatype) {
+				kind = ENUMERATION;
+			} else if (dt instanceof ListDatatype) {
+				kind = LIST;
+			} else {
+				throw new IOException("Datatype " + dt
+						+ " not supported by grammar snapshots");
+			}
+			dos.writeInt(kind);
+			QNameContext schemaType = dt.getSchemaType();
+			if (schemaType == null) {
+				dos.writeInt(NONE);
+				dos.writeInt(NONE);
+				dos.writeInt(NONE);
+				dos.writeInt(NONE);
+			} else {
+				dos.writeInt(schemaType.getNamespaceUriID());
+				dos.writeInt(schemaType.getLocalNameID());
+				dos.writeInt(getStringID(schemaType.getNamespaceUri()));
+				dos.writeInt(getStringID(schemaType.getLocalName()));
+			}
+			dos.writeInt(getDatatypeID(dt.getBaseDatatype()));
+			dos.writeInt(getDatatypeID(dt.getGrammarEnumeration()));
+			dos.writeInt(dt.getWhiteSpace().ordinal());
+
+			switch (kind) {
+			case NBIT_UNSIGNED_INTEGER:
+				NBitUnsignedIntegerDatatype nbit = (NBitUnsignedIntegerDatatype) dt;
+				dos.writeInt(getStringID(nbit.getLowerBound().toString()));
+				dos.writeInt(getStringID(nbit.getUpperBound().toString()));
+				break;
+			case DATETIME:
+				dos.writeInt(((DatetimeDatatype) dt).getDatetimeType()
+						.ordinal());
+				break;
+			case STRING:
+				dos.writeInt(((StringDatatype) dt).isDerivedByUnion() ? 1 : 0);
+				break;
+			case RCS_STRING:
+				RestrictedCharacterSet rcs = ((RestrictedCharacterSetDatatype) dt)
+						.getRestrictedCharacterSet();
+				dos.writeInt(rcs.size());
+				for (int i = 0; i < rcs.size(); i++) {
+					dos.writeInt(rcs.getCodePoint(i));
+				}
+				break;
+			case ENUMERATION:
+				EnumerationDatatype enumDT = (EnumerationDatatype) dt;
+				dos.writeInt(getDatatypeID(enumDT.getEnumValueDatatype()));
+				dos.writeInt(enumDT.getEnumerationSize());
+				for (int i = 0; i < enumDT.getEnumerationSize(); i++) {
+					Value v = enumDT.getEnumValue(i);
+					if (v.getValueType() == ValueType.QNAME) {
+						throw new IOException("Enumeration value " + v
+								+ " not supported by grammar snapshots");
+					}
+					dos.writeInt(v.getValueType().ordinal());
+					dos.writeInt(getStringID(v.toString()));
+				}
+				break;
+			case LIST:
+				dos.writeInt(getDatatypeID(((ListDatatype) dt)
+						.getListDatatype()));
+				break;
+			default:
+				// no facets
+				break;
+			}
+		}
+
+		int getStringID(String s) {
+			if (s == null) {
+				return NONE;
+			}
+			Integer id = stringIDs.get(s);
+			if (id == null) {
+				id = strings.size();
+				stringIDs.put(s, id);
+				strings.add(s);
+			}
+			return id;
+		}
+
+		int getElementID(StartElement se) {
+			Integer id = elementIDs.get(se);
+			if (id == null) {
+				id = elements.size();
+				elementIDs.put(se, id);
+				elements.add(se);
+			}
+			return id;
+		}
+
+		int getDatatypeID(Datatype dt) {
+			if (dt == null) {
+				return NONE;
+			}
+			Integer id = datatypeIDs.get(dt);
+			if (id == null) {
+				id = datatypes.size();
+				datatypeIDs.put(dt, id);
+				datatypes.add(dt);
+			}
+			return id;
+		}
+
+		int getGrammarID(Grammar g) {
+			if (g == null) {
+				return NONE;
+			}
+			Integer id = grammarIDs.get(g);
+			if (id == null) {
+				id = grammarList.size();
+				grammarIDs.put(g, id);
+				grammarList.add(g);
+			}
+			return id;
+		}
+	}
+
+}
@@ -140,10 +140,12 @@ public class SchemaLessGrammars extends AbstractGrammars {
 		/*
 		 * Fragment
 		 */
-		fragmentGrammar = new Fragment("Fragment");
-		fragmentGrammar.addProduction(new StartDocument(), builtInFragmentContentGrammar);
+		Grammar fragment = new Fragment("Fragment");
+		fragment.addProduction(new StartDocument(), builtInFragmentContentGrammar);
 
-		return fragmentGrammar;
+		// Note: do not store the instance in the shared fragmentGrammar field,
+		// grammars may be used by concurrent coders
+		return fragment;
 	}
 
 }
\ No newline at end of file
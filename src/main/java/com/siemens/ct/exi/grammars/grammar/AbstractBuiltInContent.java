@@ -103,8 +103,26 @@ public abstract class AbstractBuiltInContent extends AbstractBuiltInGrammar {
 		return optionsChildContent.get(fidelityOptions);
 	}
 	
+	@Override
+	public void restoreLearning(int numberOfEvents, int learningStopped) {
+		super.restoreLearning(numberOfEvents, learningStopped);
+		learnedCH = containsEventType(EventType.CHARACTERS);
+	}
+
+	protected boolean containsEventType(EventType eventType) {
+		for (int i = 0; i < containers.size(); i++) {
+			if (containers.get(i).getEvent().isEventType(eventType)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	@Override
 	public void learnCharacters() {
+		if (learningFrozen) {
+			return;
+		}
 		/*
 		 * If a production CH with an event code of length 1 does not exist in
 		 * the current element grammar create one add the production created
@@ -28,6 +28,7 @@ import java.util.Iterator;
 import java.util.List;
 
 import com.siemens.ct.exi.Constants;
+import com.siemens.ct.exi.context.QNameContext;
 import com.siemens.ct.exi.grammars.event.Attribute;
 import com.siemens.ct.exi.grammars.event.Event;
 import com.siemens.ct.exi.grammars.event.EventType;
@@ -50,6 +51,8 @@ public abstract class AbstractBuiltInGrammar extends AbstractGrammar implements
 	protected List<Production> containers;
 	// Note: BuiltInDocContent and BuiltInFragmentContent do not use this variable
 	protected int ec1Length = -1;
+	// no learning at all (e.g., frozen learned grammars)
+	protected boolean learningFrozen;
 
 	public AbstractBuiltInGrammar() {
 		super();
@@ -63,7 +66,7 @@ public abstract class AbstractBuiltInGrammar extends AbstractGrammar implements
 	
 	@Override
 	public void stopLearning() {
-		if(stopLearningContainerSize == Constants.NOT_FOUND) {
+		if(!learningFrozen && stopLearningContainerSize == Constants.NOT_FOUND) {
 			stopLearningContainerSize = containers.size();
 		}
 	}
@@ -91,6 +94,26 @@ public abstract class AbstractBuiltInGrammar extends AbstractGrammar implements
 		// pre-calculate count for log2 (Note: always 2nd level productions available)
 		// Note: BuiltInDocContent and BuiltInFragmentContent do not use this variable
 		this.ec1Length = MethodsBag.getCodingLength(containers.size() + 1);
+		this.decodeTables = null;
+	}
+
+	public void restoreLearning(int numberOfEvents, int learningStopped) {
+		if (learningFrozen) {
+			return;
+		}
+		assert (numberOfEvents <= containers.size());
+		containers.subList(numberOfEvents, containers.size()).clear();
+		this.ec1Length = MethodsBag.getCodingLength(containers.size() + 1);
+		this.decodeTables = null;
+		this.stopLearningContainerSize = learningStopped;
+	}
+
+	public void freezeLearning() {
+		learningFrozen = true;
+	}
+
+	public boolean isLearningFrozen() {
+		return learningFrozen;
 	}
 
 	protected boolean contains(Event event) {
@@ -182,6 +205,43 @@ public abstract class AbstractBuiltInGrammar extends AbstractGrammar implements
 		return null; // not found
 	}
 
+	public Production getStartElementProduction(QNameContext qnc) {
+		for (int i = 0; i < containers.size(); i++) {
+			Production ei = containers.get(i);
+			if (ei.getEvent().isEventType(EventType.START_ELEMENT)
+					&& checkQualifiedName(
+							((StartElement) ei.getEvent()).getQNameContext(),
+							qnc)) {
+				if(!isExiProfilGhostNode(ei)) {
+					return ei;
+				}
+			}
+		}
+		return null; // not found
+	}
+
+	public Production getStartElementNSProduction(int namespaceUriID) {
+		return null; // not found
+	}
+
+	public Production getAttributeProduction(QNameContext qnc) {
+		for (int i = 0; i < containers.size(); i++) {
+			Production ei = containers.get(i);
+			if (ei.getEvent().isEventType(EventType.ATTRIBUTE)
+					&& checkQualifiedName(
+							((Attribute) ei.getEvent()).getQNameContext(), qnc)) {
+				if(!isExiProfilGhostNode(ei)) {
+					return ei;
+				}
+			}
+		}
+		return null; // not found
+	}
+
+	public Production getAttributeNSProduction(int namespaceUriID) {
+		return null; // not found
+	}
+
 	// for decoder
 	public Production getProduction(int eventCode) {
 		assert (eventCode >= 0 && eventCode < containers.size());
@@ -36,6 +36,9 @@ import java.util.List;
 import javax.xml.namespace.QName;
 
 import com.siemens.ct.exi.Constants;
+import com.siemens.ct.exi.FidelityOptions;
+import com.siemens.ct.exi.FidelityOptions.EventCodeTable;
+import com.siemens.ct.exi.context.QNameContext;
 import com.siemens.ct.exi.grammars.event.Attribute;
 import com.siemens.ct.exi.grammars.event.EndElement;
 import com.siemens.ct.exi.grammars.event.Event;
@@ -59,6 +62,11 @@ public abstract class AbstractGrammar implements Grammar {
 	// EXI Profile
 	protected int stopLearningContainerSize = Constants.NOT_FOUND;
 
+	// table-driven decoding, one table per event-code table (most recent
+	// first), reset whenever productions change
+	protected volatile DecodeTable[] decodeTables;
+	protected static final int MAX_DECODE_TABLES = 4;
+
 	public AbstractGrammar() {
 	}
 
@@ -128,6 +136,29 @@ public abstract class AbstractGrammar implements Grammar {
 		return this;
 	}
 
+	public DecodeTable getDecodeTable(FidelityOptions fidelityOptions) {
+		EventCodeTable ect = fidelityOptions.getEventCodeTable(this);
+		DecodeTable[] tables = decodeTables;
+		int n = 0;
+		if (tables != null) {
+			for (int i = 0; i < tables.length; i++) {
+				if (tables[i].eventCodeTable == ect) {
+					return tables[i];
+				}
+			}
+			n = Math.min(tables.length, MAX_DECODE_TABLES - 1);
+		}
+		// copy on write, the least recently added table is dropped
+		DecodeTable dt = new DecodeTable(this, ect);
+		DecodeTable[] newTables = new DecodeTable[n + 1];
+		newTables[0] = dt;
+		if (n > 0) {
+			System.arraycopy(tables, 0, newTables, 1, n);
+		}
+		decodeTables = newTables;
+		return dt;
+	}
+
 
 	@Override
 	public boolean equals(Object obj) {
@@ -164,4 +195,11 @@ public abstract class AbstractGrammar implements Grammar {
 				.equals(namespaceURI));
 	}
 
+	protected static boolean checkQualifiedName(QNameContext c,
+			QNameContext qnc) {
+		return c == qnc
+				|| (c.getLocalNameID() == qnc.getLocalNameID() && c
+						.getNamespaceUriID() == qnc.getNamespaceUriID());
+	}
+
 }
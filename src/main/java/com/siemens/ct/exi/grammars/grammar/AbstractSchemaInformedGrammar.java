@@ -27,6 +27,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import com.siemens.ct.exi.Constants;
+import com.siemens.ct.exi.context.QNameContext;
 import com.siemens.ct.exi.grammars.event.Attribute;
 import com.siemens.ct.exi.grammars.event.AttributeNS;
 import com.siemens.ct.exi.grammars.event.Event;
@@ -255,6 +256,7 @@ public abstract class AbstractSchemaInformedGrammar extends AbstractGrammar
 		}
 		// re-set *old* array
 		containers = newContainers;
+		decodeTables = null;
 
 		// calculate ahead of time two different first level code lengths
 		codeLengthA = MethodsBag.getCodingLength(getNumberOfEvents());
@@ -379,6 +381,53 @@ public abstract class AbstractSchemaInformedGrammar extends AbstractGrammar
 		return null; // not found
 	}
 
+	public Production getStartElementProduction(QNameContext qnc) {
+		for (int i = 0; i < containers.length; i++) {
+			Production ei = containers[i];
+			if (ei.getEvent().isEventType(EventType.START_ELEMENT)
+					&& checkQualifiedName(
+							((StartElement) ei.getEvent()).getQNameContext(),
+							qnc)) {
+				return ei;
+			}
+		}
+		return null; // not found
+	}
+
+	public Production getStartElementNSProduction(int namespaceUriID) {
+		for (int i = 0; i < containers.length; i++) {
+			Production ei = containers[i];
+			if (ei.getEvent().isEventType(EventType.START_ELEMENT_NS)
+					&& ((StartElementNS) ei.getEvent()).getNamespaceUriID() == namespaceUriID) {
+				return ei;
+			}
+		}
+		return null; // not found
+	}
+
+	public Production getAttributeProduction(QNameContext qnc) {
+		for (int i = 0; i < containers.length; i++) {
+			Production ei = containers[i];
+			if (ei.getEvent().isEventType(EventType.ATTRIBUTE)
+					&& checkQualifiedName(
+							((Attribute) ei.getEvent()).getQNameContext(), qnc)) {
+				return ei;
+			}
+		}
+		return null; // not found
+	}
+
+	public Production getAttributeNSProduction(int namespaceUriID) {
+		for (int i = 0; i < containers.length; i++) {
+			Production ei = containers[i];
+			if (ei.getEvent().isEventType(EventType.ATTRIBUTE_NS)
+					&& ((AttributeNS) ei.getEvent()).getNamespaceUriID() == namespaceUriID) {
+				return ei;
+			}
+		}
+		return null; // not found
+	}
+
 	// for decoder
 	public final Production getProduction(int eventCode) {
 		assert (eventCode >= 0 && eventCode < containers.length);
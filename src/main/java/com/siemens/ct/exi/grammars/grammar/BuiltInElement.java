@@ -63,6 +63,9 @@ public class BuiltInElement extends AbstractBuiltInContent {
 	
 	@Override
 	public void learnStartElement(StartElement se) {
+		if (learningFrozen) {
+			return;
+		}
 		addProduction(se, this);
 	}
 
@@ -63,6 +63,9 @@ public class BuiltInFragmentContent extends AbstractBuiltInGrammar {
 	@Override
 	// public void learnStartElement(String uri, String localName) {
 	public void learnStartElement(StartElement se) {
+		if (learningFrozen) {
+			return;
+		}
 		// a learned rule is added to the front, technically
 		// it is added to the tail
 		// StartElement se = new StartElement(uri, localName);
@@ -33,4 +33,23 @@ package com.siemens.ct.exi.grammars.grammar;
 
 public interface BuiltInGrammar extends Grammar {
 
+	/**
+	 * Reverts grammar learning to a previous state (e.g., a session
+	 * checkpoint).
+	 * 
+	 * @param numberOfEvents
+	 *            number of events at that time, see getNumberOfEvents()
+	 * @param learningStopped
+	 *            learning stop at that time, see learningStopped()
+	 */
+	public void restoreLearning(int numberOfEvents, int learningStopped);
+
+	/**
+	 * Disables learning for good. The grammar does not change anymore and can
+	 * be shared between coders.
+	 */
+	public void freezeLearning();
+
+	public boolean isLearningFrozen();
+
 }
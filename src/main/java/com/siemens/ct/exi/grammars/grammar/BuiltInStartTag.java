@@ -25,6 +25,8 @@ package com.siemens.ct.exi.grammars.grammar;
 
 import com.siemens.ct.exi.context.QNameContext;
 import com.siemens.ct.exi.grammars.event.Attribute;
+import com.siemens.ct.exi.grammars.event.Event;
+import com.siemens.ct.exi.grammars.event.EventType;
 import com.siemens.ct.exi.grammars.event.StartElement;
 
 /**
@@ -78,12 +80,34 @@ public class BuiltInStartTag extends AbstractBuiltInContent {
 	@Override
 	// public void learnStartElement(String uri, String localName) {
 	public void learnStartElement(StartElement se) {
+		if (learningFrozen) {
+			return;
+		}
 		// addRule(new StartElement(uri, localName), getElementContentRule());
 		addProduction(se, getElementContentGrammar());
 	}
 
+	@Override
+	public void restoreLearning(int numberOfEvents, int learningStopped) {
+		super.restoreLearning(numberOfEvents, learningStopped);
+		learnedEE = containsEventType(EventType.END_ELEMENT);
+		learnedXsiType = false;
+		for (int i = 0; i < containers.size(); i++) {
+			Event ev = containers.get(i).getEvent();
+			if (ev.isEventType(EventType.ATTRIBUTE)) {
+				QNameContext qnc = ((Attribute) ev).getQNameContext();
+				if (qnc.getNamespaceUriID() == 2 && qnc.getLocalNameID() == 1) {
+					learnedXsiType = true;
+				}
+			}
+		}
+	}
+
 	@Override
 	public void learnEndElement() {
+		if (learningFrozen) {
+			return;
+		}
 		/*
 		 * If a production EE with an event code of length 1 does not exist in
 		 * the current element grammar create one add the production created
@@ -96,6 +120,9 @@ public class BuiltInStartTag extends AbstractBuiltInContent {
 
 	@Override
 	public void learnAttribute(Attribute at) {
+		if (learningFrozen) {
+			return;
+		}
 		// Errata, xsi:type not learned			
 		QNameContext qnc = at.getQNameContext();
 		if(qnc.getNamespaceUriID() == 2 && qnc.getLocalNameID() == 1) {
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2007-2016 Siemens AG
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ */
+
+package com.siemens.ct.exi.grammars.grammar;
+
+import com.siemens.ct.exi.FidelityOptions.EventCodeTable;
+import com.siemens.ct.exi.grammars.event.Event;
+import com.siemens.ct.exi.grammars.event.EventType;
+import com.siemens.ct.exi.grammars.production.Production;
+
+/**
+ * Decode table of one grammar state. It maps each 1st level event code to
+ * the event type, the event, the production and the next grammar, so that
+ * decoding a 1st level event is one n-bit read plus one array index.
+ * 
+ * <p>
+ * A table is only valid for the event-code table (fidelity options) it has
+ * been built for and as long as the grammar does not learn new productions.
+ * </p>
+ * 
+ * @author Daniel.Peintner.EXT@siemens.com
+ * @author Joerg.Heuer@siemens.com
+ * 
+ * @version 0.9.7-SNAPSHOT
+ */
+
+public final class DecodeTable {
+
+	final EventCodeTable eventCodeTable;
+	final int numberOfEvents;
+	final int codeLength;
+	final EventType[] eventTypes;
+	final Event[] events;
+	final Production[] productions;
+	final Grammar[] nextGrammars;
+
+	DecodeTable(Grammar grammar, EventCodeTable eventCodeTable) {
+		this.eventCodeTable = eventCodeTable;
+		this.numberOfEvents = grammar.getNumberOfEvents();
+		this.codeLength = eventCodeTable
+				.get1stLevelEventCodeLength(numberOfEvents);
+		eventTypes = new EventType[numberOfEvents];
+		events = new Event[numberOfEvents];
+		productions = new Production[numberOfEvents];
+		nextGrammars = new Grammar[numberOfEvents];
+		for (int ec = 0; ec < numberOfEvents; ec++) {
+			Production p = grammar.getProduction(ec);
+			productions[ec] = p;
+			events[ec] = p.getEvent();
+			eventTypes[ec] = p.getEvent().getEventType();
+			nextGrammars[ec] = p.getNextGrammar();
+		}
+	}
+
+	public EventCodeTable getEventCodeTable() {
+		return eventCodeTable;
+	}
+
+	/**
+	 * Returns the number of 1st level events. Event codes greater or equal
+	 * lead to 2nd or 3rd level events.
+	 * 
+	 * @return number of 1st level events
+	 */
+	public int getNumberOfEvents() {
+		return numberOfEvents;
+	}
+
+	/**
+	 * Returns the number of bits of the 1st level event code.
+	 * 
+	 * @return 1st level code length
+	 */
+	public int getCodeLength() {
+		return codeLength;
+	}
+
+	public EventType getEventType(int eventCode) {
+		return eventTypes[eventCode];
+	}
+
+	public Event getEvent(int eventCode) {
+		return events[eventCode];
+	}
+
+	public Production getProduction(int eventCode) {
+		return productions[eventCode];
+	}
+
+	public Grammar getNextGrammar(int eventCode) {
+		return nextGrammars[eventCode];
+	}
+
+}
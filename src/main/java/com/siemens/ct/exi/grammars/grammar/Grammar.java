@@ -23,6 +23,8 @@
 
 package com.siemens.ct.exi.grammars.grammar;
 
+import com.siemens.ct.exi.FidelityOptions;
+import com.siemens.ct.exi.context.QNameContext;
 import com.siemens.ct.exi.grammars.event.Attribute;
 import com.siemens.ct.exi.grammars.event.Event;
 import com.siemens.ct.exi.grammars.event.EventType;
@@ -121,7 +123,27 @@ public interface Grammar {
 
 	public Production getAttributeNSProduction(String namespaceURI);
 
+	// for encoder, names resolved by uri and local-name IDs
+	public Production getStartElementProduction(QNameContext qnc);
+
+	public Production getStartElementNSProduction(int namespaceUriID);
+
+	public Production getAttributeProduction(QNameContext qnc);
+
+	public Production getAttributeNSProduction(int namespaceUriID);
+
 	// for decoder
 	public Production getProduction(int eventCode);
 
+	/**
+	 * Returns the decode table of this grammar for the given fidelity
+	 * options. The table is built on first use and rebuilt after the grammar
+	 * learned new productions or the fidelity options changed.
+	 * 
+	 * @param fidelityOptions
+	 *            fidelity options in use
+	 * @return decode table
+	 */
+	public DecodeTable getDecodeTable(FidelityOptions fidelityOptions);
+
 }
@@ -62,6 +62,7 @@ import com.siemens.ct.exi.exceptions.UnsupportedOption;
 import com.siemens.ct.exi.grammars.Grammars;
 import com.siemens.ct.exi.grammars.SchemaInformedGrammars;
 import com.siemens.ct.exi.grammars.SchemaLessGrammars;
+import com.siemens.ct.exi.io.compression.DeflateDictionaries;
 import com.siemens.ct.exi.types.LexicalTypeDecoder;
 import com.siemens.ct.exi.types.LexicalTypeEncoder;
 import com.siemens.ct.exi.types.StringTypeDecoder;
@@ -88,6 +89,7 @@ public class DefaultEXIFactory implements EXIFactory {
 
 	protected Grammars grammar;
 	protected boolean isFragment;
+	protected boolean isSessionMode;
 	protected CodingMode codingMode;
 
 	protected FidelityOptions fidelityOptions;
@@ -106,6 +108,12 @@ public class DefaultEXIFactory implements EXIFactory {
 	/* default: 1,000,000 */
 	protected int blockSize = Constants.DEFAULT_BLOCK_SIZE;
 
+	/* default: -1 == unbounded */
+	protected int blockMemoryBudget = Constants.DEFAULT_BLOCK_MEMORY_BUDGET;
+
+	/* default: null == no preset dictionaries */
+	protected DeflateDictionaries deflateDictionaries;
+
 	/* default: -1 == unbounded */
 	protected int valueMaxLength = Constants.DEFAULT_VALUE_MAX_LENGTH;
 
@@ -291,6 +299,14 @@ public class DefaultEXIFactory implements EXIFactory {
 		return isFragment;
 	}
 
+	public void setSessionMode(boolean sessionMode) {
+		this.isSessionMode = sessionMode;
+	}
+
+	public boolean isSessionMode() {
+		return isSessionMode;
+	}
+
 	public void setCodingMode(CodingMode codingMode) {
 		this.codingMode = codingMode;
 	}
@@ -311,6 +327,22 @@ public class DefaultEXIFactory implements EXIFactory {
 		return blockSize;
 	}
 
+	public void setBlockMemoryBudget(int blockMemoryBudget) {
+		this.blockMemoryBudget = blockMemoryBudget;
+	}
+
+	public int getBlockMemoryBudget() {
+		return blockMemoryBudget;
+	}
+
+	public void setDeflateDictionaries(DeflateDictionaries deflateDictionaries) {
+		this.deflateDictionaries = deflateDictionaries;
+	}
+
+	public DeflateDictionaries getDeflateDictionaries() {
+		return deflateDictionaries;
+	}
+
 	public void setValueMaxLength(int valueMaxLength) {
 		this.valueMaxLength = valueMaxLength;
 	}
@@ -683,6 +715,9 @@ public class DefaultEXIFactory implements EXIFactory {
 			if (isFragment != other.isFragment()) {
 				return false;
 			}
+			if (isSessionMode != other.isSessionMode()) {
+				return false;
+			}
 			// datatype representation map
 			if (!(Arrays.equals(this.dtrMapTypes,
 					other.getDatatypeRepresentationMapTypes()) && Arrays
@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2007-2016 Siemens AG
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ */
+
+package com.siemens.ct.exi.helpers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+
+import com.siemens.ct.exi.CodingMode;
+import com.siemens.ct.exi.Constants;
+import com.siemens.ct.exi.EXIBodyEncoder;
+import com.siemens.ct.exi.EXIFactory;
+import com.siemens.ct.exi.context.QNameContext;
+import com.siemens.ct.exi.core.EXIBodyEncoderReordered;
+import com.siemens.ct.exi.core.container.ValueChannelBuffer;
+import com.siemens.ct.exi.exceptions.EXIException;
+import com.siemens.ct.exi.io.channel.ByteEncoderChannel;
+import com.siemens.ct.exi.io.channel.EncoderChannel;
+import com.siemens.ct.exi.io.compression.DeflateDictionaries;
+
+/**
+ * Trains preset deflate dictionaries from a corpus of sample documents.
+ * 
+ * <p>
+ * Each sample is reported to an encoder retrieved via {@link #newSample()}.
+ * The uncompressed content of the deflate streams EXI compression would
+ * produce is collected per stream kind (structure, combined values, single
+ * value channel). The dictionaries are built from byte segments that are
+ * common across samples.
+ * </p>
+ * 
+ * @author Daniel.Peintner.EXT@siemens.com
+ * @author Joerg.Heuer@siemens.com
+ * 
+ * @version 0.9.7-SNAPSHOT
+ */
+
+public class DeflateDictionaryTrainer {
+
+	/** deflate cannot make use of more than 32K history */
+	public static final int MAX_DICTIONARY_SIZE = 32768;
+
+	protected static final int KMER_LENGTH = 6;
+	protected static final int SEGMENT_LENGTH = 32;
+
+	protected final EXIFactory exiFactory;
+
+	protected final List<byte[]> structureSamples;
+	protected final List<byte[]> valuesSamples;
+	protected final Map<QName, List<byte[]>> channelSamples;
+
+	public DeflateDictionaryTrainer(EXIFactory exiFactory) {
+		this.exiFactory = exiFactory.clone();
+		// uncompressed streams of the same layout
+		this.exiFactory.setCodingMode(CodingMode.PRE_COMPRESSION);
+		this.exiFactory.setDeflateDictionaries(null);
+
+		structureSamples = new ArrayList<byte[]>();
+		valuesSamples = new ArrayList<byte[]>();
+		channelSamples = new LinkedHashMap<QName, List<byte[]>>();
+	}
+
+	/**
+	 * Returns an encoder for the next sample document. The sample is taken
+	 * when the encoder is flushed.
+	 * 
+	 * @return body encoder
+	 * @throws EXIException EXI exception
+	 * @throws IOException IO exception
+	 */
+	public EXIBodyEncoder newSample() throws EXIException, IOException {
+		SampleEncoder encoder = new SampleEncoder(exiFactory);
+		encoder.setOutputStream(encoder.structure);
+		return encoder;
+	}
+
+	public int getNumberOfSamples() {
+		return structureSamples.size();
+	}
+
+	/**
+	 * Builds dictionaries from the samples seen so far.
+	 * 
+	 * @param maxDictionarySize maximum size in bytes of each dictionary
+	 * @return dictionaries
+	 */
+	public DeflateDictionaries train(int maxDictionarySize) {
+		DeflateDictionaries dd = new DeflateDictionaries();
+		dd.setStructureDictionary(buildDictionary(structureSamples,
+				maxDictionarySize));
+		dd.setValuesDictionary(buildDictionary(valuesSamples,
+				maxDictionarySize));
+		for (Map.Entry<QName, List<byte[]>> e : channelSamples.entrySet()) {
+			dd.setValueChannelDictionary(e.getKey(),
+					buildDictionary(e.getValue(), maxDictionarySize));
+		}
+		return dd;
+	}
+
+	/**
+	 * Builds a dictionary out of segments that contain byte sequences
+	 * occurring in many samples. Best segments are placed at the end of the
+	 * dictionary given that deflate encodes shorter distances cheaper.
+	 * 
+	 * @param samples sample data
+	 * @param maxDictionarySize maximum size in bytes
+	 * @return dictionary or null if there is nothing worth to be used
+	 */
+	public static byte[] buildDictionary(List<byte[]> samples,
+			int maxDictionarySize) {
+		maxDictionarySize = Math.min(maxDictionarySize, MAX_DICTIONARY_SIZE);
+		if (samples.isEmpty() || maxDictionarySize <= 0) {
+			return null;
+		}
+
+		// k-mer frequencies (counted once per sample, if multiple samples)
+		final boolean perSample = samples.size() > 1;
+		final Map<Long, int[]> freqs = new HashMap<Long, int[]>();
+		Set<Long> seen = new HashSet<Long>();
+		for (byte[] sample : samples) {
+			seen.clear();
+			for (int i = 0; i + KMER_LENGTH <= sample.length; i++) {
+				Long kmer = kmer(sample, i);
+				if (!perSample || seen.add(kmer)) {
+					int[] f = freqs.get(kmer);
+					if (f == null) {
+						freqs.put(kmer, new int[] { 1 });
+					} else {
+						f[0]++;
+					}
+				}
+			}
+		}
+
+		// candidate segments, lazy greedy selection
+		PriorityQueue<Segment> queue = new PriorityQueue<Segment>();
+		for (byte[] sample : samples) {
+			for (int i = 0; i + KMER_LENGTH <= sample.length; i += SEGMENT_LENGTH / 2) {
+				Segment s = new Segment(sample, i, Math.min(SEGMENT_LENGTH,
+						sample.length - i));
+				s.score = s.score(freqs);
+				if (s.score > 0) {
+					queue.add(s);
+				}
+			}
+		}
+
+		List<Segment> selected = new ArrayList<Segment>();
+		int size = 0;
+		while (!queue.isEmpty() && size < maxDictionarySize) {
+			Segment s = queue.poll();
+			int score = s.score(freqs);
+			if (score <= 0) {
+				continue;
+			}
+			if (score < s.score) {
+				// out-dated, re-evaluate
+				s.score = score;
+				queue.add(s);
+				continue;
+			}
+			selected.add(s);
+			size += s.length;
+			// k-mers are covered now
+			for (int i = s.offset; i + KMER_LENGTH <= s.offset + s.length; i++) {
+				int[] f = freqs.get(kmer(s.sample, i));
+				f[0] = 0;
+			}
+		}
+
+		if (selected.isEmpty()) {
+			return null;
+		}
+		size = Math.min(size, maxDictionarySize);
+		byte[] dictionary = new byte[size];
+		int pos = size;
+		// best segment last
+		for (Segment s : selected) {
+			int len = Math.min(s.length, pos);
+			pos -= len;
+			System.arraycopy(s.sample, s.offset + s.length - len, dictionary,
+					pos, len);
+			if (pos == 0) {
+				break;
+			}
+		}
+		return dictionary;
+	}
+
+	protected static Long kmer(byte[] b, int off) {
+		long k = 0;
+		for (int i = 0; i < KMER_LENGTH; i++) {
+			k = (k << 8) | (b[off + i] & 0xFF);
+		}
+		return k;
+	}
+
+	static final class Segment implements Comparable<Segment> {
+		final byte[] sample;
+		final int offset;
+		final int length;
+		int score;
+
+		Segment(byte[] sample, int offset, int length) {
+			this.sample = sample;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		int score(Map<Long, int[]> freqs) {
+			int sc = 0;
+			for (int i = offset; i + KMER_LENGTH <= offset + length; i++) {
+				int f = freqs.get(kmer(sample, i))[0];
+				// sequences seen once do not help
+				if (f > 1) {
+					sc += f;
+				}
+			}
+			return sc;
+		}
+
+		public int compareTo(Segment o) {
+			// highest score first
+			return o.score < score ? -1 : (o.score == score ? 0 : 1);
+		}
+	}
+
+	protected void addSample(byte[] structure, byte[] values,
+			Map<QName, ByteArrayOutputStream> channels) {
+		structureSamples.add(structure);
+		if (values.length > 0) {
+			valuesSamples.add(values);
+		}
+		for (Map.Entry<QName, ByteArrayOutputStream> e : channels.entrySet()) {
+			List<byte[]> l = channelSamples.get(e.getKey());
+			if (l == null) {
+				l = new ArrayList<byte[]>();
+				channelSamples.put(e.getKey(), l);
+			}
+			l.add(e.getValue().toByteArray());
+		}
+	}
+
+	/*
+	 * Encoder that keeps the uncompressed streams apart
+	 */
+	class SampleEncoder extends EXIBodyEncoderReordered {
+		// structure (plus values for small blocks)
+		final ByteArrayOutputStream structure = new ByteArrayOutputStream();
+		// channels with up to 100 values
+		final ByteArrayOutputStream values = new ByteArrayOutputStream();
+		// channels with more than 100 values
+		final Map<QName, ByteArrayOutputStream> channels = new LinkedHashMap<QName, ByteArrayOutputStream>();
+
+		public SampleEncoder(EXIFactory exiFactory) throws EXIException {
+			super(exiFactory);
+		}
+
+		@Override
+		protected void writeChannelBuffer(QNameContext qnc,
+				ValueChannelBuffer vcb, EncoderChannel valueChannel)
+				throws IOException {
+			if (valueChannel == channel) {
+				// single stream block
+				super.writeChannelBuffer(qnc, vcb, valueChannel);
+			} else if (vcb.getNumberOfValues() <= Constants.MAX_NUMBER_OF_VALUES) {
+				super.writeChannelBuffer(qnc, vcb, new ByteEncoderChannel(
+						values));
+			} else {
+				ByteArrayOutputStream baos = channels.get(qnc.getQName());
+				if (baos == null) {
+					baos = new ByteArrayOutputStream();
+					channels.put(qnc.getQName(), baos);
+				}
+				super.writeChannelBuffer(qnc, vcb, new ByteEncoderChannel(baos));
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			super.flush();
+			addSample(structure.toByteArray(), values.toByteArray(), channels);
+		}
+	}
+}
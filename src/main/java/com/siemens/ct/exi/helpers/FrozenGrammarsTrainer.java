@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2007-2016 Siemens AG
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ */
+
+package com.siemens.ct.exi.helpers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.siemens.ct.exi.CodingMode;
+import com.siemens.ct.exi.EXIBodyEncoder;
+import com.siemens.ct.exi.EXIFactory;
+import com.siemens.ct.exi.core.EXIBodyEncoderInOrder;
+import com.siemens.ct.exi.exceptions.EXIException;
+import com.siemens.ct.exi.grammars.FrozenGrammars;
+import com.siemens.ct.exi.grammars.SchemaLessGrammars;
+
+/**
+ * Learns schema-less grammars from a corpus of sample documents and freezes
+ * them into {@link FrozenGrammars}.
+ * 
+ * <p>
+ * All samples are reported to the same encoder retrieved via
+ * {@link #newSample()}. The encoder runs in session mode so that built-in
+ * grammars and qualified names evolve across the samples.
+ * </p>
+ * 
+ * @author Daniel.Peintner.EXT@siemens.com
+ * @author Joerg.Heuer@siemens.com
+ * 
+ * @version 0.9.7-SNAPSHOT
+ */
+
+public class FrozenGrammarsTrainer {
+
+	protected final SampleEncoder encoder;
+	protected int numberOfSamples;
+
+	public FrozenGrammarsTrainer(EXIFactory exiFactory) throws EXIException {
+		EXIFactory f = exiFactory.clone();
+		// learning does not depend on the layout
+		f.setCodingMode(CodingMode.BIT_PACKED);
+		f.setGrammars(new SchemaLessGrammars());
+		f.setSessionMode(true);
+		f.setSharedStrings(null);
+
+		encoder = new SampleEncoder(f);
+	}
+
+	/**
+	 * Returns the encoder for the next sample document.
+	 * 
+	 * @return body encoder
+	 * @throws EXIException EXI exception
+	 * @throws IOException IO exception
+	 */
+	public EXIBodyEncoder newSample() throws EXIException, IOException {
+		encoder.setOutputStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+				// output is not needed
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+			}
+		});
+		numberOfSamples++;
+		return encoder;
+	}
+
+	public int getNumberOfSamples() {
+		return numberOfSamples;
+	}
+
+	/**
+	 * Freezes the grammars learned so far.
+	 * 
+	 * @return frozen grammars
+	 */
+	public FrozenGrammars train() {
+		return encoder.freeze();
+	}
+
+	static class SampleEncoder extends EXIBodyEncoderInOrder {
+
+		public SampleEncoder(EXIFactory exiFactory) throws EXIException {
+			super(exiFactory);
+		}
+
+		FrozenGrammars freeze() {
+			return FrozenGrammars.freeze(runtimeGlobalElements.values(),
+					startGrammar == null ? null : startGrammar
+							.getProduction(0).getNextGrammar());
+		}
+	}
+}
@@ -0,0 +1,469 @@
+/*
+ * Copyright (c) 2007-2016 Siemens AG
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ */
+
+package com.siemens.ct.exi.helpers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.siemens.ct.exi.CodingMode;
+import com.siemens.ct.exi.EXIBodyDecoder;
+import com.siemens.ct.exi.EXIBodyEncoder;
+import com.siemens.ct.exi.EXIFactory;
+import com.siemens.ct.exi.context.QNameContext;
+import com.siemens.ct.exi.core.EXIBodyEncoderInOrder;
+import com.siemens.ct.exi.core.container.DocType;
+import com.siemens.ct.exi.core.container.NamespaceDeclaration;
+import com.siemens.ct.exi.core.container.ProcessingInstruction;
+import com.siemens.ct.exi.datatype.strings.StringEncoder;
+import com.siemens.ct.exi.datatype.strings.StringEncoderImpl;
+import com.siemens.ct.exi.exceptions.EXIException;
+import com.siemens.ct.exi.grammars.event.EventType;
+import com.siemens.ct.exi.io.channel.EncoderChannel;
+import com.siemens.ct.exi.util.MethodsBag;
+
+/**
+ * Derives a list of shared strings (see
+ * {@link EXIFactory#setSharedStrings(List)}) from a corpus of sample
+ * documents.
+ * 
+ * <p>
+ * The string table values of each sample are recorded and the sample is run
+ * through a {@link StringEncoderImpl}. A string is worth sharing if the bits
+ * of its string literal (first occurrence per document) exceed the cost of a
+ * global hit, minus the extra cost later occurrences have as global instead of
+ * local hits. Strings that occur in more than one sample are selected by
+ * bits saved per character until the character budget is used up.
+ * </p>
+ * 
+ * @author Daniel.Peintner.EXT@siemens.com
+ * @author Joerg.Heuer@siemens.com
+ * 
+ * @version 0.9.7-SNAPSHOT
+ */
+
+public class SharedStringsTrainer {
+
+	protected final EXIFactory exiFactory;
+
+	// recorded samples, parallel lists of contexts and values
+	protected final List<List<QNameContext>> sampleContexts;
+	protected final List<List<String>> sampleValues;
+
+	public SharedStringsTrainer(EXIFactory exiFactory) {
+		this.exiFactory = exiFactory.clone();
+		// recording does not depend on the layout
+		this.exiFactory.setCodingMode(CodingMode.BIT_PACKED);
+		this.exiFactory.setSharedStrings(null);
+
+		sampleContexts = new ArrayList<List<QNameContext>>();
+		sampleValues = new ArrayList<List<String>>();
+	}
+
+	/**
+	 * Returns an encoder for the next sample document. The sample is taken
+	 * when the encoder is flushed.
+	 * 
+	 * @return body encoder
+	 * @throws EXIException EXI exception
+	 * @throws IOException IO exception
+	 */
+	public EXIBodyEncoder newSample() throws EXIException, IOException {
+		SampleEncoder encoder = new SampleEncoder(exiFactory);
+		encoder.setOutputStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+				// output is not needed
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+			}
+		});
+		return encoder;
+	}
+
+	/**
+	 * Adds an EXI body (without header) encoded according to the factory as
+	 * sample.
+	 * 
+	 * @param exiBody EXI body stream
+	 * @throws EXIException EXI exception
+	 * @throws IOException IO exception
+	 */
+	public void addSample(InputStream exiBody) throws EXIException,
+			IOException {
+		EXIBodyDecoder decoder = exiFactory.createEXIBodyDecoder();
+		decoder.setInputStream(exiBody);
+		EXIBodyEncoder encoder = newSample();
+
+		EventType eventType;
+		while ((eventType = decoder.next()) != null) {
+			switch (eventType) {
+			case START_DOCUMENT:
+				decoder.decodeStartDocument();
+				encoder.encodeStartDocument();
+				break;
+			case END_DOCUMENT:
+				decoder.decodeEndDocument();
+				encoder.encodeEndDocument();
+				break;
+			case START_ELEMENT:
+			case START_ELEMENT_NS:
+			case START_ELEMENT_GENERIC:
+			case START_ELEMENT_GENERIC_UNDECLARED:
+				QNameContext se = decoder.decodeStartElement();
+				encoder.encodeStartElement(se.getNamespaceUri(),
+						se.getLocalName(), decoder.getElementPrefix());
+				break;
+			case END_ELEMENT:
+			case END_ELEMENT_UNDECLARED:
+				decoder.decodeEndElement();
+				encoder.encodeEndElement();
+				break;
+			case NAMESPACE_DECLARATION:
+				NamespaceDeclaration ns = decoder.decodeNamespaceDeclaration();
+				encoder.encodeNamespaceDeclaration(ns.namespaceURI, ns.prefix);
+				break;
+			case ATTRIBUTE_XSI_NIL:
+				decoder.decodeAttributeXsiNil();
+				encoder.encodeAttributeXsiNil(decoder.getAttributeValue(),
+						decoder.getAttributePrefix());
+				break;
+			case ATTRIBUTE_XSI_TYPE:
+				decoder.decodeAttributeXsiType();
+				encoder.encodeAttributeXsiType(decoder.getAttributeValue(),
+						decoder.getAttributePrefix());
+				break;
+			case ATTRIBUTE:
+			case ATTRIBUTE_NS:
+			case ATTRIBUTE_GENERIC:
+			case ATTRIBUTE_GENERIC_UNDECLARED:
+			case ATTRIBUTE_INVALID_VALUE:
+			case ATTRIBUTE_ANY_INVALID_VALUE:
+				QNameContext at = decoder.decodeAttribute();
+				encoder.encodeAttribute(at.getNamespaceUri(),
+						at.getLocalName(), decoder.getAttributePrefix(),
+						decoder.getAttributeValue());
+				break;
+			case CHARACTERS:
+			case CHARACTERS_GENERIC:
+			case CHARACTERS_GENERIC_UNDECLARED:
+				encoder.encodeCharacters(decoder.decodeCharacters());
+				break;
+			case DOC_TYPE:
+				DocType dt = decoder.decodeDocType();
+				encoder.encodeDocType(new String(dt.name), new String(
+						dt.publicID), new String(dt.systemID), new String(
+						dt.text));
+				break;
+			case ENTITY_REFERENCE:
+				encoder.encodeEntityReference(new String(decoder
+						.decodeEntityReference()));
+				break;
+			case COMMENT:
+				char[] cm = decoder.decodeComment();
+				encoder.encodeComment(cm, 0, cm.length);
+				break;
+			case PROCESSING_INSTRUCTION:
+				ProcessingInstruction pi = decoder
+						.decodeProcessingInstruction();
+				encoder.encodeProcessingInstruction(pi.target, pi.data);
+				break;
+			default:
+				throw new EXIException("Unexpected event " + eventType);
+			}
+		}
+		encoder.flush();
+	}
+
+	public int getNumberOfSamples() {
+		return sampleValues.size();
+	}
+
+	/**
+	 * Selects the shared strings. The result can be passed to
+	 * {@link EXIFactory#setSharedStrings(List)} on both sides.
+	 * 
+	 * @param maxCharacters budget for the total number of characters
+	 * @return shared strings, most beneficial first
+	 */
+	public List<String> train(int maxCharacters) {
+		Map<String, Candidate> candidates = collectCandidates();
+
+		// the size of the global table depends on the selection itself
+		List<String> sharedStrings = new ArrayList<String>();
+		for (int i = 0; i < 3; i++) {
+			List<String> ss = select(candidates, maxCharacters,
+					sharedStrings.size());
+			if (ss.equals(sharedStrings)) {
+				break;
+			}
+			sharedStrings = ss;
+		}
+		return sharedStrings;
+	}
+
+	protected Map<String, Candidate> collectCandidates() {
+		boolean localValuePartitions = exiFactory.isLocalValuePartitions();
+		Map<String, Candidate> candidates = new LinkedHashMap<String, Candidate>();
+		Map<String, QNameContext> firstContexts = new HashMap<String, QNameContext>();
+		StringEncoderImpl stringEncoder = new StringEncoderImpl(
+				localValuePartitions);
+
+		for (int s = 0; s < sampleValues.size(); s++) {
+			List<QNameContext> contexts = sampleContexts.get(s);
+			List<String> values = sampleValues.get(s);
+			stringEncoder.clear();
+			firstContexts.clear();
+			int globalSize = 0;
+
+			for (int i = 0; i < values.size(); i++) {
+				String value = values.get(i);
+				QNameContext qnc = contexts.get(i);
+				if (value.length() == 0) {
+					continue;
+				}
+				Candidate c = candidates.get(value);
+				if (c == null) {
+					c = new Candidate(value);
+					candidates.put(value, c);
+				}
+				try {
+					if (stringEncoder.isStringHit(value)) {
+						if (localValuePartitions
+								&& qnc.equals(firstContexts.get(value))) {
+							// local hit would turn into global hit
+							c.addLaterHit(globalSize, MethodsBag
+									.getCodingLength(stringEncoder
+											.getNumberOfStringValues(qnc)));
+						} else {
+							c.addLaterHit(globalSize,
+									MethodsBag.getCodingLength(globalSize));
+						}
+					} else {
+						c.addFirstOccurrence(globalSize, getLiteralBits(value));
+						stringEncoder.addValue(qnc, value);
+						firstContexts.put(value, qnc);
+						globalSize++;
+					}
+				} catch (IOException e) {
+					// no IO involved
+					throw new RuntimeException(e);
+				}
+			}
+		}
+		return candidates;
+	}
+
+	protected List<String> select(Map<String, Candidate> candidates,
+			int maxCharacters, final int numberOfSharedStrings) {
+		List<Candidate> ranked = new ArrayList<Candidate>();
+		// values seen in a single document only do not generalize
+		int minDocuments = sampleValues.size() > 1 ? 2 : 1;
+		for (Candidate c : candidates.values()) {
+			if (c.firstOccurrences < minDocuments) {
+				continue;
+			}
+			c.saving = c.getBitsSaved(numberOfSharedStrings);
+			if (c.saving > 0) {
+				ranked.add(c);
+			}
+		}
+		// bits saved per character
+		Collections.sort(ranked, new Comparator<Candidate>() {
+			public int compare(Candidate c1, Candidate c2) {
+				double d1 = (double) c1.saving / c1.value.length();
+				double d2 = (double) c2.saving / c2.value.length();
+				return d1 > d2 ? -1 : (d1 == d2 ? 0 : 1);
+			}
+		});
+
+		List<Candidate> selected = new ArrayList<Candidate>();
+		int characters = 0;
+		for (Candidate c : ranked) {
+			if (characters + c.value.length() <= maxCharacters) {
+				selected.add(c);
+				characters += c.value.length();
+			}
+		}
+		// most beneficial first
+		Collections.sort(selected, new Comparator<Candidate>() {
+			public int compare(Candidate c1, Candidate c2) {
+				return c1.saving > c2.saving ? -1
+						: (c1.saving == c2.saving ? 0 : 1);
+			}
+		});
+		List<String> sharedStrings = new ArrayList<String>(selected.size());
+		for (Candidate c : selected) {
+			sharedStrings.add(c.value);
+		}
+		return sharedStrings;
+	}
+
+	/**
+	 * Bits of a string literal (miss), length+2 followed by code points.
+	 * 
+	 * @param value string value
+	 * @return number of bits
+	 */
+	protected static int getLiteralBits(String value) {
+		int len = value.codePointCount(0, value.length());
+		int bits = 8 * MethodsBag.numberOf7BitBlocksToRepresent(len + 2);
+		for (int i = 0; i < value.length();) {
+			int cp = value.codePointAt(i);
+			bits += 8 * MethodsBag.numberOf7BitBlocksToRepresent(cp);
+			i += Character.charCount(cp);
+		}
+		return bits;
+	}
+
+	static class Candidate {
+		final String value;
+		// first occurrences (per document), global table size and literal bits
+		int firstOccurrences;
+		long literalBits;
+		List<int[]> globalSizes;
+		// later hits, global table size and actual hit bits
+		List<int[]> laterHits;
+		long saving;
+
+		Candidate(String value) {
+			this.value = value;
+			globalSizes = new ArrayList<int[]>(2);
+			laterHits = new ArrayList<int[]>(2);
+		}
+
+		void addFirstOccurrence(int globalSize, int bits) {
+			firstOccurrences++;
+			literalBits += bits;
+			globalSizes.add(new int[] { globalSize });
+		}
+
+		void addLaterHit(int globalSize, int hitBits) {
+			laterHits.add(new int[] { globalSize, hitBits });
+		}
+
+		long getBitsSaved(int numberOfSharedStrings) {
+			long saved = literalBits;
+			for (int[] gs : globalSizes) {
+				// global hit: 1 as unsigned integer plus n-bit id
+				saved -= 8 + MethodsBag.getCodingLength(gs[0]
+						+ numberOfSharedStrings);
+			}
+			for (int[] lh : laterHits) {
+				saved -= MethodsBag.getCodingLength(lh[0]
+						+ numberOfSharedStrings)
+						- lh[1];
+			}
+			return saved;
+		}
+	}
+
+	/*
+	 * Encoder that records the values passed to the string table
+	 */
+	class SampleEncoder extends EXIBodyEncoderInOrder {
+
+		final List<QNameContext> contexts = new ArrayList<QNameContext>();
+		final List<String> values = new ArrayList<String>();
+
+		final StringEncoder recordingStringEncoder = new StringEncoder() {
+			public int getNumberOfStringValues(QNameContext qnc) {
+				return stringEncoder.getNumberOfStringValues(qnc);
+			}
+
+			public void clear() {
+				stringEncoder.clear();
+			}
+
+			public void setSharedStrings(List<String> sharedStrings) {
+				stringEncoder.setSharedStrings(sharedStrings);
+			}
+
+			public void setCheckpoint() {
+				stringEncoder.setCheckpoint();
+			}
+
+			public void restoreCheckpoint() {
+				stringEncoder.restoreCheckpoint();
+			}
+
+			public void addValue(QNameContext qnContext, String value) {
+				stringEncoder.addValue(qnContext, value);
+			}
+
+			public void writeValue(QNameContext qnContext,
+					EncoderChannel valueChannel, String value)
+					throws IOException {
+				contexts.add(qnContext);
+				values.add(value);
+				stringEncoder.writeValue(qnContext, valueChannel, value);
+			}
+
+			public boolean isStringHit(String value) throws IOException {
+				return stringEncoder.isStringHit(value);
+			}
+
+			public boolean writeValueHit(QNameContext qnContext,
+					EncoderChannel valueChannel, String value)
+					throws IOException {
+				if (stringEncoder.writeValueHit(qnContext, valueChannel,
+						value)) {
+					contexts.add(qnContext);
+					values.add(value);
+					return true;
+				}
+				return false;
+			}
+		};
+
+		public SampleEncoder(EXIFactory exiFactory) throws EXIException {
+			super(exiFactory);
+		}
+
+		@Override
+		protected void writeValue(QNameContext valueContext)
+				throws IOException {
+			typeEncoder.writeValue(valueContext, channel,
+					recordingStringEncoder);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			super.flush();
+			sampleContexts.add(new ArrayList<QNameContext>(contexts));
+			sampleValues.add(new ArrayList<String>(values));
+			contexts.clear();
+			values.clear();
+		}
+	}
+}
@@ -220,7 +220,7 @@ final public class BitInputStream {
 			// byte-aligned --> read all bytes at byte-border (at once?)
 			int readBytes = 0;
 			do {
-				int br = istream.read(b, readBytes, len - readBytes);
+				int br = istream.read(b, off + readBytes, len - readBytes);
 				if(br == -1) {
 					throw new EOFException("Premature EOS found while reading data.");
 				}
@@ -229,7 +229,7 @@ final public class BitInputStream {
 		} else {
 			final int shift = BUFFER_CAPACITY - capacity;
 			
-			for(int i=0; i<len; i++) {
+			for(int i=off; i<off+len; i++) {
 				b[i] = (byte) ((buffer << shift) | ((buffer = readDirectByte()) >> capacity));
 			}
 
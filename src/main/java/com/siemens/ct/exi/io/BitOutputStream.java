@@ -246,7 +246,7 @@ public class BitOutputStream extends OutputStream {
 	protected void writeDirectBytes(byte[] b, int off, int len)
 			throws IOException {
 		ostream.write(b, off, len);
-		len += len;
+		this.len += len;
 	}
 
 	@Override
@@ -254,4 +254,25 @@ public class BitOutputStream extends OutputStream {
 		this.writeBits(b, 8);
 
 	}
+
+	/**
+	 * Writes a sequence of bytes. At byte borders the bytes are passed on
+	 * directly, otherwise four bytes at a time are shifted into the stream.
+	 */
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (isByteAligned()) {
+			writeDirectBytes(b, off, len);
+		} else {
+			final int end = off + len;
+			int i = off;
+			for (; i + 3 < end; i += 4) {
+				writeBits(((b[i] & 0xff) << 24) | ((b[i + 1] & 0xff) << 16)
+						| ((b[i + 2] & 0xff) << 8) | (b[i + 3] & 0xff), 32);
+			}
+			for (; i < end; i++) {
+				writeBits(b[i], 8);
+			}
+		}
+	}
 }
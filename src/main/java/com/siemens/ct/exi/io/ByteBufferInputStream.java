@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2007-2016 Siemens AG
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ */
+
+package com.siemens.ct.exi.io;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Seekable input stream over a <code>ByteBuffer</code> (e.g., a memory-mapped
+ * file). Allows to open independent streams at arbitrary positions.
+ * 
+ * @author Daniel.Peintner.EXT@siemens.com
+ * @author Joerg.Heuer@siemens.com
+ * 
+ * @version 0.9.7-SNAPSHOT
+ */
+
+public class ByteBufferInputStream extends InputStream {
+
+	protected final ByteBuffer buffer;
+
+	public ByteBufferInputStream(ByteBuffer buffer) {
+		// own position and limit
+		this.buffer = buffer.duplicate();
+	}
+
+	/**
+	 * Returns the position of the next byte to be read.
+	 * 
+	 * @return position
+	 */
+	public int getPosition() {
+		return buffer.position();
+	}
+
+	/**
+	 * Creates a new stream over the same bytes that starts at the given
+	 * position.
+	 * 
+	 * @param position start position
+	 * @return input stream
+	 */
+	public ByteBufferInputStream newInputStream(int position) {
+		ByteBufferInputStream bbis = new ByteBufferInputStream(buffer);
+		bbis.buffer.position(position);
+		return bbis;
+	}
+
+	@Override
+	public int read() {
+		return buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) {
+		if (len == 0) {
+			return 0;
+		}
+		int n = Math.min(len, buffer.remaining());
+		if (n == 0) {
+			return -1;
+		}
+		buffer.get(b, off, n);
+		return n;
+	}
+
+	@Override
+	public long skip(long n) {
+		int k = (int) Math.max(0, Math.min(n, buffer.remaining()));
+		buffer.position(buffer.position() + k);
+		return k;
+	}
+
+	@Override
+	public int available() {
+		return buffer.remaining();
+	}
+}
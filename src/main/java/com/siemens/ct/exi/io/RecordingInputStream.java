@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2007-2016 Siemens AG
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ */
+
+package com.siemens.ct.exi.io;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Input stream that optionally copies all bytes read to a recorder.
+ * 
+ * @author Daniel.Peintner.EXT@siemens.com
+ * @author Joerg.Heuer@siemens.com
+ * 
+ * @version 0.9.7-SNAPSHOT
+ */
+
+public class RecordingInputStream extends FilterInputStream {
+
+	/** null if not recording */
+	protected OutputStream recorder;
+
+	public RecordingInputStream(InputStream in) {
+		super(in);
+	}
+
+	/**
+	 * Starts (recorder not null) or stops (recorder null) recording.
+	 * 
+	 * @param recorder stream the read bytes are copied to
+	 */
+	public void setRecorder(OutputStream recorder) {
+		this.recorder = recorder;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = super.read();
+		if (b != -1 && recorder != null) {
+			recorder.write(b);
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int r = super.read(b, off, len);
+		if (r > 0 && recorder != null) {
+			recorder.write(b, off, r);
+		}
+		return r;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		if (recorder == null) {
+			return super.skip(n);
+		}
+		// skipped bytes need to be recorded as well
+		long skipped = 0;
+		while (skipped < n && read() != -1) {
+			skipped++;
+		}
+		return skipped;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+}
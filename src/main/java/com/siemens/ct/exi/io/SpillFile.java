@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2007-2016 Siemens AG
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ */
+
+package com.siemens.ct.exi.io;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Temporary file that takes over buffered bytes once a heap budget is
+ * exceeded. Bytes are appended and read back by absolute position.
+ * 
+ * @author Daniel.Peintner.EXT@siemens.com
+ * @author Joerg.Heuer@siemens.com
+ * 
+ * @version 0.9.7-SNAPSHOT
+ */
+
+public class SpillFile implements Closeable {
+
+	protected final File file;
+	protected final RandomAccessFile raf;
+	protected final FileChannel fileChannel;
+
+	/** number of bytes written so far */
+	protected long size;
+
+	public SpillFile() throws IOException {
+		file = File.createTempFile("exificient", ".spill");
+		file.deleteOnExit();
+		raf = new RandomAccessFile(file, "rw");
+		fileChannel = raf.getChannel();
+		size = 0;
+	}
+
+	/**
+	 * Appends bytes to the end of the file.
+	 * 
+	 * @param b byte array
+	 * @param off offset
+	 * @param len number of bytes
+	 * @return file position of the first byte written
+	 * @throws IOException IO exception
+	 */
+	public long append(byte[] b, int off, int len) throws IOException {
+		final long pos = size;
+		ByteBuffer bb = ByteBuffer.wrap(b, off, len);
+		while (bb.hasRemaining()) {
+			size += fileChannel.write(bb, size);
+		}
+		return pos;
+	}
+
+	/**
+	 * Reads exactly <code>len</code> bytes from the given file position.
+	 * 
+	 * @param pos file position
+	 * @param b byte array
+	 * @param off offset
+	 * @param len number of bytes
+	 * @throws IOException IO exception
+	 */
+	public void read(long pos, byte[] b, int off, int len) throws IOException {
+		ByteBuffer bb = ByteBuffer.wrap(b, off, len);
+		while (bb.hasRemaining()) {
+			int r = fileChannel.read(bb, pos);
+			if (r < 0) {
+				throw new EOFException("Premature end of spill file");
+			}
+			pos += r;
+		}
+	}
+
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * Discards all bytes (e.g., for the next block).
+	 * 
+	 * @throws IOException IO exception
+	 */
+	public void reset() throws IOException {
+		fileChannel.truncate(0);
+		size = 0;
+	}
+
+	public void close() throws IOException {
+		fileChannel.close();
+		raf.close();
+		file.delete();
+	}
+}
@@ -25,6 +25,7 @@ package com.siemens.ct.exi.io.channel;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.Arrays;
 
 import com.siemens.ct.exi.types.DateTimeType;
 import com.siemens.ct.exi.values.BooleanValue;
@@ -48,8 +49,9 @@ public abstract class AbstractDecoderChannel implements DecoderChannel {
 	/* long == 64 bits, 9 * 7bits = 63 bits */
 	private final static int MAX_OCTETS_FOR_LONG = 9;
 	
-	/* Helper for building strings */
-	protected StringBuilder sbHelper;
+	/* octets of a string that are read from the channel at once */
+	private static final int OCTET_BUFFER_SIZE = 256;
+	private byte[] octetBuffer;
 
 	
 	public AbstractDecoderChannel() {
@@ -74,53 +76,85 @@ public abstract class AbstractDecoderChannel implements DecoderChannel {
 	 * been read. Look for codepoints of more than 16 bits that are represented
 	 * as UTF-16 surrogate pairs in Java.
 	 * 
+	 * <p>
+	 * Every code point takes at least one octet. Hence the octets for the
+	 * code points still missing can be read in blocks without reading beyond
+	 * the string, and code points below 128 are taken over one octet each.
+	 * </p>
+	 * 
 	 * @param length
 	 *            Length of the character sequence to read.
 	 * @return The character sequence as a string.
 	 */
 	public char[] decodeStringOnly(int length) throws IOException {
 
-		final char[] ca = new char[length];
-
-		for (int i = 0; i < length; i++) {
-			final int codePoint = decodeUnsignedInteger();
-			if (Character.isSupplementaryCodePoint(codePoint)) {
-				// supplementary code-point
-				// Assumption: it doesn't happen very often
-				return decodeStringOnlySupplementaryCodePoints(ca, length, i, codePoint);
-			} else {
-				ca[i] = (char) codePoint;
+		char[] ca = new char[length];
+		if (octetBuffer == null) {
+			octetBuffer = new byte[OCTET_BUFFER_SIZE];
+		}
+		final byte[] buf = octetBuffer;
+
+		int codePoints = 0; // code points decoded so far
+		int pos = 0; // position in character array
+		int codePoint = 0; // multi-octet code point in progress
+		int shift = 0;
+
+		while (codePoints < length) {
+			final int n = Math.min(length - codePoints, OCTET_BUFFER_SIZE);
+			decodeOctets(buf, 0, n);
+
+			for (int k = 0; k < n; k++) {
+				final int b = buf[k];
+				if (b >= 0 && shift == 0) {
+					// < 128: just one octet, optimal case
+					ca[pos++] = (char) b;
+					codePoints++;
+				} else {
+					codePoint |= (b & 127) << shift;
+					if (b < 0) {
+						shift += 7;
+					} else {
+						// last octet of code point
+						if (Character.isSupplementaryCodePoint(codePoint)) {
+							// supplementary code-point (surrogate pair)
+							if (pos + 2 + (length - codePoints - 1) > ca.length) {
+								// grow geometrically, at most two chars per
+								// code point
+								ca = Arrays.copyOf(ca, Math.min(2 * length,
+										Math.max(ca.length + 1,
+												ca.length + (ca.length >> 1))));
+							}
+							pos += Character.toChars(codePoint, ca, pos);
+						} else {
+							ca[pos++] = (char) codePoint;
+						}
+						codePoints++;
+						codePoint = 0;
+						shift = 0;
+					}
+				}
 			}
 		}
 
-		return ca;
+		// trim spare capacity of surrogate pairs
+		return pos == ca.length ? ca : Arrays.copyOf(ca, pos);
 	}
-	
-	private char[] decodeStringOnlySupplementaryCodePoints(char[] ca, int length, int i, int codePoint) throws IOException {
-		assert(Character.isSupplementaryCodePoint(codePoint));
-		if(sbHelper == null) {
-			sbHelper = new StringBuilder(length + 10);
-		} else {
-			sbHelper.setLength(0);
-		}
-		
-		sbHelper.append(ca, 0, i); // append chars so far
-		sbHelper.appendCodePoint(codePoint); // append current code-point
-		for (int k = i + 1; k < length; k++) {
-			sbHelper.appendCodePoint(decodeUnsignedInteger());
+
+	/**
+	 * Decodes len octets into the given array starting at offset off.
+	 */
+	protected void decodeOctets(byte[] b, int off, int len) throws IOException {
+		final int end = off + len;
+		for (int i = off; i < end; i++) {
+			b[i] = (byte) decode();
 		}
-		
-		int len = sbHelper.length();
-		char dst[] = new char[len];
-		sbHelper.getChars(0, len, dst, 0);
-		
-		return dst;
-		
-		// return  sb.toString().toCharArray(); // return char array
 	}
-	
 
-	
+	public void skipUnsignedInteger() throws IOException {
+		while (decode() >= 128) {
+			// continuation octet
+		}
+	}
 
 	/**
 	 * Decode an arbitrary precision non negative integer using a sequence of
@@ -257,6 +291,47 @@ public abstract class AbstractDecoderChannel implements DecoderChannel {
 		}
 
 		// Grrr, we got a BigInteger value to deal with
+		return decodeUnsignedBigIntegerValue(negative);
+	}
+
+	public IntegerValue decodeIntegerValue(long[] values, int index)
+			throws IOException {
+		return decodeUnsignedIntegerValue(decodeBoolean(), values, index);
+	}
+
+	public IntegerValue decodeUnsignedIntegerValue(long[] values, int index)
+			throws IOException {
+		return decodeUnsignedIntegerValue(false, values, index);
+	}
+
+	protected final IntegerValue decodeUnsignedIntegerValue(boolean negative,
+			long[] values, int index) throws IOException {
+		long lResult = 0L;
+		int mShift = 0;
+		int b;
+		for (int i = 0; i < MAX_OCTETS_FOR_LONG; i++) {
+			b = decode();
+			lResult |= ((long) (b & 127)) << mShift;
+			if (b < 128) {
+				// For negative values, the Unsigned Integer holds the
+				// magnitude of the value minus 1
+				values[index] = negative ? -(lResult + 1L) : lResult;
+				return null;
+			}
+			maskedOctets[i] = (b & 127);
+			mShift += 7;
+		}
+
+		// does not fit into a long
+		return decodeUnsignedBigIntegerValue(negative);
+	}
+
+	/*
+	 * Continues an unsigned integer whose first octets are in maskedOctets
+	 */
+	private IntegerValue decodeUnsignedBigIntegerValue(boolean negative)
+			throws IOException {
+		int b;
 		BigInteger bResult = BigInteger.ZERO;
 		BigInteger multiplier = BigInteger.ONE;
 		// already read bytes
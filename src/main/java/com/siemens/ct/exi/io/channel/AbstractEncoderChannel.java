@@ -40,6 +40,21 @@ import com.siemens.ct.exi.values.IntegerValue;
  */
 
 public abstract class AbstractEncoderChannel implements EncoderChannel {	
+
+	/* octets of an ASCII run that are handed over to the channel at once */
+	private static final int ASCII_BUFFER_SIZE = 256;
+	private byte[] asciiBuffer;
+
+	/**
+	 * Encode a run of n-bit unsigned integers one by one.
+	 */
+	public void encodeNBitUnsignedIntegers(int[] b, int off, int len, int n)
+			throws IOException {
+		final int end = off + len;
+		for (int i = off; i < end; i++) {
+			encodeNBitUnsignedInteger(b[i], n);
+		}
+	}
 	
 	/**
 	 * Encode a binary value as a length-prefixed sequence of octets.
@@ -62,23 +77,59 @@ public abstract class AbstractEncoderChannel implements EncoderChannel {
 	}
 
 	/**
-	 * 
+	 * Encode the code points of a string without length prefix. Runs of code
+	 * points below 128 take exactly one octet each and are passed to the
+	 * channel as octet blocks.
 	 */
 	public void encodeStringOnly(final String s) throws IOException {
 		final int lenChars = s.length();
-		for (int i = 0; i < lenChars; i++) {
+		int i = 0;
+		while (i < lenChars) {
 			final char ch = s.charAt(i);
 
-			// Is this a UTF-16 surrogate pair?
-			if (Character.isHighSurrogate(ch)) {
+			if (ch < 128) {
+				i = encodeASCIIRun(s, i, lenChars);
+			} else if (Character.isHighSurrogate(ch)) {
+				// Is this a UTF-16 surrogate pair?
 				// use code-point and increment loop count (2 char's)
-				encodeUnsignedInteger(s.codePointAt(i++));
+				encodeUnsignedInteger(s.codePointAt(i));
+				i += 2;
 			} else {
 				encodeUnsignedInteger(ch);
+				i++;
 			}
 		}
 	}
 
+	/**
+	 * Encodes the code points below 128 starting at position start and
+	 * returns the position of the first character that is not part of the
+	 * run.
+	 */
+	private int encodeASCIIRun(final String s, int start, final int end)
+			throws IOException {
+		if (asciiBuffer == null) {
+			asciiBuffer = new byte[ASCII_BUFFER_SIZE];
+		}
+		final byte[] buf = asciiBuffer;
+		int n = 0;
+		char ch;
+		while (start < end && (ch = s.charAt(start)) < 128) {
+			if (n == ASCII_BUFFER_SIZE) {
+				encode(buf, 0, n);
+				n = 0;
+			}
+			buf[n++] = (byte) ch;
+			start++;
+		}
+		if (n == 1) {
+			encode(buf[0]);
+		} else {
+			encode(buf, 0, n);
+		}
+		return start;
+	}
+
 	/**
 	 * Encode an arbitrary precision integer using a sign bit followed by a
 	 * sequence of octets. The most significant bit of the last octet is set to
@@ -98,7 +149,7 @@ public abstract class AbstractEncoderChannel implements EncoderChannel {
 		}
 	}
 
-	protected void encodeLong(long l) throws IOException {
+	public void encodeLong(long l) throws IOException {
 		// signalize sign
 		if (l < 0) {
 			encodeBoolean(true);
@@ -172,7 +223,7 @@ public abstract class AbstractEncoderChannel implements EncoderChannel {
 		}
 	}
 
-	protected void encodeUnsignedLong(long l) throws IOException {
+	public void encodeUnsignedLong(long l) throws IOException {
 		if (l < 0) {
 			throw new UnsupportedOperationException();
 		}
@@ -87,6 +87,14 @@ public class BitDecoderChannel extends AbstractDecoderChannel implements
 		return (istream.readBit() == 1);
 	}
 	
+	/**
+	 * Decodes len octets, byte-aligned at once or shifted byte by byte.
+	 */
+	@Override
+	protected void decodeOctets(byte[] b, int off, int len) throws IOException {
+		istream.read(b, off, len);
+	}
+
 	/**
 	 * Decode a binary value as a length-prefixed sequence of octets.
 	 */
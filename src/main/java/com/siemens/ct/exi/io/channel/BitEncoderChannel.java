@@ -77,10 +77,7 @@ public class BitEncoderChannel extends AbstractEncoderChannel implements
 	}
 
 	public void encode(byte b[], int off, int len) throws IOException {
-		// TODO write whole bytes (if possible)
-		for (int i = off; i < (off + len); i++) {
-			ostream.writeBits(b[i], 8);
-		}
+		ostream.write(b, off, len);
 	}
 
 	/**
@@ -98,6 +95,43 @@ public class BitEncoderChannel extends AbstractEncoderChannel implements
 		ostream.writeBits(b, n);
 	}
 
+	/**
+	 * Encode a run of n-bit unsigned integers. As long as the values fit, they
+	 * are packed into one int so that the bit stream is fed in 32-bit chunks
+	 * instead of one call per value.
+	 */
+	@Override
+	public void encodeNBitUnsignedIntegers(int[] b, int off, int len, int n)
+			throws IOException {
+		if (n <= 0) {
+			return;
+		}
+		if (n > 16) {
+			super.encodeNBitUnsignedIntegers(b, off, len, n);
+			return;
+		}
+		final int end = off + len;
+		final int mask = (1 << n) - 1;
+		int packed = 0;
+		int packedBits = 0;
+		for (int i = off; i < end; i++) {
+			if (b[i] < 0) {
+				throw new IllegalArgumentException(
+						"Encode negative value as unsigned integer is invalid!");
+			}
+			if (packedBits + n > 32) {
+				ostream.writeBits(packed, packedBits);
+				packed = 0;
+				packedBits = 0;
+			}
+			packed = (packed << n) | (b[i] & mask);
+			packedBits += n;
+		}
+		if (packedBits > 0) {
+			ostream.writeBits(packed, packedBits);
+		}
+	}
+
 	/**
 	 * Encode a single boolean value. A false value is encoded as bit 0 and true
 	 * value is encode as bit 1.
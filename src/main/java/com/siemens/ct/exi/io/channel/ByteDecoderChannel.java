@@ -61,7 +61,13 @@ public class ByteDecoderChannel extends AbstractDecoderChannel implements
 
 	public void skip(long n) throws IOException {
 		while (n != 0) {
-			n -= is.skip(n);
+			long skipped = is.skip(n);
+			if (skipped == 0) {
+				// skip may stop early, read to detect end of stream
+				decode();
+				skipped = 1;
+			}
+			n -= skipped;
 		}
 	}
 
@@ -91,6 +97,21 @@ public class ByteDecoderChannel extends AbstractDecoderChannel implements
 		return (decode() == 0 ? false : true);
 	}
 
+	/**
+	 * Decodes len octets with bulk reads from the underlying stream.
+	 */
+	@Override
+	protected void decodeOctets(byte[] b, int off, int len) throws IOException {
+		int readBytes = 0;
+		while(readBytes < len) {
+			int br = is.read(b, off + readBytes, len - readBytes);
+			if(br == -1) {
+				throw new EOFException("Premature EOS found while reading data.");
+			}
+			readBytes += br;
+		}
+	}
+
 	/**
 	 * Decode a binary value as a length-prefixed sequence of octets.
 	 */
@@ -98,14 +119,7 @@ public class ByteDecoderChannel extends AbstractDecoderChannel implements
 		final int length = decodeUnsignedInteger();
 		byte[] result = new byte[length];
 		
-		int readBytes = 0;
-		while(readBytes < length) {
-			int len = is.read(result, readBytes, length - readBytes);
-			if(len == -1) {
-				throw new EOFException("Premature EOS found while reading data.");
-			}
-			readBytes += len;
-		}
+		decodeOctets(result, 0, length);
 
 //		int readBytes = is.read(result);
 //		if (readBytes < length) {
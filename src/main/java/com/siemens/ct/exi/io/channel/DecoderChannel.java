@@ -129,8 +129,28 @@ public interface DecoderChannel {
 	 */
 	public int decodeUnsignedInteger() throws IOException;
 
+	/**
+	 * Skips an unsigned integer by reading its octets up to the one with the
+	 * most significant bit set to zero.
+	 * 
+	 * @throws IOException IO exception
+	 */
+	public void skipUnsignedInteger() throws IOException;
+
 	public IntegerValue decodeUnsignedIntegerValue() throws IOException;
 
+	/**
+	 * Decode an unsigned integer into <code>values[index]</code>. Values that
+	 * do not fit into a long are returned instead.
+	 * 
+	 * @param values long values
+	 * @param index position in values
+	 * @return null, or the integer value if it exceeds a long
+	 * @throws IOException IO exception
+	 */
+	public IntegerValue decodeUnsignedIntegerValue(long[] values, int index)
+			throws IOException;
+
 	/**
 	 * Decode an arbitrary precision integer using a sign bit followed by a
 	 * sequence of octets. The most significant bit of the last octet is set to
@@ -142,6 +162,18 @@ public interface DecoderChannel {
 	 */
 	public IntegerValue decodeIntegerValue() throws IOException;
 
+	/**
+	 * Decode an integer into <code>values[index]</code>. Values that do not
+	 * fit into a long are returned instead.
+	 * 
+	 * @param values long values
+	 * @param index position in values
+	 * @return null, or the integer value if it exceeds a long
+	 * @throws IOException IO exception
+	 */
+	public IntegerValue decodeIntegerValue(long[] values, int index)
+			throws IOException;
+
 	/**
 	 * Decode a decimal represented as a Boolean sign followed by two Unsigned
 	 * Integers. A sign value of zero (0) is used to represent positive Decimal
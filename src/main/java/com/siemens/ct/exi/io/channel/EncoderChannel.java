@@ -65,6 +65,20 @@ public interface EncoderChannel {
 
 	public void encodeNBitUnsignedInteger(int b, int n) throws IOException;
 
+	/**
+	 * Encode a run of n-bit unsigned integers (e.g. restricted character set
+	 * codes). The result is identical to calling
+	 * <code>encodeNBitUnsignedInteger(b[i], n)</code> for each value.
+	 * 
+	 * @param b values
+	 * @param off offset of first value
+	 * @param len number of values
+	 * @param n number of bits per value
+	 * @throws IOException IO exception
+	 */
+	public void encodeNBitUnsignedIntegers(int[] b, int off, int len, int n)
+			throws IOException;
+
 	/**
 	 * Encode a single boolean value. A false value is encoded as bit (byte) 0
 	 * and true value is encode as bit (byte) 1.
@@ -113,7 +127,14 @@ public interface EncoderChannel {
 	 */
 	public void encodeUnsignedInteger(int n) throws IOException;
 
-//	public void encodeUnsignedLong(long l) throws IOException;
+	/**
+	 * Encode a non negative long value as unsigned integer, see
+	 * {@link #encodeUnsignedInteger(int)}.
+	 * 
+	 * @param l unsigned long
+	 * @throws IOException IO exception
+	 */
+	public void encodeUnsignedLong(long l) throws IOException;
 
 //	public void encodeUnsignedBigInteger(BigInteger bi) throws IOException;
 
@@ -130,7 +151,13 @@ public interface EncoderChannel {
 	 */
 	public void encodeInteger(int n) throws IOException;
 
-//	public void encodeLong(long l) throws IOException;
+	/**
+	 * Encode a long value as integer, see {@link #encodeInteger(int)}.
+	 * 
+	 * @param l long
+	 * @throws IOException IO exception
+	 */
+	public void encodeLong(long l) throws IOException;
 
 //	public void encodeBigInteger(BigInteger bi) throws IOException;
 
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2007-2016 Siemens AG
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ */
+
+package com.siemens.ct.exi.io.compression;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+
+/**
+ * Preset dictionaries for the deflate streams of EXI compression. Encoder and
+ * decoder need to be configured with the same dictionaries.
+ * 
+ * <p>
+ * The structure dictionary is used for every stream that starts with the
+ * structure channel. A value channel that is compressed on its own (more than
+ * 100 values) uses its QName dictionary, the stream that combines the smaller
+ * value channels uses the values dictionary. A missing QName dictionary falls
+ * back to the values dictionary.
+ * </p>
+ * 
+ * @author Daniel.Peintner.EXT@siemens.com
+ * @author Joerg.Heuer@siemens.com
+ * 
+ * @version 0.9.7-SNAPSHOT
+ */
+
+public class DeflateDictionaries {
+
+	protected static final int MAGIC = 0x45584444; // EXDD
+
+	protected byte[] structureDictionary;
+	protected byte[] valuesDictionary;
+	protected final Map<QName, byte[]> valueChannelDictionaries;
+
+	public DeflateDictionaries() {
+		valueChannelDictionaries = new LinkedHashMap<QName, byte[]>();
+	}
+
+	public void setStructureDictionary(byte[] structureDictionary) {
+		this.structureDictionary = structureDictionary;
+	}
+
+	public byte[] getStructureDictionary() {
+		return structureDictionary;
+	}
+
+	public void setValuesDictionary(byte[] valuesDictionary) {
+		this.valuesDictionary = valuesDictionary;
+	}
+
+	public byte[] getValuesDictionary() {
+		return valuesDictionary;
+	}
+
+	public void setValueChannelDictionary(QName channel, byte[] dictionary) {
+		if (dictionary == null) {
+			valueChannelDictionaries.remove(channel);
+		} else {
+			valueChannelDictionaries.put(channel, dictionary);
+		}
+	}
+
+	/**
+	 * Returns the dictionary for the value channel.
+	 * 
+	 * @param channel qualified name of value channel
+	 * @return channel dictionary, values dictionary or null
+	 */
+	public byte[] getValueChannelDictionary(QName channel) {
+		byte[] dictionary = valueChannelDictionaries.get(channel);
+		return dictionary == null ? valuesDictionary : dictionary;
+	}
+
+	public Map<QName, byte[]> getValueChannelDictionaries() {
+		return valueChannelDictionaries;
+	}
+
+	/**
+	 * Writes the dictionaries in a compact binary form.
+	 * 
+	 * @param os output stream
+	 * @throws IOException IO exception
+	 */
+	public void writeTo(OutputStream os) throws IOException {
+		DataOutputStream dos = new DataOutputStream(os);
+		dos.writeInt(MAGIC);
+		writeDictionary(dos, structureDictionary);
+		writeDictionary(dos, valuesDictionary);
+		dos.writeInt(valueChannelDictionaries.size());
+		for (Map.Entry<QName, byte[]> e : valueChannelDictionaries.entrySet()) {
+			dos.writeUTF(e.getKey().getNamespaceURI());
+			dos.writeUTF(e.getKey().getLocalPart());
+			writeDictionary(dos, e.getValue());
+		}
+		dos.flush();
+	}
+
+	/**
+	 * Reads dictionaries that have been written by
+	 * {@link #writeTo(OutputStream)}.
+	 * 
+	 * @param is input stream
+	 * @return dictionaries
+	 * @throws IOException IO exception
+	 */
+	public static DeflateDictionaries readFrom(InputStream is)
+			throws IOException {
+		DataInputStream dis = new DataInputStream(is);
+		if (dis.readInt() != MAGIC) {
+			throw new IOException("No EXI deflate dictionaries");
+		}
+		DeflateDictionaries dd = new DeflateDictionaries();
+		dd.structureDictionary = readDictionary(dis);
+		dd.valuesDictionary = readDictionary(dis);
+		int n = dis.readInt();
+		for (int i = 0; i < n; i++) {
+			String uri = dis.readUTF();
+			String localName = dis.readUTF();
+			dd.setValueChannelDictionary(new QName(uri, localName),
+					readDictionary(dis));
+		}
+		return dd;
+	}
+
+	private static void writeDictionary(DataOutputStream dos, byte[] dictionary)
+			throws IOException {
+		if (dictionary == null) {
+			dos.writeInt(-1);
+		} else {
+			dos.writeInt(dictionary.length);
+			dos.write(dictionary);
+		}
+	}
+
+	private static byte[] readDictionary(DataInputStream dis)
+			throws IOException {
+		int len = dis.readInt();
+		if (len < 0) {
+			return null;
+		}
+		byte[] dictionary = new byte[len];
+		dis.readFully(dictionary);
+		return dictionary;
+	}
+}
@@ -24,6 +24,7 @@
 package com.siemens.ct.exi.types;
 
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 
 import javax.xml.namespace.QName;
@@ -37,6 +38,7 @@ import com.siemens.ct.exi.datatype.Datatype;
 import com.siemens.ct.exi.datatype.DatatypeID;
 import com.siemens.ct.exi.datatype.DatetimeDatatype;
 import com.siemens.ct.exi.datatype.DecimalDatatype;
+import com.siemens.ct.exi.datatype.EnumDatatype;
 import com.siemens.ct.exi.datatype.ExtendedStringDatatype;
 import com.siemens.ct.exi.datatype.FloatDatatype;
 import com.siemens.ct.exi.datatype.IntegerDatatype;
@@ -62,6 +64,12 @@ public abstract class AbstractTypeCoder implements TypeCoder {
 	protected Map<QName, Datatype> dtrMap;
 	protected final boolean dtrMapInUse;
 
+	// resolved DTR datatypes, keyed by grammar datatype identity
+	private Map<Datatype, Datatype> dtrResolved;
+	private Datatype lastDtrSource;
+	private Datatype lastDtrResolved;
+	private Map<Datatype, EnumDatatype> dtrGrammarStrings;
+
 	public AbstractTypeCoder() throws EXIException {
 		this(null, null, null);
 	}
@@ -78,6 +86,8 @@ public abstract class AbstractTypeCoder implements TypeCoder {
 			dtrMapInUse = true;
 
 			dtrMap = new HashMap<QName, Datatype>();
+			dtrResolved = new IdentityHashMap<Datatype, Datatype>();
+			dtrGrammarStrings = new IdentityHashMap<Datatype, EnumDatatype>();
 			assert (dtrMapTypes.length == dtrMapRepresentations.length);
 			this.initDtrMaps();
 		}
@@ -175,6 +185,34 @@ public abstract class AbstractTypeCoder implements TypeCoder {
 	protected Datatype getDtrDatatype(final Datatype datatype) {
 		assert (dtrMapInUse);
 
+		Datatype dtrDatatype;
+		if (datatype == lastDtrSource) {
+			// same datatype as before (e.g., repeating elements)
+			dtrDatatype = lastDtrResolved;
+		} else {
+			dtrDatatype = dtrResolved.get(datatype);
+			if (dtrDatatype == null) {
+				// resolve once, the result does not change anymore
+				dtrDatatype = resolveDtrDatatype(datatype);
+				dtrResolved.put(datatype, dtrDatatype);
+			}
+			lastDtrSource = datatype;
+			lastDtrResolved = dtrDatatype;
+		}
+
+		// extended string representation may be shared by several datatypes
+		if (dtrDatatype.getDatatypeID() == DatatypeID.exi_estring) {
+			EnumDatatype grammarStrings = dtrGrammarStrings.get(datatype);
+			if (grammarStrings != null) {
+				((ExtendedStringDatatype) dtrDatatype)
+						.setGrammarStrings(grammarStrings);
+			}
+		}
+
+		return dtrDatatype;
+	}
+
+	private Datatype resolveDtrDatatype(final Datatype datatype) {
 		Datatype dtrDatatype = null;
 		if (datatype == BuiltIn.DEFAULT_DATATYPE) {
 			// e.g., untyped values are encoded always as String
@@ -323,8 +361,7 @@ public abstract class AbstractTypeCoder implements TypeCoder {
 				// extended string
 				if(dtrDatatype.getDatatypeID() == DatatypeID.exi_estring && datatype.getGrammarEnumeration() != null) {
 					// add grammar strings et cetera
-					ExtendedStringDatatype esdt = (ExtendedStringDatatype) dtrDatatype;
-					esdt.setGrammarStrings(datatype.getGrammarEnumeration());
+					dtrGrammarStrings.put(datatype, datatype.getGrammarEnumeration());
 				}
 				
 			}
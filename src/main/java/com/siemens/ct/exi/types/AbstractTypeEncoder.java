@@ -28,6 +28,7 @@ import java.util.Map;
 import javax.xml.namespace.QName;
 
 import com.siemens.ct.exi.datatype.Datatype;
+import com.siemens.ct.exi.datatype.EnumerationDatatype;
 import com.siemens.ct.exi.exceptions.EXIException;
 
 /**
@@ -50,4 +51,11 @@ public abstract class AbstractTypeEncoder extends AbstractTypeCoder implements
 		super(dtrMapTypes, dtrMapRepresentations, dtrMapRepresentationsDatatype);
 	}
 
+	public boolean isValidEnumValueIndex(EnumerationDatatype datatype,
+			int index) {
+		// lexical or mapped representation: check the member value
+		return index >= 0 && index < datatype.getEnumerationSize()
+				&& isValid(datatype, datatype.getEnumValue(index));
+	}
+
 }
@@ -98,16 +98,16 @@ public class LexicalTypeEncoder extends AbstractTypeEncoder {
 			StringEncoder stringEncoder) throws IOException {
 		switch (lastDatatype.getDatatypeID()) {
 		case exi_base64Binary:
-			rcsBase64Binary.isValid(lastValue);
-			rcsBase64Binary.writeValue(qnContext, valueChannel, stringEncoder);
+			rcsBase64Binary.writeValue(qnContext, valueChannel,
+					stringEncoder, lastValue);
 			break;
 		case exi_hexBinary:
-			rcsHexBinary.isValid(lastValue);
-			rcsHexBinary.writeValue(qnContext, valueChannel, stringEncoder);
+			rcsHexBinary.writeValue(qnContext, valueChannel,
+					stringEncoder, lastValue);
 			break;
 		case exi_boolean:
-			rcsBoolean.isValid(lastValue);
-			rcsBoolean.writeValue(qnContext, valueChannel, stringEncoder);
+			rcsBoolean.writeValue(qnContext, valueChannel,
+					stringEncoder, lastValue);
 			break;
 		case exi_dateTime:
 		case exi_time:
@@ -117,20 +117,20 @@ public class LexicalTypeEncoder extends AbstractTypeEncoder {
 		case exi_gMonthDay:
 		case exi_gDay:
 		case exi_gMonth:
-			rcsDateTime.isValid(lastValue);
-			rcsDateTime.writeValue(qnContext, valueChannel, stringEncoder);
+			rcsDateTime.writeValue(qnContext, valueChannel,
+					stringEncoder, lastValue);
 			break;
 		case exi_decimal:
-			rcsDecimal.isValid(lastValue);
-			rcsDecimal.writeValue(qnContext, valueChannel, stringEncoder);
+			rcsDecimal.writeValue(qnContext, valueChannel,
+					stringEncoder, lastValue);
 			break;
 		case exi_double:
-			rcsDouble.isValid(lastValue);
-			rcsDouble.writeValue(qnContext, valueChannel, stringEncoder);
+			rcsDouble.writeValue(qnContext, valueChannel,
+					stringEncoder, lastValue);
 			break;
 		case exi_integer:
-			rcsInteger.isValid(lastValue);
-			rcsInteger.writeValue(qnContext, valueChannel, stringEncoder);
+			rcsInteger.writeValue(qnContext, valueChannel,
+					stringEncoder, lastValue);
 			break;
 		case exi_string:
 			// exi:string no restricted character set
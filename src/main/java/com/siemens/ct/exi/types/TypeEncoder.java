@@ -27,6 +27,7 @@ import java.io.IOException;
 
 import com.siemens.ct.exi.context.QNameContext;
 import com.siemens.ct.exi.datatype.Datatype;
+import com.siemens.ct.exi.datatype.EnumerationDatatype;
 import com.siemens.ct.exi.datatype.strings.StringEncoder;
 import com.siemens.ct.exi.io.channel.EncoderChannel;
 import com.siemens.ct.exi.values.Value;
@@ -50,6 +51,17 @@ public interface TypeEncoder extends TypeCoder {
 	 */
 	public boolean isValid(Datatype datatype, Value value);
 
+	/**
+	 * Checks whether given enumeration index is valid according to the
+	 * datatype.
+	 * 
+	 * @param datatype enumeration datatype
+	 * @param index enumeration index
+	 * @return boolean value indicating whether passed index is valid
+	 */
+	public boolean isValidEnumValueIndex(EnumerationDatatype datatype,
+			int index);
+
 	/**
 	 * Writes previously checked valid value to channel.
 	 *  
@@ -30,6 +30,7 @@ import javax.xml.namespace.QName;
 
 import com.siemens.ct.exi.context.QNameContext;
 import com.siemens.ct.exi.datatype.Datatype;
+import com.siemens.ct.exi.datatype.EnumerationDatatype;
 import com.siemens.ct.exi.datatype.ListDatatype;
 import com.siemens.ct.exi.datatype.strings.StringEncoder;
 import com.siemens.ct.exi.exceptions.EXIException;
@@ -78,6 +79,17 @@ public class TypedTypeEncoder extends AbstractTypeEncoder {
 		return lastDatatype.isValid(value);
 	}
 
+	@Override
+	public boolean isValidEnumValueIndex(EnumerationDatatype datatype,
+			int index) {
+		if (this.dtrMapInUse) {
+			return super.isValidEnumValueIndex(datatype, index);
+		} else {
+			lastDatatype = datatype;
+			return datatype.isValidIndex(index);
+		}
+	}
+
 	public void writeValue(QNameContext qnContext, EncoderChannel valueChannel,
 			StringEncoder stringEncoder) throws IOException {
 		if(doNormalize) {
@@ -23,6 +23,10 @@
 
 package com.siemens.ct.exi.values;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
 /**
  * 
  * @author Daniel.Peintner.EXT@siemens.com
@@ -30,13 +34,8 @@ package com.siemens.ct.exi.values;
  * 
  * @version 0.9.7-SNAPSHOT
  */
-// re-uses code from org.apache.xerces.impl.dv.util.Base64Bin;
 public class BinaryBase64Value extends AbstractBinaryValue {
 
-	private int fewerThan24bits;
-	private int numberTriplets;
-	private int numberQuartet;
-
 	public BinaryBase64Value(byte[] bytes) {
 		super(ValueType.BINARY_BASE64, bytes);
 	}
@@ -52,83 +51,13 @@ public class BinaryBase64Value extends AbstractBinaryValue {
 
 	public int getCharactersLength() {
 		if (slen == -1) {
-			int lengthDataBits = bytes.length * EIGHTBIT;
-			if (lengthDataBits == 0) {
-				slen = 0;
-			} else {
-				fewerThan24bits = lengthDataBits % TWENTYFOURBITGROUP;
-				numberTriplets = lengthDataBits / TWENTYFOURBITGROUP;
-				numberQuartet = fewerThan24bits != 0 ? numberTriplets + 1
-						: numberTriplets;
-
-				slen = numberQuartet * 4;
-			}
+			slen = getEncodedLength(bytes.length);
 		}
 		return slen;
 	}
 
 	public void getCharacters(char[] cbuffer, int offset) {
-		getCharactersLength();
-
-		byte k = 0, l = 0, b1 = 0, b2 = 0, b3 = 0;
-
-		int encodedIndex = 0;
-		int dataIndex = 0;
-
-		for (int i = 0; i < numberTriplets; i++) {
-			b1 = bytes[dataIndex++];
-			b2 = bytes[dataIndex++];
-			b3 = bytes[dataIndex++];
-
-			l = (byte) (b2 & 0x0f);
-			k = (byte) (b1 & 0x03);
-
-			byte val1 = ((b1 & SIGN) == 0) ? (byte) (b1 >> 2)
-					: (byte) ((b1) >> 2 ^ 0xc0);
-
-			byte val2 = ((b2 & SIGN) == 0) ? (byte) (b2 >> 4)
-					: (byte) ((b2) >> 4 ^ 0xf0);
-			byte val3 = ((b3 & SIGN) == 0) ? (byte) (b3 >> 6)
-					: (byte) ((b3) >> 6 ^ 0xfc);
-
-			cbuffer[offset + encodedIndex++] = lookUpBase64Alphabet[val1];
-			cbuffer[offset + encodedIndex++] = lookUpBase64Alphabet[val2
-					| (k << 4)];
-			cbuffer[offset + encodedIndex++] = lookUpBase64Alphabet[(l << 2)
-					| val3];
-			cbuffer[offset + encodedIndex++] = lookUpBase64Alphabet[b3 & 0x3f];
-		}
-
-		// form integral number of 6-bit groups
-		if (fewerThan24bits == EIGHTBIT) {
-			b1 = bytes[dataIndex];
-			k = (byte) (b1 & 0x03);
-
-			byte val1 = ((b1 & SIGN) == 0) ? (byte) (b1 >> 2)
-					: (byte) ((b1) >> 2 ^ 0xc0);
-			cbuffer[offset + encodedIndex++] = lookUpBase64Alphabet[val1];
-			cbuffer[offset + encodedIndex++] = lookUpBase64Alphabet[k << 4];
-			cbuffer[offset + encodedIndex++] = PAD;
-			cbuffer[offset + encodedIndex++] = PAD;
-		} else if (fewerThan24bits == SIXTEENBIT) {
-			b1 = bytes[dataIndex];
-			b2 = bytes[dataIndex + 1];
-			l = (byte) (b2 & 0x0f);
-			k = (byte) (b1 & 0x03);
-
-			byte val1 = ((b1 & SIGN) == 0) ? (byte) (b1 >> 2)
-					: (byte) ((b1) >> 2 ^ 0xc0);
-			byte val2 = ((b2 & SIGN) == 0) ? (byte) (b2 >> 4)
-					: (byte) ((b2) >> 4 ^ 0xf0);
-
-			cbuffer[offset + encodedIndex++] = lookUpBase64Alphabet[val1];
-			cbuffer[offset + encodedIndex++] = lookUpBase64Alphabet[val2
-					| (k << 4)];
-			cbuffer[offset + encodedIndex++] = lookUpBase64Alphabet[l << 2];
-			cbuffer[offset + encodedIndex++] = PAD;
-		}
-
-		// return cbuffer;
+		encode(bytes, 0, bytes.length, cbuffer, offset);
 	}
 
 	@Override
@@ -157,25 +86,22 @@ public class BinaryBase64Value extends AbstractBinaryValue {
 
 	/*
 	 * ****************************************************************
-	 * org.apache.xerces.impl.dv.util.Base64
+	 * Base64 (table driven, 3 bytes per 4 characters and step)
 	 */
 	static private final int BASELENGTH = 128;
 	static private final int LOOKUPLENGTH = 64;
-	static private final int TWENTYFOURBITGROUP = 24;
-	static private final int EIGHTBIT = 8;
-	static private final int SIXTEENBIT = 16;
-	// static private final int SIXBIT = 6;
-	static private final int FOURBYTE = 4;
-	static private final int SIGN = -128;
 	static private final char PAD = '=';
-	// static private final boolean fDebug = false;
+	/* decoding table marks for non data characters */
+	static private final byte INVALID = -1;
+	static private final byte WHITESPACE = -2;
+	static private final byte PADDING = -3;
 	static final private byte[] base64Alphabet = new byte[BASELENGTH];
 	static final private char[] lookUpBase64Alphabet = new char[LOOKUPLENGTH];
 
 	static {
 
 		for (int i = 0; i < BASELENGTH; ++i) {
-			base64Alphabet[i] = -1;
+			base64Alphabet[i] = INVALID;
 		}
 		for (int i = 'Z'; i >= 'A'; i--) {
 			base64Alphabet[i] = (byte) (i - 'A');
@@ -190,22 +116,21 @@ public class BinaryBase64Value extends AbstractBinaryValue {
 
 		base64Alphabet['+'] = 62;
 		base64Alphabet['/'] = 63;
-
-		for (int i = 0; i <= 25; i++)
-			lookUpBase64Alphabet[i] = (char) ('A' + i);
-
-		for (int i = 26, j = 0; i <= 51; i++, j++)
-			lookUpBase64Alphabet[i] = (char) ('a' + j);
-
-		for (int i = 52, j = 0; i <= 61; i++, j++)
-			lookUpBase64Alphabet[i] = (char) ('0' + j);
-		lookUpBase64Alphabet[62] = (char) '+';
-		lookUpBase64Alphabet[63] = (char) '/';
-
+		base64Alphabet[' '] = WHITESPACE;
+		base64Alphabet['\t'] = WHITESPACE;
+		base64Alphabet['\n'] = WHITESPACE;
+		base64Alphabet['\r'] = WHITESPACE;
+		base64Alphabet[PAD] = PADDING;
+
+		for (int i = 0; i < BASELENGTH; i++) {
+			if (base64Alphabet[i] >= 0) {
+				lookUpBase64Alphabet[base64Alphabet[i]] = (char) i;
+			}
+		}
 	}
 
 	protected static boolean isWhiteSpace(char octect) {
-		return (octect == 0x20 || octect == 0xd || octect == 0xa || octect == 0x9);
+		return (octect < BASELENGTH && base64Alphabet[octect] == WHITESPACE);
 	}
 
 	protected static boolean isPad(char octect) {
@@ -213,11 +138,88 @@ public class BinaryBase64Value extends AbstractBinaryValue {
 	}
 
 	protected static boolean isData(char octect) {
-		return (octect < BASELENGTH && base64Alphabet[octect] != -1);
+		return (octect < BASELENGTH && base64Alphabet[octect] >= 0);
 	}
 
 	protected static boolean isBase64(char octect) {
-		return (isWhiteSpace(octect) || isPad(octect) || isData(octect));
+		return (octect < BASELENGTH && base64Alphabet[octect] != INVALID);
+	}
+
+	private static int value(char c) {
+		return c < BASELENGTH ? base64Alphabet[c] : INVALID;
+	}
+
+	/**
+	 * Number of Base64 characters for the given number of bytes
+	 * 
+	 * @param length number of bytes
+	 * @return number of characters
+	 */
+	public static int getEncodedLength(int length) {
+		return ((length + 2) / 3) * 4;
+	}
+
+	/**
+	 * Upper bound of decoded bytes for the given number of Base64 characters
+	 * (including whitespaces and padding)
+	 * 
+	 * @param length number of characters
+	 * @return maximum number of bytes
+	 */
+	public static int getMaxDecodedLength(int length) {
+		return (length / 4) * 3;
+	}
+
+	/**
+	 * Encodes bytes as Base64 characters
+	 * 
+	 * @param src
+	 *            bytes
+	 * @param off
+	 *            offset in src
+	 * @param len
+	 *            number of bytes
+	 * @param dst
+	 *            character buffer
+	 * @param dstOff
+	 *            offset in dst
+	 * @return number of characters written
+	 */
+	public static int encode(byte[] src, int off, int len, char[] dst,
+			int dstOff) {
+		final char[] alphabet = lookUpBase64Alphabet;
+		final int end = off + (len / 3) * 3;
+		int d = dstOff;
+		while (off < end) {
+			int bits = (src[off] & 0xff) << 16 | (src[off + 1] & 0xff) << 8
+					| (src[off + 2] & 0xff);
+			off += 3;
+			dst[d] = alphabet[bits >>> 18];
+			dst[d + 1] = alphabet[(bits >>> 12) & 0x3f];
+			dst[d + 2] = alphabet[(bits >>> 6) & 0x3f];
+			dst[d + 3] = alphabet[bits & 0x3f];
+			d += 4;
+		}
+
+		// form integral number of 6-bit groups
+		switch (len % 3) {
+		case 1:
+			int b1 = src[off] & 0xff;
+			dst[d++] = alphabet[b1 >>> 2];
+			dst[d++] = alphabet[(b1 << 4) & 0x3f];
+			dst[d++] = PAD;
+			dst[d++] = PAD;
+			break;
+		case 2:
+			int bits = (src[off] & 0xff) << 8 | (src[off + 1] & 0xff);
+			dst[d++] = alphabet[bits >>> 10];
+			dst[d++] = alphabet[(bits >>> 4) & 0x3f];
+			dst[d++] = alphabet[(bits << 2) & 0x3f];
+			dst[d++] = PAD;
+			break;
+		}
+
+		return d - dstOff;
 	}
 
 	/**
@@ -228,112 +230,225 @@ public class BinaryBase64Value extends AbstractBinaryValue {
 	 * @return Array containind decoded data.
 	 */
 	public static byte[] decode(String encoded) {
-
-		if (encoded == null)
+		if (encoded == null) {
 			return null;
-
-		char[] base64Data = encoded.toCharArray();
-		// remove white spaces
-		int len = removeWhiteSpace(base64Data);
-
-		if (len % FOURBYTE != 0) {
-			return null;// should be divisible by four
 		}
+		return decode(encoded, 0, encoded.length());
+	}
 
-		int numberQuadruple = (len / FOURBYTE);
-
-		if (numberQuadruple == 0)
-			return new byte[0];
-
-		byte decodedData[] = null;
-		byte b1 = 0, b2 = 0, b3 = 0, b4 = 0;
-		char d1 = 0, d2 = 0, d3 = 0, d4 = 0;
-
-		int i = 0;
-		int encodedIndex = 0;
-		int dataIndex = 0;
-		decodedData = new byte[(numberQuadruple) * 3];
-
-		for (; i < numberQuadruple - 1; i++) {
+	/**
+	 * Decodes a range of Base64 characters, whitespaces are ignored
+	 * 
+	 * @param encoded
+	 *            Base64 characters
+	 * @param start
+	 *            first character
+	 * @param end
+	 *            end of range (exclusive)
+	 * @return decoded data or null if invalid
+	 */
+	public static byte[] decode(CharSequence encoded, int start, int end) {
+		int len = getDecodedLength(encoded, start, end);
+		if (len < 0) {
+			return null;
+		}
+		byte[] decoded = new byte[len];
+		return decode(encoded, start, end, decoded, 0) < 0 ? null : decoded;
+	}
 
-			if (!isData((d1 = base64Data[dataIndex++]))
-					|| !isData((d2 = base64Data[dataIndex++]))
-					|| !isData((d3 = base64Data[dataIndex++]))
-					|| !isData((d4 = base64Data[dataIndex++])))
-				return null;// if found "no data" just return null
+	/*
+	 * Number of decoded bytes, -1 if the number of non-whitespace characters
+	 * is not divisible by four. Malformed input is rejected before more
+	 * bytes are written.
+	 */
+	private static int getDecodedLength(CharSequence encoded, int start,
+			int end) {
+		int n = 0;
+		int pads = 0;
+		for (int i = start; i < end; i++) {
+			char c = encoded.charAt(i);
+			if (!isWhiteSpace(c)) {
+				n++;
+				// trailing padding
+				pads = c == PAD ? pads + 1 : 0;
+			}
+		}
+		if (n % 4 != 0) {
+			return -1;
+		}
+		return n == 0 ? 0 : (n / 4) * 3 - Math.min(pads, 2);
+	}
 
-			b1 = base64Alphabet[d1];
-			b2 = base64Alphabet[d2];
-			b3 = base64Alphabet[d3];
-			b4 = base64Alphabet[d4];
+	/**
+	 * Decodes a range of Base64 characters, see
+	 * {@link #decode(CharSequence, int, int, byte[], int)}
+	 * 
+	 * @param encoded
+	 *            Base64 characters
+	 * @param start
+	 *            first character
+	 * @param end
+	 *            end of range (exclusive)
+	 * @param dst
+	 *            byte buffer
+	 * @param dstOff
+	 *            offset in dst
+	 * @return number of bytes written or -1 if invalid
+	 */
+	public static int decode(char[] encoded, int start, int end, byte[] dst,
+			int dstOff) {
+		return decode(CharBuffer.wrap(encoded), start, end, dst, dstOff);
+	}
 
-			decodedData[encodedIndex++] = (byte) (b1 << 2 | b2 >> 4);
-			decodedData[encodedIndex++] = (byte) (((b2 & 0xf) << 4) | ((b3 >> 2) & 0xf));
-			decodedData[encodedIndex++] = (byte) (b3 << 6 | b4);
+	/**
+	 * Decodes a range of Base64 characters into the remaining buffer. Large
+	 * payloads can be decoded in chunks that end on a group of four
+	 * characters.
+	 * 
+	 * @param encoded
+	 *            Base64 characters
+	 * @param start
+	 *            first character
+	 * @param end
+	 *            end of range (exclusive)
+	 * @param dst
+	 *            byte buffer
+	 * @return number of bytes written or -1 if invalid
+	 * @throws BufferOverflowException
+	 *             if fewer bytes remain in the buffer than the characters
+	 *             decode to
+	 */
+	public static int decode(CharSequence encoded, int start, int end,
+			ByteBuffer dst) {
+		int len = getDecodedLength(encoded, start, end);
+		if (len < 0) {
+			return -1;
 		}
-
-		if (!isData((d1 = base64Data[dataIndex++]))
-				|| !isData((d2 = base64Data[dataIndex++]))) {
-			return null;// if found "no data" just return null
+		if (dst.remaining() < len) {
+			throw new BufferOverflowException();
 		}
-
-		b1 = base64Alphabet[d1];
-		b2 = base64Alphabet[d2];
-
-		d3 = base64Data[dataIndex++];
-		d4 = base64Data[dataIndex++];
-		if (!isData((d3)) || !isData((d4))) {// Check if they are PAD characters
-			if (isPad(d3) && isPad(d4)) { // Two PAD e.g. 3c[Pad][Pad]
-				if ((b2 & 0xf) != 0)// last 4 bits should be zero
-					return null;
-				byte[] tmp = new byte[i * 3 + 1];
-				System.arraycopy(decodedData, 0, tmp, 0, i * 3);
-				tmp[encodedIndex] = (byte) (b1 << 2 | b2 >> 4);
-				return tmp;
-			} else if (!isPad(d3) && isPad(d4)) { // One PAD e.g. 3cQ[Pad]
-				b3 = base64Alphabet[d3];
-				if ((b3 & 0x3) != 0)// last 2 bits should be zero
-					return null;
-				byte[] tmp = new byte[i * 3 + 2];
-				System.arraycopy(decodedData, 0, tmp, 0, i * 3);
-				tmp[encodedIndex++] = (byte) (b1 << 2 | b2 >> 4);
-				tmp[encodedIndex] = (byte) (((b2 & 0xf) << 4) | ((b3 >> 2) & 0xf));
-				return tmp;
-			} else {
-				return null;// an error like "3c[Pad]r", "3cdX", "3cXd", "3cXX"
-							// where X is non data
+		int n;
+		if (dst.hasArray()) {
+			n = decode(encoded, start, end, dst.array(), dst.arrayOffset()
+					+ dst.position());
+		} else {
+			byte[] tmp = new byte[len];
+			n = decode(encoded, start, end, tmp, 0);
+			if (n > 0) {
+				dst.duplicate().put(tmp, 0, n);
 			}
-		} else { // No PAD e.g 3cQl
-			b3 = base64Alphabet[d3];
-			b4 = base64Alphabet[d4];
-			decodedData[encodedIndex++] = (byte) (b1 << 2 | b2 >> 4);
-			decodedData[encodedIndex++] = (byte) (((b2 & 0xf) << 4) | ((b3 >> 2) & 0xf));
-			decodedData[encodedIndex++] = (byte) (b3 << 6 | b4);
-
 		}
-
-		return decodedData;
+		if (n > 0) {
+			dst.position(dst.position() + n);
+		}
+		return n;
 	}
 
 	/**
-	 * remove WhiteSpace from MIME containing encoded Base64 data.
+	 * Decodes a range of Base64 characters, whitespaces are ignored. The
+	 * destination needs to hold at least {@link #getMaxDecodedLength(int)}
+	 * bytes.
 	 * 
-	 * @param data
-	 *            the byte array of base64 data (with WS)
-	 * @return the new length
+	 * @param encoded
+	 *            Base64 characters
+	 * @param start
+	 *            first character
+	 * @param end
+	 *            end of range (exclusive)
+	 * @param dst
+	 *            byte buffer
+	 * @param dstOff
+	 *            offset in dst
+	 * @return number of bytes written or -1 if invalid
 	 */
-	protected static int removeWhiteSpace(char[] data) {
-		if (data == null)
-			return 0;
-
-		// count characters that's not whitespace
-		int newSize = 0;
-		int len = data.length;
-		for (int i = 0; i < len; i++) {
-			if (!isWhiteSpace(data[i]))
-				data[newSize++] = data[i];
+	public static int decode(CharSequence encoded, int start, int end,
+			byte[] dst, int dstOff) {
+		int pos = start;
+		int d = dstOff;
+
+		while (pos < end) {
+			if (pos + 4 <= end) {
+				// common case: four data characters
+				int b1 = value(encoded.charAt(pos));
+				int b2 = value(encoded.charAt(pos + 1));
+				int b3 = value(encoded.charAt(pos + 2));
+				int b4 = value(encoded.charAt(pos + 3));
+				if ((b1 | b2 | b3 | b4) >= 0) {
+					int bits = b1 << 18 | b2 << 12 | b3 << 6 | b4;
+					dst[d] = (byte) (bits >> 16);
+					dst[d + 1] = (byte) (bits >> 8);
+					dst[d + 2] = (byte) bits;
+					d += 3;
+					pos += 4;
+					continue;
+				}
+			}
+
+			// collect next group skipping whitespaces
+			int bits = 0;
+			int n = 0;
+			int pads = 0;
+			while (n < 4 && pos < end) {
+				int v = value(encoded.charAt(pos++));
+				if (v >= 0) {
+					if (pads != 0) {
+						// data after padding
+						return -1;
+					}
+					bits = bits << 6 | v;
+					n++;
+				} else if (v == PADDING) {
+					bits <<= 6;
+					n++;
+					pads++;
+				} else if (v != WHITESPACE) {
+					return -1;
+				}
+			}
+			if (n == 0) {
+				// trailing whitespaces
+				break;
+			} else if (n < 4) {
+				// should be divisible by four
+				return -1;
+			}
+
+			switch (pads) {
+			case 0:
+				dst[d++] = (byte) (bits >> 16);
+				dst[d++] = (byte) (bits >> 8);
+				dst[d++] = (byte) bits;
+				break;
+			case 1:
+				if ((bits & 0xff) != 0) {
+					// last 2 bits should be zero
+					return -1;
+				}
+				dst[d++] = (byte) (bits >> 16);
+				dst[d++] = (byte) (bits >> 8);
+				break;
+			case 2:
+				if ((bits & 0xffff) != 0) {
+					// last 4 bits should be zero
+					return -1;
+				}
+				dst[d++] = (byte) (bits >> 16);
+				break;
+			default:
+				return -1;
+			}
+
+			if (pads != 0) {
+				// padding ends data, whitespaces only
+				while (pos < end) {
+					if (value(encoded.charAt(pos++)) != WHITESPACE) {
+						return -1;
+					}
+				}
+			}
 		}
-		return newSize;
+
+		return d - dstOff;
 	}
 
 }
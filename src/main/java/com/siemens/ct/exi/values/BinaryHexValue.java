@@ -23,6 +23,10 @@
 
 package com.siemens.ct.exi.values;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
 /**
  * 
  * @author Daniel.Peintner.EXT@siemens.com
@@ -31,11 +35,8 @@ package com.siemens.ct.exi.values;
  * @version 0.9.7-SNAPSHOT
  */
 
-// re-uses code from org.apache.xerces.impl.dv.util.HexBin;
 public class BinaryHexValue extends AbstractBinaryValue {
 
-	private int lengthData;
-
 	public BinaryHexValue(byte[] bytes) {
 		super(ValueType.BINARY_HEX, bytes);
 	}
@@ -51,25 +52,13 @@ public class BinaryHexValue extends AbstractBinaryValue {
 
 	public int getCharactersLength() {
 		if (slen == -1) {
-			lengthData = bytes.length;
-			slen = lengthData * 2;
+			slen = bytes.length * 2;
 		}
 		return slen;
 	}
 
 	public void getCharacters(char[] cbuffer, int offset) {
-		getCharactersLength();
-
-		int temp;
-		for (int i = 0; i < lengthData; i++) {
-			temp = bytes[i];
-			if (temp < 0)
-				temp += 256;
-			cbuffer[offset + i * 2] = lookUpHexAlphabet[temp >> 4];
-			cbuffer[offset + i * 2 + 1] = lookUpHexAlphabet[temp & 0xf];
-		}
-
-		// return cbuffer;
+		encode(bytes, 0, bytes.length, cbuffer, offset);
 	}
 
 	@Override
@@ -99,13 +88,13 @@ public class BinaryHexValue extends AbstractBinaryValue {
 	
 	/*
 	 * ****************************************************************
-	 * org.apache.xerces.impl.dv.util.HexBin
+	 * HexBin (table driven, one byte per character pair)
 	 */
 
 	static private final int BASELENGTH = 128;
-	static private final int LOOKUPLENGTH = 16;
 	static final private byte[] hexNumberTable = new byte[BASELENGTH];
-	static final private char[] lookUpHexAlphabet = new char[LOOKUPLENGTH];
+	/* both characters for each byte value */
+	static final private char[] lookUpHexPairs = new char[256 * 2];
 
 	static {
 		for (int i = 0; i < BASELENGTH; i++) {
@@ -121,12 +110,44 @@ public class BinaryHexValue extends AbstractBinaryValue {
 			hexNumberTable[i] = (byte) (i - 'a' + 10);
 		}
 
-		for (int i = 0; i < 10; i++) {
-			lookUpHexAlphabet[i] = (char) ('0' + i);
+		final String hexAlphabet = "0123456789ABCDEF";
+		for (int i = 0; i < 256; i++) {
+			lookUpHexPairs[2 * i] = hexAlphabet.charAt(i >> 4);
+			lookUpHexPairs[2 * i + 1] = hexAlphabet.charAt(i & 0xf);
 		}
-		for (int i = 10; i <= 15; i++) {
-			lookUpHexAlphabet[i] = (char) ('A' + i - 10);
+	}
+
+	private static int value(char c) {
+		return c < BASELENGTH ? hexNumberTable[c] : -1;
+	}
+
+	/**
+	 * Encodes bytes as (upper case) hex characters
+	 * 
+	 * @param src
+	 *            bytes
+	 * @param off
+	 *            offset in src
+	 * @param len
+	 *            number of bytes
+	 * @param dst
+	 *            character buffer
+	 * @param dstOff
+	 *            offset in dst
+	 * @return number of characters written
+	 */
+	public static int encode(byte[] src, int off, int len, char[] dst,
+			int dstOff) {
+		final char[] pairs = lookUpHexPairs;
+		final int end = off + len;
+		int d = dstOff;
+		for (int i = off; i < end; i++) {
+			int p = (src[i] & 0xff) << 1;
+			dst[d] = pairs[p];
+			dst[d + 1] = pairs[p + 1];
+			d += 2;
 		}
+		return d - dstOff;
 	}
 
 	/**
@@ -137,29 +158,125 @@ public class BinaryHexValue extends AbstractBinaryValue {
 	 * @return return array of byte to encode
 	 */
 	static public byte[] decode(String encoded) {
-		if (encoded == null)
+		if (encoded == null) {
 			return null;
-		int lengthData = encoded.length();
-		if (lengthData % 2 != 0)
+		}
+		return decode(encoded, 0, encoded.length());
+	}
+
+	/**
+	 * Decodes a range of hex characters
+	 * 
+	 * @param encoded
+	 *            hex characters
+	 * @param start
+	 *            first character
+	 * @param end
+	 *            end of range (exclusive)
+	 * @return decoded data or null if invalid
+	 */
+	static public byte[] decode(CharSequence encoded, int start, int end) {
+		if ((end - start) % 2 != 0) {
 			return null;
+		}
+		byte[] decoded = new byte[(end - start) / 2];
+		return decode(encoded, start, end, decoded, 0) < 0 ? null : decoded;
+	}
+
+	/**
+	 * Decodes a range of hex characters, see
+	 * {@link #decode(CharSequence, int, int, byte[], int)}
+	 * 
+	 * @param encoded
+	 *            hex characters
+	 * @param start
+	 *            first character
+	 * @param end
+	 *            end of range (exclusive)
+	 * @param dst
+	 *            byte buffer
+	 * @param dstOff
+	 *            offset in dst
+	 * @return number of bytes written or -1 if invalid
+	 */
+	static public int decode(char[] encoded, int start, int end, byte[] dst,
+			int dstOff) {
+		return decode(CharBuffer.wrap(encoded), start, end, dst, dstOff);
+	}
+
+	/**
+	 * Decodes a range of hex characters into the remaining buffer. Large
+	 * payloads can be decoded in chunks of even length.
+	 * 
+	 * @param encoded
+	 *            hex characters
+	 * @param start
+	 *            first character
+	 * @param end
+	 *            end of range (exclusive)
+	 * @param dst
+	 *            byte buffer
+	 * @return number of bytes written or -1 if invalid
+	 * @throws BufferOverflowException
+	 *             if fewer than half the number of characters remain in the
+	 *             buffer
+	 */
+	static public int decode(CharSequence encoded, int start, int end,
+			ByteBuffer dst) {
+		if ((end - start) % 2 != 0) {
+			return -1;
+		}
+		if (dst.remaining() < (end - start) / 2) {
+			throw new BufferOverflowException();
+		}
+		int n;
+		if (dst.hasArray()) {
+			n = decode(encoded, start, end, dst.array(), dst.arrayOffset()
+					+ dst.position());
+		} else {
+			byte[] tmp = new byte[(end - start) / 2];
+			n = decode(encoded, start, end, tmp, 0);
+			if (n > 0) {
+				dst.duplicate().put(tmp, 0, n);
+			}
+		}
+		if (n > 0) {
+			dst.position(dst.position() + n);
+		}
+		return n;
+	}
 
-		char[] binaryData = encoded.toCharArray();
-		int lengthDecode = lengthData / 2;
-		byte[] decodedData = new byte[lengthDecode];
-		byte temp1, temp2;
-		char tempChar;
-		for (int i = 0; i < lengthDecode; i++) {
-			tempChar = binaryData[i * 2];
-			temp1 = (tempChar < BASELENGTH) ? hexNumberTable[tempChar] : -1;
-			if (temp1 == -1)
-				return null;
-			tempChar = binaryData[i * 2 + 1];
-			temp2 = (tempChar < BASELENGTH) ? hexNumberTable[tempChar] : -1;
-			if (temp2 == -1)
-				return null;
-			decodedData[i] = (byte) ((temp1 << 4) | temp2);
-		}
-		return decodedData;
+	/**
+	 * Decodes a range of hex characters. The destination needs to hold half
+	 * the number of characters.
+	 * 
+	 * @param encoded
+	 *            hex characters
+	 * @param start
+	 *            first character
+	 * @param end
+	 *            end of range (exclusive)
+	 * @param dst
+	 *            byte buffer
+	 * @param dstOff
+	 *            offset in dst
+	 * @return number of bytes written or -1 if invalid
+	 */
+	static public int decode(CharSequence encoded, int start, int end,
+			byte[] dst, int dstOff) {
+		if ((end - start) % 2 != 0) {
+			return -1;
+		}
+		int d = dstOff;
+		for (int i = start; i < end; i += 2) {
+			int h1 = value(encoded.charAt(i));
+			int h2 = value(encoded.charAt(i + 1));
+			if ((h1 | h2) < 0) {
+				return -1;
+			}
+			dst[d++] = (byte) ((h1 << 4) | h2);
+		}
+		return d - dstOff;
 	}
 
 }
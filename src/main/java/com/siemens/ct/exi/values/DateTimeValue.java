@@ -24,10 +24,13 @@
 package com.siemens.ct.exi.values;
 
 import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.Calendar;
 import java.util.TimeZone;
 
-import com.siemens.ct.exi.exceptions.XMLParsingException;
 import com.siemens.ct.exi.types.DateTimeType;
 import com.siemens.ct.exi.util.MethodsBag;
 
@@ -54,6 +57,9 @@ public class DateTimeValue extends AbstractValue {
 	static final int SECONDS_IN_MINUTE = 64;
 	static final int SECONDS_IN_HOUR = 64 * 64;
 
+	// default seconds per day (epoch conversion)
+	private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
 	public static final int MONTH_MULTIPLICATOR = 32;
 
 	public final DateTimeType type;
@@ -95,8 +101,29 @@ public class DateTimeValue extends AbstractValue {
 	}
 
 	public static DateTimeValue parse(String cal, DateTimeType type) {
+		return parse(cal, 0, cal.length(), type);
+	}
 
-		cal = cal.trim();
+	/**
+	 * Parses the lexical date-time representation in the given character
+	 * range. The characters are read in place, no intermediate strings or
+	 * buffers are created.
+	 * 
+	 * @param cs character sequence
+	 * @param start start index (inclusive)
+	 * @param end end index (exclusive)
+	 * @param type date-time type
+	 * @return date-time value or null if not valid
+	 */
+	public static DateTimeValue parse(CharSequence cs, int start, int end,
+			DateTimeType type) {
+		// trim
+		while (start < end && cs.charAt(start) <= ' ') {
+			start++;
+		}
+		while (end > start && cs.charAt(end - 1) <= ' ') {
+			end--;
+		}
 
 		int sYear = 0;
 		int sMonthDay = 0;
@@ -106,224 +133,194 @@ public class DateTimeValue extends AbstractValue {
 		boolean sPresenceTimezone;
 		int sTimezone;
 
-		StringBuilder sbCal = new StringBuilder(cal);
+		// cursor
+		int pos = start;
+		int v;
 
-		try {
-			switch (type) {
-			case gYear: // gYear Year, [Time-Zone]
-				sYear = parseYear(sbCal);
-				break;
-			case gYearMonth: // gYearMonth Year, MonthDay, [TimeZone]
-				sYear = parseYear(sbCal);
-				checkCharacter(sbCal, '-'); // hyphen
-				sMonthDay = parseMonth(sbCal) * MONTH_MULTIPLICATOR;
-				break;
-			case date: // date Year, MonthDay, [TimeZone]
-				sYear = parseYear(sbCal); // year
-				checkCharacter(sbCal, '-'); // hyphen
-				sMonthDay = parseMonthDay(sbCal);
-				break;
-			case dateTime: // dateTime Year, MonthDay, Time, [FractionalSecs],
-				// [TimeZone]
-				sYear = parseYear(sbCal);
-				checkCharacter(sbCal, '-'); // hyphen
-				sMonthDay = parseMonthDay(sbCal);
-				checkCharacter(sbCal, 'T'); // Time
-				// Note: *no* break;
-			case time: // time Time, [FractionalSecs], [TimeZone]
-				sTime = parseTime(sbCal);
-				if (sbCal.length() > 0 && sbCal.charAt(0) == '.') {
-					sbCal.deleteCharAt(0); // can't remove it immediately,
-											// because
-					// fracSec is option (could be timezone)
-					int digits = countDigits(sbCal);
-					sFractionalSecs = Integer.parseInt(new StringBuilder(sbCal
-							.substring(0, digits)).reverse().toString());
-					sPresenceFractionalSecs = true;
-					// adjust buffer
-					sbCal.delete(0, digits);
+		switch (type) {
+		case gYear: // gYear Year, [Time-Zone]
+		case gYearMonth: // gYearMonth Year, MonthDay, [TimeZone]
+		case date: // date Year, MonthDay, [TimeZone]
+		case dateTime: // dateTime Year, MonthDay, Time, [FractionalSecs],
+			// [TimeZone]
+			if (pos < end && cs.charAt(pos) == '-') {
+				if ((v = parseDigits(cs, pos + 1, end, 4)) < 0) {
+					return null;
 				}
-				break;
-			case gMonth: // gMonth MonthDay, [TimeZone]
-				checkCharacter(sbCal, '-'); // hyphen
-				checkCharacter(sbCal, '-'); // hyphen
-				sMonthDay = parseMonth(sbCal) * MONTH_MULTIPLICATOR;
-				if (sbCal.length() > 1 && sbCal.charAt(0) == sbCal.charAt(1)
-						&& sbCal.charAt(0) == '-') {
-					checkCharacter(sbCal, '-'); // hyphen
-					checkCharacter(sbCal, '-'); // hyphen
+				sYear = -v;
+				pos += 5;
+			} else {
+				if ((sYear = parseDigits(cs, pos, end, 4)) < 0) {
+					return null;
 				}
+				pos += 4;
+			}
+			if (type == DateTimeType.gYear) {
 				break;
-			case gMonthDay: // gMonthDay MonthDay, [TimeZone]
-				checkCharacter(sbCal, '-'); // hyphen
-				checkCharacter(sbCal, '-'); // hyphen
-				sMonthDay = parseMonthDay(sbCal);
+			}
+			if (!isCharacter(cs, pos++, end, '-')
+					|| (v = parseDigits(cs, pos, end, 2)) < 0) {
+				return null;
+			}
+			pos += 2;
+			sMonthDay = v * MONTH_MULTIPLICATOR;
+			if (type == DateTimeType.gYearMonth) {
 				break;
-			case gDay: // gDay MonthDay, [TimeZone]
-				checkCharacter(sbCal, '-'); // hyphen
-				checkCharacter(sbCal, '-'); // hyphen
-				checkCharacter(sbCal, '-'); // hyphen
-				sMonthDay = parseDay(sbCal);
+			}
+			if (!isCharacter(cs, pos++, end, '-')
+					|| (v = parseDigits(cs, pos, end, 2)) < 0) {
+				return null;
+			}
+			pos += 2;
+			sMonthDay += v;
+			if (type == DateTimeType.date) {
 				break;
-			default:
-				throw new UnsupportedOperationException();
 			}
-			// [TimeZone]
-			// lexical representation of a timezone: (('+' | '-') hh ':' mm) |
-			// 'Z',
-			// where
-			// * hh is a two-digit numeral (with leading zeros as required) that
-			// represents the hours,
-			// * mm is a two-digit numeral that represents the minutes,
-			// * '+' indicates a nonnegative duration,
-			// * '-' indicates a nonpositive duration.
-			//
-			// TimeZone TZHours * 64 + TZMinutes (896 = 14 * 64)
-
-			// plus, minus, Z or nothing ?
-			if (sbCal.length() == 0) {
-				sPresenceTimezone = false;
-				sTimezone = 0;
-			} else if (sbCal.length() == 1 && sbCal.charAt(0) == 'Z') {
-				sbCal.delete(0, 1);
-				sPresenceTimezone = true;
-				// sTimezone = TIMEZONE_OFFSET_IN_MINUTES;
-				sTimezone = 0;
-			} else {
-				sPresenceTimezone = true;
-				int multiplicator;
-				if (sbCal.charAt(0) == '+') {
-					multiplicator = 1;
-				} else if (sbCal.charAt(0) == '-') {
-					multiplicator = -1;
-				} else {
-					throw new XMLParsingException(
-							"Unexpected character while parsing");
+			if (!isCharacter(cs, pos++, end, 'T')) {
+				return null;
+			}
+			// Note: *no* break;
+		case time: // time Time, [FractionalSecs], [TimeZone]
+			// Time ((Hour * 64) + Minutes) * 64 + seconds
+			int hour, minutes, seconds;
+			if ((hour = parseDigits(cs, pos, end, 2)) < 0
+					|| !isCharacter(cs, pos + 2, end, ':')
+					|| (minutes = parseDigits(cs, pos + 3, end, 2)) < 0
+					|| !isCharacter(cs, pos + 5, end, ':')
+					|| (seconds = parseDigits(cs, pos + 6, end, 2)) < 0) {
+				return null;
+			}
+			pos += 8;
+			sTime = ((hour * 64) + minutes) * 64 + seconds;
+			if (pos < end && cs.charAt(pos) == '.') {
+				// fracSec is option (could be timezone)
+				int digits = pos + 1;
+				while (digits < end && isDigit(cs.charAt(digits))) {
+					digits++;
 				}
-
-				// hours
-				int hours = Integer.parseInt(sbCal.substring(1, 3));
-				// colon
-				assert (sbCal.charAt(3) == ':');
-				// minutes
-				int minutes = Integer.parseInt(sbCal.substring(4, 6));
-
-				// sTimezone = (multiplicator) * (hours * 64 + minutes) +
-				// TIMEZONE_OFFSET_IN_MINUTES;
-				sTimezone = (multiplicator) * (hours * 64 + minutes);
+				if (digits == pos + 1) {
+					return null;
+				}
+				// digits in reverse order
+				long revFracSecs = 0;
+				for (int i = digits - 1; i > pos; i--) {
+					revFracSecs = 10 * revFracSecs + (cs.charAt(i) - '0');
+					if (revFracSecs > Integer.MAX_VALUE) {
+						return null;
+					}
+				}
+				sFractionalSecs = (int) revFracSecs;
+				sPresenceFractionalSecs = true;
+				pos = digits;
 			}
-
-			return new DateTimeValue(type, sYear, sMonthDay, sTime,
-					sPresenceFractionalSecs, sFractionalSecs,
-					sPresenceTimezone, sTimezone);
-		} catch (RuntimeException e) {
-			return null;
-		} catch (XMLParsingException e) {
-			return null;
+			break;
+		case gMonth: // gMonth MonthDay, [TimeZone]
+			if (!isCharacter(cs, pos, end, '-')
+					|| !isCharacter(cs, pos + 1, end, '-')
+					|| (v = parseDigits(cs, pos + 2, end, 2)) < 0) {
+				return null;
+			}
+			pos += 4;
+			sMonthDay = v * MONTH_MULTIPLICATOR;
+			if (end - pos > 1 && cs.charAt(pos) == '-'
+					&& cs.charAt(pos + 1) == '-') {
+				pos += 2;
+			}
+			break;
+		case gMonthDay: // gMonthDay MonthDay, [TimeZone]
+			if (!isCharacter(cs, pos, end, '-')
+					|| !isCharacter(cs, pos + 1, end, '-')
+					|| (v = parseDigits(cs, pos + 2, end, 2)) < 0
+					|| !isCharacter(cs, pos + 4, end, '-')
+					|| (sMonthDay = parseDigits(cs, pos + 5, end, 2)) < 0) {
+				return null;
+			}
+			pos += 7;
+			sMonthDay += v * MONTH_MULTIPLICATOR;
+			break;
+		case gDay: // gDay MonthDay, [TimeZone]
+			if (!isCharacter(cs, pos, end, '-')
+					|| !isCharacter(cs, pos + 1, end, '-')
+					|| !isCharacter(cs, pos + 2, end, '-')
+					|| (sMonthDay = parseDigits(cs, pos + 3, end, 2)) < 0) {
+				return null;
+			}
+			pos += 5;
+			break;
+		default:
+			throw new UnsupportedOperationException();
 		}
-	}
-
-	protected static int parseYear(StringBuilder sb) {
-		String sYear;
-		int len;
-		if (sb.charAt(0) == '-') {
-			sYear = sb.substring(0, 5);
-			len = 5;
+		// [TimeZone]
+		// lexical representation of a timezone: (('+' | '-') hh ':' mm) |
+		// 'Z',
+		// where
+		// * hh is a two-digit numeral (with leading zeros as required) that
+		// represents the hours,
+		// * mm is a two-digit numeral that represents the minutes,
+		// * '+' indicates a nonnegative duration,
+		// * '-' indicates a nonpositive duration.
+		//
+		// TimeZone TZHours * 64 + TZMinutes (896 = 14 * 64)
+
+		// plus, minus, Z or nothing ?
+		if (pos == end) {
+			sPresenceTimezone = false;
+			sTimezone = 0;
+		} else if (end - pos == 1 && cs.charAt(pos) == 'Z') {
+			sPresenceTimezone = true;
+			sTimezone = 0;
 		} else {
-			sYear = sb.substring(0, 4);
-			len = 4;
-		}
-		int year = Integer.parseInt(sYear);
-
-		// adjust buffer
-		sb.delete(0, len);
+			sPresenceTimezone = true;
+			int multiplicator;
+			if (cs.charAt(pos) == '+') {
+				multiplicator = 1;
+			} else if (cs.charAt(pos) == '-') {
+				multiplicator = -1;
+			} else {
+				// Unexpected character while parsing
+				return null;
+			}
 
-		return year;
-	}
+			int hours, minutes;
+			if ((hours = parseDigits(cs, pos + 1, end, 2)) < 0
+					|| !isCharacter(cs, pos + 3, end, ':')
+					|| (minutes = parseDigits(cs, pos + 4, end, 2)) < 0) {
+				return null;
+			}
 
-	protected static void checkCharacter(StringBuilder sb, char c)
-			throws XMLParsingException {
-		if (sb.length() > 0 && sb.charAt(0) == c) {
-			sb.delete(0, 1);
-		} else {
-			throw new XMLParsingException("Unexpected character while parsing");
+			sTimezone = (multiplicator) * (hours * 64 + minutes);
 		}
-	}
-
-	protected static int parseMonth(StringBuilder sb) {
-		int month = Integer.parseInt(sb.substring(0, 2));
-
-		// adjust buffer
-		sb.delete(0, 2);
-
-		return month;
-	}
-
-	protected static int parseDay(StringBuilder sb) {
-		String sDay = sb.substring(0, 2);
-		int day = Integer.parseInt(sDay);
-
-		// adjust buffer
-		sb.delete(0, 2);
 
-		return day;
-	}
-
-	protected static int parseMonthDay(StringBuilder sb)
-			throws XMLParsingException {
-		int month = parseMonth(sb); // month
-		checkCharacter(sb, '-'); // hyphen
-		int day = parseDay(sb); // day
-
-		return month * MONTH_MULTIPLICATOR + day;
-	}
-
-	// Time ((Hour * 64) + Minutes) * 64 + seconds
-	protected static int parseTime(StringBuilder sb) throws XMLParsingException {
-		// hour
-		int hour = Integer.parseInt(sb.substring(0, 2));
-		sb.delete(0, 2);
-
-		checkCharacter(sb, ':'); // colon
-
-		// minute
-		int minutes = Integer.parseInt(sb.substring(0, 2));
-		sb.delete(0, 2);
-
-		checkCharacter(sb, ':'); // colon
-
-		// second
-		int seconds = Integer.parseInt(sb.substring(0, 2));
-		sb.delete(0, 2);
-
-		return ((hour * 64) + minutes) * 64 + seconds;
+		return new DateTimeValue(type, sYear, sMonthDay, sTime,
+				sPresenceFractionalSecs, sFractionalSecs, sPresenceTimezone,
+				sTimezone);
 	}
 
-	private static int countDigits(StringBuilder sb) {
-		int length = sb.length();
-		int index = 0;
-
-		while (index < length && isDigit(sb.charAt(index))) {
-			index++;
+	/*
+	 * Returns the value of n decimal digits starting at pos or -1
+	 */
+	private static int parseDigits(CharSequence cs, int pos, int end, int n) {
+		if (pos + n > end) {
+			return -1;
+		}
+		int v = 0;
+		for (int i = pos; i < pos + n; i++) {
+			char c = cs.charAt(i);
+			if (!isDigit(c)) {
+				return -1;
+			}
+			v = 10 * v + (c - '0');
 		}
+		return v;
+	}
 
-		return index;
+	private static boolean isCharacter(CharSequence cs, int pos, int end,
+			char c) {
+		return pos < end && cs.charAt(pos) == c;
 	}
 
 	private static boolean isDigit(char c) {
-		boolean isDigit = false;
-
-		char[] digits = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9' };
-
-		int i = 0;
-		while (!isDigit && i < digits.length) {
-			if (c == digits[i]) {
-				isDigit = true;
-			}
-			i++;
-		}
-
-		return isDigit;
+		return c >= '0' && c <= '9';
 	}
 
 	/**
@@ -416,6 +413,177 @@ public class DateTimeValue extends AbstractValue {
 		return time;
 	}
 
+	/**
+	 * Creates a UTC dateTime value from epoch seconds and nanoseconds without
+	 * going through a Calendar.
+	 * 
+	 * @param epochSecond seconds since 1970-01-01T00:00:00Z
+	 * @param nanoOfSecond nanoseconds within the second
+	 * @return date-time value
+	 */
+	public static DateTimeValue parseEpochSecond(long epochSecond,
+			int nanoOfSecond) {
+		long days = Math.floorDiv(epochSecond, SECONDS_PER_DAY);
+		int secondOfDay = (int) Math.floorMod(epochSecond, SECONDS_PER_DAY);
+
+		// civil from days, see http://howardhinnant.github.io/date_algorithms.html
+		long z = days + 719468;
+		long era = (z >= 0 ? z : z - 146096) / 146097;
+		long doe = z - era * 146097;
+		long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+		long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+		long mp = (5 * doy + 2) / 153;
+		int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+		int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+		int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+
+		int hour = secondOfDay / 3600;
+		int minute = (secondOfDay / 60) % 60;
+		int second = secondOfDay % 60;
+
+		return new DateTimeValue(DateTimeType.dateTime, year, month
+				* MONTH_MULTIPLICATOR + day, ((hour * 64) + minute) * 64
+				+ second, nanoOfSecond != 0,
+				getFractionalSecs(nanoOfSecond), true, 0);
+	}
+
+	/**
+	 * Creates a UTC dateTime value from epoch milliseconds.
+	 * 
+	 * @param epochMilli milliseconds since 1970-01-01T00:00:00Z
+	 * @return date-time value
+	 */
+	public static DateTimeValue parseEpochMilli(long epochMilli) {
+		return parseEpochSecond(Math.floorDiv(epochMilli, 1000),
+				(int) Math.floorMod(epochMilli, 1000) * 1000000);
+	}
+
+	public static DateTimeValue parse(Instant instant) {
+		return parseEpochSecond(instant.getEpochSecond(), instant.getNano());
+	}
+
+	public static DateTimeValue parse(OffsetDateTime odt) {
+		int tzMinutes = odt.getOffset().getTotalSeconds() / 60;
+		int tzHours = tzMinutes / 60;
+		tzMinutes -= tzHours * 60;
+
+		return new DateTimeValue(DateTimeType.dateTime, odt.getYear(),
+				odt.getMonthValue() * MONTH_MULTIPLICATOR
+						+ odt.getDayOfMonth(), ((odt.getHour() * 64) + odt
+						.getMinute()) * 64 + odt.getSecond(),
+				odt.getNano() != 0, getFractionalSecs(odt.getNano()), true,
+				tzHours * 64 + tzMinutes);
+	}
+
+	public static DateTimeValue parse(LocalDate date) {
+		return new DateTimeValue(DateTimeType.date, date.getYear(),
+				date.getMonthValue() * MONTH_MULTIPLICATOR
+						+ date.getDayOfMonth(), 0, false, 0, false, 0);
+	}
+
+	/*
+	 * EXI fractional seconds are the digits in reverse order, e.g. 0.012 s
+	 * --> "012" --> 210
+	 */
+	private static int getFractionalSecs(int nanoOfSecond) {
+		if (nanoOfSecond <= 0) {
+			return 0;
+		}
+		int digits = 9;
+		while (nanoOfSecond % 10 == 0) {
+			nanoOfSecond /= 10;
+			digits--;
+		}
+		int revFracSecs = 0;
+		for (int i = 0; i < digits; i++) {
+			revFracSecs = 10 * revFracSecs + nanoOfSecond % 10;
+			nanoOfSecond /= 10;
+		}
+		return revFracSecs;
+	}
+
+	/**
+	 * Returns the fractional seconds in nanoseconds (digits beyond nanosecond
+	 * precision are truncated).
+	 * 
+	 * @return nanoseconds within the second
+	 */
+	public int getNanoOfSecond() {
+		int nanos = 0;
+		int f = fractionalSecs;
+		for (int scale = 100000000; f > 0 && scale > 0; scale /= 10) {
+			nanos += (f % 10) * scale;
+			f /= 10;
+		}
+		return nanos;
+	}
+
+	/**
+	 * Returns the seconds since 1970-01-01T00:00:00Z for date and dateTime
+	 * values. Values without timezone are taken as UTC.
+	 * 
+	 * @return epoch seconds
+	 */
+	public long toEpochSecond() {
+		if (type != DateTimeType.dateTime && type != DateTimeType.date) {
+			throw new UnsupportedOperationException(
+					"No epoch representation for " + type);
+		}
+		int month = monthDay / MONTH_MULTIPLICATOR;
+		int day = monthDay - month * MONTH_MULTIPLICATOR;
+
+		// days from civil, see
+		// http://howardhinnant.github.io/date_algorithms.html
+		long y = month <= 2 ? (long) year - 1 : year;
+		long era = (y >= 0 ? y : y - 399) / 400;
+		long yoe = y - era * 400;
+		long doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day
+				- 1;
+		long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+		long days = era * 146097 + doe - 719468;
+
+		int hour = time / SECONDS_IN_HOUR;
+		int minutes = (time - hour * SECONDS_IN_HOUR) / SECONDS_IN_MINUTE;
+		int seconds = time - hour * SECONDS_IN_HOUR - minutes
+				* SECONDS_IN_MINUTE;
+
+		return days * SECONDS_PER_DAY + hour * 3600 + minutes * 60 + seconds
+				- getTimezoneOffsetInSeconds();
+	}
+
+	public long toEpochMilli() {
+		return toEpochSecond() * 1000 + getNanoOfSecond() / 1000000;
+	}
+
+	public Instant toInstant() {
+		return Instant.ofEpochSecond(toEpochSecond(), getNanoOfSecond());
+	}
+
+	public OffsetDateTime toOffsetDateTime() {
+		return OffsetDateTime.ofInstant(toInstant(),
+				ZoneOffset.ofTotalSeconds(getTimezoneOffsetInSeconds()));
+	}
+
+	public LocalDate toLocalDate() {
+		if (type != DateTimeType.dateTime && type != DateTimeType.date) {
+			throw new UnsupportedOperationException("No local date for "
+					+ type);
+		}
+		int month = monthDay / MONTH_MULTIPLICATOR;
+		return LocalDate.of(year, month, monthDay - month
+				* MONTH_MULTIPLICATOR);
+	}
+
+	private int getTimezoneOffsetInSeconds() {
+		if (!presenceTimezone) {
+			return 0;
+		}
+		// TZHours * 64 + TZMinutes
+		int tzHours = timezone / 64;
+		int tzMinutes = timezone - tzHours * 64;
+		return (tzHours * 60 + tzMinutes) * 60;
+	}
+
 	public Calendar toCalendar() {
 		if (cal == null) {
 			Calendar cal = Calendar.getInstance();
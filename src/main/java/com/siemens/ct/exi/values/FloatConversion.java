@@ -0,0 +1,422 @@
+/*
+ * Copyright (c) 2007-2016 Siemens AG
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ */
+
+package com.siemens.ct.exi.values;
+
+import java.math.BigInteger;
+
+/**
+ * Correctly rounded conversions between the EXI float representation
+ * (mantissa and 10-based exponent) and IEEE 754 double/float values.
+ * 
+ * <p>
+ * Decimal to binary follows the Eisel-Lemire algorithm (Clinger's fast path
+ * first, exact fallback for the rare ambiguous cases). Binary to decimal
+ * follows Schubfach and yields the shortest decimal that rounds back to the
+ * same binary value.
+ * </p>
+ * 
+ * @author Daniel.Peintner.EXT@siemens.com
+ * @author Joerg.Heuer@siemens.com
+ * 
+ * @version 0.9.7-SNAPSHOT
+ */
+
+final class FloatConversion {
+
+	/* exactly representable powers of ten (Clinger's fast path) */
+	private static final double[] DOUBLE_POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4,
+			1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+			1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+	private static final float[] FLOAT_POW10 = { 1e0f, 1e1f, 1e2f, 1e3f,
+			1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f };
+
+	/*
+	 * Eisel-Lemire: 5^q normalized to 128 bits (hi, lo) for q in [-342, 308].
+	 * Positive powers are truncated, negative powers rounded up.
+	 */
+	private static final int POW5_MIN = -342;
+	private static final int POW5_MAX = 308;
+	private static final long[] POW5_128 = new long[2 * (POW5_MAX - POW5_MIN + 1)];
+
+	/*
+	 * Schubfach: g = floor(10^k 2^-r) + 1 with 2^125 <= 10^k 2^-r < 2^126
+	 * split into g1 = g / 2^63 and g0 = g mod 2^63, for k in [-292, 324]
+	 */
+	private static final int G_MIN = -292;
+	private static final int G_MAX = 324;
+	private static final long[] G = new long[2 * (G_MAX - G_MIN + 1)];
+
+	private static final long MASK_63 = (1L << 63) - 1;
+
+	static {
+		final BigInteger five = BigInteger.valueOf(5);
+		for (int q = POW5_MIN; q <= POW5_MAX; q++) {
+			BigInteger c;
+			if (q < 0) {
+				BigInteger power5 = five.pow(-q);
+				int z = power5.bitLength();
+				int b = q >= -27 ? z + 127 : 2 * z + 128;
+				c = BigInteger.ONE.shiftLeft(b).divide(power5)
+						.add(BigInteger.ONE);
+			} else {
+				c = five.pow(q);
+			}
+			int bl = c.bitLength();
+			c = bl > 128 ? c.shiftRight(bl - 128) : c.shiftLeft(128 - bl);
+			int i = 2 * (q - POW5_MIN);
+			POW5_128[i] = c.shiftRight(64).longValue();
+			POW5_128[i + 1] = c.longValue();
+		}
+
+		for (int k = G_MIN; k <= G_MAX; k++) {
+			int r = flog2pow10(k) - 125;
+			BigInteger g;
+			if (k >= 0) {
+				BigInteger pow10 = BigInteger.TEN.pow(k);
+				g = r >= 0 ? pow10.shiftRight(r) : pow10.shiftLeft(-r);
+			} else {
+				g = BigInteger.ONE.shiftLeft(-r).divide(
+						BigInteger.TEN.pow(-k));
+			}
+			g = g.add(BigInteger.ONE);
+			int i = 2 * (k - G_MIN);
+			G[i] = g.shiftRight(63).longValue();
+			G[i + 1] = g.longValue() & MASK_63;
+		}
+	}
+
+	private FloatConversion() {
+	}
+
+	/**
+	 * Correctly rounded double value of <code>mantissa * 10^exponent</code>.
+	 */
+	static double toDouble(long mantissa, long exponent) {
+		if (mantissa == 0) {
+			return 0.0d;
+		}
+		final boolean negative = mantissa < 0;
+		// Long.MIN_VALUE keeps its bit pattern, which is 2^63 unsigned
+		final long w = negative ? -mantissa : mantissa;
+
+		if (w > 0 && w <= (1L << 53) && exponent >= -22 && exponent <= 22) {
+			// both operands exact, IEEE division/multiplication rounds
+			double d = exponent < 0 ? w / DOUBLE_POW10[(int) -exponent] : w
+					* DOUBLE_POW10[(int) exponent];
+			return negative ? -d : d;
+		}
+
+		long bits = eiselLemire(w, exponent, 52, -1023, 0x7FF, -342, 308, -4,
+				23);
+		if (bits < 0) {
+			// ambiguous approximation, rare
+			return Double.parseDouble(mantissa + "E" + exponent);
+		}
+		double d = Double.longBitsToDouble(bits);
+		return negative ? -d : d;
+	}
+
+	/**
+	 * Correctly rounded float value of <code>mantissa * 10^exponent</code>.
+	 */
+	static float toFloat(long mantissa, long exponent) {
+		if (mantissa == 0) {
+			return 0.0f;
+		}
+		final boolean negative = mantissa < 0;
+		final long w = negative ? -mantissa : mantissa;
+
+		if (w > 0 && w <= (1L << 24) && exponent >= -10 && exponent <= 10) {
+			float f = exponent < 0 ? w / FLOAT_POW10[(int) -exponent] : w
+					* FLOAT_POW10[(int) exponent];
+			return negative ? -f : f;
+		}
+
+		long bits = eiselLemire(w, exponent, 23, -127, 0xFF, -65, 38, -17, 10);
+		if (bits < 0) {
+			return Float.parseFloat(mantissa + "E" + exponent);
+		}
+		float f = Float.intBitsToFloat((int) bits);
+		return negative ? -f : f;
+	}
+
+	/*
+	 * Returns the (positive) IEEE bit pattern of w * 10^q or -1 if the
+	 * approximation is not decisive (or the result is subnormal).
+	 */
+	private static long eiselLemire(long w, long exponent, int mantissaBits,
+			int minExponent, int infinitePower, int smallestPowerOfTen,
+			int largestPowerOfTen, int minRoundToEven, int maxRoundToEven) {
+		if (exponent < smallestPowerOfTen) {
+			return 0;
+		}
+		if (exponent > largestPowerOfTen) {
+			return (long) infinitePower << mantissaBits;
+		}
+		final int q = (int) exponent;
+		final int lz = Long.numberOfLeadingZeros(w);
+		w <<= lz;
+
+		// 128-bit product of w and 5^q, second word only if needed
+		final int index = 2 * (q - POW5_MIN);
+		final long precisionMask = 0xFFFFFFFFFFFFFFFFL >>> (mantissaBits + 3);
+		long hi = unsignedMultiplyHigh(w, POW5_128[index]);
+		long lo = w * POW5_128[index];
+		if ((hi & precisionMask) == precisionMask) {
+			long hi2 = unsignedMultiplyHigh(w, POW5_128[index + 1]);
+			lo += hi2;
+			if (Long.compareUnsigned(hi2, lo) > 0) {
+				hi++;
+			}
+		}
+		if (lo == 0xFFFFFFFFFFFFFFFFL) {
+			return -1;
+		}
+
+		final int upperbit = (int) (hi >>> 63);
+		final int shift = upperbit + 64 - mantissaBits - 3;
+		long m = hi >>> shift;
+		int power2 = (((217706 * q) >> 16) + 63) + upperbit - lz - minExponent;
+		if (power2 <= 0) {
+			return -1;
+		}
+
+		// exactly halfway: round to even
+		if ((lo == 0 || lo == 1) && q >= minRoundToEven && q <= maxRoundToEven
+				&& (m & 3) == 1 && (m << shift) == hi) {
+			m &= ~1L;
+		}
+		m += (m & 1);
+		m >>>= 1;
+		if (m >= (2L << mantissaBits)) {
+			m = 1L << mantissaBits;
+			power2++;
+		}
+		m &= ~(1L << mantissaBits);
+		if (power2 >= infinitePower) {
+			return (long) infinitePower << mantissaBits;
+		}
+		return ((long) power2 << mantissaBits) | m;
+	}
+
+	/**
+	 * Shortest decimal representation of a finite double.
+	 */
+	static FloatValue toFloatValue(double v) {
+		long[] decimal = new long[2];
+		toDecimal(v, decimal, 0);
+		return new FloatValue(decimal[0], decimal[1]);
+	}
+
+	/**
+	 * Shortest decimal representation of a finite float.
+	 */
+	static FloatValue toFloatValue(float v) {
+		long[] decimal = new long[2];
+		toDecimal(v, decimal, 0);
+		return new FloatValue(decimal[0], decimal[1]);
+	}
+
+	/**
+	 * Shortest decimal representation of a finite double, mantissa and
+	 * exponent are stored at <code>decimal[index]</code> and
+	 * <code>decimal[index + 1]</code>.
+	 */
+	static void toDecimal(double v, long[] decimal, int index) {
+		final long bits = Double.doubleToRawLongBits(v);
+		final boolean negative = bits < 0;
+		final long t = bits & ((1L << 52) - 1);
+		final int bq = (int) (bits >>> 52) & 0x7FF;
+		if (bq != 0) {
+			// normal value, mq = -q
+			final int mq = 1074 + 1 - bq;
+			final long c = (1L << 52) | t;
+			// integer values
+			if (0 < mq && mq < 53) {
+				long f = c >> mq;
+				if (f << mq == c) {
+					setDecimal(decimal, index, negative, f, 0);
+					return;
+				}
+			}
+			toDecimal(negative, -mq, c, 0, 1L << 52, -1074, decimal, index);
+			return;
+		}
+		if (t != 0) {
+			// subnormal value
+			if (t < 3) {
+				toDecimal(negative, -1074, 10 * t, -1, 1L << 52, -1074,
+						decimal, index);
+			} else {
+				toDecimal(negative, -1074, t, 0, 1L << 52, -1074, decimal,
+						index);
+			}
+			return;
+		}
+		setDecimal(decimal, index, negative, 0, 0);
+	}
+
+	/**
+	 * Shortest decimal representation of a finite float, see
+	 * {@link #toDecimal(double, long[], int)}.
+	 */
+	static void toDecimal(float v, long[] decimal, int index) {
+		final int bits = Float.floatToRawIntBits(v);
+		final boolean negative = bits < 0;
+		final long t = bits & ((1 << 23) - 1);
+		final int bq = (bits >>> 23) & 0xFF;
+		if (bq != 0) {
+			final int mq = 149 + 1 - bq;
+			final long c = (1L << 23) | t;
+			if (0 < mq && mq < 24) {
+				long f = c >> mq;
+				if (f << mq == c) {
+					setDecimal(decimal, index, negative, f, 0);
+					return;
+				}
+			}
+			toDecimal(negative, -mq, c, 0, 1L << 23, -149, decimal, index);
+			return;
+		}
+		if (t != 0) {
+			if (t < 8) {
+				toDecimal(negative, -149, 10 * t, -1, 1L << 23, -149, decimal,
+						index);
+			} else {
+				toDecimal(negative, -149, t, 0, 1L << 23, -149, decimal, index);
+			}
+			return;
+		}
+		setDecimal(decimal, index, negative, 0, 0);
+	}
+
+	/*
+	 * Schubfach for v = c 2^q, the decimal result is scaled by 10^dk
+	 */
+	private static void toDecimal(boolean negative, int q, long c, int dk,
+			long cMin, int qMin, long[] decimal, int index) {
+		final int out = (int) c & 0x1;
+		final long cb = c << 2;
+		final long cbr = cb + 2;
+		final long cbl;
+		final int k;
+		if (c != cMin || q == qMin) {
+			// regular spacing
+			cbl = cb - 2;
+			k = flog10pow2(q);
+		} else {
+			// irregular spacing
+			cbl = cb - 1;
+			k = flog10threeQuartersPow2(q);
+		}
+		final int h = q + flog2pow10(-k) + 2;
+
+		final int i = 2 * (-k - G_MIN);
+		final long g1 = G[i];
+		final long g0 = G[i + 1];
+
+		final long vb = rop(g1, g0, cb << h);
+		final long vbl = rop(g1, g0, cbl << h);
+		final long vbr = rop(g1, g0, cbr << h);
+
+		final long s = vb >> 2;
+		if (s >= 100) {
+			// try one digit less: s' = floor(s / 10)
+			long sp10 = 10 * unsignedMultiplyHigh(s,
+					115292150460684698L << 4);
+			long tp10 = sp10 + 10;
+			boolean upin = vbl + out <= sp10 << 2;
+			boolean wpin = (tp10 << 2) + out <= vbr;
+			if (upin != wpin) {
+				setDecimal(decimal, index, negative, upin ? sp10 : tp10, k + dk);
+				return;
+			}
+		}
+
+		final long t = s + 1;
+		boolean uin = vbl + out <= s << 2;
+		boolean win = (t << 2) + out <= vbr;
+		if (uin != win) {
+			// exactly one of u or w lies in the rounding interval
+			setDecimal(decimal, index, negative, uin ? s : t, k + dk);
+			return;
+		}
+		// both: pick the closer one, ties to even
+		long cmp = vb - (s + t << 1);
+		setDecimal(decimal, index, negative, cmp < 0 || cmp == 0
+				&& (s & 0x1) == 0 ? s : t, k + dk);
+	}
+
+	private static void setDecimal(long[] decimal, int index,
+			boolean negative, long f, int e) {
+		// mantissas have no trailing zeros
+		if (f != 0) {
+			while (f % 10 == 0) {
+				f /= 10;
+				e++;
+			}
+		}
+		decimal[index] = negative ? -f : f;
+		decimal[index + 1] = e;
+	}
+
+	/*
+	 * Round to odd of cp g 2^-127 with g = g1 2^63 + g0
+	 */
+	private static long rop(long g1, long g0, long cp) {
+		long x1 = unsignedMultiplyHigh(g0, cp);
+		long y0 = g1 * cp;
+		long y1 = unsignedMultiplyHigh(g1, cp);
+		long z = (y0 >>> 1) + x1;
+		long vbp = y1 + (z >>> 63);
+		return vbp | (z & MASK_63) + MASK_63 >>> 63;
+	}
+
+	/* floor(log10(2^e)) */
+	static int flog10pow2(int e) {
+		return (int) (e * 661971961083L >> 41);
+	}
+
+	/* floor(log10(3/4 2^e)) */
+	static int flog10threeQuartersPow2(int e) {
+		return (int) (e * 661971961083L + -274743187321L >> 41);
+	}
+
+	/* floor(log2(10^e)) */
+	static int flog2pow10(int e) {
+		return (int) (e * 913124641741L >> 38);
+	}
+
+	/* high 64 bits of the unsigned 128-bit product */
+	static long unsignedMultiplyHigh(long x, long y) {
+		long x0 = x & 0xFFFFFFFFL;
+		long x1 = x >>> 32;
+		long y0 = y & 0xFFFFFFFFL;
+		long y1 = y >>> 32;
+		long p01 = x0 * y1;
+		long middle = x1 * y0 + ((x0 * y0) >>> 32) + (p01 & 0xFFFFFFFFL);
+		return x1 * y1 + (middle >>> 32) + (p01 >>> 32);
+	}
+
+}
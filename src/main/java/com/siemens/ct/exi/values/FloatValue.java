@@ -53,8 +53,6 @@ public class FloatValue extends AbstractValue {
 			.valueOf(1);
 	public static IntegerValue FLOAT_NaN = IntegerValue.ZERO;
 
-	protected Double f;
-
 	public FloatValue(IntegerValue mantissa, IntegerValue exponent) {
 		super(ValueType.FLOAT);
 
@@ -121,34 +119,49 @@ public class FloatValue extends AbstractValue {
 	public static FloatValue parse(String value) {
 		try {
 			long sMantissa, sExponent;
-			value = value.trim();
-			if (value.length() == 0) {
+			// trim without copying
+			int start = 0;
+			int end = value.length();
+			while (start < end && value.charAt(start) <= ' ') {
+				start++;
+			}
+			while (end > start && value.charAt(end - 1) <= ' ') {
+				end--;
+			}
+			final int len = end - start;
+			if (len == 0) {
 				return null;
-			} else if (value.equals(Constants.FLOAT_INFINITY)) {
+			} else if (matches(value, start, len, Constants.FLOAT_INFINITY)) {
 				sMantissa = Constants.FLOAT_MANTISSA_INFINITY;
 				sExponent = Constants.FLOAT_SPECIAL_VALUES;
-			} else if (value.equals(Constants.FLOAT_MINUS_INFINITY)) {
+			} else if (matches(value, start, len,
+					Constants.FLOAT_MINUS_INFINITY)) {
 				sMantissa = Constants.FLOAT_MANTISSA_MINUS_INFINITY;
 				sExponent = Constants.FLOAT_SPECIAL_VALUES;
-			} else if (value.equals(Constants.FLOAT_NOT_A_NUMBER)) {
+			} else if (matches(value, start, len,
+					Constants.FLOAT_NOT_A_NUMBER)) {
 				sMantissa = Constants.FLOAT_MANTISSA_NOT_A_NUMBER;
 				sExponent = Constants.FLOAT_SPECIAL_VALUES;
 			} else {
 
 				{
-					int indexE = value.indexOf('E');
-					if (indexE == -1) {
-						indexE = value.indexOf('e');
+					int indexE = -1;
+					for (int i = start; i < end && indexE == -1; i++) {
+						char c = value.charAt(i);
+						if (c == 'E' || c == 'e') {
+							indexE = i;
+						}
 					}
 
 					char c;
-					char[] chars = value.toCharArray();
 
 					// status: detecting sign
-					boolean negative = ((c = chars[0]) == '-') ? true : false;
+					boolean negative = ((c = value.charAt(start)) == '-') ? true
+							: false;
 
-					int lenMantissa = (indexE == -1) ? chars.length : indexE;
-					int startMantissa = negative || c == '+' ? 1 : 0;
+					int endMantissa = (indexE == -1) ? end : indexE;
+					int startMantissa = negative || c == '+' ? start + 1
+							: start;
 
 					boolean decPoint = false;
 					int decimalDigits = 0;
@@ -156,13 +169,13 @@ public class FloatValue extends AbstractValue {
 					sExponent = 0;
 
 					// invalid floats
-					if (lenMantissa == 0) {
+					if (endMantissa == start) {
 						return null;
 					}
 
 					// parsing mantissa
-					for (int i = startMantissa; i < lenMantissa; i++) {
-						c = chars[i];
+					for (int i = startMantissa; i < endMantissa; i++) {
+						c = value.charAt(i);
 						switch (c) {
 						case '0':
 						case '1':
@@ -209,8 +222,8 @@ public class FloatValue extends AbstractValue {
 					// parsing exponent
 					boolean negativeExp = false;
 					if (indexE != -1) {
-						for (int i = indexE + 1; i < chars.length; i++) {
-							c = chars[i];
+						for (int i = indexE + 1; i < end; i++) {
+							c = value.charAt(i);
 							switch (c) {
 							case '0':
 								sExponent = 10 * sExponent;
@@ -263,96 +276,133 @@ public class FloatValue extends AbstractValue {
 		}
 	}
 
+	private static boolean matches(String value, int start, int len,
+			String s) {
+		return len == s.length() && value.regionMatches(start, s, 0, len);
+	}
+
 	public static FloatValue parse(float f) throws IOException {
-		int sMantissa, sExponent;
 		// infinity & not a number
 		if (Float.isInfinite(f) || Float.isNaN(f)) {
-			// exponent value is -(2^14),
-			// . the mantissa value 1 represents INF,
-			// . the mantissa value -1 represents -INF
-			// . any other mantissa value represents NaN
-			if (Float.isNaN(f)) {
-				sMantissa = Constants.FLOAT_MANTISSA_NOT_A_NUMBER; // m
-			} else if (f < 0) {
-				sMantissa = Constants.FLOAT_MANTISSA_MINUS_INFINITY; // m
-			} else {
-				sMantissa = Constants.FLOAT_MANTISSA_INFINITY; // m
-			}
-			// exponent (special value)
-			sExponent = Constants.FLOAT_SPECIAL_VALUES; // e == -(2^14)
+			return parseSpecial(Float.isNaN(f), f < 0);
 		} else {
 			/*
-			 * floating-point according to the IEEE 754 floating-point
-			 * "single format" bit layout.
+			 * shortest decimal that maps back to the same IEEE 754
+			 * "single format" value
 			 */
-			sExponent = 0;
-			while (f - (int) f != 0.0f) {
-				f *= 10;
-				sExponent--;
-			}
-			sMantissa = (int) f;
+			return FloatConversion.toFloatValue(f);
 		}
-		return new FloatValue(sMantissa, sExponent);
 	}
 
 	public static FloatValue parse(double d) throws IOException {
-		long sMantissa, sExponent;
 		// infinity & not a number
 		if (Double.isInfinite(d) || Double.isNaN(d)) {
-			// exponent value is -(2^14),
-			// . the mantissa value 1 represents INF,
-			// . the mantissa value -1 represents -INF
-			// . any other mantissa value represents NaN
-			if (Double.isNaN(d)) {
-				sMantissa = Constants.FLOAT_MANTISSA_NOT_A_NUMBER; // m
-			} else if (d < 0) {
-				sMantissa = Constants.FLOAT_MANTISSA_MINUS_INFINITY; // m
-			} else {
-				sMantissa = Constants.FLOAT_MANTISSA_INFINITY; // m
-			}
-			// exponent (special value)
-			sExponent = Constants.FLOAT_SPECIAL_VALUES; // e == -(2^14)
+			return parseSpecial(Double.isNaN(d), d < 0);
 		} else {
 			/*
-			 * floating-point according to the IEEE 754 floating-point
-			 * "double format" bit layout.
+			 * shortest decimal that maps back to the same IEEE 754
+			 * "double format" value
 			 */
-			sExponent = 0;
-			while (d - (long) d != 0.0d) {
-				d *= 10;
-				sExponent--;
-			}
-			sMantissa = (long) d;
+			return FloatConversion.toFloatValue(d);
 		}
-		return new FloatValue(sMantissa, sExponent);
 	}
 
-	public Float toFloat() {
-		if (f == null) {
-			toDouble();
+	/**
+	 * Decimal representation of a double value as used for EXI floats. The
+	 * mantissa is stored at <code>decimal[index]</code> and the 10-based
+	 * exponent at <code>decimal[index + 1]</code>.
+	 * 
+	 * @param d double value
+	 * @param decimal mantissa and exponent
+	 * @param index position in decimal
+	 */
+	public static void toDecimal(double d, long[] decimal, int index) {
+		if (Double.isNaN(d)) {
+			decimal[index] = Constants.FLOAT_MANTISSA_NOT_A_NUMBER;
+			decimal[index + 1] = Constants.FLOAT_SPECIAL_VALUES;
+		} else if (Double.isInfinite(d)) {
+			decimal[index] = d < 0 ? Constants.FLOAT_MANTISSA_MINUS_INFINITY
+					: Constants.FLOAT_MANTISSA_INFINITY;
+			decimal[index + 1] = Constants.FLOAT_SPECIAL_VALUES;
+		} else {
+			FloatConversion.toDecimal(d, decimal, index);
 		}
-		return f.floatValue();
 	}
 
-	public Double toDouble() {
-		if (f == null) {
-			if (exponent.equals(FLOAT_SPECIAL_VALUES)) {
-				if (mantissa.equals(FLOAT_NEGATIVE_INFINITY)) {
-					f = Double.NEGATIVE_INFINITY;
-				} else if (mantissa.equals(FLOAT_POSITIVE_INFINITY)) {
-					f = Double.POSITIVE_INFINITY;
-				} else {
-					f = Double.NaN;
-				}
+	/**
+	 * Correctly rounded double value of an EXI float given by mantissa and
+	 * 10-based exponent.
+	 * 
+	 * @param mantissa mantissa
+	 * @param exponent 10-based exponent
+	 * @return double value
+	 */
+	public static double toDouble(long mantissa, long exponent) {
+		if (exponent == Constants.FLOAT_SPECIAL_VALUES) {
+			if (mantissa == Constants.FLOAT_MANTISSA_MINUS_INFINITY) {
+				return Double.NEGATIVE_INFINITY;
+			} else if (mantissa == Constants.FLOAT_MANTISSA_INFINITY) {
+				return Double.POSITIVE_INFINITY;
 			} else {
-				// f = mantissa * (double) (Math.pow(10, exponent));
-				long lMantissa = mantissa.longValue();
-				long lExponent = exponent.longValue();
+				return Double.NaN;
+			}
+		} else {
+			return FloatConversion.toDouble(mantissa, exponent);
+		}
+	}
+
+	private static FloatValue parseSpecial(boolean nan, boolean negative) {
+		// exponent value is -(2^14),
+		// . the mantissa value 1 represents INF,
+		// . the mantissa value -1 represents -INF
+		// . any other mantissa value represents NaN
+		int sMantissa;
+		if (nan) {
+			sMantissa = Constants.FLOAT_MANTISSA_NOT_A_NUMBER; // m
+		} else if (negative) {
+			sMantissa = Constants.FLOAT_MANTISSA_MINUS_INFINITY; // m
+		} else {
+			sMantissa = Constants.FLOAT_MANTISSA_INFINITY; // m
+		}
+		// exponent (special value) e == -(2^14)
+		return new FloatValue(sMantissa, Constants.FLOAT_SPECIAL_VALUES);
+	}
 
-				f = lMantissa * (double) (Math.pow(10, lExponent));
+	/**
+	 * Correctly rounded IEEE 754 single value of this float.
+	 * 
+	 * @return float value
+	 */
+	public float floatValue() {
+		if (exponent.equals(FLOAT_SPECIAL_VALUES)) {
+			if (mantissa.equals(FLOAT_NEGATIVE_INFINITY)) {
+				return Float.NEGATIVE_INFINITY;
+			} else if (mantissa.equals(FLOAT_POSITIVE_INFINITY)) {
+				return Float.POSITIVE_INFINITY;
+			} else {
+				return Float.NaN;
 			}
+		} else {
+			return FloatConversion.toFloat(mantissa.longValue(),
+					exponent.longValue());
 		}
-		return f;
+	}
+
+	/**
+	 * Correctly rounded IEEE 754 double value of this float.
+	 * 
+	 * @return double value
+	 */
+	public double doubleValue() {
+		return toDouble(mantissa.longValue(), exponent.longValue());
+	}
+
+	public Float toFloat() {
+		return floatValue();
+	}
+
+	public Double toDouble() {
+		return doubleValue();
 	}
 
 	public int getCharactersLength() {
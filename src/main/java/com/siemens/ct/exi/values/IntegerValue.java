@@ -405,7 +405,7 @@ public class IntegerValue extends AbstractValue implements
 			break;
 		case BIG:
 			String src = bval.toString();
-			src.getChars(0, src.length(), cbuffer, 0);
+			src.getChars(0, src.length(), cbuffer, offset);
 			break;
 		default:
 			// return null;
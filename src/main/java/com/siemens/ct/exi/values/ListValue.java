@@ -23,10 +23,13 @@
 
 package com.siemens.ct.exi.values;
 
+import java.util.Arrays;
 import java.util.StringTokenizer;
 
 import com.siemens.ct.exi.Constants;
 import com.siemens.ct.exi.datatype.Datatype;
+import com.siemens.ct.exi.datatype.FloatDatatype;
+import com.siemens.ct.exi.datatype.IntegerDatatype;
 
 /**
  * 
@@ -38,24 +41,120 @@ import com.siemens.ct.exi.datatype.Datatype;
 
 public class ListValue extends AbstractValue {
 
-	protected final Value[] values;
+	protected Value[] values;
 	protected final Datatype listDatatype;
 	protected final int numberOfValues;
 
+	// primitive list items, values are created on demand only
+	protected final double[] doubles;
+	protected final long[] longs;
+
+	// item datatypes of lists created from primitive ranges
+	private static final Datatype FLOAT_ITEMS = new FloatDatatype(null);
+	private static final Datatype INTEGER_ITEMS = new IntegerDatatype(null);
+
 	public ListValue(Value[] values, Datatype listDatatype) {
 		super(ValueType.LIST);
 		this.values = values;
 		this.numberOfValues = values.length;
 		this.listDatatype = listDatatype;
+		this.doubles = null;
+		this.longs = null;
 	}
-	
+
+	/**
+	 * List of double items (e.g., xsd:double or xsd:float). The array is
+	 * not copied.
+	 * 
+	 * @param doubles double items
+	 * @param listDatatype item datatype
+	 */
+	public ListValue(double[] doubles, Datatype listDatatype) {
+		super(ValueType.LIST);
+		this.doubles = doubles;
+		this.longs = null;
+		this.numberOfValues = doubles.length;
+		this.listDatatype = listDatatype;
+	}
+
+	/**
+	 * List of integer items that fit into a long. The array is not copied.
+	 * 
+	 * @param longs integer items
+	 * @param listDatatype item datatype
+	 */
+	public ListValue(long[] longs, Datatype listDatatype) {
+		super(ValueType.LIST);
+		this.doubles = null;
+		this.longs = longs;
+		this.numberOfValues = longs.length;
+		this.listDatatype = listDatatype;
+	}
+
+	/**
+	 * List of double items, the given range is copied.
+	 * 
+	 * @param doubles double items
+	 * @param offset first item
+	 * @param length number of items
+	 */
+	public ListValue(double[] doubles, int offset, int length) {
+		this(Arrays.copyOfRange(doubles, offset, offset + length),
+				FLOAT_ITEMS);
+	}
+
+	/**
+	 * List of integer items, the given range is copied.
+	 * 
+	 * @param longs integer items
+	 * @param offset first item
+	 * @param length number of items
+	 */
+	public ListValue(long[] longs, int offset, int length) {
+		this(Arrays.copyOfRange(longs, offset, offset + length),
+				INTEGER_ITEMS);
+	}
+
 	public int getNumberOfValues() {
 		return numberOfValues;
 	}
 
-	public Value[] toValues() {		
+	public Value[] toValues() {
+		if (values == null) {
+			Value[] vals = new Value[numberOfValues];
+			if (doubles != null) {
+				long[] decimal = new long[2];
+				for (int i = 0; i < numberOfValues; i++) {
+					FloatValue.toDecimal(doubles[i], decimal, 0);
+					vals[i] = new FloatValue(decimal[0], decimal[1]);
+				}
+			} else {
+				for (int i = 0; i < numberOfValues; i++) {
+					vals[i] = IntegerValue.valueOf(longs[i]);
+				}
+			}
+			values = vals;
+		}
 		return values;
 	}
+
+	/**
+	 * Returns the double items, or null if the list does not hold doubles.
+	 * 
+	 * @return double items
+	 */
+	public double[] toDoubles() {
+		return doubles;
+	}
+
+	/**
+	 * Returns the integer items, or null if the list does not hold longs.
+	 * 
+	 * @return integer items
+	 */
+	public long[] toLongs() {
+		return longs;
+	}
 	
 	public Datatype getListDatatype() {
 		return listDatatype;
@@ -63,6 +162,7 @@ public class ListValue extends AbstractValue {
 	
 	public int getCharactersLength() {
 		if (slen == -1) {
+			Value[] values = toValues();
 			slen = values.length > 0 ? (values.length - 1) : 0; // (n-1)
 																// delimiters
 			int vlen = values.length;
@@ -74,6 +174,7 @@ public class ListValue extends AbstractValue {
 	}
 
 	public void getCharacters(char[] cbuffer, int offset) {
+		Value[] values = toValues();
 		if (values.length > 0) {
 			// fill buffer (except last item)
 			Value iVal;
@@ -117,9 +218,11 @@ public class ListValue extends AbstractValue {
 			return false;
 		}
 		// values
-		if (values.length == o.values.length) {
+		Value[] values = toValues();
+		Value[] oValues = o.toValues();
+		if (values.length == oValues.length) {
 			for (int i = 0; i < values.length; i++) {
-				if (!values[i].equals(o.values[i])) {
+				if (!values[i].equals(oValues[i])) {
 					return false;
 				}
 			}
@@ -145,7 +248,7 @@ public class ListValue extends AbstractValue {
 	@Override
 	public int hashCode() {
 		int hc = 0;
-		for(Value val : values) {
+		for(Value val : toValues()) {
 			hc = (hc * 31) ^ val.hashCode();
 		}
 		return hc;
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2007-2016 Siemens AG
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ */
+
+package com.siemens.ct.exi.context;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import com.siemens.ct.exi.Constants;
+import com.siemens.ct.exi.EXIBodyEncoder;
+import com.siemens.ct.exi.EXIFactory;
+import com.siemens.ct.exi.exceptions.EXIException;
+import com.siemens.ct.exi.grammars.GrammarsCoreTest;
+import com.siemens.ct.exi.grammars.SchemaInformedGrammars;
+import com.siemens.ct.exi.helpers.DefaultEXIFactory;
+import com.siemens.ct.exi.values.StringValue;
+
+public class QNameContextCoreTest extends TestCase {
+
+	public QNameContextCoreTest(String testName) {
+		super(testName);
+	}
+
+	protected byte[] encodeColors(EXIBodyEncoder encoder, QNameContext root,
+			QNameContext a, QNameContext item) throws EXIException,
+			IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		encoder.setOutputStream(baos);
+		encoder.encodeStartDocument();
+		encoder.encodeStartElement(root, null);
+		encoder.encodeAttribute(a, null, new StringValue("-12"));
+		for (int i = 0; i < 10; i++) {
+			encoder.encodeStartElement(item, null);
+			encoder.encodeCharacters(new StringValue(i % 2 == 0 ? "red"
+					: "blue"));
+			encoder.encodeEndElement();
+		}
+		encoder.encodeEndElement();
+		encoder.encodeEndDocument();
+		encoder.flush();
+		return baos.toByteArray();
+	}
+
+	public void testQNameContextSchemaInformed() throws EXIException,
+			IOException {
+		SchemaInformedGrammars grammars = GrammarsCoreTest
+				.createSchemaInformedGrammars();
+		EXIFactory factory = DefaultEXIFactory.newInstance();
+		factory.setGrammars(grammars);
+		byte[] bytes = GrammarsCoreTest.encodeColors(factory);
+
+		// handles of grammar names are the grammar contexts
+		EXIBodyEncoder encoder = factory.createEXIBodyEncoder();
+		GrammarUriContext guc = grammars.getGrammarContext()
+				.getGrammarUriContext(0);
+		QNameContext root = encoder.getQNameContext("", "root");
+		QNameContext a = encoder.getQNameContext("", "a");
+		QNameContext item = encoder.getQNameContext("", "item");
+		assertTrue(guc.getQNameContext("root") == root);
+		assertTrue(guc.getQNameContext("a") == a);
+		assertTrue(guc.getQNameContext("item") == item);
+
+		// and stay valid across streams
+		assertTrue(Arrays.equals(bytes, encodeColors(encoder, root, a, item)));
+		assertTrue(Arrays.equals(bytes, encodeColors(encoder, root, a, item)));
+	}
+
+	public void testQNameContextSchemaLess() throws EXIException,
+			IOException {
+		EXIFactory factory = DefaultEXIFactory.newInstance();
+		byte[] bytes = GrammarsCoreTest.encodeColors(factory);
+
+		// unknown names are resolved while encoding
+		EXIBodyEncoder encoder = factory.createEXIBodyEncoder();
+		QNameContext root = encoder.getQNameContext("", "root");
+		QNameContext a = encoder.getQNameContext("", "a");
+		QNameContext item = encoder.getQNameContext("", "item");
+		assertEquals(Constants.NOT_FOUND, root.getLocalNameID());
+		assertEquals("root", root.getLocalName());
+		assertTrue(Arrays.equals(bytes, encodeColors(encoder, root, a, item)));
+
+		assertTrue(Arrays.equals(bytes, encodeColors(encoder, root, a, item)));
+
+		// runtime names are known until the string tables are reset, stale
+		// handles are coded via their strings
+		QNameContext rootKnown = encoder.getQNameContext("", "root");
+		assertTrue(rootKnown.getLocalNameID() != Constants.NOT_FOUND);
+		assertTrue(Arrays.equals(bytes,
+				encodeColors(encoder, rootKnown, a, item)));
+	}
+
+}
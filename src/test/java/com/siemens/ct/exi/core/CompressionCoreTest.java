@@ -0,0 +1,661 @@
+/*
+ * Copyright (c) 2007-2016 Siemens AG
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ */
+
+package com.siemens.ct.exi.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import junit.framework.TestCase;
+
+import com.siemens.ct.exi.CodingMode;
+import com.siemens.ct.exi.Constants;
+import com.siemens.ct.exi.EXIBodyDecoder;
+import com.siemens.ct.exi.EXIBodyEncoder;
+import com.siemens.ct.exi.EXIFactory;
+import com.siemens.ct.exi.FidelityOptions;
+import com.siemens.ct.exi.context.GrammarContext;
+import com.siemens.ct.exi.context.GrammarUriContext;
+import com.siemens.ct.exi.context.QNameContext;
+import com.siemens.ct.exi.core.container.NamespaceDeclaration;
+import com.siemens.ct.exi.core.container.ProcessingInstruction;
+import com.siemens.ct.exi.core.container.ValueChannelBuffer;
+import com.siemens.ct.exi.datatype.BinaryBase64Datatype;
+import com.siemens.ct.exi.datatype.BooleanDatatype;
+import com.siemens.ct.exi.datatype.Datatype;
+import com.siemens.ct.exi.datatype.DecimalDatatype;
+import com.siemens.ct.exi.datatype.FloatDatatype;
+import com.siemens.ct.exi.datatype.IntegerDatatype;
+import com.siemens.ct.exi.datatype.ListDatatype;
+import com.siemens.ct.exi.datatype.StringDatatype;
+import com.siemens.ct.exi.datatype.UnsignedIntegerDatatype;
+import com.siemens.ct.exi.exceptions.EXIException;
+import com.siemens.ct.exi.grammars.SchemaInformedGrammars;
+import com.siemens.ct.exi.grammars.event.Attribute;
+import com.siemens.ct.exi.grammars.event.Characters;
+import com.siemens.ct.exi.grammars.event.EndDocument;
+import com.siemens.ct.exi.grammars.event.EndElement;
+import com.siemens.ct.exi.grammars.event.EventType;
+import com.siemens.ct.exi.grammars.event.StartDocument;
+import com.siemens.ct.exi.grammars.event.StartElement;
+import com.siemens.ct.exi.grammars.grammar.DocEnd;
+import com.siemens.ct.exi.grammars.grammar.Document;
+import com.siemens.ct.exi.grammars.grammar.Fragment;
+import com.siemens.ct.exi.grammars.grammar.SchemaInformedDocContent;
+import com.siemens.ct.exi.grammars.grammar.SchemaInformedElement;
+import com.siemens.ct.exi.grammars.grammar.SchemaInformedFirstStartTag;
+import com.siemens.ct.exi.grammars.grammar.SchemaInformedStartTag;
+import com.siemens.ct.exi.helpers.DefaultEXIFactory;
+import com.siemens.ct.exi.helpers.DeflateDictionaryTrainer;
+import com.siemens.ct.exi.io.ByteBufferInputStream;
+import com.siemens.ct.exi.io.channel.ByteDecoderChannel;
+import com.siemens.ct.exi.io.channel.ByteEncoderChannel;
+import com.siemens.ct.exi.io.channel.DecoderChannel;
+import com.siemens.ct.exi.io.channel.EncoderChannel;
+import com.siemens.ct.exi.io.compression.DeflateDictionaries;
+import com.siemens.ct.exi.values.BinaryBase64Value;
+import com.siemens.ct.exi.values.BooleanValue;
+import com.siemens.ct.exi.values.DecimalValue;
+import com.siemens.ct.exi.values.FloatValue;
+import com.siemens.ct.exi.values.IntegerValue;
+import com.siemens.ct.exi.values.ListValue;
+import com.siemens.ct.exi.values.StringValue;
+import com.siemens.ct.exi.values.Value;
+
+public class CompressionCoreTest extends TestCase {
+
+	static final CodingMode[] CODING_MODES = { CodingMode.COMPRESSION,
+			CodingMode.PRE_COMPRESSION };
+
+	/*
+	 * root := @a(int) item*, item := @b(base64)? @f(float)? @n(int) list(int)
+	 *
+	 * Every tenth item carries an undeclared string attribute a, so that
+	 * channel a mixes an integer and string values.
+	 */
+	protected SchemaInformedGrammars createGrammars() throws EXIException {
+		String[] names = { "a", "b", "f", "item", "n", "root" };
+		GrammarUriContext[] gucs = new GrammarUriContext[3];
+		QNameContext[] qncs = new QNameContext[names.length];
+		for (int i = 0; i < names.length; i++) {
+			qncs[i] = new QNameContext(0, i, new QName("", names[i]));
+		}
+		gucs[0] = new GrammarUriContext(0, "", qncs, Constants.PREFIXES_EMPTY);
+		QNameContext[] qncsXML = new QNameContext[Constants.LOCAL_NAMES_XML.length];
+		for (int i = 0; i < qncsXML.length; i++) {
+			qncsXML[i] = new QNameContext(1, i, new QName(
+					Constants.XML_NS_URI, Constants.LOCAL_NAMES_XML[i]));
+		}
+		gucs[1] = new GrammarUriContext(1, Constants.XML_NS_URI, qncsXML,
+				Constants.PREFIXES_XML);
+		QNameContext[] qncsXSI = new QNameContext[Constants.LOCAL_NAMES_XSI.length];
+		for (int i = 0; i < qncsXSI.length; i++) {
+			qncsXSI[i] = new QNameContext(2, i, new QName(
+					Constants.XML_SCHEMA_INSTANCE_NS_URI,
+					Constants.LOCAL_NAMES_XSI[i]));
+		}
+		gucs[2] = new GrammarUriContext(2,
+				Constants.XML_SCHEMA_INSTANCE_NS_URI, qncsXSI,
+				Constants.PREFIXES_XSI);
+		GrammarContext gc = new GrammarContext(gucs, qncs.length
+				+ qncsXML.length + qncsXSI.length);
+
+		SchemaInformedElement end = new SchemaInformedElement();
+		end.addTerminalProduction(new EndElement());
+		SchemaInformedStartTag itemContent = new SchemaInformedStartTag(end);
+		itemContent.addProduction(new Characters(new ListDatatype(
+				new IntegerDatatype(null), null)), end);
+		Attribute atN = new Attribute(qncs[4], new IntegerDatatype(null));
+		SchemaInformedStartTag itemN = new SchemaInformedStartTag(itemContent);
+		itemN.addProduction(atN, itemContent);
+		Attribute atF = new Attribute(qncs[2], new FloatDatatype(null));
+		SchemaInformedStartTag itemF = new SchemaInformedStartTag(itemContent);
+		itemF.addProduction(atF, itemN);
+		itemF.addProduction(atN, itemContent);
+		SchemaInformedFirstStartTag item = new SchemaInformedFirstStartTag(
+				itemContent);
+		item.addProduction(new Attribute(qncs[1], new BinaryBase64Datatype(
+				null)), itemF);
+		item.addProduction(atF, itemN);
+		item.addProduction(atN, itemContent);
+		StartElement seItem = new StartElement(qncs[3], item);
+
+		SchemaInformedElement items = new SchemaInformedElement();
+		items.addProduction(seItem, items);
+		items.addTerminalProduction(new EndElement());
+		SchemaInformedStartTag rootContent = new SchemaInformedStartTag(items);
+		rootContent.addProduction(seItem, items);
+		rootContent.addTerminalProduction(new EndElement());
+		SchemaInformedFirstStartTag root = new SchemaInformedFirstStartTag(
+				items);
+		root.addProduction(new Attribute(qncs[0], new IntegerDatatype(null)),
+				rootContent);
+		StartElement seRoot = new StartElement(qncs[5], root);
+		qncs[5].setGlobalStartElement(seRoot);
+
+		DocEnd docEnd = new DocEnd();
+		docEnd.addTerminalProduction(new EndDocument());
+		SchemaInformedDocContent docContent = new SchemaInformedDocContent();
+		docContent.addProduction(seRoot, docEnd);
+		Document document = new Document();
+		document.addProduction(new StartDocument(), docContent);
+
+		return new SchemaInformedGrammars(gc, document, new Fragment(), null);
+	}
+
+	protected EXIFactory getFactory(CodingMode codingMode) throws EXIException {
+		EXIFactory factory = DefaultEXIFactory.newInstance();
+		factory.setGrammars(createGrammars());
+		factory.setCodingMode(codingMode);
+		return factory;
+	}
+
+	protected static String getList(int i) {
+		return i + " " + (i * 1000) + " -" + (i % 17 + 1);
+	}
+
+	protected static byte[] getBytes(int i) {
+		byte[] bytes = new byte[i % 200];
+		for (int k = 0; k < bytes.length; k++) {
+			bytes[k] = (byte) (i + k);
+		}
+		return bytes;
+	}
+
+	protected byte[] encodeItems(EXIFactory factory, int items)
+			throws EXIException, IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		EXIBodyEncoder encoder = factory.createEXIBodyEncoder();
+		encoder.setOutputStream(baos);
+		encodeItems(encoder, items);
+		return baos.toByteArray();
+	}
+
+	protected void encodeItems(EXIBodyEncoder encoder, int items)
+			throws EXIException, IOException {
+		encoder.encodeStartDocument();
+		encoder.encodeStartElement("", "root", null);
+		encoder.encodeAttribute("", "a", null, IntegerValue.valueOf(-12));
+		for (int i = 0; i < items; i++) {
+			encoder.encodeStartElement("", "item", null);
+			if (i % 6 == 0) {
+				encoder.encodeAttribute("", "b", null, new BinaryBase64Value(
+						getBytes(i)));
+			}
+			if (i % 4 == 0) {
+				encoder.encodeAttribute("", "f", null, new StringValue(i
+						+ ".25"));
+			}
+			encoder.encodeAttribute("", "n", null, IntegerValue.valueOf(i));
+			if (i % 10 == 0) {
+				encoder.encodeAttribute("", "a", null, new StringValue("s"
+						+ (i % 3)));
+			}
+			encoder.encodeCharacters(new StringValue(getList(i)));
+			encoder.encodeEndElement();
+		}
+		encoder.encodeEndElement();
+		encoder.encodeEndDocument();
+		encoder.flush();
+	}
+
+	protected void decodeItems(EXIFactory factory, InputStream is, int items)
+			throws EXIException, IOException {
+		EXIBodyDecoder decoder = factory.createEXIBodyDecoder();
+		decoder.setInputStream(is);
+		assertTrue(decoder.next() == EventType.START_DOCUMENT);
+		decoder.decodeStartDocument();
+		assertTrue(decoder.next() == EventType.START_ELEMENT);
+		assertEquals("root", decoder.decodeStartElement().getLocalName());
+		assertTrue(decoder.next() == EventType.ATTRIBUTE);
+		decoder.decodeAttribute();
+		Value a = decoder.getAttributeValue();
+		assertTrue(a instanceof IntegerValue);
+		assertEquals("-12", a.toString());
+		for (int i = 0; i < items; i++) {
+			assertTrue(decoder.next() == EventType.START_ELEMENT);
+			assertEquals("item", decoder.decodeStartElement().getLocalName());
+			if (i % 6 == 0) {
+				assertTrue(decoder.next() == EventType.ATTRIBUTE);
+				decoder.decodeAttribute();
+				assertTrue(Arrays.equals(getBytes(i),
+						((BinaryBase64Value) decoder.getAttributeValue())
+								.toBytes()));
+			}
+			if (i % 4 == 0) {
+				assertTrue(decoder.next() == EventType.ATTRIBUTE);
+				decoder.decodeAttribute();
+				assertEquals(FloatValue.parse(i + ".25"),
+						decoder.getAttributeValue());
+			}
+			assertTrue(decoder.next() == EventType.ATTRIBUTE);
+			decoder.decodeAttribute();
+			assertEquals(IntegerValue.valueOf(i), decoder.getAttributeValue());
+			if (i % 10 == 0) {
+				decoder.next();
+				assertEquals("a", decoder.decodeAttribute().getLocalName());
+				assertEquals("s" + (i % 3), decoder.getAttributeValue()
+						.toString());
+			}
+			assertTrue(decoder.next() == EventType.CHARACTERS);
+			Value list = decoder.decodeCharacters();
+			assertTrue(list instanceof ListValue);
+			assertEquals(getList(i), list.toString());
+			assertTrue(decoder.next() == EventType.END_ELEMENT);
+			decoder.decodeEndElement();
+		}
+		assertTrue(decoder.next() == EventType.END_ELEMENT);
+		decoder.decodeEndElement();
+		assertTrue(decoder.next() == EventType.END_DOCUMENT);
+		decoder.decodeEndDocument();
+	}
+
+	public void testBlockMemoryBudget() throws EXIException, IOException {
+		for (CodingMode cm : CODING_MODES) {
+			EXIFactory factory = getFactory(cm);
+			// several blocks with channels below and above 100 values
+			factory.setBlockSize(700);
+			byte[] unbounded = encodeItems(factory, 500);
+
+			for (int budget : new int[] { 0, 256, 1 << 20 }) {
+				factory.setBlockMemoryBudget(budget);
+				byte[] bounded = encodeItems(factory, 500);
+				assertTrue(Arrays.equals(unbounded, bounded));
+				decodeItems(factory, new ByteArrayInputStream(bounded), 500);
+			}
+		}
+	}
+
+	/*
+	 * Keeps track of the bytes buffered on the heap and of the bytes spilled
+	 * while values are written.
+	 */
+	static class BoundedEncoder extends EXIBodyEncoderReordered {
+		int maxHeap;
+		long maxSpill;
+
+		public BoundedEncoder(EXIFactory exiFactory) throws EXIException {
+			super(exiFactory);
+		}
+
+		@Override
+		protected void writeValue(QNameContext valueContext)
+				throws IOException {
+			super.writeValue(valueContext);
+			int heap = 0;
+			for (ValueChannelBuffer vcb : channelBuffers.values()) {
+				heap += vcb.getLength();
+			}
+			maxHeap = Math.max(maxHeap, heap);
+			if (spillFile != null) {
+				maxSpill = Math.max(maxSpill, spillFile.size());
+			}
+		}
+	}
+
+	static class BoundedDecoder extends EXIBodyDecoderReordered {
+		int maxHeap;
+		long maxSpill;
+
+		public BoundedDecoder(EXIFactory exiFactory) throws EXIException {
+			super(exiFactory);
+		}
+
+		@Override
+		protected void preReadChannel(QNameContext o, List<Datatype> lds,
+				DecoderChannel valueChannel) throws IOException {
+			super.preReadChannel(o, lds, valueChannel);
+			int heap = 0;
+			for (BufferedValues bv : bufferedValues.values()) {
+				heap += bv.buffer.getLength();
+			}
+			maxHeap = Math.max(maxHeap, heap);
+			if (spillFile != null) {
+				maxSpill = Math.max(maxSpill, spillFile.size());
+			}
+		}
+	}
+
+	protected static String getString(int i) {
+		StringBuilder sb = new StringBuilder();
+		while (sb.length() < 100) {
+			sb.append(i).append(' ');
+		}
+		return sb.toString();
+	}
+
+	public void testBlockMemoryBudgetStrings() throws EXIException,
+			IOException {
+		final int budget = 4096;
+		final int items = 2000;
+		for (CodingMode cm : CODING_MODES) {
+			EXIFactory factory = DefaultEXIFactory.newInstance();
+			factory.setCodingMode(cm);
+			// long strings do not end up in the string table
+			factory.setValueMaxLength(16);
+			factory.setBlockMemoryBudget(budget);
+
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			BoundedEncoder encoder = new BoundedEncoder(factory);
+			encoder.setOutputStream(baos);
+			encoder.encodeStartDocument();
+			encoder.encodeStartElement("", "root", null);
+			for (int i = 0; i < items; i++) {
+				encoder.encodeStartElement("", "s", null);
+				encoder.encodeCharacters(new StringValue(getString(i)));
+				encoder.encodeEndElement();
+			}
+			encoder.encodeEndElement();
+			encoder.encodeEndDocument();
+			encoder.flush();
+
+			// strings are spilled and not kept on the heap
+			assertTrue(encoder.maxHeap <= budget);
+			assertTrue(encoder.maxSpill >= items * 100);
+
+			BoundedDecoder decoder = new BoundedDecoder(factory);
+			decoder.setInputStream(new ByteArrayInputStream(baos
+					.toByteArray()));
+			assertTrue(decoder.next() == EventType.START_DOCUMENT);
+			decoder.decodeStartDocument();
+			assertTrue(decoder.next() == EventType.START_ELEMENT_GENERIC);
+			decoder.decodeStartElement();
+			assertTrue(decoder.maxHeap <= budget);
+			assertTrue(decoder.maxSpill >= items * 100);
+			for (int i = 0; i < items; i++) {
+				decoder.next();
+				assertEquals("s", decoder.decodeStartElement().getLocalName());
+				decoder.next();
+				assertEquals(getString(i), decoder.decodeCharacters()
+						.toString());
+				assertTrue(decoder.next() == EventType.END_ELEMENT);
+				decoder.decodeEndElement();
+			}
+			assertTrue(decoder.next() == EventType.END_ELEMENT);
+			decoder.decodeEndElement();
+			assertTrue(decoder.next() == EventType.END_DOCUMENT);
+			decoder.decodeEndDocument();
+		}
+	}
+
+	public void testValueChannels() throws EXIException, IOException {
+		for (CodingMode cm : CODING_MODES) {
+			EXIFactory factory = getFactory(cm);
+			// one block: channels n and item above 100 values, a below
+			byte[] bytes = encodeItems(factory, 300);
+			decodeItems(factory, new ByteArrayInputStream(bytes), 300);
+
+			// blocks of at most 100 values (single value stream) and larger
+			for (int blockSize : new int[] { 40, 100, 250 }) {
+				factory.setBlockSize(blockSize);
+				bytes = encodeItems(factory, 300);
+				decodeItems(factory, new ByteArrayInputStream(bytes), 300);
+			}
+		}
+	}
+
+	public void testValueChannelBuffer() throws IOException {
+		ValueChannelBuffer vcb = new ValueChannelBuffer();
+		StringDatatype dt = new StringDatatype(null);
+		for (int k = 0; k < 2; k++) {
+			for (int i = 0; i < 50; i++) {
+				vcb.getEncoderChannel().encodeUnsignedInteger(1000 + i);
+				vcb.addEncodedValue();
+				vcb.addDeferredValue(new StringValue("d" + i), dt);
+			}
+			assertEquals(100, vcb.getNumberOfValues());
+			assertEquals(50, vcb.getNumberOfDeferredValues());
+			// pre-encoded values take 2 bytes each
+			assertEquals(100, vcb.getLength());
+			assertEquals(2 * 17, vcb.getDeferredPosition(16));
+			assertEquals("d49", vcb.getDeferredValue(49).toString());
+			assertTrue(vcb.getDeferredDatatype(49) == dt);
+
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			vcb.writeBytes(vcb.getDeferredPosition(9), vcb.getLength(),
+					new ByteEncoderChannel(baos));
+			DecoderChannel dc = new ByteDecoderChannel(new ByteArrayInputStream(
+					baos.toByteArray()));
+			for (int i = 10; i < 50; i++) {
+				assertEquals(1000 + i, dc.decodeUnsignedInteger());
+			}
+
+			vcb.clear();
+			assertEquals(0, vcb.getNumberOfValues());
+			assertEquals(0, vcb.getLength());
+		}
+	}
+
+	protected void encodeStructure(EXIBodyEncoder encoder, int elements)
+			throws EXIException, IOException {
+		encoder.encodeStartDocument();
+		encoder.encodeStartElement("urn:r", "root", "r");
+		encoder.encodeNamespaceDeclaration("urn:r", "r");
+		for (int i = 0; i < elements; i++) {
+			encoder.encodeStartElement("urn:e", "e" + (i % 5), "p" + (i % 3));
+			encoder.encodeNamespaceDeclaration("urn:e", "p" + (i % 3));
+			encoder.encodeAttribute("", "at", "", new StringValue("v" + i));
+			if (i % 7 == 0) {
+				char[] c = ("c" + i).toCharArray();
+				encoder.encodeComment(c, 0, c.length);
+			}
+			encoder.encodeCharacters(new StringValue("x" + i));
+			if (i % 11 == 0) {
+				encoder.encodeProcessingInstruction("t", "d" + i);
+			}
+			encoder.encodeEndElement();
+		}
+		encoder.encodeEndElement();
+		encoder.encodeEndDocument();
+		encoder.flush();
+	}
+
+	protected List<String> decodeStructure(EXIBodyDecoder decoder)
+			throws EXIException, IOException {
+		List<String> events = new ArrayList<String>();
+		EventType next;
+		while ((next = decoder.next()) != null) {
+			switch (next) {
+			case START_DOCUMENT:
+				decoder.decodeStartDocument();
+				break;
+			case END_DOCUMENT:
+				decoder.decodeEndDocument();
+				break;
+			case START_ELEMENT_GENERIC:
+			case START_ELEMENT_GENERIC_UNDECLARED:
+			case START_ELEMENT:
+				decoder.decodeStartElement();
+				events.add("SE " + decoder.getElementQNameAsString());
+				break;
+			case END_ELEMENT:
+			case END_ELEMENT_UNDECLARED:
+				decoder.decodeEndElement();
+				events.add("EE");
+				break;
+			case NAMESPACE_DECLARATION:
+				NamespaceDeclaration ns = decoder.decodeNamespaceDeclaration();
+				events.add("NS " + ns.prefix + "=" + ns.namespaceURI);
+				break;
+			case ATTRIBUTE_GENERIC_UNDECLARED:
+			case ATTRIBUTE:
+				decoder.decodeAttribute();
+				events.add("AT " + decoder.getAttributeQNameAsString() + "="
+						+ decoder.getAttributeValue());
+				break;
+			case CHARACTERS_GENERIC_UNDECLARED:
+			case CHARACTERS:
+				events.add("CH " + decoder.decodeCharacters());
+				break;
+			case COMMENT:
+				events.add("CM " + new String(decoder.decodeComment()));
+				break;
+			case PROCESSING_INSTRUCTION:
+				ProcessingInstruction pi = decoder.decodeProcessingInstruction();
+				events.add("PI " + pi.target + " " + pi.data);
+				break;
+			default:
+				fail("Unexpected event " + next);
+			}
+		}
+		return events;
+	}
+
+	public void testBlockStructure() throws EXIException, IOException {
+		// exceeds initial capacity of event, element and qname entries
+		final int elements = 400;
+		List<String> expected = new ArrayList<String>();
+		expected.add("SE r:root");
+		expected.add("NS r=urn:r");
+		for (int i = 0; i < elements; i++) {
+			expected.add("SE p" + (i % 3) + ":e" + (i % 5));
+			expected.add("NS p" + (i % 3) + "=urn:e");
+			expected.add("AT at=v" + i);
+			if (i % 7 == 0) {
+				expected.add("CM c" + i);
+			}
+			expected.add("CH x" + i);
+			if (i % 11 == 0) {
+				expected.add("PI t d" + i);
+			}
+			expected.add("EE");
+		}
+		expected.add("EE");
+
+		for (CodingMode cm : CODING_MODES) {
+			EXIFactory factory = DefaultEXIFactory.newInstance();
+			FidelityOptions fo = FidelityOptions.createDefault();
+			fo.setFidelity(FidelityOptions.FEATURE_PREFIX, true);
+			fo.setFidelity(FidelityOptions.FEATURE_COMMENT, true);
+			fo.setFidelity(FidelityOptions.FEATURE_PI, true);
+			factory.setFidelityOptions(fo);
+			factory.setCodingMode(cm);
+			// single block and entries reset between blocks
+			for (int blockSize : new int[] { Constants.DEFAULT_BLOCK_SIZE, 150 }) {
+				factory.setBlockSize(blockSize);
+				ByteArrayOutputStream baos = new ByteArrayOutputStream();
+				EXIBodyEncoder encoder = factory.createEXIBodyEncoder();
+				encoder.setOutputStream(baos);
+				encodeStructure(encoder, elements);
+
+				EXIBodyDecoder decoder = factory.createEXIBodyDecoder();
+				decoder.setInputStream(new ByteArrayInputStream(baos
+						.toByteArray()));
+				assertEquals(expected, decodeStructure(decoder));
+			}
+		}
+	}
+
+	public void testSeekablePreCompression() throws EXIException, IOException {
+		EXIFactory factory = getFactory(CodingMode.PRE_COMPRESSION);
+		// channels b, f and n with at most and more than 100 values
+		for (int items : new int[] { 60, 300, 500 }) {
+			byte[] bytes = encodeItems(factory, items);
+			decodeItems(factory, new ByteBufferInputStream(ByteBuffer
+					.wrap(bytes)), items);
+		}
+		// several blocks
+		factory.setBlockSize(250);
+		byte[] bytes = encodeItems(factory, 500);
+		decodeItems(factory, new ByteBufferInputStream(ByteBuffer.wrap(bytes)),
+				500);
+		// bounded mode
+		factory.setBlockMemoryBudget(0);
+		decodeItems(factory, new ByteBufferInputStream(ByteBuffer.wrap(bytes)),
+				500);
+	}
+
+	public void testSkipValues() throws EXIException, IOException {
+		Datatype[] datatypes = { new IntegerDatatype(null),
+				new UnsignedIntegerDatatype(null), new DecimalDatatype(null),
+				new FloatDatatype(null), new BinaryBase64Datatype(null),
+				new BooleanDatatype(null) };
+		Value[] values = { IntegerValue.valueOf(-123456789),
+				IntegerValue.valueOf(300), DecimalValue.parse("-12.0625"),
+				FloatValue.parse("-1.5E-300"),
+				new BinaryBase64Value(getBytes(150)), BooleanValue.BOOLEAN_VALUE_TRUE };
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		EncoderChannel ec = new ByteEncoderChannel(baos);
+		for (int i = 0; i < datatypes.length; i++) {
+			assertTrue(datatypes[i].isValid(values[i]));
+			datatypes[i].writeValue(null, ec, null);
+		}
+		ec.encodeUnsignedInteger(4711);
+		DecoderChannel dc = new ByteDecoderChannel(new ByteArrayInputStream(
+				baos.toByteArray()));
+		for (int i = 0; i < datatypes.length; i++) {
+			datatypes[i].skipValue(null, dc, null);
+		}
+		assertEquals(4711, dc.decodeUnsignedInteger());
+	}
+
+	public void testDeflateDictionaries() throws EXIException, IOException {
+		EXIFactory factory = getFactory(CodingMode.COMPRESSION);
+		DeflateDictionaryTrainer trainer = new DeflateDictionaryTrainer(
+				factory);
+		for (int i = 0; i < 5; i++) {
+			encodeItems(trainer.newSample(), 120 + i);
+		}
+		assertEquals(5, trainer.getNumberOfSamples());
+		DeflateDictionaries dd = trainer.train(1024);
+		assertTrue(dd.getStructureDictionary().length <= 1024);
+		// channels of more than 100 values have their own dictionary
+		assertTrue(dd.getValueChannelDictionaries().containsKey(
+				new QName("", "n")));
+		assertFalse(dd.getValueChannelDictionaries().containsKey(
+				new QName("", "a")));
+
+		byte[] plain = encodeItems(factory, 130);
+		factory.setDeflateDictionaries(dd);
+		byte[] bytes = encodeItems(factory, 130);
+		assertTrue(bytes.length < plain.length);
+		decodeItems(factory, new ByteArrayInputStream(bytes), 130);
+	}
+
+	public void testDeflateDictionariesPersistence() throws IOException {
+		DeflateDictionaries dd = new DeflateDictionaries();
+		dd.setStructureDictionary(new byte[] { 1, 2, 3 });
+		dd.setValueChannelDictionary(new QName("urn:c", "c"), new byte[] { 4 });
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		dd.writeTo(baos);
+		dd = DeflateDictionaries.readFrom(new ByteArrayInputStream(baos
+				.toByteArray()));
+		assertTrue(Arrays.equals(new byte[] { 1, 2, 3 },
+				dd.getStructureDictionary()));
+		assertNull(dd.getValuesDictionary());
+		assertTrue(Arrays.equals(new byte[] { 4 },
+				dd.getValueChannelDictionary(new QName("urn:c", "c"))));
+		assertEquals(1, dd.getValueChannelDictionaries().size());
+	}
+
+}
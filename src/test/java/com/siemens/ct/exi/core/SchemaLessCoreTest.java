@@ -992,4 +992,56 @@ public class SchemaLessCoreTest extends TestCase {
 		bodyDecoder.decodeEndDocument();
 	}
 
-}
\ No newline at end of file
+	public void testQNameHandle() throws EXIException, IOException {
+		EXIFactory factory = DefaultEXIFactory.newInstance();
+		AbstractEXIBodyEncoder encoder = (AbstractEXIBodyEncoder) factory
+				.createEXIBodyEncoder();
+		// handle requested before the name is known
+		QNameContext item = encoder.getQNameContext("", "item");
+		AbstractEXIBodyEncoder.QNameHandle handle = (AbstractEXIBodyEncoder.QNameHandle) item;
+
+		for (int k = 0; k < 2; k++) {
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			encoder.setOutputStream(baos);
+			encoder.encodeStartDocument();
+			encoder.encodeStartElement("", "root", null);
+			// unknown in new stream, also if resolved in previous stream
+			assertNull(encoder.resolveQNameContext(item));
+			encoder.encodeStartElement(item, null);
+			encoder.encodeEndElement();
+
+			// resolved once, afterwards coded by ID without string lookup
+			QNameContext resolved = encoder.resolveQNameContext(item);
+			assertNotNull(resolved);
+			assertTrue(resolved == handle.resolved);
+			assertTrue(encoder.isRuntimeQNameContext(resolved));
+			for (int i = 0; i < 3; i++) {
+				encoder.encodeStartElement(item, null);
+				encoder.encodeEndElement();
+				assertTrue(resolved == handle.resolved);
+			}
+			encoder.encodeEndElement();
+			encoder.encodeEndDocument();
+			encoder.flush();
+
+			EXIBodyDecoder decoder = factory.createEXIBodyDecoder();
+			decoder.setInputStream(new ByteArrayInputStream(baos
+					.toByteArray()));
+			assertTrue(decoder.next() == EventType.START_DOCUMENT);
+			decoder.decodeStartDocument();
+			decoder.next();
+			assertEquals("root", decoder.decodeStartElement().getLocalName());
+			for (int i = 0; i < 4; i++) {
+				decoder.next();
+				assertEquals("item", decoder.decodeStartElement()
+						.getLocalName());
+				decoder.next();
+				decoder.decodeEndElement();
+			}
+			assertTrue(decoder.next() == EventType.END_ELEMENT);
+			decoder.decodeEndElement();
+			assertTrue(decoder.next() == EventType.END_DOCUMENT);
+		}
+	}
+
+}
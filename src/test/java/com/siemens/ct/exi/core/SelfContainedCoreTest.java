@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2007-2016 Siemens AG
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ */
+
+package com.siemens.ct.exi.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.xml.namespace.QName;
+
+import junit.framework.TestCase;
+
+import com.siemens.ct.exi.CodingMode;
+import com.siemens.ct.exi.EXIBodyEncoder;
+import com.siemens.ct.exi.EXIFactory;
+import com.siemens.ct.exi.FidelityOptions;
+import com.siemens.ct.exi.SelfContainedFragmentWriter;
+import com.siemens.ct.exi.SelfContainedHandler;
+import com.siemens.ct.exi.exceptions.EXIException;
+import com.siemens.ct.exi.helpers.DefaultEXIFactory;
+import com.siemens.ct.exi.io.channel.EncoderChannel;
+import com.siemens.ct.exi.values.StringValue;
+
+public class SelfContainedCoreTest extends TestCase {
+
+	static final int RECORDS = 50;
+
+	protected EXIFactory getFactory(CodingMode codingMode) throws EXIException {
+		EXIFactory factory = DefaultEXIFactory.newInstance();
+		FidelityOptions fo = FidelityOptions.createDefault();
+		fo.setFidelity(FidelityOptions.FEATURE_SC, true);
+		factory.setFidelityOptions(fo);
+		factory.setCodingMode(codingMode);
+		factory.setSelfContainedElements(new QName[] { new QName("", "rec") });
+		return factory;
+	}
+
+	protected static void writeRecordContent(EXIBodyEncoder encoder, int i)
+			throws EXIException, IOException {
+		encoder.encodeAttribute("", "id", null, new StringValue("" + i));
+		encoder.encodeStartElement("", "value", null);
+		encoder.encodeCharacters(new StringValue("value " + (i % 7)));
+		encoder.encodeEndElement();
+	}
+
+	protected byte[] encodeInline(EXIFactory factory) throws EXIException,
+			IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		EXIBodyEncoder encoder = factory.createEXIBodyEncoder();
+		encoder.setOutputStream(baos);
+		encoder.encodeStartDocument();
+		encoder.encodeStartElement("", "root", null);
+		encoder.encodeStartElement("", "head", null);
+		encoder.encodeEndElement();
+		for (int i = 0; i < RECORDS; i++) {
+			encoder.encodeStartElement("", "rec", null);
+			writeRecordContent(encoder, i);
+			encoder.encodeEndElement();
+		}
+		encoder.encodeEndElement();
+		encoder.encodeEndDocument();
+		encoder.flush();
+		return baos.toByteArray();
+	}
+
+	protected byte[] encodeSubmitted(EXIFactory factory,
+			ExecutorService executor) throws EXIException, IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		EXIBodyEncoderInOrderSC encoder = (EXIBodyEncoderInOrderSC) factory
+				.createEXIBodyEncoder();
+		encoder.setSelfContainedExecutor(executor);
+		encoder.setOutputStream(baos);
+		encoder.encodeStartDocument();
+		encoder.encodeStartElement("", "root", null);
+		encoder.encodeStartElement("", "head", null);
+		encoder.encodeEndElement();
+		for (int i = 0; i < RECORDS; i++) {
+			final int rec = i;
+			encoder.submitSelfContained("", "rec", null,
+					new SelfContainedFragmentWriter() {
+						public void writeContent(EXIBodyEncoder fragmentEncoder)
+								throws EXIException, IOException {
+							writeRecordContent(fragmentEncoder, rec);
+						}
+					});
+		}
+		encoder.encodeEndElement();
+		encoder.encodeEndDocument();
+		encoder.flush();
+		return baos.toByteArray();
+	}
+
+	protected void _testSubmitted(CodingMode codingMode) throws Exception {
+		EXIFactory factory = getFactory(codingMode);
+		byte[] inline = encodeInline(factory);
+
+		// calling thread
+		assertTrue(Arrays.equals(inline, encodeSubmitted(factory, null)));
+
+		// worker pool
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			assertTrue(Arrays.equals(inline,
+					encodeSubmitted(factory, executor)));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	public void testSubmittedBitPacked() throws Exception {
+		_testSubmitted(CodingMode.BIT_PACKED);
+	}
+
+	public void testSubmittedBytePacked() throws Exception {
+		_testSubmitted(CodingMode.BYTE_PACKED);
+	}
+
+	protected EXIFactory getFactory(CodingMode codingMode,
+			final List<Integer> positions) throws EXIException {
+		EXIFactory factory = getFactory(codingMode);
+		factory.setSelfContainedElements(
+				new QName[] { new QName("", "rec") },
+				new SelfContainedHandler() {
+					public void scElement(String uri, String localName,
+							EncoderChannel channel) throws EXIException {
+						positions.add(channel.getLength());
+					}
+				});
+		return factory;
+	}
+
+	protected void _testSelfContainedHandler(CodingMode codingMode)
+			throws Exception {
+		// positions reported while encoding inline refer to the stream
+		List<Integer> expected = new ArrayList<Integer>();
+		byte[] inline = encodeInline(getFactory(codingMode, expected));
+		assertEquals(RECORDS, expected.size());
+		for (int i = 0; i < RECORDS; i++) {
+			assertTrue(expected.get(i) > (i == 0 ? 0 : expected.get(i - 1)));
+			assertTrue(expected.get(i) < inline.length);
+		}
+
+		// submitted fragments report the same positions once spliced
+		List<Integer> positions = new ArrayList<Integer>();
+		assertTrue(Arrays.equals(inline,
+				encodeSubmitted(getFactory(codingMode, positions), null)));
+		assertEquals(expected, positions);
+
+		positions.clear();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			assertTrue(Arrays.equals(inline,
+					encodeSubmitted(getFactory(codingMode, positions),
+							executor)));
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(expected, positions);
+	}
+
+	public void testSelfContainedHandlerBitPacked() throws Exception {
+		_testSelfContainedHandler(CodingMode.BIT_PACKED);
+	}
+
+	public void testSelfContainedHandlerBytePacked() throws Exception {
+		_testSelfContainedHandler(CodingMode.BYTE_PACKED);
+	}
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2007-2016 Siemens AG
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ */
+
+package com.siemens.ct.exi.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.xml.namespace.QName;
+
+import junit.framework.TestCase;
+
+import com.siemens.ct.exi.EXIBodyDecoder;
+import com.siemens.ct.exi.EXIBodyEncoder;
+import com.siemens.ct.exi.EXIFactory;
+import com.siemens.ct.exi.exceptions.EXIException;
+import com.siemens.ct.exi.grammars.event.EventType;
+import com.siemens.ct.exi.helpers.DefaultEXIFactory;
+import com.siemens.ct.exi.values.StringValue;
+
+public class WhitespaceCoreTest extends TestCase {
+
+	public WhitespaceCoreTest(String testName) {
+		super(testName);
+	}
+
+	public void testWhitespaceNodes() throws IOException, EXIException {
+		EXIFactory factory = DefaultEXIFactory.newInstance();
+		QName root = new QName("", "root");
+		QName el1 = new QName("", "el1");
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		// encoder
+		{
+			EXIBodyEncoder encoder = factory.createEXIBodyEncoder();
+			encoder.setOutputStream(baos);
+			encoder.encodeStartDocument();
+			encoder.encodeStartElement(root.getNamespaceURI(),
+					root.getLocalPart(), null);
+			// whitespace node split in several values (complex data)
+			encoder.encodeCharacters(new StringValue("\n  "));
+			encoder.encodeCharacters(new StringValue("\t"));
+			encoder.encodeStartElement(el1.getNamespaceURI(),
+					el1.getLocalPart(), null);
+			// simple data is preserved
+			encoder.encodeCharacters(new StringValue("  a "));
+			encoder.encodeCharacters(new StringValue("\tb  "));
+			encoder.encodeEndElement();
+			encoder.encodeCharacters(new StringValue("\n"));
+			encoder.encodeEndElement();
+			encoder.encodeEndDocument();
+			encoder.flush();
+		}
+
+		// decoder
+		{
+			EXIBodyDecoder decoder = factory.createEXIBodyDecoder();
+			decoder.setInputStream(new ByteArrayInputStream(baos.toByteArray()));
+			decoder.decodeStartDocument();
+
+			assertTrue(decoder.next() == EventType.START_ELEMENT_GENERIC);
+			assertTrue(decoder.decodeStartElement().getQName().equals(root));
+
+			assertTrue(decoder.next() == EventType.START_ELEMENT_GENERIC_UNDECLARED);
+			assertTrue(decoder.decodeStartElement().getQName().equals(el1));
+
+			assertTrue(decoder.next() == EventType.CHARACTERS_GENERIC_UNDECLARED);
+			assertEquals("  a \tb  ", decoder.decodeCharacters().toString());
+
+			assertTrue(decoder.next() == EventType.END_ELEMENT);
+			decoder.decodeEndElement();
+
+			assertTrue(decoder.next() == EventType.END_ELEMENT);
+			decoder.decodeEndElement();
+
+			assertTrue(decoder.next() == EventType.END_DOCUMENT);
+			decoder.decodeEndDocument();
+		}
+	}
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2007-2016 Siemens AG
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ */
+
+package com.siemens.ct.exi.core.container;
+
+import junit.framework.TestCase;
+
+public class NamespaceTableCoreTest extends TestCase {
+
+	public NamespaceTableCoreTest(String testName) {
+		super(testName);
+	}
+
+	public void testNamespaceTable() {
+		NamespaceTable nt = new NamespaceTable();
+		nt.pushContext();
+		nt.declarePrefix("a", "urn:a");
+		nt.declarePrefix("b", "urn:b");
+		nt.pushContext();
+		// shadowing prefix, second prefix for urn:b
+		nt.declarePrefix("a", "urn:a2");
+		nt.declarePrefix("b2", "urn:b");
+		assertEquals("urn:a2", nt.getURI("a"));
+		assertEquals("urn:b", nt.getURI("b2"));
+		assertEquals("a", nt.getPrefix("urn:a2"));
+		// first declaration in scope wins
+		assertEquals("b", nt.getPrefix("urn:b"));
+		nt.popContext();
+		assertEquals("urn:a", nt.getURI("a"));
+		assertNull(nt.getURI("b2"));
+		assertNull(nt.getPrefix("urn:a2"));
+		assertEquals("b", nt.getPrefix("urn:b"));
+		nt.popContext();
+		assertNull(nt.getURI("a"));
+		assertNull(nt.getPrefix("urn:b"));
+
+		// same prefix twice in one scope
+		nt.pushContext();
+		nt.declarePrefix("c", "urn:c1");
+		nt.declarePrefix("c", "urn:c2");
+		assertEquals("urn:c1", nt.getURI("c"));
+		assertEquals("c", nt.getPrefix("urn:c2"));
+		nt.clear();
+		assertNull(nt.getURI("c"));
+	}
+
+}
@@ -24,6 +24,11 @@
 package com.siemens.ct.exi.datatype;
 
 import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
 
 import com.siemens.ct.exi.io.channel.DecoderChannel;
 import com.siemens.ct.exi.io.channel.EncoderChannel;
@@ -38,6 +43,67 @@ public class BinaryCoreTest extends AbstractCoreTestCase {
 		super(testName);
 	}
 
+	public void testBase64Codec() {
+		Random rnd = new Random(42);
+		for (int len = 0; len < 70; len++) {
+			byte[] bytes = new byte[len];
+			rnd.nextBytes(bytes);
+			String expected = Base64.getEncoder().encodeToString(bytes);
+
+			char[] chars = new char[BinaryBase64Value.getEncodedLength(len) + 2];
+			int n = BinaryBase64Value.encode(bytes, 0, len, chars, 1);
+			assertEquals(expected, new String(chars, 1, n));
+			assertEquals(expected, new BinaryBase64Value(bytes).toString());
+
+			assertTrue(Arrays.equals(bytes, BinaryBase64Value.decode(expected)));
+			// whitespaces
+			String ws = " " + expected.replaceAll("(.{5})", "$1\n\t") + " \r\n";
+			assertTrue(Arrays.equals(bytes, BinaryBase64Value.decode(ws)));
+			// char ranges and buffers
+			byte[] dst = new byte[BinaryBase64Value.getMaxDecodedLength(n) + 1];
+			assertEquals(len, BinaryBase64Value.decode(chars, 1, 1 + n, dst, 1));
+			assertTrue(Arrays.equals(bytes, Arrays.copyOfRange(dst, 1, 1 + len)));
+			ByteBuffer bb = ByteBuffer.allocateDirect(dst.length);
+			assertEquals(len, BinaryBase64Value.decode(ws, 0, ws.length(), bb));
+			assertEquals(len, bb.position());
+		}
+
+		// invalid data
+		String[] invalid = { "A", "AB=", "AB=C", "A===", "====", "AB==CD==",
+				"AB=C====", "3cX!", "QQ=", "QR==", "QUJ=" };
+		for (String s : invalid) {
+			assertNull(s, BinaryBase64Value.decode(s));
+		}
+		assertEquals(0, BinaryBase64Value.decode(" \n").length);
+	}
+
+	public void testHexCodec() {
+		byte[] bytes = new byte[256];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) i;
+		}
+		String hex = new BinaryHexValue(bytes).toString();
+		assertEquals("000102", hex.substring(0, 6));
+		assertEquals("FDFEFF", hex.substring(hex.length() - 6));
+		assertTrue(Arrays.equals(bytes, BinaryHexValue.decode(hex)));
+		assertTrue(Arrays.equals(bytes,
+				BinaryHexValue.decode(hex.toLowerCase())));
+
+		ByteBuffer bb = ByteBuffer.allocate(8);
+		assertEquals(2, BinaryHexValue.decode("x0fB7x", 1, 5, bb));
+		assertEquals(0x0f, bb.get(0));
+		assertEquals((byte) 0xb7, bb.get(1));
+		byte[] dst = new byte[3];
+		assertEquals(2, BinaryHexValue.decode("x0fB7x".toCharArray(), 1, 5,
+				dst, 1));
+		assertEquals(0x0f, dst[1]);
+		assertEquals((byte) 0xb7, dst[2]);
+
+		assertNull(BinaryHexValue.decode("0FB"));
+		assertNull(BinaryHexValue.decode("0FBG"));
+		assertEquals(-1, BinaryHexValue.decode("\u00E40", 0, 2, bb));
+	}
+
 	public void testHexBinaryAsString0FB7() throws IOException {
 		StringValue src = new StringValue("0FB7");
 
@@ -325,4 +391,47 @@ public class BinaryCoreTest extends AbstractCoreTestCase {
 		assertFalse(binary.isValid(src));
 	}
 
+	public void testBase64Failure3() throws IOException {
+		// padding that does not end a group of four characters
+		String[] malformed = { "AAAA==", "AAAAA=", "AAAAAAAA=", "AAAA=",
+				"AAAA ==", "AAAA===", "AAAA AA=A", "AA==AAAA" };
+		Datatype binary = new BinaryBase64Datatype(null);
+		for (String s : malformed) {
+			assertNull(s, BinaryBase64Value.decode(s));
+			assertFalse(s, binary.isValid(new StringValue(s)));
+			char[] chars = s.toCharArray();
+			byte[] dst = new byte[BinaryBase64Value
+					.getMaxDecodedLength(chars.length)];
+			assertEquals(s, -1, BinaryBase64Value.decode(chars, 0,
+					chars.length, dst, 0));
+			ByteBuffer bb = ByteBuffer.allocate(dst.length);
+			assertEquals(s, -1, BinaryBase64Value.decode(s, 0, s.length(), bb));
+			assertEquals(0, bb.position());
+		}
+	}
+
+	public void testBinaryBufferOverflow() throws IOException {
+		ByteBuffer bb = ByteBuffer.allocate(2);
+		try {
+			BinaryBase64Value.decode("AAAA", 0, 4, bb);
+			fail("3 bytes do not fit");
+		} catch (BufferOverflowException e) {
+			// expected
+		}
+		assertEquals(0, bb.position());
+		// exact length with padding
+		assertEquals(2, BinaryBase64Value.decode(" AAA= ", 0, 6, bb));
+		assertEquals(2, bb.position());
+
+		bb = ByteBuffer.allocateDirect(1);
+		try {
+			BinaryHexValue.decode("0FB7", 0, 4, bb);
+			fail("2 bytes do not fit");
+		} catch (BufferOverflowException e) {
+			// expected
+		}
+		assertEquals(1, BinaryHexValue.decode("0FB7", 2, 4, bb));
+		assertEquals((byte) 0xb7, bb.get(0));
+	}
+
 }
\ No newline at end of file
@@ -24,6 +24,11 @@
 package com.siemens.ct.exi.datatype;
 
 import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Random;
 
 import com.siemens.ct.exi.io.channel.EncoderChannel;
 import com.siemens.ct.exi.types.DateTimeType;
@@ -725,4 +730,57 @@ public class DatetimeCoreTest extends AbstractCoreTestCase {
 		assertFalse(datetime != null);
 	}
 
+
+	public void testDatetimeParseRange() throws IOException {
+		StringBuilder sb = new StringBuilder(
+				"<t> 2015-07-03T09:17:45.0120-05:30 </t>");
+		DateTimeValue datetime = DateTimeValue.parse(sb, 3, sb.length() - 4,
+				DateTimeType.dateTime);
+		assertTrue(datetime != null);
+		assertEquals("2015-07-03T09:17:45.012-05:30", datetime.toString());
+		assertEquals(12000000, datetime.getNanoOfSecond());
+
+		assertNull(DateTimeValue.parse("2015-07-03T09:17:45.Z",
+				DateTimeType.dateTime));
+		assertNull(DateTimeValue.parse("2015-7-03", DateTimeType.date));
+		assertNull(DateTimeValue.parse("12:3a:00", DateTimeType.time));
+		assertNull(DateTimeValue.parse("---1", DateTimeType.gDay));
+	}
+
+	public void testDatetimeJavaTime() throws IOException {
+		Instant instant = Instant.parse("2016-02-29T23:59:58.123456789Z");
+		DateTimeValue datetime = DateTimeValue.parse(instant);
+		assertEquals("2016-02-29T23:59:58.123456789Z", datetime.toString());
+		assertEquals(instant, datetime.toInstant());
+		assertEquals(instant.toEpochMilli(), datetime.toEpochMilli());
+
+		datetime = DateTimeValue.parseEpochMilli(-1L);
+		assertEquals("1969-12-31T23:59:59.999Z", datetime.toString());
+		assertEquals(-1L, datetime.toEpochMilli());
+
+		OffsetDateTime odt = OffsetDateTime.of(1999, 12, 31, 20, 0, 0,
+				500000000, ZoneOffset.ofHoursMinutes(-3, -30));
+		datetime = DateTimeValue.parse(odt);
+		assertEquals("1999-12-31T20:00:00.5-03:30", datetime.toString());
+		assertEquals(odt, datetime.toOffsetDateTime());
+		assertEquals(odt.toEpochSecond(), datetime.toEpochSecond());
+		assertEquals(datetime, DateTimeValue.parse(datetime.toString(),
+				DateTimeType.dateTime));
+
+		LocalDate ld = LocalDate.of(1600, 3, 1);
+		datetime = DateTimeValue.parse(ld);
+		assertEquals("1600-03-01", datetime.toString());
+		assertEquals(ld, datetime.toLocalDate());
+		assertEquals(ld.toEpochDay() * 24 * 60 * 60, datetime.toEpochSecond());
+
+		Random rnd = new Random(7);
+		for (int i = 0; i < 1000; i++) {
+			long epochSecond = rnd.nextInt() * 64L;
+			DateTimeValue dtv = DateTimeValue.parseEpochSecond(epochSecond, 0);
+			assertEquals(Instant.ofEpochSecond(epochSecond).toString(),
+					dtv.toString());
+			assertEquals(epochSecond, dtv.toEpochSecond());
+		}
+	}
+
 }
\ No newline at end of file
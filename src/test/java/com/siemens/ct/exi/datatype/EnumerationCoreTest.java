@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2007-2016 Siemens AG
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ */
+package com.siemens.ct.exi.datatype;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.siemens.ct.exi.CodingMode;
+import com.siemens.ct.exi.EXIBodyEncoder;
+import com.siemens.ct.exi.EXIFactory;
+import com.siemens.ct.exi.FidelityOptions;
+import com.siemens.ct.exi.exceptions.EXIException;
+import com.siemens.ct.exi.grammars.GrammarsCoreTest;
+import com.siemens.ct.exi.helpers.DefaultEXIFactory;
+import com.siemens.ct.exi.io.channel.DecoderChannel;
+import com.siemens.ct.exi.io.channel.EncoderChannel;
+import com.siemens.ct.exi.values.IntegerValue;
+import com.siemens.ct.exi.values.StringValue;
+import com.siemens.ct.exi.values.Value;
+
+public class EnumerationCoreTest extends AbstractCoreTestCase {
+
+	public EnumerationCoreTest(String testName) {
+		super(testName);
+	}
+
+	public void testEnumerationIndex() throws IOException {
+		Value[] codes = new Value[1000];
+		for (int i = 0; i < codes.length; i++) {
+			codes[i] = new StringValue("c" + i);
+		}
+		EnumerationDatatype enumDt = new EnumerationDatatype(codes,
+				new StringDatatype(null), null);
+		assertEquals(999, enumDt.getEnumValueIndex(new StringValue("c999")));
+		assertEquals(-1, enumDt.getEnumValueIndex(new StringValue("c1000")));
+		assertTrue(enumDt.isValid(new StringValue("c42")));
+		assertFalse(enumDt.isValid(new StringValue(" c42")));
+
+		// Bit
+		EncoderChannel bitEC = getBitEncoder();
+		assertTrue(enumDt.isValid(new StringValue("c7")));
+		enumDt.writeValue(null, bitEC, null);
+		assertTrue(enumDt.isValid(new StringValue("c512")));
+		enumDt.writeValue(null, bitEC, null);
+		bitEC.flush();
+		DecoderChannel bitDC = getBitDecoder();
+		assertEquals("c7", enumDt.readValue(null, bitDC, null).toString());
+		assertEquals("c512", enumDt.readValue(null, bitDC, null).toString());
+		// Byte
+		assertTrue(enumDt.isValid(new StringValue("c512")));
+		enumDt.writeValue(null, getByteEncoder(), null);
+		assertEquals("c512", enumDt.readValue(null, getByteDecoder(), null)
+				.toString());
+	}
+
+	public void testEnumerationIndexTyped() throws IOException {
+		Value[] numbers = { IntegerValue.valueOf(1), IntegerValue.valueOf(20),
+				IntegerValue.valueOf(300) };
+		EnumerationDatatype enumInt = new EnumerationDatatype(numbers,
+				new IntegerDatatype(null), null);
+		assertEquals(1, enumInt.getEnumValueIndex(new StringValue("20")));
+		// other lexical forms
+		assertEquals(1, enumInt.getEnumValueIndex(new StringValue("+20")));
+		assertEquals(2, enumInt.getEnumValueIndex(IntegerValue.valueOf(300)));
+		assertEquals(-1, enumInt.getEnumValueIndex(new StringValue("21")));
+
+		assertTrue(enumInt.isValid(new StringValue("+20")));
+		EncoderChannel bitEC = getBitEncoder();
+		enumInt.writeValue(null, bitEC, null);
+		bitEC.flush();
+		assertEquals("20", enumInt.readValue(null, getBitDecoder(), null)
+				.toString());
+	}
+
+	protected byte[] encodeColorIndices(EXIFactory factory)
+			throws EXIException, IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		EXIBodyEncoder encoder = factory.createEXIBodyEncoder();
+		encoder.setOutputStream(baos);
+		encoder.encodeStartDocument();
+		encoder.encodeStartElement("", "root", null);
+		encoder.encodeAttribute("", "a", null, new StringValue("-12"));
+		for (int i = 0; i < 10; i++) {
+			encoder.encodeStartElement("", "item", null);
+			// red, green, blue
+			encoder.encodeEnumValueIndex(i % 2 == 0 ? 0 : 2);
+			encoder.encodeEndElement();
+		}
+		encoder.encodeEndElement();
+		encoder.encodeEndDocument();
+		encoder.flush();
+		return baos.toByteArray();
+	}
+
+	public void testEncodeEnumValueIndex() throws EXIException, IOException {
+		CodingMode[] codingModes = { CodingMode.BIT_PACKED,
+				CodingMode.BYTE_PACKED, CodingMode.PRE_COMPRESSION,
+				CodingMode.COMPRESSION };
+		for (CodingMode cm : codingModes) {
+			for (int k = 0; k < 3; k++) {
+				EXIFactory factory = DefaultEXIFactory.newInstance();
+				factory.setGrammars(GrammarsCoreTest
+						.createSchemaInformedGrammars());
+				factory.setCodingMode(cm);
+				if (k == 1) {
+					// values are buffered in bounded mode
+					factory.setBlockMemoryBudget(0);
+				} else if (k == 2) {
+					factory.getFidelityOptions().setFidelity(
+							FidelityOptions.FEATURE_LEXICAL_VALUE, true);
+				}
+				// same stream as with the enumeration values
+				assertTrue(Arrays.equals(
+						GrammarsCoreTest.encodeColors(factory),
+						encodeColorIndices(factory)));
+			}
+		}
+	}
+
+	public void testEncodeEnumValueIndexInvalid() throws EXIException,
+			IOException {
+		EXIFactory factory = DefaultEXIFactory.newInstance();
+		factory.setGrammars(GrammarsCoreTest.createSchemaInformedGrammars());
+		EXIBodyEncoder encoder = factory.createEXIBodyEncoder();
+		encoder.setOutputStream(new ByteArrayOutputStream());
+		encoder.encodeStartDocument();
+		encoder.encodeStartElement("", "root", null);
+		try {
+			// no enumeration expected
+			encoder.encodeEnumValueIndex(0);
+			fail("Enumeration index for root");
+		} catch (EXIException e) {
+			// expected
+		}
+		encoder.encodeStartElement("", "item", null);
+		try {
+			encoder.encodeEnumValueIndex(3);
+			fail("Enumeration index out of range");
+		} catch (EXIException e) {
+			// expected
+		}
+	}
+
+}
@@ -871,4 +871,54 @@ public class FloatCoreTest extends AbstractCoreTestCase {
 		assertFalse(f1.equals(f2));
 	}
 
+	public void testFloatShortestDecimal() throws IOException {
+		FloatValue fv = FloatValue.parse(0.3d);
+		assertEquals(IntegerValue.valueOf(3), fv.getMantissa());
+		assertEquals(IntegerValue.valueOf(-1), fv.getExponent());
+
+		fv = FloatValue.parse(18.4f);
+		assertEquals(IntegerValue.valueOf(184), fv.getMantissa());
+		assertEquals(IntegerValue.valueOf(-1), fv.getExponent());
+
+		fv = FloatValue.parse(Double.MIN_VALUE);
+		assertEquals(Double.MIN_VALUE, fv.doubleValue());
+		fv = FloatValue.parse(-Double.MAX_VALUE);
+		assertEquals(-Double.MAX_VALUE, fv.doubleValue());
+		fv = FloatValue.parse(Float.MIN_VALUE);
+		assertEquals(Float.MIN_VALUE, fv.floatValue());
+
+		double[] ds = { 0.1d, 1d / 3d, 2.2250738585072014E-308, 1e23,
+				123456.789e-200, -9007199254740993d };
+		for (double d : ds) {
+			fv = FloatValue.parse(d);
+			assertEquals(d, fv.doubleValue());
+			assertEquals(d, Double.parseDouble(fv.toString()));
+		}
+	}
+
+	public void testFloatCorrectlyRounded() throws IOException {
+		String[] ss = { "9007199254740993", "2.2250738585072011E-308",
+				"17976931348623157E292", "4.9E-324", "1E-400", "1E400",
+				"-7.038531E-26", "123456789012345678E-5", "1.000000059604644775" };
+		for (String s : ss) {
+			FloatValue fv = FloatValue.parse(s);
+			if (fv == null) {
+				continue;
+			}
+			assertEquals(s, Double.parseDouble(s), fv.doubleValue());
+			assertEquals(s, Float.parseFloat(s), fv.floatValue());
+		}
+
+		FloatValue fv = new FloatValue(Long.MIN_VALUE, -3);
+		assertEquals(Double.parseDouble(Long.MIN_VALUE + "E-3"),
+				fv.doubleValue());
+
+		fv = FloatValue.parse("INF");
+		assertEquals(Double.POSITIVE_INFINITY, fv.doubleValue());
+		fv = FloatValue.parse(" -INF ");
+		assertEquals(Float.NEGATIVE_INFINITY, fv.floatValue());
+		fv = FloatValue.parse("NaN");
+		assertTrue(Double.isNaN(fv.doubleValue()));
+	}
+
 }
\ No newline at end of file
@@ -24,6 +24,7 @@
 package com.siemens.ct.exi.datatype;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import javax.xml.namespace.QName;
 
@@ -320,4 +321,110 @@ public class ListCoreTest extends AbstractCoreTestCase {
 		assertFalse(dt.isValid(new StringValue("bla")));
 	}
 
-}
\ No newline at end of file
+	public void testListDoublePrimitive() throws IOException {
+		double[] samples = { 0.1, -2.5, 1e300, 4.9e-324, Double.NaN,
+				Double.NEGATIVE_INFINITY, 0, 123456789.125 };
+		ListDatatype ldtFloat = new ListDatatype(new FloatDatatype(null), null);
+
+		// primitive items, encoded as with values
+		ListValue lv = new ListValue(samples, 1, samples.length - 1);
+		assertTrue(ldtFloat.isValid(lv));
+		EncoderChannel bitEC = getBitEncoder();
+		ldtFloat.writeValue(null, bitEC, null);
+		assertTrue(ldtFloat.isValid(new StringValue(lv.toString())));
+		ldtFloat.writeValue(null, bitEC, null);
+		bitEC.flush();
+
+		DecoderChannel dc = getBitDecoder();
+		for (int k = 0; k < 2; k++) {
+			ListValue lv1 = (ListValue) ldtFloat.readValue(null, dc, null);
+			double[] doubles = lv1.toDoubles();
+			assertEquals(samples.length - 1, doubles.length);
+			for (int i = 0; i < doubles.length; i++) {
+				assertEquals(Double.doubleToLongBits(samples[i + 1]),
+						Double.doubleToLongBits(doubles[i]));
+			}
+			assertEquals(lv, lv1);
+		}
+
+		// no double representation, decoded as values
+		StringValue s = new StringValue("1.5 1E400 12345678901234567E-1");
+		assertTrue(ldtFloat.isValid(s));
+		ldtFloat.writeValue(null, bitEC = getBitEncoder(), null);
+		bitEC.flush();
+		ListValue lv2 = (ListValue) ldtFloat.readValue(null, getBitDecoder(),
+				null);
+		assertNull(lv2.toDoubles());
+		assertEquals("15E-1 1E400 12345678901234567E-1", lv2.toString());
+
+		// non-canonical mantissa and exponent on the wire (e.g., 150E-2), the
+		// list decodes as doubles and matches item-wise FloatValue decoding
+		long[][] raw = { { 150, -2 }, { 0, 3 }, { -2000, 0 }, { 5, -1 } };
+		FloatDatatype dtFloat = new FloatDatatype(null);
+		for (int k = 0; k < 2; k++) {
+			bitEC = getBitEncoder();
+			if (k == 0) {
+				bitEC.encodeUnsignedInteger(raw.length);
+			}
+			for (int i = 0; i < raw.length; i++) {
+				bitEC.encodeLong(raw[i][0]);
+				bitEC.encodeLong(raw[i][1]);
+			}
+			bitEC.flush();
+			dc = getBitDecoder();
+			if (k == 0) {
+				lv2 = (ListValue) ldtFloat.readValue(null, dc, null);
+				assertNotNull(lv2.toDoubles());
+				assertEquals("15E-1 0E0 -2E3 5E-1", lv2.toString());
+			} else {
+				StringBuilder sb = new StringBuilder();
+				for (int i = 0; i < raw.length; i++) {
+					sb.append(i > 0 ? " " : "");
+					sb.append(dtFloat.readValue(null, dc, null).toString());
+				}
+				assertEquals(lv2.toString(), sb.toString());
+			}
+		}
+	}
+
+	public void testListLongPrimitive() throws IOException {
+		long[] samples = { 3, -1, Long.MIN_VALUE, Long.MAX_VALUE, 0 };
+		ListDatatype ldtInteger = new ListDatatype(new IntegerDatatype(null),
+				null);
+
+		ListValue lv = new ListValue(samples, 0, samples.length);
+		assertTrue(ldtInteger.isValid(lv));
+		EncoderChannel byteEC = getByteEncoder();
+		ldtInteger.writeValue(null, byteEC, null);
+		ListValue lv1 = (ListValue) ldtInteger.readValue(null,
+				getByteDecoder(), null);
+		assertTrue(Arrays.equals(samples, lv1.toLongs()));
+		assertEquals(lv.toString(), lv1.toString());
+
+		// unsigned and n-bit items
+		ListDatatype ldtUnsigned = new ListDatatype(
+				new UnsignedIntegerDatatype(null), null);
+		assertFalse(ldtUnsigned.isValid(lv));
+		ListDatatype ldtNBit = new ListDatatype(
+				new NBitUnsignedIntegerDatatype(IntegerValue.valueOf(-10),
+						IntegerValue.valueOf(10), null), null);
+		assertFalse(ldtNBit.isValid(lv));
+		ListValue lvSmall = new ListValue(samples, 0, 2);
+		assertTrue(ldtNBit.isValid(lvSmall));
+		EncoderChannel bitEC = getBitEncoder();
+		ldtNBit.writeValue(null, bitEC, null);
+		bitEC.flush();
+		lv1 = (ListValue) ldtNBit.readValue(null, getBitDecoder(), null);
+		assertEquals("3 -1", lv1.toString());
+
+		// exceeding long, decoded as values
+		StringValue s = new StringValue("1 -99999999999999999999999 2");
+		assertTrue(ldtInteger.isValid(s));
+		ldtInteger.writeValue(null, bitEC = getBitEncoder(), null);
+		bitEC.flush();
+		lv1 = (ListValue) ldtInteger.readValue(null, getBitDecoder(), null);
+		assertNull(lv1.toLongs());
+		assertEquals(s.toString(), lv1.toString());
+	}
+
+}
@@ -24,9 +24,23 @@
 package com.siemens.ct.exi.datatype;
 
 import java.io.IOException;
-
+import java.util.HashSet;
+import java.util.Set;
+
+import com.siemens.ct.exi.Constants;
+import com.siemens.ct.exi.datatype.charset.CodePointCharacterSet;
+import com.siemens.ct.exi.datatype.charset.RestrictedCharacterSet;
+import com.siemens.ct.exi.datatype.charset.XSDBase64CharacterSet;
+import com.siemens.ct.exi.datatype.charset.XSDDecimalCharacterSet;
+import com.siemens.ct.exi.datatype.strings.StringDecoder;
+import com.siemens.ct.exi.datatype.strings.StringDecoderImpl;
+import com.siemens.ct.exi.datatype.strings.StringEncoder;
+import com.siemens.ct.exi.datatype.strings.StringEncoderImpl;
 import com.siemens.ct.exi.io.channel.DecoderChannel;
 import com.siemens.ct.exi.io.channel.EncoderChannel;
+import com.siemens.ct.exi.values.IntegerValue;
+import com.siemens.ct.exi.values.StringValue;
+import com.siemens.ct.exi.values.Value;
 
 public class StringCoreTest extends AbstractCoreTestCase {
 
@@ -114,6 +128,63 @@ public class StringCoreTest extends AbstractCoreTestCase {
 		assertTrue(s.equals(new String(sd2)));
 	}
 
+	public void testStringASCIIRuns() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 300; i++) {
+			sb.append((char) (i % 128));
+		}
+		sb.append("\u00FC\u6C34\uD834\uDD1E");
+		for (int i = 0; i < 600; i++) {
+			sb.append(i % 7 == 0 ? '\u00E4' : (char) ('a' + i % 26));
+		}
+		sb.append("x\uD834\uDD1E");
+		String s = sb.toString();
+
+		// Bit (not byte-aligned)
+		EncoderChannel bitEC = getBitEncoder();
+		bitEC.encodeBoolean(true);
+		bitEC.encodeString(s);
+		bitEC.encodeUnsignedInteger(4711);
+		bitEC.flush();
+		DecoderChannel bitDC = getBitDecoder();
+		assertTrue(bitDC.decodeBoolean());
+		assertEquals(s, new String(bitDC.decodeString()));
+		assertEquals(4711, bitDC.decodeUnsignedInteger());
+
+		// Byte
+		EncoderChannel byteEC = getByteEncoder();
+		byteEC.encodeString(s);
+		byteEC.encodeUnsignedInteger(4711);
+		DecoderChannel byteDC = getByteDecoder();
+		assertEquals(s, new String(byteDC.decodeString()));
+		assertEquals(4711, byteDC.decodeUnsignedInteger());
+	}
+
+	public void testStringSupplementaryRuns() throws IOException {
+		// only and partly surrogate pairs
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 500; i++) {
+			sb.appendCodePoint(0x1F600 + i % 80);
+		}
+		String[] strings = { sb.toString(), sb.toString() + "abc",
+				"a" + sb.toString() + "\u00E4\u6C34" };
+		for (String s : strings) {
+			// Bit
+			EncoderChannel bitEC = getBitEncoder();
+			bitEC.encodeString(s);
+			bitEC.flush();
+			char[] sd1 = getBitDecoder().decodeString();
+			assertEquals(s.length(), sd1.length);
+			assertEquals(s, new String(sd1));
+
+			// Byte
+			getByteEncoder().encodeString(s);
+			char[] sd2 = getByteDecoder().decodeString();
+			assertEquals(s.length(), sd2.length);
+			assertEquals(s, new String(sd2));
+		}
+	}
+
 	public void testStringSpecial3() throws IOException {
 		// 27700 (hex 6C34) water (Chinese)
 		String s = "\u6C34";
@@ -248,4 +319,113 @@ public class StringCoreTest extends AbstractCoreTestCase {
 		assertTrue(s.equals(new String(sd2)));
 	}
 
-}
\ No newline at end of file
+	public void testRestrictedCharacterSet() {
+		// dense BMP set
+		RestrictedCharacterSet rcs = new XSDBase64CharacterSet();
+		for (int code = 0; code < rcs.size(); code++) {
+			assertEquals(code, rcs.getCode(rcs.getCodePoint(code)));
+		}
+		assertEquals(Constants.NOT_FOUND, rcs.getCode('-'));
+		assertEquals(Constants.NOT_FOUND, rcs.getCode(0x1F600));
+
+		// sparse set with supplementary code-point
+		Set<Integer> codePoints = new HashSet<Integer>();
+		codePoints.add((int) 'A');
+		codePoints.add(0x5000);
+		codePoints.add(0x1F600);
+		rcs = new CodePointCharacterSet(codePoints);
+		assertEquals(0, rcs.getCode('A'));
+		assertEquals(1, rcs.getCode(0x5000));
+		assertEquals(2, rcs.getCode(0x1F600));
+		assertEquals(Constants.NOT_FOUND, rcs.getCode('B'));
+		assertEquals(0x1F600, rcs.getCodePoint(2));
+		try {
+			rcs.getCodePoint(3);
+			fail("Code out of bounds");
+		} catch (IndexOutOfBoundsException e) {
+			// expected
+		}
+
+		// larger sets grow beyond the initial capacity
+		Set<Integer> digits = new HashSet<Integer>();
+		for (int i = 0; i < 100; i++) {
+			digits.add(0x660 + i);
+		}
+		rcs = new CodePointCharacterSet(digits);
+		assertEquals(100, rcs.size());
+		assertEquals(99, rcs.getCode(0x660 + 99));
+		assertEquals(new CodePointCharacterSet(digits).hashCode(),
+				rcs.hashCode());
+
+		// code-points are required in ascending order
+		try {
+			new XSDBase64CharacterSet() {
+				{
+					addValue('A');
+				}
+			};
+			fail("Code-point not in ascending order");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testRestrictedCharacterSetValue() throws IOException {
+		RestrictedCharacterSetDatatype rcsDatatype = new RestrictedCharacterSetDatatype(
+				new XSDDecimalCharacterSet(), null);
+		Value[] values = { new StringValue("-12.5"), IntegerValue.valueOf(4711),
+				new StringValue("1,5"), new StringValue(""),
+				new StringValue("-12.5"), IntegerValue.valueOf(4711) };
+
+		// Bit
+		EncoderChannel bitEC = getBitEncoder();
+		StringEncoder stringEncoder = new StringEncoderImpl(false);
+		for (Value v : values) {
+			rcsDatatype.writeValue(null, bitEC, stringEncoder, v);
+		}
+		bitEC.flush();
+		DecoderChannel bitDC = getBitDecoder();
+		StringDecoder stringDecoder = new StringDecoderImpl(false);
+		for (Value v : values) {
+			assertEquals(v.toString(),
+					rcsDatatype.readValue(null, bitDC, stringDecoder)
+							.toString());
+		}
+
+		// Byte
+		EncoderChannel byteEC = getByteEncoder();
+		stringEncoder = new StringEncoderImpl(false);
+		for (Value v : values) {
+			rcsDatatype.writeValue(null, byteEC, stringEncoder, v);
+		}
+		DecoderChannel byteDC = getByteDecoder();
+		stringDecoder = new StringDecoderImpl(false);
+		for (Value v : values) {
+			assertEquals(v.toString(),
+					rcsDatatype.readValue(null, byteDC, stringDecoder)
+							.toString());
+		}
+	}
+
+	public void testNBitUnsignedIntegers() throws IOException {
+		int[] codes = { 1, 0, 15, 7, 3, 12, 9, 2, 11, 5 };
+
+		EncoderChannel bitEC = getBitEncoder();
+		bitEC.encodeNBitUnsignedInteger(1, 3);
+		bitEC.encodeNBitUnsignedIntegers(codes, 1, codes.length - 1, 4);
+		bitEC.flush();
+		DecoderChannel bitDC = getBitDecoder();
+		assertEquals(1, bitDC.decodeNBitUnsignedInteger(3));
+		for (int i = 1; i < codes.length; i++) {
+			assertEquals(codes[i], bitDC.decodeNBitUnsignedInteger(4));
+		}
+
+		EncoderChannel byteEC = getByteEncoder();
+		byteEC.encodeNBitUnsignedIntegers(codes, 0, codes.length, 4);
+		DecoderChannel byteDC = getByteDecoder();
+		for (int i = 0; i < codes.length; i++) {
+			assertEquals(codes[i], byteDC.decodeNBitUnsignedInteger(4));
+		}
+	}
+
+}
@@ -34,12 +34,16 @@ import javax.xml.namespace.QName;
 import org.junit.Test;
 
 import com.siemens.ct.exi.Constants;
+import com.siemens.ct.exi.EXIBodyDecoder;
+import com.siemens.ct.exi.EXIBodyEncoder;
 import com.siemens.ct.exi.EXIFactory;
 import com.siemens.ct.exi.context.QNameContext;
 import com.siemens.ct.exi.datatype.strings.StringDecoder;
 import com.siemens.ct.exi.datatype.strings.StringEncoder;
 import com.siemens.ct.exi.exceptions.EXIException;
+import com.siemens.ct.exi.grammars.event.EventType;
 import com.siemens.ct.exi.helpers.DefaultEXIFactory;
+import com.siemens.ct.exi.helpers.SharedStringsTrainer;
 import com.siemens.ct.exi.io.channel.BitDecoderChannel;
 import com.siemens.ct.exi.io.channel.BitEncoderChannel;
 import com.siemens.ct.exi.types.BuiltIn;
@@ -639,5 +643,113 @@ public class StringTableCoreTest extends AbstractCoreTestCase {
 						stringDecoder).toString().equals(ch3));
 	}
 
+	protected void encodeSample(EXIBodyEncoder encoder, int n)
+			throws EXIException, IOException {
+		encoder.encodeStartDocument();
+		encoder.encodeStartElement("", "root", null);
+		encoder.encodeAttribute("", "id", null, new StringValue("id-" + n));
+		encoder.encodeCharacters(new StringValue("shared text value"));
+		encoder.encodeEndElement();
+		encoder.encodeEndDocument();
+		encoder.flush();
+	}
+
+	@Test
+	public void testSharedStringsTrainer() throws IOException, EXIException {
+		EXIFactory exiFactory = DefaultEXIFactory.newInstance();
+
+		SharedStringsTrainer trainer = new SharedStringsTrainer(exiFactory);
+		for (int i = 0; i < 4; i++) {
+			encodeSample(trainer.newSample(), i);
+		}
+		// EXI body samples
+		for (int i = 4; i < 8; i++) {
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			EXIBodyEncoder encoder = exiFactory.createEXIBodyEncoder();
+			encoder.setOutputStream(baos);
+			encodeSample(encoder, i);
+			trainer.addSample(new ByteArrayInputStream(baos.toByteArray()));
+		}
+		assertEquals(8, trainer.getNumberOfSamples());
+
+		// values of a single sample are not shared
+		List<String> sharedStrings = trainer.train(256);
+		assertEquals(Arrays.asList("shared text value"), sharedStrings);
+
+		// character budget
+		assertTrue(trainer.train("shared text value".length() - 1).isEmpty());
+
+		StringEncoder stringEncoder = exiFactory.createStringEncoder();
+		stringEncoder.setSharedStrings(sharedStrings);
+		assertTrue(stringEncoder.isStringHit("shared text value"));
+		assertFalse(stringEncoder.isStringHit("id-8"));
+	}
+
+	protected byte[] encodeSessionSample(EXIBodyEncoder encoder, int n)
+			throws EXIException, IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		encoder.setOutputStream(baos);
+		encodeSample(encoder, n);
+		return baos.toByteArray();
+	}
+
+	protected void decodeSessionSample(EXIBodyDecoder decoder, byte[] bytes,
+			int n) throws EXIException, IOException {
+		decoder.setInputStream(new ByteArrayInputStream(bytes));
+		assertTrue(decoder.next() == EventType.START_DOCUMENT);
+		decoder.decodeStartDocument();
+		decoder.next();
+		assertEquals("root", decoder.decodeStartElement().getLocalName());
+		decoder.next();
+		decoder.decodeAttribute();
+		assertEquals("id-" + n, decoder.getAttributeValue().toString());
+		decoder.next();
+		assertEquals("shared text value", decoder.decodeCharacters()
+				.toString());
+		assertTrue(decoder.next() == EventType.END_ELEMENT);
+		decoder.decodeEndElement();
+		assertTrue(decoder.next() == EventType.END_DOCUMENT);
+		decoder.decodeEndDocument();
+	}
+
+	@Test
+	public void testSessionMode() throws IOException, EXIException {
+		EXIFactory exiFactory = DefaultEXIFactory.newInstance();
+		exiFactory.setSessionMode(true);
+		EXIBodyEncoder encoder = exiFactory.createEXIBodyEncoder();
+		EXIBodyDecoder decoder = exiFactory.createEXIBodyDecoder();
+
+		byte[] first = encodeSessionSample(encoder, 0);
+		// string table (and grammars) carried over
+		byte[] second = encodeSessionSample(encoder, 0);
+		assertTrue(second.length < first.length);
+		encoder.checkpointSession();
+		byte[] third = encodeSessionSample(encoder, 1);
+		encoder.rollbackSession();
+		assertTrue(Arrays.equals(third, encodeSessionSample(encoder, 1)));
+		encoder.resetSession();
+		assertTrue(Arrays.equals(first, encodeSessionSample(encoder, 0)));
+
+		decodeSessionSample(decoder, first, 0);
+		decodeSessionSample(decoder, second, 0);
+		decoder.checkpointSession();
+		decodeSessionSample(decoder, third, 1);
+		decoder.rollbackSession();
+		decodeSessionSample(decoder, third, 1);
+		decoder.resetSession();
+		decodeSessionSample(decoder, first, 0);
+
+		// without session mode every document starts fresh
+		exiFactory.setSessionMode(false);
+		encoder = exiFactory.createEXIBodyEncoder();
+		assertTrue(Arrays.equals(first, encodeSessionSample(encoder, 0)));
+		assertTrue(Arrays.equals(first, encodeSessionSample(encoder, 0)));
+		try {
+			encoder.checkpointSession();
+			fail("Session mode is not enabled");
+		} catch (EXIException e) {
+			// expected
+		}
+	}
 
 }
@@ -0,0 +1,527 @@
+/*
+ * Copyright (c) 2007-2016 Siemens AG
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * 
+ */
+
+package com.siemens.ct.exi.grammars;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+
+import junit.framework.TestCase;
+
+import com.siemens.ct.exi.Constants;
+import com.siemens.ct.exi.DecodingOptions;
+import com.siemens.ct.exi.EXIBodyDecoder;
+import com.siemens.ct.exi.EXIBodyEncoder;
+import com.siemens.ct.exi.EXIFactory;
+import com.siemens.ct.exi.FidelityOptions;
+import com.siemens.ct.exi.FidelityOptions.EventCodeTable;
+import com.siemens.ct.exi.context.GrammarContext;
+import com.siemens.ct.exi.context.GrammarUriContext;
+import com.siemens.ct.exi.context.QNameContext;
+import com.siemens.ct.exi.datatype.EnumerationDatatype;
+import com.siemens.ct.exi.datatype.IntegerDatatype;
+import com.siemens.ct.exi.datatype.StringDatatype;
+import com.siemens.ct.exi.exceptions.EXIException;
+import com.siemens.ct.exi.grammars.event.Attribute;
+import com.siemens.ct.exi.grammars.event.Characters;
+import com.siemens.ct.exi.grammars.event.EndDocument;
+import com.siemens.ct.exi.grammars.event.EndElement;
+import com.siemens.ct.exi.grammars.event.EventType;
+import com.siemens.ct.exi.grammars.event.StartDocument;
+import com.siemens.ct.exi.grammars.event.StartElement;
+import com.siemens.ct.exi.grammars.grammar.BuiltInStartTag;
+import com.siemens.ct.exi.grammars.grammar.DecodeTable;
+import com.siemens.ct.exi.grammars.grammar.DocEnd;
+import com.siemens.ct.exi.grammars.grammar.Document;
+import com.siemens.ct.exi.grammars.grammar.Fragment;
+import com.siemens.ct.exi.grammars.grammar.Grammar;
+import com.siemens.ct.exi.grammars.grammar.SchemaInformedDocContent;
+import com.siemens.ct.exi.grammars.grammar.SchemaInformedElement;
+import com.siemens.ct.exi.grammars.grammar.SchemaInformedFirstStartTag;
+import com.siemens.ct.exi.grammars.grammar.SchemaInformedStartTag;
+import com.siemens.ct.exi.helpers.DefaultEXIFactory;
+import com.siemens.ct.exi.grammars.production.Production;
+import com.siemens.ct.exi.helpers.FrozenGrammarsTrainer;
+import com.siemens.ct.exi.values.StringValue;
+import com.siemens.ct.exi.values.Value;
+
+public class GrammarsCoreTest extends TestCase {
+
+	public GrammarsCoreTest(String testName) {
+		super(testName);
+	}
+
+	protected void encodeSample(EXIBodyEncoder encoder) throws EXIException,
+			IOException {
+		encoder.encodeStartDocument();
+		encoder.encodeStartElement("urn:foo", "root", null);
+		encoder.encodeStartElement("urn:foo", "item", null);
+		encoder.encodeAttribute("", "id", null, new StringValue("1"));
+		encoder.encodeCharacters(new StringValue("text"));
+		encoder.encodeEndElement();
+		encoder.encodeEndElement();
+		encoder.encodeEndDocument();
+		encoder.flush();
+	}
+
+	protected byte[] encodeSample(EXIFactory factory) throws EXIException,
+			IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		EXIBodyEncoder encoder = factory.createEXIBodyEncoder();
+		encoder.setOutputStream(baos);
+		encodeSample(encoder);
+		return baos.toByteArray();
+	}
+
+	public void testFrozenGrammars() throws EXIException, IOException {
+		EXIFactory factory = DefaultEXIFactory.newInstance();
+		byte[] plain = encodeSample(factory);
+
+		FrozenGrammarsTrainer trainer = new FrozenGrammarsTrainer(factory);
+		encodeSample(trainer.newSample());
+		assertEquals(1, trainer.getNumberOfSamples());
+		FrozenGrammars grammars = trainer.train();
+		assertFalse(grammars.isSchemaInformed());
+
+		// persisted form
+		ByteArrayOutputStream baosG = new ByteArrayOutputStream();
+		grammars.writeTo(baosG);
+		grammars = FrozenGrammars.readFrom(new ByteArrayInputStream(baosG
+				.toByteArray()));
+		assertFalse(grammars.isSchemaInformed());
+
+		// learned productions are known up front
+		factory.setGrammars(grammars);
+		byte[] frozen = encodeSample(factory);
+		assertTrue(frozen.length < plain.length);
+		// and do not evolve any further
+		EXIBodyEncoder encoder = factory.createEXIBodyEncoder();
+		for (int i = 0; i < 2; i++) {
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			encoder.setOutputStream(baos);
+			encodeSample(encoder);
+			assertTrue(Arrays.equals(frozen, baos.toByteArray()));
+		}
+
+		EXIBodyDecoder decoder = factory.createEXIBodyDecoder();
+		decoder.setInputStream(new ByteArrayInputStream(frozen));
+		assertTrue(decoder.next() == EventType.START_DOCUMENT);
+		decoder.decodeStartDocument();
+		assertTrue(decoder.next() == EventType.START_ELEMENT_GENERIC);
+		assertEquals("root", decoder.decodeStartElement().getLocalName());
+		assertTrue(decoder.next() == EventType.START_ELEMENT);
+		assertEquals("item", decoder.decodeStartElement().getLocalName());
+		assertTrue(decoder.next() == EventType.ATTRIBUTE);
+		assertEquals("id", decoder.decodeAttribute().getLocalName());
+		assertTrue(decoder.next() == EventType.CHARACTERS);
+		assertEquals("text", decoder.decodeCharacters().toString());
+		assertTrue(decoder.next() == EventType.END_ELEMENT);
+		decoder.decodeEndElement();
+		assertTrue(decoder.next() == EventType.END_ELEMENT);
+		decoder.decodeEndElement();
+		assertTrue(decoder.next() == EventType.END_DOCUMENT);
+		decoder.decodeEndDocument();
+	}
+
+	public static SchemaInformedGrammars createSchemaInformedGrammars()
+			throws EXIException {
+		// root := @a(int) item*, item := enumeration(red, green, blue)
+		String[] names = { "a", "item", "root" };
+		GrammarUriContext[] gucs = new GrammarUriContext[3];
+		QNameContext[] qncs = new QNameContext[names.length];
+		for (int i = 0; i < names.length; i++) {
+			qncs[i] = new QNameContext(0, i, new QName("", names[i]));
+		}
+		gucs[0] = new GrammarUriContext(0, "", qncs, Constants.PREFIXES_EMPTY);
+		QNameContext[] qncsXML = new QNameContext[Constants.LOCAL_NAMES_XML.length];
+		for (int i = 0; i < qncsXML.length; i++) {
+			qncsXML[i] = new QNameContext(1, i, new QName(
+					Constants.XML_NS_URI, Constants.LOCAL_NAMES_XML[i]));
+		}
+		gucs[1] = new GrammarUriContext(1, Constants.XML_NS_URI, qncsXML,
+				Constants.PREFIXES_XML);
+		QNameContext[] qncsXSI = new QNameContext[Constants.LOCAL_NAMES_XSI.length];
+		for (int i = 0; i < qncsXSI.length; i++) {
+			qncsXSI[i] = new QNameContext(2, i, new QName(
+					Constants.XML_SCHEMA_INSTANCE_NS_URI,
+					Constants.LOCAL_NAMES_XSI[i]));
+		}
+		gucs[2] = new GrammarUriContext(2,
+				Constants.XML_SCHEMA_INSTANCE_NS_URI, qncsXSI,
+				Constants.PREFIXES_XSI);
+		GrammarContext gc = new GrammarContext(gucs, qncs.length
+				+ qncsXML.length + qncsXSI.length);
+
+		Value[] colors = { new StringValue("red"), new StringValue("green"),
+				new StringValue("blue") };
+		SchemaInformedElement end = new SchemaInformedElement();
+		end.addTerminalProduction(new EndElement());
+		SchemaInformedFirstStartTag item = new SchemaInformedFirstStartTag(end);
+		item.addProduction(new Characters(new EnumerationDatatype(colors,
+				new StringDatatype(null), null)), end);
+		StartElement seItem = new StartElement(qncs[1], item);
+
+		SchemaInformedElement items = new SchemaInformedElement();
+		items.addProduction(seItem, items);
+		items.addTerminalProduction(new EndElement());
+		SchemaInformedStartTag rootContent = new SchemaInformedStartTag(items);
+		rootContent.addProduction(seItem, items);
+		rootContent.addTerminalProduction(new EndElement());
+		SchemaInformedFirstStartTag root = new SchemaInformedFirstStartTag(
+				items);
+		root.addProduction(new Attribute(qncs[0], new IntegerDatatype(null)),
+				rootContent);
+		StartElement seRoot = new StartElement(qncs[2], root);
+		qncs[2].setGlobalStartElement(seRoot);
+
+		DocEnd docEnd = new DocEnd();
+		docEnd.addTerminalProduction(new EndDocument());
+		SchemaInformedDocContent docContent = new SchemaInformedDocContent();
+		docContent.addProduction(seRoot, docEnd);
+		Document document = new Document();
+		document.addProduction(new StartDocument(), docContent);
+
+		SchemaInformedGrammars grammars = new SchemaInformedGrammars(gc,
+				document, new Fragment(), null);
+		grammars.setSchemaId("colors");
+		return grammars;
+	}
+
+	public static byte[] encodeColors(EXIFactory factory) throws EXIException,
+			IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		EXIBodyEncoder encoder = factory.createEXIBodyEncoder();
+		encoder.setOutputStream(baos);
+		encoder.encodeStartDocument();
+		encoder.encodeStartElement("", "root", null);
+		encoder.encodeAttribute("", "a", null, new StringValue("-12"));
+		for (int i = 0; i < 10; i++) {
+			encoder.encodeStartElement("", "item", null);
+			encoder.encodeCharacters(new StringValue(i % 2 == 0 ? "red"
+					: "blue"));
+			encoder.encodeEndElement();
+		}
+		encoder.encodeEndElement();
+		encoder.encodeEndDocument();
+		encoder.flush();
+		return baos.toByteArray();
+	}
+
+	public void testGrammarsSnapshot() throws EXIException, IOException {
+		EXIFactory factory = DefaultEXIFactory.newInstance();
+		factory.setGrammars(createSchemaInformedGrammars());
+		byte[] bytes = encodeColors(factory);
+
+		ByteArrayOutputStream baosG = new ByteArrayOutputStream();
+		GrammarsSnapshot.write(createSchemaInformedGrammars(), baosG);
+		SchemaInformedGrammars grammars = GrammarsSnapshot.load(ByteBuffer
+				.wrap(baosG.toByteArray()));
+		assertEquals("colors", grammars.getSchemaId());
+
+		// global element and type grammar are resolved on first use
+		GrammarsSnapshot.SnapshotQNameContext root = (GrammarsSnapshot.SnapshotQNameContext) grammars
+				.getGrammarContext().getGrammarUriContext(0)
+				.getQNameContext("root");
+		assertFalse(root.globalElementResolved);
+		assertFalse(root.globalAttributeResolved);
+		assertNotNull(root.getGlobalStartElement());
+		assertNull(root.getGlobalAttribute());
+		assertTrue(root.globalElementResolved);
+		assertTrue(root.globalAttributeResolved);
+		assertTrue(root.getGlobalStartElement() == root
+				.getGlobalStartElement());
+
+		factory.setGrammars(grammars);
+		assertTrue(Arrays.equals(bytes, encodeColors(factory)));
+
+		EXIBodyDecoder decoder = factory.createEXIBodyDecoder();
+		decoder.setInputStream(new ByteArrayInputStream(bytes));
+		assertTrue(decoder.next() == EventType.START_DOCUMENT);
+		decoder.decodeStartDocument();
+		assertTrue(decoder.next() == EventType.START_ELEMENT);
+		assertEquals("root", decoder.decodeStartElement().getLocalName());
+		assertTrue(decoder.next() == EventType.ATTRIBUTE);
+		decoder.decodeAttribute();
+		assertEquals("-12", decoder.getAttributeValue().toString());
+		for (int i = 0; i < 10; i++) {
+			assertTrue(decoder.next() == EventType.START_ELEMENT);
+			assertEquals("item", decoder.decodeStartElement().getLocalName());
+			assertTrue(decoder.next() == EventType.CHARACTERS);
+			assertEquals(i % 2 == 0 ? "red" : "blue", decoder
+					.decodeCharacters().toString());
+			assertTrue(decoder.next() == EventType.END_ELEMENT);
+			decoder.decodeEndElement();
+		}
+		assertTrue(decoder.next() == EventType.END_ELEMENT);
+		decoder.decodeEndElement();
+		assertTrue(decoder.next() == EventType.END_DOCUMENT);
+	}
+
+	public void testEventCodeTable() throws EXIException {
+		FidelityOptions fo = FidelityOptions.createDefault();
+		Grammar element = new BuiltInStartTag().getElementContentGrammar();
+		EventCodeTable ect = fo.getEventCodeTable(element);
+		// {SE*, CH}
+		assertEquals(2, ect.get2ndLevelCharacteristics());
+		assertEquals(1, ect.get2ndLevelEventCodeLength());
+		assertEquals(EventType.START_ELEMENT_GENERIC_UNDECLARED,
+				ect.get2ndLevelEventType(0));
+		assertEquals(1, ect.get2ndLevelEventCode(
+				EventType.CHARACTERS_GENERIC_UNDECLARED));
+		assertNull(ect.get2ndLevelEventType(2));
+		assertEquals(Constants.NOT_FOUND, ect.get2ndLevelEventCode(
+				EventType.ENTITY_REFERENCE));
+		// learned productions only affect 1st level code length
+		assertEquals(1, fo.get1stLevelEventCodeLength(element));
+		element.learnCharacters();
+		assertTrue(ect == fo.getEventCodeTable(element));
+		assertEquals(2, fo.get1stLevelEventCodeLength(element));
+
+		// tables are recomputed once fidelity options change
+		fo.setFidelity(FidelityOptions.FEATURE_DTD, true);
+		fo.setFidelity(FidelityOptions.FEATURE_COMMENT, true);
+		ect = fo.getEventCodeTable(element);
+		// {SE*, CH, ER, {CM, PI}}
+		assertEquals(4, ect.get2ndLevelCharacteristics());
+		assertEquals(2, ect.get2ndLevelEventCodeLength());
+		assertEquals(EventType.ENTITY_REFERENCE, ect.get2ndLevelEventType(2));
+		assertNull(ect.get2ndLevelEventType(3));
+		assertEquals(0, fo.get3rdLevelEventCodeLength());
+	}
+
+	protected List<String> decodeEvents(EXIFactory factory, byte[] bytes)
+			throws EXIException, IOException {
+		List<String> events = new ArrayList<String>();
+		EXIBodyDecoder decoder = factory.createEXIBodyDecoder();
+		decoder.setInputStream(new ByteArrayInputStream(bytes));
+		EventType next;
+		while ((next = decoder.next()) != null) {
+			events.add(next.toString());
+			switch (next) {
+			case START_DOCUMENT:
+				decoder.decodeStartDocument();
+				break;
+			case END_DOCUMENT:
+				decoder.decodeEndDocument();
+				break;
+			case START_ELEMENT:
+			case START_ELEMENT_GENERIC:
+			case START_ELEMENT_GENERIC_UNDECLARED:
+				events.add(decoder.decodeStartElement().getLocalName());
+				break;
+			case END_ELEMENT:
+			case END_ELEMENT_UNDECLARED:
+				decoder.decodeEndElement();
+				break;
+			case ATTRIBUTE:
+			case ATTRIBUTE_GENERIC_UNDECLARED:
+				events.add(decoder.decodeAttribute().getLocalName());
+				events.add(decoder.getAttributeValue().toString());
+				break;
+			case CHARACTERS:
+			case CHARACTERS_GENERIC_UNDECLARED:
+				events.add(decoder.decodeCharacters().toString());
+				break;
+			default:
+				fail("Unexpected event " + next);
+			}
+		}
+		return events;
+	}
+
+	public void testTableDrivenDispatch() throws EXIException, IOException {
+		// schema-informed and schema-less (learning) grammars
+		for (int i = 0; i < 2; i++) {
+			EXIFactory factory = DefaultEXIFactory.newInstance();
+			if (i == 0) {
+				factory.setGrammars(createSchemaInformedGrammars());
+			}
+			factory.getFidelityOptions().setFidelity(
+					FidelityOptions.FEATURE_COMMENT, true);
+			byte[] bytes = encodeColors(factory);
+			List<String> expected = decodeEvents(factory, bytes);
+			assertTrue(expected.contains("blue"));
+
+			factory.getDecodingOptions().setOption(
+					DecodingOptions.TABLE_DRIVEN_DISPATCH);
+			assertEquals(expected, decodeEvents(factory, bytes));
+			// decode tables of shared grammars are reused
+			assertEquals(expected, decodeEvents(factory, bytes));
+		}
+	}
+
+	public void testDecodeTables() throws EXIException {
+		Grammar element = new BuiltInStartTag().getElementContentGrammar();
+		FidelityOptions fo1 = FidelityOptions.createDefault();
+		FidelityOptions fo2 = FidelityOptions.createDefault();
+		fo2.setFidelity(FidelityOptions.FEATURE_COMMENT, true);
+		DecodeTable dt1 = element.getDecodeTable(fo1);
+		DecodeTable dt2 = element.getDecodeTable(fo2);
+		assertTrue(dt1.getEventCodeTable() == fo1.getEventCodeTable(element));
+		assertTrue(dt2.getEventCodeTable() == fo2.getEventCodeTable(element));
+		// shared grammar keeps one table per event-code table
+		for (int i = 0; i < 3; i++) {
+			assertTrue(dt1 == element.getDecodeTable(fo1));
+			assertTrue(dt2 == element.getDecodeTable(fo2));
+		}
+	}
+
+	/*
+	 * Compares the compiled grammar and all grammars reachable from it with
+	 * the object grammar.
+	 */
+	protected void assertCompiled(GrammarCursor cursor, Grammar g,
+			int grammarID, Map<Grammar, Integer> visited) {
+		if (g == null || g.getNumberOfEvents() == 0) {
+			// end rule (NONE) or empty grammar
+			cursor.moveToGrammar(grammarID);
+			assertEquals(0, cursor.getNumberOfEvents());
+			return;
+		}
+		Integer id = visited.get(g);
+		if (id != null) {
+			assertEquals(id.intValue(), grammarID);
+			return;
+		}
+		visited.put(g, grammarID);
+		for (int ec = 0; ec < g.getNumberOfEvents(); ec++) {
+			Production prod = g.getProduction(ec);
+			cursor.moveToGrammar(grammarID);
+			assertEquals(g.getNumberOfEvents(), cursor.getNumberOfEvents());
+			assertEquals(prod.getEvent().getEventType(),
+					cursor.getEventType(ec));
+			int next = cursor.getNextGrammar(ec);
+			switch (prod.getEvent().getEventType()) {
+			case START_ELEMENT:
+				StartElement se = (StartElement) prod.getEvent();
+				assertTrue(se.getQNameContext() == cursor.getQNameContext(ec));
+				cursor.advance(ec);
+				int element = cursor.getGrammar();
+				cursor.endElement();
+				assertEquals(next, cursor.getGrammar());
+				assertCompiled(cursor, se.getGrammar(), element, visited);
+				break;
+			case ATTRIBUTE:
+				Attribute at = (Attribute) prod.getEvent();
+				assertTrue(at.getQNameContext() == cursor.getQNameContext(ec));
+				assertTrue(at.getDatatype() == cursor.getDatatype(ec));
+				break;
+			case CHARACTERS:
+				assertTrue(((Characters) prod.getEvent()).getDatatype() == cursor
+						.getDatatype(ec));
+				break;
+			default:
+				assertNull(cursor.getQNameContext(ec));
+				break;
+			}
+			assertCompiled(cursor, prod.getNextGrammar(), next, visited);
+		}
+	}
+
+	public void testCompiledGrammars() throws EXIException {
+		SchemaInformedGrammars grammars = createSchemaInformedGrammars();
+		CompiledGrammars compiled = CompiledGrammars.compile(grammars);
+		GrammarCursor cursor = new GrammarCursor(compiled);
+		Map<Grammar, Integer> visited = new IdentityHashMap<Grammar, Integer>();
+		assertCompiled(cursor, grammars.getDocumentGrammar(),
+				compiled.getDocumentGrammar(), visited);
+		assertCompiled(cursor, grammars.getFragmentGrammar(),
+				compiled.getFragmentGrammar(), visited);
+		assertEquals(0, cursor.getDepth());
+
+		QNameContext root = grammars.getGrammarContext()
+				.getGrammarUriContext(0).getQNameContext("root");
+		int rootID = compiled.getQNameID(root);
+		assertTrue(root == compiled.getQNameContext(rootID));
+		assertEquals(visited.get(root.getGlobalStartElement().getGrammar())
+				.intValue(), compiled.getGlobalElementGrammar(rootID));
+	}
+
+	public void testGrammarCursor() throws EXIException, IOException {
+		SchemaInformedGrammars grammars = createSchemaInformedGrammars();
+		EXIFactory factory = DefaultEXIFactory.newInstance();
+		factory.setGrammars(grammars);
+		byte[] bytes = encodeColors(factory);
+
+		// the cursor follows the decoded stream
+		CompiledGrammars compiled = CompiledGrammars.compile(grammars);
+		GrammarCursor cursor = new GrammarCursor(compiled);
+		EXIBodyDecoder decoder = factory.createEXIBodyDecoder();
+		decoder.setInputStream(new ByteArrayInputStream(bytes));
+		int elements = 0;
+		EventType next;
+		while ((next = decoder.next()) != null) {
+			int ec;
+			switch (next) {
+			case START_DOCUMENT:
+				decoder.decodeStartDocument();
+				ec = cursor.getEventCode(next);
+				break;
+			case START_ELEMENT:
+				ec = cursor.getEventCode(next,
+						compiled.getQNameID(decoder.decodeStartElement()));
+				elements++;
+				break;
+			case ATTRIBUTE:
+				ec = cursor.getEventCode(next,
+						compiled.getQNameID(decoder.decodeAttribute()));
+				assertTrue(cursor.getDatatype(ec) instanceof IntegerDatatype);
+				break;
+			case CHARACTERS:
+				decoder.decodeCharacters();
+				ec = cursor.getEventCode(next);
+				assertTrue(cursor.getDatatype(ec) instanceof EnumerationDatatype);
+				break;
+			case END_ELEMENT:
+				decoder.decodeEndElement();
+				ec = cursor.getEventCode(next);
+				break;
+			case END_DOCUMENT:
+				decoder.decodeEndDocument();
+				ec = cursor.getEventCode(next);
+				break;
+			default:
+				fail("Unexpected event " + next);
+				return;
+			}
+			assertTrue(ec != Constants.NOT_FOUND);
+			cursor.advance(ec);
+			if (next == EventType.END_DOCUMENT) {
+				break;
+			}
+		}
+		assertEquals(11, elements);
+		assertEquals(0, cursor.getDepth());
+		assertEquals(CompiledGrammars.NONE, cursor.getGrammar());
+	}
+
+}
@@ -33,6 +33,7 @@ import com.siemens.ct.exi.Constants;
 import com.siemens.ct.exi.context.QNameContext;
 import com.siemens.ct.exi.datatype.Datatype;
 import com.siemens.ct.exi.datatype.IntegerDatatype;
+import com.siemens.ct.exi.datatype.ListDatatype;
 import com.siemens.ct.exi.datatype.NBitUnsignedIntegerDatatype;
 import com.siemens.ct.exi.datatype.UnsignedIntegerDatatype;
 import com.siemens.ct.exi.exceptions.EXIException;
@@ -126,5 +127,28 @@ public class TypeCoreTest extends TestCase {
 		assertFalse(te.isValid(dt, new StringValue("xxx")));		
 	}
 	
+	public void testDTRResolvedOnce() throws IOException, EXIException {
+		
+		/* DTR Map */
+		QName type = new QName(Constants.XML_SCHEMA_NS_URI, "integer");
+		QName representation = new QName(Constants.W3C_EXI_NS_URI, "string");
+		QName[] dtrMapTypes = { type };
+		QName[] dtrMapRepresentations = { representation };
+		TypedTypeEncoder te = new TypedTypeEncoder(dtrMapTypes, dtrMapRepresentations, null);
+		
+		Datatype dtInteger = new IntegerDatatype(new QNameContext(-1, -1, type));
+		Datatype dtList = new ListDatatype(dtInteger, new QNameContext(-1, -1, new QName("", "integers")));
+		
+		Datatype dtrList = te.getDtrDatatype(dtList);
+		assertTrue(dtrList.getBuiltInType() == BuiltInType.LIST);
+		assertTrue(((ListDatatype) dtrList).getListDatatype().getBuiltInType() == BuiltInType.STRING);
+		assertTrue(te.getDtrDatatype(dtInteger).getBuiltInType() == BuiltInType.STRING);
+		// resolved list representation is reused
+		assertSame(dtrList, te.getDtrDatatype(dtList));
+		assertSame(dtrList, te.getDtrDatatype(dtList));
+		
+		assertTrue(te.isValid(dtList, new StringValue("1 x 3")));
+	}
+	
 
-}
\ No newline at end of file
+}